@@ -24,10 +24,13 @@ package com.spotify.heroic.aggregation.simple;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
+import com.spotify.heroic.aggregation.SlidingWindow;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
 
+import java.util.Optional;
+
 public class AverageInstance extends DistributedBucketInstance<StripedAverageBucket> {
     @JsonCreator
     public AverageInstance(
@@ -36,6 +39,11 @@ public class AverageInstance extends DistributedBucketInstance<StripedAverageBuc
         super(size, extent, ImmutableSet.of(MetricType.POINT), MetricType.POINT);
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return alignedTo(resolution);
+    }
+
     @Override
     protected StripedAverageBucket buildBucket(long timestamp) {
         return new StripedAverageBucket(timestamp);
@@ -51,4 +59,18 @@ public class AverageInstance extends DistributedBucketInstance<StripedAverageBuc
 
         return new Point(bucket.timestamp(), bucket.value());
     }
+
+    @Override
+    protected Optional<SlidingWindow<StripedAverageBucket>> slidingWindow() {
+        return Optional.of(SlidingWindow.<StripedAverageBucket>builder()
+            .additive(StripedAverageBucket::sum)
+            .additive(StripedAverageBucket::count)
+            .build((timestamp, v) -> {
+                if (v[1] == 0D) {
+                    return Metric.invalid();
+                }
+
+                return new Point(timestamp, v[0] / v[1]);
+            }));
+    }
 }
@@ -27,9 +27,13 @@ import com.spotify.heroic.aggregation.AggregationContext;
 import com.spotify.heroic.aggregation.SamplingQuery;
 import com.spotify.heroic.common.Duration;
 import com.spotify.heroic.common.Optionals;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 import java.util.Optional;
 
+@Data
+@EqualsAndHashCode(callSuper = true)
 public class Count extends SamplingAggregation {
     public static final String NAME = "count";
 
@@ -26,10 +26,13 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.spotify.heroic.aggregation.AggregationInstance;
 import com.spotify.heroic.aggregation.BucketReducerSession;
 import com.spotify.heroic.aggregation.ReducerSession;
+import com.spotify.heroic.aggregation.SlidingWindow;
 import com.spotify.heroic.common.DateRange;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
 
+import java.util.Optional;
+
 public class CountInstance extends DistributedBucketInstance<StripedCountBucket> {
     @JsonCreator
     public CountInstance(
@@ -38,6 +41,11 @@ public class CountInstance extends DistributedBucketInstance<StripedCountBucket>
         super(size, extent, ALL_TYPES, MetricType.POINT);
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return alignedTo(resolution);
+    }
+
     @Override
     protected StripedCountBucket buildBucket(long timestamp) {
         return new StripedCountBucket(timestamp);
@@ -48,6 +56,13 @@ public class CountInstance extends DistributedBucketInstance<StripedCountBucket>
         return new Point(bucket.timestamp(), bucket.count());
     }
 
+    @Override
+    protected Optional<SlidingWindow<StripedCountBucket>> slidingWindow() {
+        return Optional.of(SlidingWindow.<StripedCountBucket>builder()
+            .additive(StripedCountBucket::count)
+            .build((timestamp, v) -> new Point(timestamp, v[0])));
+    }
+
     @Override
     public AggregationInstance distributed() {
         return this;
@@ -22,27 +22,33 @@
 package com.spotify.heroic.aggregation.simple;
 
 import com.spotify.heroic.aggregation.AbstractAnyBucket;
+import com.spotify.heroic.aggregation.StripedState;
 import com.spotify.heroic.metric.Metric;
-import lombok.RequiredArgsConstructor;
+import com.spotify.heroic.metric.Sketch;
 
-import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Bucket that counts the number of seen events.
+ * Bucket that estimates the number of unique events seen, using a {@link HyperLogLog} sketch.
+ * <p>
+ * The bucket accepts sketches produced by other count unique buckets, which allows it to be used
+ * both for sub-aggregations and for reducing them.
+ * <p>
+ * Concurrent updates go to partial sketches which are local to the updating thread, and are merged
+ * when the bucket is read.
  *
  * @author udoprog
  */
-@RequiredArgsConstructor
 public class CountUniqueBucket extends AbstractAnyBucket {
     private final long timestamp;
+    private final int precision;
+    private final StripedState<HyperLogLog> sketches;
 
-    private final AtomicInteger count = new AtomicInteger(0);
-    private final Set<Integer> seen =
-        Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    public CountUniqueBucket(final long timestamp, final int precision) {
+        this.timestamp = timestamp;
+        this.precision = precision;
+        this.sketches = new StripedState<>(() -> new HyperLogLog(precision));
+    }
 
     public long timestamp() {
         return timestamp;
@@ -50,12 +56,36 @@ public class CountUniqueBucket extends AbstractAnyBucket {
 
     @Override
     public void update(Map<String, String> tags, Metric d) {
-        if (seen.add(tags.hashCode() ^ d.valueHash())) {
-            count.incrementAndGet();
-        }
+        final long key = ((long) tags.hashCode() << 32) | (d.valueHash() & 0xffffffffL);
+        final long hash = HyperLogLog.hash(key);
+        sketches.update(s -> s.add(hash));
+    }
+
+    @Override
+    public void updateSketch(Map<String, String> tags, Sketch d) {
+        sketches.update(s -> s.merge(d.getState()));
     }
 
     public long count() {
-        return count.get();
+        return merged().cardinality();
+    }
+
+    /**
+     * Build a sketch metric out of the current state of this bucket.
+     */
+    public Metric toSketch() {
+        final HyperLogLog sketch = merged();
+
+        if (sketch.isEmpty()) {
+            return Metric.invalid();
+        }
+
+        return new Sketch(timestamp, sketch.serialize());
+    }
+
+    private HyperLogLog merged() {
+        final HyperLogLog merged = new HyperLogLog(precision);
+        sketches.forEach(merged::merge);
+        return merged;
     }
 }
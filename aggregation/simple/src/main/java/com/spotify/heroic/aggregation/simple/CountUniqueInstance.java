@@ -23,25 +23,42 @@ package com.spotify.heroic.aggregation.simple;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.spotify.heroic.aggregation.BucketAggregationInstance;
+import com.google.common.collect.ImmutableSet;
+import com.spotify.heroic.aggregation.AggregationInstance;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
 
-public class CountUniqueInstance extends BucketAggregationInstance<CountUniqueBucket> {
+import java.util.Set;
+
+public class CountUniqueInstance extends DistributedBucketInstance<CountUniqueBucket> {
+    /**
+     * Precision of the sketch used by every bucket, which uses 2^12 bytes of memory and has a
+     * standard error of about 1.6%.
+     */
+    public static final int PRECISION = 12;
+
+    static final Set<MetricType> INPUT =
+        ImmutableSet.<MetricType>builder().addAll(ALL_TYPES).add(MetricType.SKETCH).build();
+
     @JsonCreator
     public CountUniqueInstance(
         @JsonProperty("size") final long size, @JsonProperty("extent") final long extent
     ) {
-        super(size, extent, ALL_TYPES, MetricType.POINT);
+        super(size, extent, INPUT, MetricType.POINT);
     }
 
     @Override
     protected CountUniqueBucket buildBucket(long timestamp) {
-        return new CountUniqueBucket(timestamp);
+        return new CountUniqueBucket(timestamp, PRECISION);
     }
 
     @Override
     protected Point build(CountUniqueBucket bucket) {
         return new Point(bucket.timestamp(), bucket.count());
     }
+
+    @Override
+    public AggregationInstance distributed() {
+        return new CountUniqueSketchInstance(getSize(), getExtent());
+    }
 }
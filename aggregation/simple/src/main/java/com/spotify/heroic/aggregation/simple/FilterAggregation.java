@@ -36,10 +36,12 @@ import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.Point;
 import com.spotify.heroic.metric.ShardedResultGroup;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -67,6 +69,11 @@ public class FilterAggregation implements AggregationInstance {
         return of.cadence();
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return of.supportsRollup(resolution);
+    }
+
     @Override
     public AggregationTraversal session(List<AggregationState> states, DateRange range) {
         final AggregationTraversal traversal = of.session(states, range);
@@ -82,18 +89,32 @@ public class FilterAggregation implements AggregationInstance {
 
     @Override
     public AggregationCombiner combiner(DateRange range) {
-        return all -> {
-            final List<FilterableMetrics<ShardedResultGroup>> filterableMetrics = of
-                .combiner(range)
-                .combine(all)
-                .stream()
-                .map(s -> new FilterableMetrics<>(s, s::getGroup))
-                .collect(Collectors.toList());
-
-            return filterStrategy.filter(filterableMetrics);
+        final AggregationCombiner combiner = of.combiner(range);
+
+        return new AggregationCombiner() {
+            @Override
+            public List<ShardedResultGroup> combine(final List<List<ShardedResultGroup>> all) {
+                return filter(combiner.combine(all));
+            }
+
+            @Override
+            public List<ShardedResultGroup> combine(
+                final List<List<ShardedResultGroup>> all, final ForkJoinPool pool
+            ) {
+                return filter(combiner.combine(all, pool));
+            }
         };
     }
 
+    private List<ShardedResultGroup> filter(final List<ShardedResultGroup> groups) {
+        final List<FilterableMetrics<ShardedResultGroup>> filterableMetrics = groups
+            .stream()
+            .map(s -> new FilterableMetrics<>(s, s::getGroup))
+            .collect(Collectors.toList());
+
+        return filterStrategy.filter(filterableMetrics);
+    }
+
     private class Session implements AggregationSession {
         private final AggregationSession childSession;
         private final FilterStrategy filterStrategy;
@@ -118,6 +139,11 @@ public class FilterAggregation implements AggregationInstance {
             childSession.updateSpreads(group, values);
         }
 
+        @Override
+        public void updateSketches(Map<String, String> group, List<Sketch> values) {
+            childSession.updateSketches(group, values);
+        }
+
         @Override
         public void updateGroup(Map<String, String> group, List<MetricGroup> values) {
             childSession.updateGroup(group, values);
@@ -125,19 +151,15 @@ public class FilterAggregation implements AggregationInstance {
 
         @Override
         public AggregationResult result() {
-            final List<FilterableMetrics<AggregationData>> aggData = getFilterableAggregationData();
-            final List<AggregationData> result = filterStrategy.filter(aggData);
-            return new AggregationResult(result, childSession.result().getStatistics());
-        }
+            final AggregationResult child = childSession.result();
 
-        private List<FilterableMetrics<AggregationData>> getFilterableAggregationData() {
-            return childSession
-                .result()
+            final List<FilterableMetrics<AggregationData>> aggData = child
                 .getResult()
                 .stream()
-                .map(a -> new AggregationData(a.getGroup(), a.getMetrics()))
                 .map(a -> new FilterableMetrics<>(a, a::getMetrics))
                 .collect(Collectors.toList());
+
+            return new AggregationResult(filterStrategy.filter(aggData), child.getStatistics());
         }
     }
 
@@ -165,6 +187,11 @@ public class FilterAggregation implements AggregationInstance {
             childReducer.updateSpreads(group, values);
         }
 
+        @Override
+        public void updateSketches(Map<String, String> group, List<Sketch> values) {
+            childReducer.updateSketches(group, values);
+        }
+
         @Override
         public void updateGroup(Map<String, String> group, List<MetricGroup> values) {
             childReducer.updateGroup(group, values);
@@ -172,15 +199,16 @@ public class FilterAggregation implements AggregationInstance {
 
         @Override
         public ReducerResult result() {
-            final List<FilterableMetrics<MetricCollection>> filterableMetrics = childReducer
-                .result()
+            final ReducerResult child = childReducer.result();
+
+            final List<FilterableMetrics<MetricCollection>> filterableMetrics = child
                 .getResult()
                 .stream()
                 .map(m -> new FilterableMetrics<>(m, () -> m))
                 .collect(Collectors.toList());
 
             return new ReducerResult(filterStrategy.filter(filterableMetrics),
-                childReducer.result().getStatistics());
+                child.getStatistics());
         }
     }
 }
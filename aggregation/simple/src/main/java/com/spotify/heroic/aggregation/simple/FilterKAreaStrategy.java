@@ -21,14 +21,20 @@
 
 package com.spotify.heroic.aggregation.simple;
 
+import com.google.common.collect.ImmutableList;
 import com.spotify.heroic.aggregation.AggregationState;
 import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.Point;
-import lombok.Data;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Picks the K groups with the largest or smallest area.
+ * <p>
+ * Selection is done with a bounded heap of primitive areas, so only K candidates are kept at any
+ * time, regardless of how many groups are filtered.
+ */
 public class FilterKAreaStrategy implements FilterStrategy {
 
     private final FilterKAreaType filterType;
@@ -41,14 +47,25 @@ public class FilterKAreaStrategy implements FilterStrategy {
 
     @Override
     public <T> List<T> filter(List<FilterableMetrics<T>> metrics) {
-        return metrics
-            .stream()
-            .map(Area<T>::new)
-            .sorted((a, b) -> filterType.compare(a.getValue(), b.getValue()))
-            .limit(k)
-            .map(Area::getFilterableMetrics)
-            .map(FilterableMetrics::getData)
-            .collect(Collectors.toList());
+        final int limit = (int) Math.min(k, metrics.size());
+
+        if (limit <= 0) {
+            return ImmutableList.of();
+        }
+
+        final AreaHeap heap = new AreaHeap(filterType, limit);
+
+        for (int i = 0; i < metrics.size(); i++) {
+            heap.offer(computeArea(metrics.get(i).getMetricSupplier().get()), i);
+        }
+
+        final List<T> result = new ArrayList<>(limit);
+
+        for (final int index : heap.drain()) {
+            result.add(metrics.get(index).getData());
+        }
+
+        return result;
     }
 
     @Override
@@ -60,25 +77,123 @@ public class FilterKAreaStrategy implements FilterStrategy {
         return k;
     }
 
-    @Data
-    private class Area<T> {
-        private final FilterableMetrics<T> filterableMetrics;
-        private final double value;
+    private static double computeArea(MetricCollection metricCollection) {
+        final List<Point> metrics = metricCollection.getDataAs(Point.class);
+
+        double area = 0;
+        for (int i = 1; i < metrics.size(); i++) {
+            area += PointPairArea.computeArea(metrics.get(i - 1), metrics.get(i));
+        }
+
+        return area;
+    }
+
+    /**
+     * A bounded heap of areas, where the root is the worst candidate currently kept.
+     * <p>
+     * Ties are broken on the position of the candidate, so that the earliest candidate wins just
+     * like with a stable sort.
+     */
+    static class AreaHeap {
+        private final FilterKAreaType filterType;
+        private final double[] areas;
+        private final int[] indexes;
+        private int size = 0;
+
+        AreaHeap(final FilterKAreaType filterType, final int capacity) {
+            this.filterType = filterType;
+            this.areas = new double[capacity];
+            this.indexes = new int[capacity];
+        }
+
+        void offer(final double area, final int index) {
+            if (size < areas.length) {
+                areas[size] = area;
+                indexes[size] = index;
+                siftUp(size++);
+                return;
+            }
+
+            if (!before(area, index, areas[0], indexes[0])) {
+                return;
+            }
+
+            areas[0] = area;
+            indexes[0] = index;
+            siftDown(0);
+        }
+
+        /**
+         * Empty the heap.
+         *
+         * @return The indexes of all kept candidates, best candidate first.
+         */
+        int[] drain() {
+            final int[] result = new int[size];
+
+            while (size > 0) {
+                result[size - 1] = indexes[0];
+                size--;
+                swap(0, size);
+                siftDown(0);
+            }
+
+            return result;
+        }
+
+        private boolean before(final int a, final int b) {
+            return before(areas[a], indexes[a], areas[b], indexes[b]);
+        }
 
-        public Area(FilterableMetrics<T> filterableMetrics) {
-            this.filterableMetrics = filterableMetrics;
-            this.value = computeArea(filterableMetrics.getMetricSupplier().get());
+        private boolean before(final double a, final int i, final double b, final int j) {
+            final int c = filterType.compare(a, b);
+            return c < 0 || (c == 0 && i < j);
         }
 
-        private double computeArea(MetricCollection metricCollection) {
-            final List<Point> metrics = metricCollection.getDataAs(Point.class);
+        private void siftUp(int n) {
+            while (n > 0) {
+                final int parent = (n - 1) / 2;
 
-            double area = 0;
-            for (int i = 1; i < metrics.size(); i++) {
-                area += PointPairArea.computeArea(metrics.get(i - 1), metrics.get(i));
+                if (!before(parent, n)) {
+                    break;
+                }
+
+                swap(parent, n);
+                n = parent;
+            }
+        }
+
+        private void siftDown(int n) {
+            while (true) {
+                final int left = 2 * n + 1;
+                final int right = left + 1;
+                int worst = n;
+
+                if (left < size && before(worst, left)) {
+                    worst = left;
+                }
+
+                if (right < size && before(worst, right)) {
+                    worst = right;
+                }
+
+                if (worst == n) {
+                    break;
+                }
+
+                swap(n, worst);
+                n = worst;
             }
+        }
+
+        private void swap(final int a, final int b) {
+            final double area = areas[a];
+            areas[a] = areas[b];
+            areas[b] = area;
 
-            return area;
+            final int index = indexes[a];
+            indexes[a] = indexes[b];
+            indexes[b] = index;
         }
     }
 }
@@ -21,21 +21,25 @@
 
 package com.spotify.heroic.aggregation.simple;
 
-import java.util.Comparator;
-
 public enum FilterKAreaType {
-    // @formatter:off
-    TOP(((Comparator<Double>) Double::compare).reversed()),
-    BOTTOM(Double::compare);
-    // @formatter:on
-
-    private final Comparator<Double> comparator;
+    TOP {
+        @Override
+        public int compare(double a, double b) {
+            return Double.compare(b, a);
+        }
+    },
 
-    FilterKAreaType(Comparator<Double> comparator) {
-        this.comparator = comparator;
-    }
+    BOTTOM {
+        @Override
+        public int compare(double a, double b) {
+            return Double.compare(a, b);
+        }
+    };
 
-    public int compare(double a, double b) {
-        return comparator.compare(a, b);
-    }
+    /**
+     * Compare two areas, without boxing them.
+     *
+     * @return a negative number if {@code a} should be picked before {@code b}.
+     */
+    public abstract int compare(double a, double b);
 }
@@ -24,6 +24,7 @@ package com.spotify.heroic.aggregation.simple;
 import com.google.common.collect.ImmutableList;
 import com.spotify.heroic.aggregation.AbstractBucket;
 import com.spotify.heroic.aggregation.Bucket;
+import com.spotify.heroic.aggregation.StripedState;
 import com.spotify.heroic.metric.Event;
 import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricGroup;
@@ -35,36 +36,46 @@ import lombok.RequiredArgsConstructor;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.TreeSet;
 
+/**
+ * Bucket that keeps all unique samples.
+ * <p>
+ * Samples are added to partial sets which are local to the updating thread, and combined when the
+ * bucket is read.
+ */
 @RequiredArgsConstructor
 public class GroupUniqueBucket extends AbstractBucket implements Bucket {
-    final SortedSet<Point> points = new ConcurrentSkipListSet<Point>(MetricType.POINT.comparator());
-    final SortedSet<Event> events = new ConcurrentSkipListSet<Event>(MetricType.EVENT.comparator());
-    final SortedSet<Spread> spreads =
-        new ConcurrentSkipListSet<Spread>(MetricType.SPREAD.comparator());
-    final SortedSet<MetricGroup> groups =
-        new ConcurrentSkipListSet<MetricGroup>(MetricType.GROUP.comparator());
+    final StripedState<Partial> partials = new StripedState<>(Partial::new);
 
     final long timestamp;
 
     public List<MetricCollection> groups() {
+        final Partial all = new Partial();
+
+        partials.forEach(p -> {
+            all.points.addAll(p.points);
+            all.events.addAll(p.events);
+            all.spreads.addAll(p.spreads);
+            all.groups.addAll(p.groups);
+        });
+
         final ImmutableList.Builder<MetricCollection> result = ImmutableList.builder();
 
-        if (!points.isEmpty()) {
-            result.add(MetricCollection.points(ImmutableList.copyOf(points)));
+        if (!all.points.isEmpty()) {
+            result.add(MetricCollection.points(ImmutableList.copyOf(all.points)));
         }
 
-        if (!events.isEmpty()) {
-            result.add(MetricCollection.events(ImmutableList.copyOf(events)));
+        if (!all.events.isEmpty()) {
+            result.add(MetricCollection.events(ImmutableList.copyOf(all.events)));
         }
 
-        if (!spreads.isEmpty()) {
-            result.add(MetricCollection.spreads(ImmutableList.copyOf(spreads)));
+        if (!all.spreads.isEmpty()) {
+            result.add(MetricCollection.spreads(ImmutableList.copyOf(all.spreads)));
         }
 
-        if (!groups.isEmpty()) {
-            result.add(MetricCollection.groups(ImmutableList.copyOf(groups)));
+        if (!all.groups.isEmpty()) {
+            result.add(MetricCollection.groups(ImmutableList.copyOf(all.groups)));
         }
 
         return result.build();
@@ -72,26 +83,33 @@ public class GroupUniqueBucket extends AbstractBucket implements Bucket {
 
     @Override
     public void updatePoint(Map<String, String> tags, Point sample) {
-        points.add(sample);
+        partials.update((p, v) -> p.points.add(v), sample);
     }
 
     @Override
     public void updateEvent(Map<String, String> tags, Event sample) {
-        events.add(sample);
+        partials.update((p, v) -> p.events.add(v), sample);
     }
 
     @Override
     public void updateSpread(Map<String, String> tags, Spread sample) {
-        spreads.add(sample);
+        partials.update((p, v) -> p.spreads.add(v), sample);
     }
 
     @Override
     public void updateGroup(Map<String, String> tags, MetricGroup sample) {
-        groups.add(sample);
+        partials.update((p, v) -> p.groups.add(v), sample);
     }
 
     @Override
     public long timestamp() {
         return timestamp;
     }
+
+    static class Partial {
+        final SortedSet<Point> points = new TreeSet<>(MetricType.POINT.comparator());
+        final SortedSet<Event> events = new TreeSet<>(MetricType.EVENT.comparator());
+        final SortedSet<Spread> spreads = new TreeSet<>(MetricType.SPREAD.comparator());
+        final SortedSet<MetricGroup> groups = new TreeSet<>(MetricType.GROUP.comparator());
+    }
 }
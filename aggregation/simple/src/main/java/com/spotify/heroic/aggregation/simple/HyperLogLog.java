@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.aggregation.simple;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A HyperLogLog sketch for estimating the number of distinct values seen.
+ * <p>
+ * Uses a fixed amount of memory ({@code 2^precision} one-byte registers), which are packed into
+ * atomic longs so that updates from multiple threads are lock-free. The registers are allocated on
+ * the first update, since many sketches (like the per-thread states of a bucket) stay empty.
+ * <p>
+ * Small cardinalities are estimated using linear counting, and since hashes are 64 bits wide no
+ * correction is needed for large cardinalities.
+ * <p>
+ * See: Flajolet, Fusy, Gandouet, and Meunier "HyperLogLog: the analysis of a near-optimal
+ * cardinality estimation algorithm" in AofA 2007
+ * <p>
+ * Heule, Nunkesser, and Hall "HyperLogLog in Practice: Algorithmic Engineering of a State of The
+ * Art Cardinality Estimation Algorithm" in EDBT 2013
+ * <p>
+ * Two sketches with the same precision can be merged without any loss of precision, which makes
+ * them suitable as the intermediate state of distributed aggregations.
+ */
+public class HyperLogLog {
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private static final byte DENSE = 1;
+    private static final byte SPARSE = 2;
+
+    private static final int REGISTERS_PER_WORD = 8;
+
+    private final int precision;
+    private final int registers;
+    private volatile AtomicLongArray words;
+
+    public HyperLogLog(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(
+                String.format("precision must be in the range [%d, %d], not %d", MIN_PRECISION,
+                    MAX_PRECISION, precision));
+        }
+
+        this.precision = precision;
+        this.registers = 1 << precision;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Add a hashed value to the sketch.
+     *
+     * @param hash A well-distributed 64 bit hash of the value, see {@link #hash(long)}.
+     */
+    public void add(final long hash) {
+        final int index = (int) (hash >>> (64 - precision));
+        final int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1)));
+        update(index, rank + 1);
+    }
+
+    /**
+     * Add all values counted by the given sketch to this sketch.
+     *
+     * @throws IllegalArgumentException if the sketches have different precisions.
+     */
+    public void merge(final HyperLogLog other) {
+        checkPrecision(other.precision);
+
+        if (other.words == null) {
+            return;
+        }
+
+        for (int i = 0; i < registers; i++) {
+            final int value = other.register(i);
+
+            if (value != 0) {
+                update(i, value);
+            }
+        }
+    }
+
+    /**
+     * Add all values counted by the given serialized sketch to this sketch.
+     *
+     * @throws IllegalArgumentException if the sketches have different precisions, or if the state
+     * is not a valid sketch.
+     * @see #serialize()
+     */
+    public void merge(final byte[] state) {
+        final ByteBuffer buffer = ByteBuffer.wrap(state);
+        final byte format = buffer.get();
+        checkPrecision(buffer.get());
+
+        if (format == DENSE) {
+            for (int i = 0; i < registers; i++) {
+                final int value = buffer.get();
+
+                if (value != 0) {
+                    update(i, value);
+                }
+            }
+
+            return;
+        }
+
+        if (format == SPARSE) {
+            final int size = (int) SketchCodec.readVarLong(buffer);
+            int index = 0;
+
+            for (int i = 0; i < size; i++) {
+                index += (int) SketchCodec.readVarLong(buffer);
+                update(index, buffer.get());
+            }
+
+            return;
+        }
+
+        throw new IllegalArgumentException("Unsupported sketch format: " + format);
+    }
+
+    /**
+     * Estimate the number of distinct values added to this sketch.
+     */
+    public long cardinality() {
+        if (words == null) {
+            return 0L;
+        }
+
+        double sum = 0D;
+        int zeros = 0;
+
+        for (int i = 0; i < registers; i++) {
+            final int value = register(i);
+
+            if (value == 0) {
+                zeros++;
+            }
+
+            sum += Double.longBitsToDouble((1023L - value) << 52);
+        }
+
+        final double m = registers;
+        final double estimate = alpha(registers) * m * m / sum;
+
+        if (zeros > 0 && estimate <= 2.5D * m) {
+            return Math.round(m * Math.log(m / zeros));
+        }
+
+        return Math.round(estimate);
+    }
+
+    public boolean isEmpty() {
+        final AtomicLongArray words = this.words;
+
+        if (words == null) {
+            return true;
+        }
+
+        for (int i = 0; i < words.length(); i++) {
+            if (words.get(i) != 0L) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Serialize the sketch into a compact binary form.
+     * <p>
+     * Sketches with few non-empty registers are stored sparsely, with their indexes delta-encoded
+     * as variable-length integers.
+     */
+    public byte[] serialize() {
+        final byte[] dense = new byte[registers];
+        int nonZero = 0;
+
+        for (int i = 0; i < registers; i++) {
+            dense[i] = (byte) register(i);
+
+            if (dense[i] != 0) {
+                nonZero++;
+            }
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        /* a sparse entry takes at most three bytes for the index and one for the value */
+        if (nonZero * 4 < registers) {
+            out.write(SPARSE);
+            out.write(precision);
+            SketchCodec.writeVarLong(out, nonZero);
+
+            int last = 0;
+
+            for (int i = 0; i < registers; i++) {
+                if (dense[i] != 0) {
+                    SketchCodec.writeVarLong(out, i - last);
+                    out.write(dense[i]);
+                    last = i;
+                }
+            }
+        } else {
+            out.write(DENSE);
+            out.write(precision);
+            out.write(dense, 0, dense.length);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Build a new sketch out of a serialized one.
+     *
+     * @see #serialize()
+     */
+    public static HyperLogLog deserialize(final byte[] state) {
+        if (state.length < 2) {
+            throw new IllegalArgumentException("Invalid sketch");
+        }
+
+        final HyperLogLog sketch = new HyperLogLog(state[1]);
+        sketch.merge(state);
+        return sketch;
+    }
+
+    /**
+     * Mix the given value into a well-distributed 64 bit hash.
+     * <p>
+     * This is the finalizer of MurmurHash3.
+     */
+    public static long hash(final long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * If the registers of this sketch have been allocated.
+     */
+    boolean isAllocated() {
+        return words != null;
+    }
+
+    private int register(final int index) {
+        final AtomicLongArray words = this.words;
+
+        if (words == null) {
+            return 0;
+        }
+
+        final long word = words.get(index / REGISTERS_PER_WORD);
+        return (int) (word >>> shift(index)) & 0xff;
+    }
+
+    private void update(final int index, final int value) {
+        final AtomicLongArray words = allocate();
+        final int w = index / REGISTERS_PER_WORD;
+        final int shift = shift(index);
+
+        while (true) {
+            final long word = words.get(w);
+
+            if (((int) (word >>> shift) & 0xff) >= value) {
+                return;
+            }
+
+            final long next = (word & ~(0xffL << shift)) | ((long) value << shift);
+
+            if (words.compareAndSet(w, word, next)) {
+                return;
+            }
+        }
+    }
+
+    private AtomicLongArray allocate() {
+        final AtomicLongArray words = this.words;
+
+        if (words != null) {
+            return words;
+        }
+
+        synchronized (this) {
+            if (this.words == null) {
+                this.words = new AtomicLongArray(registers / REGISTERS_PER_WORD);
+            }
+
+            return this.words;
+        }
+    }
+
+    private void checkPrecision(final int other) {
+        if (precision != other) {
+            throw new IllegalArgumentException(
+                String.format("Cannot merge sketches with different precision (%d != %d)",
+                    precision, other));
+        }
+    }
+
+    private static int shift(final int index) {
+        return (index % REGISTERS_PER_WORD) * 8;
+    }
+
+    private static double alpha(final int m) {
+        switch (m) {
+            case 16:
+                return 0.673D;
+            case 32:
+                return 0.697D;
+            case 64:
+                return 0.709D;
+            default:
+                return 0.7213D / (1D + 1.079D / m);
+        }
+    }
+}
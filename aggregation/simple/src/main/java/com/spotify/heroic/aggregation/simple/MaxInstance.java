@@ -24,10 +24,13 @@ package com.spotify.heroic.aggregation.simple;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
+import com.spotify.heroic.aggregation.SlidingWindow;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
 
+import java.util.Optional;
+
 public class MaxInstance extends DistributedBucketInstance<StripedMaxBucket> {
     @JsonCreator
     public MaxInstance(
@@ -36,6 +39,11 @@ public class MaxInstance extends DistributedBucketInstance<StripedMaxBucket> {
         super(size, extent, ImmutableSet.of(MetricType.POINT, MetricType.SPREAD), MetricType.POINT);
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return alignedTo(resolution);
+    }
+
     @Override
     protected StripedMaxBucket buildBucket(long timestamp) {
         return new StripedMaxBucket(timestamp);
@@ -51,4 +59,17 @@ public class MaxInstance extends DistributedBucketInstance<StripedMaxBucket> {
 
         return new Point(bucket.timestamp(), value);
     }
+
+    @Override
+    protected Optional<SlidingWindow<StripedMaxBucket>> slidingWindow() {
+        return Optional.of(SlidingWindow.<StripedMaxBucket>builder()
+            .max(StripedMaxBucket::value)
+            .build((timestamp, v) -> {
+                if (Double.isNaN(v[0])) {
+                    return Metric.invalid();
+                }
+
+                return new Point(timestamp, v[0]);
+            }));
+    }
 }
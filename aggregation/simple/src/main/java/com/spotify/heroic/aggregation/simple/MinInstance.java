@@ -24,10 +24,13 @@ package com.spotify.heroic.aggregation.simple;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
+import com.spotify.heroic.aggregation.SlidingWindow;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
 
+import java.util.Optional;
+
 public class MinInstance extends DistributedBucketInstance<StripedMinBucket> {
     @JsonCreator
     public MinInstance(
@@ -36,6 +39,11 @@ public class MinInstance extends DistributedBucketInstance<StripedMinBucket> {
         super(size, extent, ImmutableSet.of(MetricType.POINT, MetricType.SPREAD), MetricType.POINT);
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return alignedTo(resolution);
+    }
+
     @Override
     protected StripedMinBucket buildBucket(long timestamp) {
         return new StripedMinBucket(timestamp);
@@ -51,4 +59,17 @@ public class MinInstance extends DistributedBucketInstance<StripedMinBucket> {
 
         return new Point(bucket.timestamp(), value);
     }
+
+    @Override
+    protected Optional<SlidingWindow<StripedMinBucket>> slidingWindow() {
+        return Optional.of(SlidingWindow.<StripedMinBucket>builder()
+            .min(StripedMinBucket::value)
+            .build((timestamp, v) -> {
+                if (Double.isNaN(v[0])) {
+                    return Metric.invalid();
+                }
+
+                return new Point(timestamp, v[0]);
+            }));
+    }
 }
@@ -93,6 +93,8 @@ public class Module implements HeroicModule {
             c.register(CountUnique.NAME, CountUnique.class, CountUniqueInstance.class,
                 samplingBuilder(CountUnique::new));
 
+            c.registerInstance(CountUniqueSketchInstance.NAME, CountUniqueSketchInstance.class);
+
             c.register(Count.NAME, Count.class, CountInstance.class, samplingBuilder(Count::new));
 
             c.register(GroupUnique.NAME, GroupUnique.class, GroupUniqueInstance.class,
@@ -115,6 +117,8 @@ public class Module implements HeroicModule {
                     }
                 });
 
+            c.registerInstance(QuantileSketchInstance.NAME, QuantileSketchInstance.class);
+
             c.register(TopK.NAME, TopK.class, TopKInstance.class,
                 new FilterAggregationBuilder<TopK>(factory) {
                     @Override
@@ -41,6 +41,13 @@ public class Quantile extends SamplingAggregation {
     public static final double DEFAULT_ERROR = 0.01;
 
     private final Optional<Double> q;
+
+    /**
+     * The relative error allowed for the estimated quantile, see {@link QuantileSketch}.
+     * <p>
+     * Values outside of the range supported by the sketch are clamped to it, since they used to be
+     * accepted as the rank error of the previous implementation.
+     */
     private final Optional<Double> error;
 
     @JsonCreator
@@ -62,6 +69,18 @@ public class Quantile extends SamplingAggregation {
             error.orElse(DEFAULT_ERROR));
     }
 
+    /**
+     * Clamp the given error into the range of accuracies supported by {@link QuantileSketch}.
+     */
+    static double accuracy(final double error) {
+        if (Double.isNaN(error)) {
+            return DEFAULT_ERROR;
+        }
+
+        return Math.min(QuantileSketch.MAX_ACCURACY,
+            Math.max(QuantileSketch.MIN_ACCURACY, error));
+    }
+
     private String percentage(double v) {
         return Integer.toString((int) Math.min(100, Math.max(0, Math.round(v * 100))));
     }
@@ -24,7 +24,7 @@ package com.spotify.heroic.aggregation.simple;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
-import com.spotify.heroic.aggregation.BucketAggregationInstance;
+import com.spotify.heroic.aggregation.AggregationInstance;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
@@ -35,7 +35,7 @@ import lombok.ToString;
 @Data
 @ToString(callSuper = true)
 @EqualsAndHashCode(callSuper = true)
-public class QuantileInstance extends BucketAggregationInstance<QuantileBucket> {
+public class QuantileInstance extends DistributedBucketInstance<QuantileSketchBucket> {
     private final double q;
     private final double error;
 
@@ -44,19 +44,20 @@ public class QuantileInstance extends BucketAggregationInstance<QuantileBucket>
         @JsonProperty("size") final long size, @JsonProperty("extent") final long extent,
         @JsonProperty("q") final double q, @JsonProperty("error") double error
     ) {
-        super(size, extent, ImmutableSet.of(MetricType.POINT), MetricType.POINT);
+        super(size, extent, ImmutableSet.of(MetricType.POINT, MetricType.SKETCH),
+            MetricType.POINT);
         this.q = q;
-        this.error = error;
+        this.error = Quantile.accuracy(error);
     }
 
     @Override
-    protected QuantileBucket buildBucket(long timestamp) {
-        return new QuantileBucket(timestamp, q, error);
+    protected QuantileSketchBucket buildBucket(long timestamp) {
+        return new QuantileSketchBucket(timestamp, error);
     }
 
     @Override
-    protected Metric build(QuantileBucket bucket) {
-        final double value = bucket.value();
+    protected Metric build(QuantileSketchBucket bucket) {
+        final double value = bucket.value(q);
 
         if (Double.isNaN(value)) {
             return Metric.invalid();
@@ -64,4 +65,9 @@ public class QuantileInstance extends BucketAggregationInstance<QuantileBucket>
 
         return new Point(bucket.timestamp(), value);
     }
+
+    @Override
+    public AggregationInstance distributed() {
+        return new QuantileSketchInstance(getSize(), getExtent(), error);
+    }
 }
@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.aggregation.simple;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A mergeable sketch for estimating quantiles with a bounded relative error.
+ * <p>
+ * Values are counted in logarithmically sized bins, where every bin covers values that are within
+ * a factor of {@code (1 + accuracy) / (1 - accuracy)} of each other. Any estimated quantile is
+ * within {@code accuracy} of the true value, relative to that value.
+ * <p>
+ * See: Masson, Rim, and Lee "DDSketch: A Fast and Fully-Mergeable Quantile Sketch with
+ * Relative-Error Guarantees" in VLDB 2019
+ * <p>
+ * Bins are primitive atomic counters which are allocated lazily in small chunks, so updates from
+ * multiple threads are lock-free. Two sketches with the same accuracy can be merged without any
+ * loss of precision, which makes them suitable as the intermediate state of distributed
+ * aggregations.
+ */
+public class QuantileSketch {
+    public static final double MIN_ACCURACY = 0.001D;
+    public static final double MAX_ACCURACY = 0.5D;
+
+    private static final byte VERSION = 1;
+
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int PAGE_BITS = 6;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    /**
+     * Raw index of the smallest value that is not counted as zero, all bin indexes are relative to
+     * this.
+     */
+    private final int offset;
+    private final int pageCount;
+
+    private final Bins positive;
+    private final Bins negative;
+    private final LongAdder zero = new LongAdder();
+    private final LongAdder count = new LongAdder();
+
+    public QuantileSketch(final double accuracy) {
+        if (!(accuracy >= MIN_ACCURACY && accuracy <= MAX_ACCURACY)) {
+            throw new IllegalArgumentException(
+                String.format("accuracy must be in the range [%s, %s], not %s", MIN_ACCURACY,
+                    MAX_ACCURACY, accuracy));
+        }
+
+        this.accuracy = accuracy;
+        this.gamma = (1D + accuracy) / (1D - accuracy);
+        this.logGamma = Math.log(gamma);
+        this.offset = rawIndex(Double.MIN_NORMAL);
+
+        final int bins = rawIndex(Double.MAX_VALUE) - offset + 1;
+        this.pageCount = (bins + (CHUNK_SIZE * PAGE_SIZE) - 1) >>> (CHUNK_BITS + PAGE_BITS);
+
+        this.positive = new Bins();
+        this.negative = new Bins();
+    }
+
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public boolean isEmpty() {
+        return count.sum() == 0L;
+    }
+
+    /**
+     * Add a single value to the sketch. Non-finite values are ignored.
+     */
+    public void add(final double value) {
+        if (!Double.isFinite(value)) {
+            return;
+        }
+
+        if (value >= Double.MIN_NORMAL) {
+            positive.add(index(value), 1L);
+        } else if (value <= -Double.MIN_NORMAL) {
+            negative.add(index(-value), 1L);
+        } else {
+            zero.increment();
+        }
+
+        count.increment();
+    }
+
+    /**
+     * Add all values counted by the given sketch to this sketch.
+     *
+     * @throws IllegalArgumentException if the sketches have different accuracies.
+     */
+    public void merge(final QuantileSketch other) {
+        checkAccuracy(other.accuracy);
+
+        other.positive.snapshot().addTo(positive);
+        other.negative.snapshot().addTo(negative);
+
+        final long zero = other.zero.sum();
+        this.zero.add(zero);
+        this.count.add(other.count.sum());
+    }
+
+    /**
+     * Add all values counted by the given serialized sketch to this sketch.
+     *
+     * @throws IllegalArgumentException if the sketches have different accuracies, or if the state
+     * is not a valid sketch.
+     * @see #serialize()
+     */
+    public void merge(final byte[] state) {
+        final ByteBuffer buffer = ByteBuffer.wrap(state);
+        checkAccuracy(readAccuracy(buffer));
+
+        final long zero = SketchCodec.readVarLong(buffer);
+        final long negative = readBins(buffer, this.negative);
+        final long positive = readBins(buffer, this.positive);
+
+        this.zero.add(zero);
+        this.count.add(zero + negative + positive);
+    }
+
+    /**
+     * Estimate the value at the given quantile.
+     *
+     * @param quantile Quantile to estimate, e.g. 0.5 or 0.99.
+     * @return The estimated value, or {@code NaN} if the sketch is empty.
+     */
+    public double quantile(final double quantile) {
+        final Snapshot negative = this.negative.snapshot();
+        final Snapshot positive = this.positive.snapshot();
+        final long zero = this.zero.sum();
+
+        final long count = negative.total + zero + positive.total;
+
+        if (count == 0L) {
+            return Double.NaN;
+        }
+
+        final double q = Math.max(0D, Math.min(1D, quantile));
+        final long rank = (long) (q * (count - 1));
+
+        if (rank < negative.total) {
+            return -value(negative.indexOfRank(negative.total - 1 - rank));
+        }
+
+        if (rank < negative.total + zero) {
+            return 0D;
+        }
+
+        return value(positive.indexOfRank(rank - negative.total - zero));
+    }
+
+    /**
+     * Serialize the sketch into a compact binary form.
+     * <p>
+     * Only non-empty bins are included, with their indexes delta-encoded as variable-length
+     * integers.
+     */
+    public byte[] serialize() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        out.write(VERSION);
+
+        final long bits = Double.doubleToLongBits(accuracy);
+
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+
+        SketchCodec.writeVarLong(out, zero.sum());
+        negative.snapshot().writeTo(out);
+        positive.snapshot().writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Build a new sketch out of a serialized one.
+     *
+     * @see #serialize()
+     */
+    public static QuantileSketch deserialize(final byte[] state) {
+        final QuantileSketch sketch = new QuantileSketch(readAccuracy(ByteBuffer.wrap(state)));
+        sketch.merge(state);
+        return sketch;
+    }
+
+    private void checkAccuracy(final double other) {
+        if (Double.compare(accuracy, other) != 0) {
+            throw new IllegalArgumentException(
+                String.format("Cannot merge sketches with different accuracy (%s != %s)", accuracy,
+                    other));
+        }
+    }
+
+    private int rawIndex(final double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private int index(final double value) {
+        return rawIndex(value) - offset;
+    }
+
+    /**
+     * The value that represents the given bin, which is within the relative accuracy of every
+     * value counted in it.
+     */
+    private double value(final int index) {
+        return 2D * Math.exp((index + offset) * logGamma) / (gamma + 1D);
+    }
+
+    private static double readAccuracy(final ByteBuffer buffer) {
+        if (!buffer.hasRemaining() || buffer.get() != VERSION) {
+            throw new IllegalArgumentException("Unsupported sketch version");
+        }
+
+        return buffer.getDouble();
+    }
+
+    private static long readBins(final ByteBuffer buffer, final Bins bins) {
+        final long size = SketchCodec.readVarLong(buffer);
+
+        long total = 0L;
+        int index = 0;
+
+        for (long i = 0; i < size; i++) {
+            index += (int) SketchCodec.readVarLong(buffer);
+            final long count = SketchCodec.readVarLong(buffer);
+            bins.add(index, count);
+            total += count;
+        }
+
+        return total;
+    }
+
+    /**
+     * Counters for one sign of values, as a two-level table of lazily allocated chunks.
+     */
+    private class Bins {
+        private final AtomicReferenceArray<AtomicReferenceArray<AtomicLongArray>> pages =
+            new AtomicReferenceArray<>(pageCount);
+
+        void add(final int index, final long n) {
+            if (index < 0 || (index >>> (CHUNK_BITS + PAGE_BITS)) >= pageCount) {
+                throw new IllegalArgumentException("Bin index out of range: " + index);
+            }
+
+            final int c = index >>> CHUNK_BITS;
+            final int p = c >>> PAGE_BITS;
+
+            AtomicReferenceArray<AtomicLongArray> page = pages.get(p);
+
+            if (page == null) {
+                pages.compareAndSet(p, null, new AtomicReferenceArray<>(PAGE_SIZE));
+                page = pages.get(p);
+            }
+
+            AtomicLongArray chunk = page.get(c & PAGE_MASK);
+
+            if (chunk == null) {
+                page.compareAndSet(c & PAGE_MASK, null, new AtomicLongArray(CHUNK_SIZE));
+                chunk = page.get(c & PAGE_MASK);
+            }
+
+            chunk.addAndGet(index & CHUNK_MASK, n);
+        }
+
+        /**
+         * Take a snapshot of all non-empty bins, in ascending order.
+         */
+        Snapshot snapshot() {
+            final Snapshot snapshot = new Snapshot();
+
+            for (int p = 0; p < pageCount; p++) {
+                final AtomicReferenceArray<AtomicLongArray> page = pages.get(p);
+
+                if (page == null) {
+                    continue;
+                }
+
+                for (int c = 0; c < PAGE_SIZE; c++) {
+                    final AtomicLongArray chunk = page.get(c);
+
+                    if (chunk == null) {
+                        continue;
+                    }
+
+                    final int base = ((p << PAGE_BITS) | c) << CHUNK_BITS;
+
+                    for (int i = 0; i < CHUNK_SIZE; i++) {
+                        final long count = chunk.get(i);
+
+                        if (count != 0L) {
+                            snapshot.append(base + i, count);
+                        }
+                    }
+                }
+            }
+
+            return snapshot;
+        }
+    }
+
+    /**
+     * Non-empty bins in ascending order, backed by primitive arrays.
+     */
+    private static class Snapshot {
+        private int[] indexes = new int[16];
+        private long[] counts = new long[16];
+        private int size = 0;
+        private long total = 0L;
+
+        void append(final int index, final long count) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+
+            indexes[size] = index;
+            counts[size] = count;
+            size++;
+            total += count;
+        }
+
+        int indexOfRank(final long rank) {
+            long seen = 0L;
+
+            for (int i = 0; i < size; i++) {
+                seen += counts[i];
+
+                if (seen > rank) {
+                    return indexes[i];
+                }
+            }
+
+            return indexes[size - 1];
+        }
+
+        void addTo(final Bins bins) {
+            for (int i = 0; i < size; i++) {
+                bins.add(indexes[i], counts[i]);
+            }
+        }
+
+        void writeTo(final ByteArrayOutputStream out) {
+            SketchCodec.writeVarLong(out, size);
+
+            int previous = 0;
+
+            for (int i = 0; i < size; i++) {
+                SketchCodec.writeVarLong(out, indexes[i] - previous);
+                SketchCodec.writeVarLong(out, counts[i]);
+                previous = indexes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.aggregation.simple;
+
+import com.spotify.heroic.aggregation.AbstractBucket;
+import com.spotify.heroic.metric.Metric;
+import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
+
+import java.util.Map;
+
+/**
+ * A lock-free bucket that estimates quantiles using a {@link QuantileSketch}.
+ * <p>
+ * The bucket accepts both points and sketches produced by other quantile buckets with the same
+ * accuracy, which allows it to be used both for sub-aggregations and for reducing them.
+ */
+public class QuantileSketchBucket extends AbstractBucket {
+    private final long timestamp;
+    private final QuantileSketch sketch;
+
+    public QuantileSketchBucket(final long timestamp, final double accuracy) {
+        this.timestamp = timestamp;
+        this.sketch = new QuantileSketch(accuracy);
+    }
+
+    @Override
+    public void updatePoint(Map<String, String> tags, Point d) {
+        sketch.add(d.getValue());
+    }
+
+    @Override
+    public void updateSketch(Map<String, String> tags, Sketch d) {
+        sketch.merge(d.getState());
+    }
+
+    @Override
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Estimate the value at the given quantile.
+     *
+     * @return The estimated value, or {@code NaN} if the bucket is empty.
+     */
+    public double value(final double quantile) {
+        return sketch.quantile(quantile);
+    }
+
+    /**
+     * Build a sketch metric out of the current state of this bucket.
+     */
+    public Metric toSketch() {
+        if (sketch.isEmpty()) {
+            return Metric.invalid();
+        }
+
+        return new Sketch(timestamp, sketch.serialize());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.aggregation.simple;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding helpers shared by the serialized forms of sketches.
+ */
+final class SketchCodec {
+    private SketchCodec() {
+    }
+
+    /**
+     * Write the given value as an unsigned variable-length integer, seven bits at a time.
+     */
+    static void writeVarLong(final ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0L) {
+            out.write((int) ((value & 0x7fL) | 0x80L));
+            value >>>= 7;
+        }
+
+        out.write((int) value);
+    }
+
+    /**
+     * Read a variable-length integer written by {@link #writeVarLong}.
+     *
+     * @throws IllegalArgumentException if the integer is malformed.
+     */
+    static long readVarLong(final ByteBuffer buffer) {
+        long value = 0L;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("Malformed variable-length integer in sketch");
+    }
+}
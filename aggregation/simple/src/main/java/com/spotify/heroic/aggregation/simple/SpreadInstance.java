@@ -25,8 +25,12 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
 import com.spotify.heroic.aggregation.AggregationInstance;
+import com.spotify.heroic.aggregation.SlidingWindow;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricType;
+import com.spotify.heroic.metric.Spread;
+
+import java.util.Optional;
 
 public class SpreadInstance extends DistributedBucketInstance<SpreadBucket> {
     @JsonCreator
@@ -37,6 +41,11 @@ public class SpreadInstance extends DistributedBucketInstance<SpreadBucket> {
             MetricType.SPREAD);
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return alignedTo(resolution);
+    }
+
     @Override
     protected SpreadBucket buildBucket(long timestamp) {
         return new SpreadBucket(timestamp);
@@ -47,6 +56,23 @@ public class SpreadInstance extends DistributedBucketInstance<SpreadBucket> {
         return bucket.newSpread();
     }
 
+    @Override
+    protected Optional<SlidingWindow<SpreadBucket>> slidingWindow() {
+        return Optional.of(SlidingWindow.<SpreadBucket>builder()
+            .additive(b -> b.count.sum())
+            .additive(b -> b.sum.sum())
+            .additive(b -> b.sum2.sum())
+            .min(b -> b.min.get())
+            .max(b -> b.max.get())
+            .build((timestamp, v) -> {
+                if (v[0] == 0D) {
+                    return Metric.invalid();
+                }
+
+                return new Spread(timestamp, (long) v[0], v[1], v[2], v[3], v[4]);
+            }));
+    }
+
     @Override
     public AggregationInstance distributed() {
         return this;
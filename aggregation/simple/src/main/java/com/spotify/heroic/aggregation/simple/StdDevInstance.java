@@ -25,10 +25,13 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
 import com.spotify.heroic.aggregation.BucketAggregationInstance;
+import com.spotify.heroic.aggregation.SlidingWindow;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
 
+import java.util.Optional;
+
 public class StdDevInstance extends BucketAggregationInstance<StripedStdDevBucket> {
     @JsonCreator
     public StdDevInstance(
@@ -37,6 +40,11 @@ public class StdDevInstance extends BucketAggregationInstance<StripedStdDevBucke
         super(size, extent, ImmutableSet.of(MetricType.POINT, MetricType.SPREAD), MetricType.POINT);
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return alignedTo(resolution);
+    }
+
     @Override
     protected StripedStdDevBucket buildBucket(long timestamp) {
         return new StripedStdDevBucket(timestamp);
@@ -52,4 +60,21 @@ public class StdDevInstance extends BucketAggregationInstance<StripedStdDevBucke
 
         return new Point(bucket.timestamp(), value);
     }
+
+    @Override
+    protected Optional<SlidingWindow<StripedStdDevBucket>> slidingWindow() {
+        return Optional.of(SlidingWindow.<StripedStdDevBucket>builder()
+            .additive(StripedStdDevBucket::sum)
+            .additive(StripedStdDevBucket::sum2)
+            .additive(StripedStdDevBucket::count)
+            .build((timestamp, v) -> {
+                if (v[2] == 0D) {
+                    return Metric.invalid();
+                }
+
+                final double mean = v[0] / v[2];
+                /* differences of prefix sums might cause a slightly negative variance */
+                return new Point(timestamp, Math.sqrt(Math.max(0D, (v[1] / v[2]) - (mean * mean))));
+            }));
+    }
 }
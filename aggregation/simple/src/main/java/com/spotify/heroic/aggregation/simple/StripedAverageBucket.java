@@ -27,6 +27,7 @@ import com.spotify.heroic.metric.Point;
 import com.spotify.heroic.metric.Spread;
 import lombok.RequiredArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.DoubleAdder;
 import java.util.concurrent.atomic.LongAdder;
@@ -53,12 +54,42 @@ public class StripedAverageBucket extends AbstractBucket implements DoubleBucket
         count.increment();
     }
 
+    @Override
+    public void updatePoints(
+        Map<String, String> tags, List<Point> samples, int start, int end
+    ) {
+        double runSum = 0D;
+        long runCount = 0L;
+
+        for (int i = start; i < end; i++) {
+            final double v = samples.get(i).getValue();
+
+            if (Double.isFinite(v)) {
+                runSum += v;
+                runCount++;
+            }
+        }
+
+        if (runCount > 0) {
+            value.add(runSum);
+            count.add(runCount);
+        }
+    }
+
     @Override
     public void updateSpread(Map<String, String> tags, Spread sample) {
         value.add(sample.getSum());
         count.add(sample.getCount());
     }
 
+    public double sum() {
+        return value.sum();
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
     @Override
     public double value() {
         final long count = this.count.sum();
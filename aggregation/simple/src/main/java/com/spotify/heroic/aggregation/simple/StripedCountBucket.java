@@ -23,8 +23,11 @@ package com.spotify.heroic.aggregation.simple;
 
 import com.spotify.heroic.aggregation.AbstractAnyBucket;
 import com.spotify.heroic.metric.Metric;
+import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Spread;
 import lombok.RequiredArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.LongAdder;
 
@@ -50,6 +53,28 @@ public class StripedCountBucket extends AbstractAnyBucket {
         count.increment();
     }
 
+    @Override
+    public void updatePoints(
+        Map<String, String> tags, List<Point> samples, int start, int end
+    ) {
+        long run = 0L;
+
+        for (int i = start; i < end; i++) {
+            if (samples.get(i).valid()) {
+                run++;
+            }
+        }
+
+        if (run > 0) {
+            count.add(run);
+        }
+    }
+
+    @Override
+    public void updateSpread(Map<String, String> tags, Spread sample) {
+        count.add(sample.getCount());
+    }
+
     public long count() {
         return count.sum();
     }
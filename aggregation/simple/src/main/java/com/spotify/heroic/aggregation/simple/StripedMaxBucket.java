@@ -27,6 +27,7 @@ import com.spotify.heroic.metric.Point;
 import com.spotify.heroic.metric.Spread;
 import lombok.RequiredArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.DoubleAccumulator;
 import java.util.function.DoubleBinaryOperator;
@@ -55,6 +56,25 @@ public class StripedMaxBucket extends AbstractBucket implements DoubleBucket {
         max.accumulate(d.getValue());
     }
 
+    @Override
+    public void updatePoints(
+        Map<String, String> tags, List<Point> samples, int start, int end
+    ) {
+        double run = Double.NEGATIVE_INFINITY;
+
+        for (int i = start; i < end; i++) {
+            final double v = samples.get(i).getValue();
+
+            if (Double.isFinite(v)) {
+                run = Math.max(run, v);
+            }
+        }
+
+        if (run != Double.NEGATIVE_INFINITY) {
+            max.accumulate(run);
+        }
+    }
+
     @Override
     public void updateSpread(Map<String, String> tags, Spread d) {
         max.accumulate(d.getMax());
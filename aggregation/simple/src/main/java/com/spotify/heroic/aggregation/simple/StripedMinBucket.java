@@ -27,6 +27,7 @@ import com.spotify.heroic.metric.Point;
 import com.spotify.heroic.metric.Spread;
 import lombok.RequiredArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.DoubleAccumulator;
 import java.util.function.DoubleBinaryOperator;
@@ -60,6 +61,25 @@ public class StripedMinBucket extends AbstractBucket implements DoubleBucket {
         min.accumulate(d.getValue());
     }
 
+    @Override
+    public void updatePoints(
+        Map<String, String> tags, List<Point> samples, int start, int end
+    ) {
+        double run = Double.POSITIVE_INFINITY;
+
+        for (int i = start; i < end; i++) {
+            final double v = samples.get(i).getValue();
+
+            if (Double.isFinite(v)) {
+                run = Math.min(run, v);
+            }
+        }
+
+        if (run != Double.POSITIVE_INFINITY) {
+            min.accumulate(run);
+        }
+    }
+
     @Override
     public double value() {
         final double result = min.doubleValue();
@@ -67,6 +67,18 @@ public class StripedStdDevBucket extends AbstractBucket implements DoubleBucket
         return timestamp;
     }
 
+    public double sum() {
+        return sum.sum();
+    }
+
+    public double sum2() {
+        return sum2.sum();
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
     public double value() {
         final long count = this.count.sum();
 
@@ -27,6 +27,7 @@ import com.spotify.heroic.metric.Point;
 import com.spotify.heroic.metric.Spread;
 import lombok.RequiredArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.DoubleAdder;
 
@@ -56,6 +57,28 @@ public class StripedSumBucket extends AbstractBucket implements DoubleBucket {
         sum.add(d.getValue());
     }
 
+    @Override
+    public void updatePoints(
+        Map<String, String> tags, List<Point> samples, int start, int end
+    ) {
+        double runSum = 0D;
+        boolean runValid = false;
+
+        for (int i = start; i < end; i++) {
+            final double v = samples.get(i).getValue();
+
+            if (Double.isFinite(v)) {
+                runSum += v;
+                runValid = true;
+            }
+        }
+
+        if (runValid) {
+            valid = true;
+            sum.add(runSum);
+        }
+    }
+
     @Override
     public void updateSpread(Map<String, String> tags, Spread d) {
         valid = true;
@@ -25,9 +25,13 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
 import com.spotify.heroic.aggregation.AggregationInstance;
+import com.spotify.heroic.aggregation.SlidingWindow;
+import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
 
+import java.util.Optional;
+
 public class SumInstance extends DistributedBucketInstance<StripedSumBucket> {
     @JsonCreator
     public SumInstance(
@@ -36,6 +40,11 @@ public class SumInstance extends DistributedBucketInstance<StripedSumBucket> {
         super(size, extent, ImmutableSet.of(MetricType.POINT, MetricType.SPREAD), MetricType.POINT);
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return alignedTo(resolution);
+    }
+
     @Override
     protected StripedSumBucket buildBucket(long timestamp) {
         return new StripedSumBucket(timestamp);
@@ -46,6 +55,20 @@ public class SumInstance extends DistributedBucketInstance<StripedSumBucket> {
         return new Point(bucket.timestamp(), bucket.value());
     }
 
+    @Override
+    protected Optional<SlidingWindow<StripedSumBucket>> slidingWindow() {
+        return Optional.of(SlidingWindow.<StripedSumBucket>builder()
+            .additive(b -> Double.isNaN(b.value()) ? 0D : b.value())
+            .additive(b -> Double.isNaN(b.value()) ? 0D : 1D)
+            .build((timestamp, v) -> {
+                if (v[1] == 0D) {
+                    return Metric.invalid();
+                }
+
+                return new Point(timestamp, v[0]);
+            }));
+    }
+
     @Override
     public AggregationInstance distributed() {
         return this;
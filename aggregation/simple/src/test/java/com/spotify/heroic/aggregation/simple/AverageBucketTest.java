@@ -7,6 +7,7 @@ import com.spotify.heroic.metric.Point;
 import org.junit.Test;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -15,6 +16,9 @@ import static org.junit.Assert.assertTrue;
 public class AverageBucketTest {
     private static final Map<String, String> tags = ImmutableMap.of();
 
+    private static final List<Point> RUN = ImmutableList.of(new Point(0, 5.0), new Point(0, 20.0),
+        new Point(0, Double.NaN), new Point(0, 10.0), new Point(0, 40.0));
+
     public Collection<? extends DoubleBucket> buckets() {
         return ImmutableList.<DoubleBucket>of(new AverageBucket(0L), new StripedAverageBucket(0L));
     }
@@ -34,4 +38,12 @@ public class AverageBucketTest {
             assertEquals(bucket.getClass().getSimpleName(), 15.0, bucket.value(), 0.0);
         }
     }
+
+    @Test
+    public void testUpdatePoints() {
+        for (final DoubleBucket bucket : buckets()) {
+            bucket.updatePoints(tags, RUN, 0, 4);
+            assertEquals(bucket.getClass().getSimpleName(), 35.0 / 3, bucket.value(), 0.0);
+        }
+    }
 }
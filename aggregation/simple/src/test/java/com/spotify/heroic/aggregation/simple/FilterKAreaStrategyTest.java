@@ -0,0 +1,84 @@
+package com.spotify.heroic.aggregation.simple;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.metric.MetricCollection;
+import com.spotify.heroic.metric.Point;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class FilterKAreaStrategyTest {
+    private static FilterableMetrics<Integer> metrics(final int id, final double value) {
+        final MetricCollection c =
+            MetricCollection.points(ImmutableList.of(new Point(0, value), new Point(1, value)));
+        return new FilterableMetrics<>(id, () -> c);
+    }
+
+    private static List<FilterableMetrics<Integer>> values(final double... values) {
+        final List<FilterableMetrics<Integer>> result = new ArrayList<>();
+
+        for (int i = 0; i < values.length; i++) {
+            result.add(metrics(i, values[i]));
+        }
+
+        return result;
+    }
+
+    @Test
+    public void testTopK() {
+        final FilterKAreaStrategy top = new FilterKAreaStrategy(FilterKAreaType.TOP, 2);
+        assertEquals(ImmutableList.of(3, 1), top.filter(values(1, 3, 2, 4, 0)));
+    }
+
+    @Test
+    public void testBottomK() {
+        final FilterKAreaStrategy bottom = new FilterKAreaStrategy(FilterKAreaType.BOTTOM, 3);
+        assertEquals(ImmutableList.of(4, 0, 2), bottom.filter(values(1, 3, 2, 4, 0)));
+    }
+
+    @Test
+    public void testTiesKeepEarliest() {
+        final FilterKAreaStrategy top = new FilterKAreaStrategy(FilterKAreaType.TOP, 2);
+        assertEquals(ImmutableList.of(1, 2), top.filter(values(1, 5, 5, 5)));
+    }
+
+    @Test
+    public void testFewerThanK() {
+        final FilterKAreaStrategy top = new FilterKAreaStrategy(FilterKAreaType.TOP, 10);
+        assertEquals(ImmutableList.of(1, 0), top.filter(values(1, 2)));
+        assertEquals(ImmutableList.of(), top.filter(values()));
+    }
+
+    @Test
+    public void testMatchesSort() {
+        final Random random = new Random(0x1234);
+
+        for (final FilterKAreaType type : FilterKAreaType.values()) {
+            for (int run = 0; run < 100; run++) {
+                final double[] values = new double[random.nextInt(50)];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = random.nextInt(20) - 10;
+                }
+
+                final int k = random.nextInt(10) + 1;
+
+                final List<Integer> expected = values(values)
+                    .stream()
+                    .sorted(Comparator.comparing(FilterableMetrics<Integer>::getData,
+                        (a, b) -> type.compare(values[a], values[b])))
+                    .limit(k)
+                    .map(FilterableMetrics::getData)
+                    .collect(Collectors.toList());
+
+                assertEquals(expected, new FilterKAreaStrategy(type, k).filter(values(values)));
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.spotify.heroic.aggregation.simple;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HyperLogLogTest {
+    private static final int PRECISION = 12;
+    /* about four standard errors at precision 12 */
+    private static final double ERROR = 0.065;
+
+    private static HyperLogLog sketch(final long from, final long to) {
+        final HyperLogLog sketch = new HyperLogLog(PRECISION);
+
+        for (long i = from; i < to; i++) {
+            sketch.add(HyperLogLog.hash(i));
+        }
+
+        return sketch;
+    }
+
+    @Test
+    public void testEmpty() {
+        final HyperLogLog sketch = new HyperLogLog(PRECISION);
+        assertTrue(sketch.isEmpty());
+        assertEquals(0L, sketch.cardinality());
+    }
+
+    @Test
+    public void testRegistersAllocatedOnFirstUpdate() {
+        final HyperLogLog sketch = new HyperLogLog(PRECISION);
+
+        /* reading and merging empty sketches must not allocate */
+        sketch.merge(new HyperLogLog(PRECISION));
+        sketch.merge(new HyperLogLog(PRECISION).serialize());
+        assertEquals(0L, sketch.cardinality());
+        assertTrue(sketch.serialize().length < 8);
+        assertFalse(sketch.isAllocated());
+
+        sketch.add(HyperLogLog.hash(42L));
+        assertTrue(sketch.isAllocated());
+        assertEquals(1L, sketch.cardinality());
+    }
+
+    @Test
+    public void testDuplicates() {
+        final HyperLogLog sketch = new HyperLogLog(PRECISION);
+
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(HyperLogLog.hash(i % 10));
+        }
+
+        assertEquals(10D, sketch.cardinality(), 1D);
+    }
+
+    @Test
+    public void testCardinality() {
+        for (final long n : new long[]{100L, 1000L, 10000L, 100000L, 1000000L}) {
+            assertEquals(n, sketch(0, n).cardinality(), n * ERROR);
+        }
+    }
+
+    @Test
+    public void testMergeIsLossless() {
+        final HyperLogLog whole = sketch(0, 50000);
+        final HyperLogLog a = sketch(0, 30000);
+        final HyperLogLog b = sketch(20000, 50000);
+
+        a.merge(b);
+        assertEquals(whole.cardinality(), a.cardinality());
+        assertArrayEquals(whole.serialize(), a.serialize());
+    }
+
+    @Test
+    public void testSerializationRoundtrip() {
+        /* small sketches are serialized sparsely, large ones densely */
+        for (final long n : new long[]{10L, 100000L}) {
+            final HyperLogLog sketch = sketch(0, n);
+            final byte[] state = sketch.serialize();
+            final HyperLogLog copy = HyperLogLog.deserialize(state);
+
+            assertEquals(sketch.cardinality(), copy.cardinality());
+            assertArrayEquals(state, copy.serialize());
+        }
+
+        assertTrue(sketch(0, 10).serialize().length < 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HyperLogLog(12).merge(new HyperLogLog(10));
+    }
+}
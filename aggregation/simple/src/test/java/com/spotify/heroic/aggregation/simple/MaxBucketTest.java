@@ -1,15 +1,20 @@
 package com.spotify.heroic.aggregation.simple;
 
+import com.google.common.collect.ImmutableList;
 import com.spotify.heroic.metric.Point;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class MaxBucketTest {
     private static final Map<String, String> TAGS = new HashMap<>();
 
+    private static final List<Point> RUN = ImmutableList.of(new Point(0, 5.0), new Point(0, 20.0),
+        new Point(0, Double.NaN), new Point(0, 10.0), new Point(0, 40.0));
+
     @Test
     public void testInitialValue() {
         final StripedMaxBucket b = new StripedMaxBucket(0);
@@ -23,4 +28,11 @@ public class MaxBucketTest {
         b.updatePoint(TAGS, new Point(0, 10.0));
         Assert.assertEquals(20.0, b.value(), 0.0);
     }
+
+    @Test
+    public void testUpdatePoints() {
+        final StripedMaxBucket b = new StripedMaxBucket(0);
+        b.updatePoints(TAGS, RUN, 0, 4);
+        Assert.assertEquals(20.0, b.value(), 0.0);
+    }
 }
@@ -0,0 +1,27 @@
+package com.spotify.heroic.aggregation.simple;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class QuantileInstanceTest {
+    @Test
+    public void testErrorIsClampedToSketchAccuracy() {
+        assertEquals(QuantileSketch.MIN_ACCURACY,
+            new QuantileInstance(10L, 10L, 0.5, 0.00001).getError(), 0D);
+        assertEquals(QuantileSketch.MAX_ACCURACY,
+            new QuantileInstance(10L, 10L, 0.5, 0.9).getError(), 0D);
+        assertEquals(Quantile.DEFAULT_ERROR,
+            new QuantileInstance(10L, 10L, 0.5, Double.NaN).getError(), 0D);
+        assertEquals(0.05, new QuantileInstance(10L, 10L, 0.5, 0.05).getError(), 0D);
+    }
+
+    @Test
+    public void testOutOfRangeErrorBuildsBuckets() {
+        final QuantileSketchBucket bucket =
+            new QuantileInstance(10L, 10L, 0.5, 0.9).buildBucket(0L);
+        assertEquals(Double.NaN, bucket.value(0.5), 0D);
+
+        new QuantileSketchInstance(10L, 10L, 0.00001).buildBucket(0L);
+    }
+}
@@ -0,0 +1,118 @@
+package com.spotify.heroic.aggregation.simple;
+
+import com.spotify.heroic.metric.Point;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuantileSketchTest {
+    private static final Map<String, String> TAGS = new HashMap<>();
+    private static final double ACCURACY = 0.01;
+    /* allow for rounding when values are right at a bin boundary */
+    private static final double TOLERANCE = ACCURACY + 1e-9;
+    private static final double[] QUANTILES = {0.0, 0.1, 0.5, 0.9, 0.99, 1.0};
+
+    @Test
+    public void testEmpty() {
+        assertTrue(Double.isNaN(new QuantileSketch(ACCURACY).quantile(0.5)));
+    }
+
+    @Test
+    public void testSingleValue() {
+        final QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        sketch.add(1337.0);
+        assertEquals(1337.0, sketch.quantile(0.5), 1337.0 * ACCURACY);
+    }
+
+    @Test
+    public void testRelativeAccuracy() {
+        final Random random = new Random(0x1337L);
+        final double[] values = new double[100000];
+        final QuantileSketch sketch = new QuantileSketch(ACCURACY);
+
+        for (int i = 0; i < values.length; i++) {
+            /* log-normal, spans multiple orders of magnitude with negatives and zeroes mixed in */
+            final double v = Math.exp(random.nextGaussian() * 3);
+            values[i] = i % 10 == 0 ? -v : (i % 97 == 0 ? 0D : v);
+            sketch.add(values[i]);
+        }
+
+        Arrays.sort(values);
+
+        for (final double q : QUANTILES) {
+            final double expected = values[(int) (q * (values.length - 1))];
+            assertEquals(expected, sketch.quantile(q), Math.abs(expected) * TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testMergeIsLossless() {
+        final Random random = new Random(0x42L);
+        final QuantileSketch whole = new QuantileSketch(ACCURACY);
+        final QuantileSketch a = new QuantileSketch(ACCURACY);
+        final QuantileSketch b = new QuantileSketch(ACCURACY);
+
+        for (int i = 0; i < 10000; i++) {
+            final double v = random.nextGaussian() * 1000;
+            whole.add(v);
+            (i % 2 == 0 ? a : b).add(v);
+        }
+
+        a.merge(b);
+
+        assertEquals(whole.getCount(), a.getCount());
+
+        for (final double q : QUANTILES) {
+            assertEquals(whole.quantile(q), a.quantile(q), 0D);
+        }
+    }
+
+    @Test
+    public void testSerializationRoundtrip() {
+        final QuantileSketch sketch = new QuantileSketch(ACCURACY);
+
+        for (int i = -500; i <= 10000; i++) {
+            sketch.add(i);
+        }
+
+        final byte[] state = sketch.serialize();
+        final QuantileSketch copy = QuantileSketch.deserialize(state);
+
+        assertEquals(sketch.getCount(), copy.getCount());
+        assertArrayEquals(state, copy.serialize());
+
+        for (final double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), copy.quantile(q), 0D);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentAccuracy() {
+        new QuantileSketch(0.01).merge(new QuantileSketch(0.02));
+    }
+
+    /**
+     * Compare against the existing CKMS bucket, which bounds the rank error instead of the
+     * relative value error.
+     */
+    @Test
+    public void testComparedToQuantileBucket() {
+        final QuantileBucket reference = new QuantileBucket(0, 0.5, ACCURACY);
+        final QuantileSketchBucket bucket = new QuantileSketchBucket(0, ACCURACY);
+
+        for (int i = 1; i <= 10000; i++) {
+            reference.updatePoint(TAGS, new Point(0, i));
+            bucket.updatePoint(TAGS, new Point(0, i));
+        }
+
+        assertEquals(5000.0, reference.value(), 10000 * ACCURACY);
+        assertEquals(5000.0, bucket.value(0.5), 5000 * ACCURACY);
+    }
+}
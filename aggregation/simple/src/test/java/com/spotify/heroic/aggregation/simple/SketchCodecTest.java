@@ -0,0 +1,43 @@
+package com.spotify.heroic.aggregation.simple;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class SketchCodecTest {
+    @Test
+    public void testVarLongRoundtrip() {
+        final long[] values = {0L, 1L, 127L, 128L, 16383L, 16384L, Long.MAX_VALUE, -1L};
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (final long v : values) {
+            SketchCodec.writeVarLong(out, v);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+
+        for (final long v : values) {
+            assertEquals(v, SketchCodec.readVarLong(buffer));
+        }
+
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void testSmallValuesTakeOneByte() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SketchCodec.writeVarLong(out, 127L);
+        assertEquals(1, out.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformed() {
+        final byte[] bytes = new byte[10];
+        Arrays.fill(bytes, (byte) 0x80);
+        SketchCodec.readVarLong(ByteBuffer.wrap(bytes));
+    }
+}
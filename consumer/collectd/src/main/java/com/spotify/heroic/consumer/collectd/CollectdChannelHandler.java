@@ -21,67 +21,44 @@
 
 package com.spotify.heroic.consumer.collectd;
 
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
-import com.spotify.heroic.common.GrokProcessor;
-import com.spotify.heroic.ingestion.IngestionGroup;
-import com.spotify.heroic.metric.WriteMetric;
-import com.spotify.heroic.metric.WriteResult;
-import eu.toolchain.async.AsyncFramework;
-import eu.toolchain.async.AsyncFuture;
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.statistics.ConsumerReporter;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.DatagramPacket;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.lang3.tuple.Pair;
+import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
 
+/**
+ * Decodes received packets on the event loop, and hands the samples over for ingestion.
+ * <p>
+ * The same handler is shared by all receiving sockets.
+ */
+@Slf4j
+@ChannelHandler.Sharable
 @RequiredArgsConstructor
 public class CollectdChannelHandler extends SimpleChannelInboundHandler<DatagramPacket> {
-    private final AsyncFramework async;
-    private final IngestionGroup ingestion;
-    private final Optional<GrokProcessor> hostProcessor;
-    private final CollectdTypes types;
+    private final CollectdIngestion ingestion;
+    private final ConsumerReporter reporter;
 
     @Override
     protected void channelRead0(final ChannelHandlerContext ctx, final DatagramPacket msg)
         throws Exception {
-        final Iterator<CollectdSample> samples = CollectdParser.parse(msg.content());
-
-        while (samples.hasNext()) {
-            final CollectdSample s = samples.next();
-
-            final Set<Map.Entry<String, String>> base =
-                ImmutableMap.of("host", s.getHost(), "plugin", s.getPlugin()).entrySet();
-
-            final List<WriteMetric> writes;
-
-            if (hostProcessor.isPresent()) {
-                final Map<String, Object> parts = hostProcessor.get().parse(s.getHost());
+        reporter.reportMessageSize(msg.content().readableBytes());
 
-                final Set<Map.Entry<String, String>> tags = ImmutableSet.copyOf(
-                    Iterables.transform(parts.entrySet(),
-                        e -> Pair.of(e.getKey(), e.getValue().toString())));
+        final List<CollectdSample> samples;
 
-                writes = types.convert(s, Iterables.concat(base, tags));
-            } else {
-                writes = types.convert(s, base);
-            }
-
-            final List<AsyncFuture<WriteResult>> futures = new ArrayList<>();
-
-            for (final WriteMetric w : writes) {
-                futures.add(ingestion.write(w));
-            }
-
-            async.collectAndDiscard(futures);
+        try {
+            samples = ImmutableList.copyOf(CollectdParser.parse(msg.content()));
+        } catch (final Exception e) {
+            log.debug("Failed to decode packet from {}", msg.sender(), e);
+            reporter.reportMessageError();
+            return;
         }
+
+        ingestion.offer(samples);
     }
 }
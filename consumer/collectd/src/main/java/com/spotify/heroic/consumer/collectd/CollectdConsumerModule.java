@@ -31,6 +31,7 @@ import com.spotify.heroic.ingestion.IngestionGroup;
 import com.spotify.heroic.ingestion.IngestionManager;
 import com.spotify.heroic.lifecycle.LifeCycle;
 import com.spotify.heroic.lifecycle.LifeCycleManager;
+import com.spotify.heroic.statistics.ConsumerReporter;
 import dagger.Component;
 import dagger.Module;
 import dagger.Provides;
@@ -54,12 +55,20 @@ import java.util.concurrent.atomic.LongAdder;
 @Data
 public class CollectdConsumerModule implements ConsumerModule {
     public static final int DEFAULT_PORT = 25826;
+    public static final int DEFAULT_RECEIVERS = 1;
+    public static final int DEFAULT_WORKERS = 4;
+    public static final int DEFAULT_QUEUE_SIZE = 100000;
+
+    public static final int MAX_PORT = 65535;
 
     private final Optional<String> id;
     private final Optional<String> host;
     private final Optional<Integer> port;
     private final Optional<GrokProcessor> hostProcessor;
     private final CollectdTypes types;
+    private final int receivers;
+    private final int workers;
+    private final int queueSize;
 
     @Override
     public Exposed module(
@@ -139,7 +148,9 @@ public class CollectdConsumerModule implements ConsumerModule {
         @Provides
         @CollectdScope
         Managed<Server> connection(
-            final AsyncFramework async, final IngestionManager ingestionManager
+            final AsyncFramework async, final IngestionManager ingestionManager,
+            final ConsumerReporter reporter, @Named("errors") final AtomicLong errors,
+            @Named("consumed") final LongAdder consumed
         ) {
             return async.managed(new ManagedSetup<Server>() {
                 @Override
@@ -150,8 +161,17 @@ public class CollectdConsumerModule implements ConsumerModule {
                         log.warn("No backends are part of the selected ingestion group");
                     }
 
+                    final CollectdTemplates templates =
+                        new CollectdTemplates(hostProcessor, types,
+                            CollectdTemplates.DEFAULT_MAX_HOSTS,
+                            CollectdTemplates.DEFAULT_MAX_TEMPLATES);
+
+                    final CollectdIngestion collectdIngestion =
+                        new CollectdIngestion(async, ingestion, templates, reporter, errors,
+                            consumed, workers, queueSize);
+
                     final CollectdChannelHandler handler =
-                        new CollectdChannelHandler(async, ingestion, hostProcessor, types);
+                        new CollectdChannelHandler(collectdIngestion, reporter);
 
                     final InetAddress h = host.map(host -> {
                         try {
@@ -163,8 +183,8 @@ public class CollectdConsumerModule implements ConsumerModule {
 
                     final int p = port.orElse(DEFAULT_PORT);
 
-                    log.info("Setting up on {}:{}", h, p);
-                    return Server.setup(async, handler, h, p);
+                    log.info("Setting up on {}:{} ({} receiver(s))", h, p, receivers);
+                    return Server.setup(async, handler, collectdIngestion, h, p, receivers);
                 }
 
                 @Override
@@ -183,19 +203,28 @@ public class CollectdConsumerModule implements ConsumerModule {
         private Optional<Integer> port = Optional.empty();
         private Optional<GrokProcessor> hostProcessor = Optional.empty();
         private Optional<CollectdTypes> types = Optional.empty();
+        private Optional<Integer> receivers = Optional.empty();
+        private Optional<Integer> workers = Optional.empty();
+        private Optional<Integer> queueSize = Optional.empty();
 
         @JsonCreator
         public Builder(
             @JsonProperty("id") Optional<String> id, @JsonProperty("host") Optional<String> host,
             @JsonProperty("port") Optional<Integer> port,
             @JsonProperty("hostPattern") Optional<GrokProcessor> hostPattern,
-            @JsonProperty("types") Optional<CollectdTypes> types
+            @JsonProperty("types") Optional<CollectdTypes> types,
+            @JsonProperty("receivers") Optional<Integer> receivers,
+            @JsonProperty("workers") Optional<Integer> workers,
+            @JsonProperty("queueSize") Optional<Integer> queueSize
         ) {
             this.id = id;
             this.host = host;
             this.port = port;
             this.hostProcessor = hostPattern;
             this.types = types;
+            this.receivers = receivers;
+            this.workers = workers;
+            this.queueSize = queueSize;
         }
 
         public Builder id(String id) {
@@ -223,17 +252,65 @@ public class CollectdConsumerModule implements ConsumerModule {
             return this;
         }
 
+        /**
+         * Number of sockets to receive packets on.
+         * <p>
+         * More than one receiver requires native epoll support.
+         */
+        public Builder receivers(int receivers) {
+            this.receivers = Optional.of(receivers);
+            return this;
+        }
+
+        /**
+         * Number of threads that ingest received samples.
+         */
+        public Builder workers(int workers) {
+            this.workers = Optional.of(workers);
+            return this;
+        }
+
+        /**
+         * Number of received samples that can be waiting for ingestion, before samples are
+         * dropped.
+         */
+        public Builder queueSize(int queueSize) {
+            this.queueSize = Optional.of(queueSize);
+            return this;
+        }
+
         @Override
         public ConsumerModule build() {
+            port.ifPresent(p -> {
+                if (p < 1 || p > MAX_PORT) {
+                    throw new IllegalArgumentException(
+                        String.format("port must be in the range [1, %d], not %d", MAX_PORT, p));
+                }
+            });
+
+            receivers.ifPresent(r -> checkPositive("receivers", r));
+            workers.ifPresent(w -> checkPositive("workers", w));
+            queueSize.ifPresent(q -> checkPositive("queueSize", q));
+
             // @formatter:off
             return new CollectdConsumerModule(
                 id,
                 host,
                 port,
                 hostProcessor,
-                types.orElseGet(CollectdTypes::supplyDefault)
+                types.orElseGet(CollectdTypes::supplyDefault),
+                receivers.orElse(DEFAULT_RECEIVERS),
+                workers.orElse(DEFAULT_WORKERS),
+                queueSize.orElse(DEFAULT_QUEUE_SIZE)
             );
             // @formatter:on
         }
+
+        private static void checkPositive(final String name, final int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException(
+                    String.format("%s must be positive, not %d", name, value));
+            }
+        }
     }
 }
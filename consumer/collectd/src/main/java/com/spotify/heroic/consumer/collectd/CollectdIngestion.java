@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.consumer.collectd;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.spotify.heroic.ingestion.IngestionGroup;
+import com.spotify.heroic.metric.WriteMetric;
+import com.spotify.heroic.metric.WriteResult;
+import com.spotify.heroic.statistics.ConsumerReporter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingests decoded collectd samples on a set of dedicated worker threads.
+ * <p>
+ * Samples are handed over from the receiving event loops through a bounded queue, so that
+ * converting and writing them (which might block until the ingestion group has write permits
+ * available) never stalls the sockets. If the queue is full, samples are dropped and reported.
+ */
+@Slf4j
+public class CollectdIngestion {
+    private static final long SHUTDOWN_TIMEOUT = 10;
+
+    private final AsyncFramework async;
+    private final IngestionGroup ingestion;
+    private final CollectdTemplates templates;
+    private final ConsumerReporter reporter;
+    private final AtomicLong errors;
+    private final LongAdder consumed;
+    private final int workers;
+
+    private final BlockingQueue<CollectdSample> queue;
+    private final ExecutorService executor;
+
+    public CollectdIngestion(
+        final AsyncFramework async, final IngestionGroup ingestion,
+        final CollectdTemplates templates, final ConsumerReporter reporter, final AtomicLong errors,
+        final LongAdder consumed, final int workers, final int queueSize
+    ) {
+        this.async = async;
+        this.ingestion = ingestion;
+        this.templates = templates;
+        this.reporter = reporter;
+        this.errors = errors;
+        this.consumed = consumed;
+        this.workers = workers;
+
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.executor = Executors.newFixedThreadPool(workers,
+            new ThreadFactoryBuilder().setNameFormat("collectd-ingestion-%d").build());
+    }
+
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    public AsyncFuture<Void> stop() {
+        return async.call(() -> {
+            executor.shutdownNow();
+
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                log.warn("Ingestion workers did not terminate in time");
+            }
+
+            final int pending = queue.size();
+
+            if (pending > 0) {
+                reporter.reportSamplesDropped(pending);
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Queue the given samples for ingestion, without blocking.
+     * <p>
+     * Must be safe to call from the event loop.
+     */
+    public void offer(final List<CollectdSample> samples) {
+        int dropped = 0;
+
+        for (final CollectdSample s : samples) {
+            if (!queue.offer(s)) {
+                dropped++;
+            }
+        }
+
+        reporter.reportSamplesDecoded(samples.size());
+
+        if (dropped > 0) {
+            reporter.reportSamplesDropped(dropped);
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final CollectdSample s;
+
+            try {
+                s = queue.take();
+            } catch (final InterruptedException e) {
+                return;
+            }
+
+            try {
+                ingest(s);
+            } catch (final Exception e) {
+                log.error("Failed to ingest sample: {}", s, e);
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    private void ingest(final CollectdSample s) {
+        final List<WriteMetric> writes = templates.template(s).convert(s);
+
+        final List<AsyncFuture<WriteResult>> futures = new ArrayList<>();
+
+        for (final WriteMetric w : writes) {
+            futures.add(ingestion.write(w));
+        }
+
+        consumed.increment();
+        async.collectAndDiscard(futures).onFailed(e -> errors.incrementAndGet());
+    }
+}
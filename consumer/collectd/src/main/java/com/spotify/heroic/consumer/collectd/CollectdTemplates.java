@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.consumer.collectd;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.spotify.heroic.common.GrokProcessor;
+import lombok.Data;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Memoizes the series templates used to convert collectd samples.
+ * <p>
+ * Host names, plugins, and types repeat constantly, so the tags extracted from the host using
+ * the configured {@link GrokProcessor} and the series built for every distinct combination of
+ * host, plugin, and type are cached. In steady state, converting a sample does not need to match
+ * any patterns or build any series.
+ */
+public class CollectdTemplates {
+    public static final long DEFAULT_MAX_HOSTS = 10000;
+    public static final long DEFAULT_MAX_TEMPLATES = 100000;
+
+    private final Optional<GrokProcessor> hostProcessor;
+    private final CollectdTypes types;
+
+    private final Cache<String, List<Map.Entry<String, String>>> hosts;
+    private final Cache<Key, CollectdTypes.Template> templates;
+
+    public CollectdTemplates(
+        final Optional<GrokProcessor> hostProcessor, final CollectdTypes types,
+        final long maxHosts, final long maxTemplates
+    ) {
+        this.hostProcessor = hostProcessor;
+        this.types = types;
+        this.hosts = CacheBuilder.newBuilder().maximumSize(maxHosts).build();
+        this.templates = CacheBuilder.newBuilder().maximumSize(maxTemplates).build();
+    }
+
+    /**
+     * Get the template for the given sample, building it if it is not cached.
+     */
+    public CollectdTypes.Template template(final CollectdSample s) {
+        final Key key = new Key(s.getHost(), s.getPlugin(), s.getPluginInstance(), s.getType(),
+            s.getTypeInstance());
+
+        CollectdTypes.Template template = templates.getIfPresent(key);
+
+        if (template == null) {
+            final Map<String, String> base =
+                ImmutableMap.of("host", s.getHost(), "plugin", s.getPlugin());
+            template = types.template(s, Iterables.concat(base.entrySet(), hostTags(s.getHost())));
+            templates.put(key, template);
+        }
+
+        return template;
+    }
+
+    /**
+     * Tags extracted from the given host using the host processor.
+     */
+    private List<Map.Entry<String, String>> hostTags(final String host) {
+        List<Map.Entry<String, String>> tags = hosts.getIfPresent(host);
+
+        if (tags == null) {
+            tags = parseHost(host);
+            hosts.put(host, tags);
+        }
+
+        return tags;
+    }
+
+    private List<Map.Entry<String, String>> parseHost(final String host) {
+        if (!hostProcessor.isPresent()) {
+            return ImmutableList.of();
+        }
+
+        final ImmutableList.Builder<Map.Entry<String, String>> tags = ImmutableList.builder();
+
+        for (final Map.Entry<String, Object> e : hostProcessor.get().parse(host).entrySet()) {
+            tags.add(Pair.of(e.getKey(), e.getValue().toString()));
+        }
+
+        return tags.build();
+    }
+
+    @Data
+    static class Key {
+        private final String host;
+        private final String plugin;
+        private final String pluginInstance;
+        private final String type;
+        private final String typeInstance;
+    }
+}
@@ -122,41 +122,55 @@ public class CollectdTypes {
 
     public List<WriteMetric> convert(
         final CollectdSample sample, final Iterable<Map.Entry<String, String>> tags
+    ) {
+        return template(sample, tags).convert(sample);
+    }
+
+    /**
+     * Build a template that converts samples into writes.
+     * <p>
+     * The series written only depend on the host, plugin, plugin instance, type, and type
+     * instance of the sample, so the template can be re-used for all samples which share them.
+     */
+    public Template template(
+        final CollectdSample sample, final Iterable<Map.Entry<String, String>> tags
     ) {
         final Mapper mapping = mappings.get(sample.getType());
 
         if (mapping == null) {
             log.info("No mapping found for sample {} {}", sample, tags);
-            return convertDefault(sample, tags);
+            return templateDefault(sample, tags);
         }
 
-        return mapping.convert(sample, tags);
+        return mapping.template(sample, tags);
     }
 
     /**
      * Default conversion of collectd samples.
      */
-    private List<WriteMetric> convertDefault(
+    private Template templateDefault(
         final CollectdSample sample, final Iterable<Map.Entry<String, String>> tags
     ) {
-        final long time = sample.getTime() * 1000;
-
-        final Iterator<CollectdValue> values = sample.getValues().iterator();
-        final ImmutableList.Builder<WriteMetric> writes = ImmutableList.builder();
         final Iterable<Map.Entry<String, String>> sampleTags = defaultTags(sample);
+        final Series series = Series.of(key, Iterables.concat(tags, sampleTags).iterator());
 
-        while (values.hasNext()) {
-            final CollectdValue value = values.next();
+        return s -> {
+            final long time = s.getTime() * 1000;
 
-            final Series series = Series.of(key, Iterables.concat(tags, sampleTags).iterator());
-            final Point point = new Point(time, value.toDouble());
+            final Iterator<CollectdValue> values = s.getValues().iterator();
+            final ImmutableList.Builder<WriteMetric> writes = ImmutableList.builder();
 
-            final MetricCollection data = MetricCollection.points(ImmutableList.of(point));
+            while (values.hasNext()) {
+                final CollectdValue value = values.next();
+                final Point point = new Point(time, value.toDouble());
 
-            writes.add(new WriteMetric(series, data));
-        }
+                final MetricCollection data = MetricCollection.points(ImmutableList.of(point));
+
+                writes.add(new WriteMetric(series, data));
+            }
 
-        return writes.build();
+            return writes.build();
+        };
     }
 
     private Iterable<Map.Entry<String, String>> defaultTags(final CollectdSample sample) {
@@ -202,11 +216,18 @@ public class CollectdTypes {
     }
 
     interface Mapper {
-        List<WriteMetric> convert(
+        Template template(
             final CollectdSample sample, final Iterable<Map.Entry<String, String>> tags
         );
     }
 
+    /**
+     * Converts samples into writes for a pre-built set of series.
+     */
+    public interface Template {
+        List<WriteMetric> convert(final CollectdSample sample);
+    }
+
     static class Mapping {
         private final Plugin plugin;
         private final List<Field> fields;
@@ -218,34 +239,44 @@ public class CollectdTypes {
 
         public Mapper setup(CollectdTypes types) {
             return (sample, tags) -> {
-                final long time = sample.getTime() * 1000;
+                final Map<String, String> base = plugin.tags(sample);
+                final ImmutableList.Builder<Series> builder = ImmutableList.builder();
 
-                final Iterator<Field> fields = this.fields.iterator();
-                final Iterator<CollectdValue> values = sample.getValues().iterator();
+                for (final Field field : fields) {
+                    builder.add(Series.of(types.key,
+                        Iterables.concat(tags, base.entrySet(), field.tags(sample).entrySet())
+                            .iterator()));
+                }
 
-                final ImmutableList.Builder<WriteMetric> writes = ImmutableList.builder();
+                final List<Series> series = builder.build();
 
-                final Map<String, String> base = plugin.tags(sample);
+                return s -> {
+                    final long time = s.getTime() * 1000;
 
-                while (fields.hasNext()) {
-                    if (!values.hasNext()) {
-                        throw new IllegalArgumentException("too few values for mapping");
-                    }
+                    final Iterator<Series> seriesIterator = series.iterator();
+                    final Iterator<Field> fields = this.fields.iterator();
+                    final Iterator<CollectdValue> values = s.getValues().iterator();
 
-                    final Field field = fields.next();
-                    final CollectdValue value = values.next();
+                    final ImmutableList.Builder<WriteMetric> writes = ImmutableList.builder();
 
-                    final Series series = Series.of(types.key, Iterables
-                        .concat(tags, base.entrySet(), field.tags(sample, value).entrySet())
-                        .iterator());
-                    final Point point = new Point(time, value.convert(field));
+                    while (fields.hasNext()) {
+                        if (!values.hasNext()) {
+                            throw new IllegalArgumentException("too few values for mapping");
+                        }
 
-                    final MetricCollection data = MetricCollection.points(ImmutableList.of(point));
+                        final Field field = fields.next();
+                        final CollectdValue value = values.next();
 
-                    writes.add(new WriteMetric(series, data));
-                }
+                        final Point point = new Point(time, value.convert(field));
+
+                        final MetricCollection data =
+                            MetricCollection.points(ImmutableList.of(point));
+
+                        writes.add(new WriteMetric(seriesIterator.next(), data));
+                    }
 
-                return writes.build();
+                    return writes.build();
+                };
             };
         }
     }
@@ -271,7 +302,7 @@ public class CollectdTypes {
             return Long.valueOf(absolute).doubleValue();
         }
 
-        public Map<String, String> tags(final CollectdSample s, final CollectdValue v) {
+        public Map<String, String> tags(final CollectdSample s) {
             return ImmutableMap.of();
         }
     }
@@ -285,7 +316,7 @@ public class CollectdTypes {
         }
 
         @Override
-        public Map<String, String> tags(final CollectdSample s, final CollectdValue v) {
+        public Map<String, String> tags(final CollectdSample s) {
             final ImmutableMap.Builder<String, String> tags = ImmutableMap.builder();
             tags.put("what", what);
             return tags.build();
@@ -30,48 +30,123 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioDatagramChannel;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 
+@Slf4j
 @Data
 public class Server {
     private final AsyncFramework async;
-    private final Channel channel;
+    private final EventLoopGroup group;
+    private final List<Channel> channels;
+    private final CollectdIngestion ingestion;
 
     public AsyncFuture<Void> start() {
         return async.resolved();
     }
 
     public AsyncFuture<Void> shutdown() {
-        return async.resolved();
+        final List<AsyncFuture<Void>> futures = new ArrayList<>();
+
+        for (final Channel channel : channels) {
+            futures.add(toFuture(async, channel.close()).directTransform(c -> null));
+        }
+
+        return async.collectAndDiscard(futures).lazyTransform(v -> {
+            group.shutdownGracefully();
+            return ingestion.stop();
+        });
     }
 
+    /**
+     * Setup a server listening on the given host and port.
+     *
+     * @param receivers The number of sockets to receive on. More than one socket requires native
+     * epoll support, since every socket is bound to the same port using {@code SO_REUSEPORT} and
+     * the kernel balances packets between them.
+     */
     public static AsyncFuture<Server> setup(
-        final AsyncFramework async, final CollectdChannelHandler handler, final InetAddress host,
-        final int port
+        final AsyncFramework async, final CollectdChannelHandler handler,
+        final CollectdIngestion ingestion, final InetAddress host, final int port,
+        final int receivers
     ) {
-        final EventLoopGroup group = new NioEventLoopGroup();
+        final EventLoopGroup group;
         final Bootstrap b = new Bootstrap();
+        final int sockets;
 
-        b
-            .group(group)
-            .channel(NioDatagramChannel.class)
-            .option(ChannelOption.SO_BROADCAST, true)
-            .handler(handler);
+        if (receivers > 1 && Epoll.isAvailable()) {
+            group = new EpollEventLoopGroup(receivers);
+            sockets = receivers;
 
-        final ResolvableFuture<Server> future = async.future();
+            b
+                .group(group)
+                .channel(EpollDatagramChannel.class)
+                .option(EpollChannelOption.SO_REUSEPORT, true);
+        } else {
+            if (receivers > 1) {
+                log.warn("Native epoll is not available ({}), using a single receiver",
+                    Epoll.unavailabilityCause().toString());
+            }
+
+            group = new NioEventLoopGroup(1);
+            sockets = 1;
+
+            b.group(group).channel(NioDatagramChannel.class);
+        }
+
+        b.option(ChannelOption.SO_BROADCAST, true).handler(handler);
+        return bind(async, b, group, ingestion, host, port, sockets);
+    }
+
+    /**
+     * Bind the given number of sockets, and start ingesting once all of them are bound.
+     * <p>
+     * If any socket fails to bind, the event loop group (which closes the sockets that were bound)
+     * and the ingestion workers are shut down.
+     */
+    static AsyncFuture<Server> bind(
+        final AsyncFramework async, final Bootstrap b, final EventLoopGroup group,
+        final CollectdIngestion ingestion, final InetAddress host, final int port,
+        final int sockets
+    ) {
+        final List<AsyncFuture<Channel>> binds = new ArrayList<>();
+
+        for (int i = 0; i < sockets; i++) {
+            binds.add(toFuture(async, b.bind(host, port)));
+        }
+
+        return async.collect(binds).directTransform(channels -> {
+            ingestion.start();
+            return new Server(async, group, channels, ingestion);
+        }).onFailed(e -> {
+            group.shutdownGracefully();
+            ingestion.stop();
+        });
+    }
+
+    private static AsyncFuture<Channel> toFuture(
+        final AsyncFramework async, final ChannelFuture channelFuture
+    ) {
+        final ResolvableFuture<Channel> future = async.future();
 
-        b.bind(host, port).addListener(new ChannelFutureListener() {
+        channelFuture.addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(final ChannelFuture f) throws Exception {
                 if (f.isSuccess()) {
-                    future.resolve(new Server(async, f.channel()));
+                    future.resolve(f.channel());
                 } else {
                     future.fail(
-                        f.cause() != null ? f.cause() : new RuntimeException("Failed to bind"));
+                        f.cause() != null ? f.cause() : new RuntimeException("Channel failed"));
                 }
             }
         });
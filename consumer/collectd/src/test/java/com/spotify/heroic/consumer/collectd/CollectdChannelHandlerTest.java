@@ -0,0 +1,86 @@
+package com.spotify.heroic.consumer.collectd;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.statistics.ConsumerReporter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.InetSocketAddress;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CollectdChannelHandlerTest {
+    private final InetSocketAddress address = new InetSocketAddress("127.0.0.1", 25826);
+
+    @Mock
+    private CollectdIngestion ingestion;
+
+    @Mock
+    private ConsumerReporter reporter;
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setup() {
+        channel = new EmbeddedChannel(new CollectdChannelHandler(ingestion, reporter));
+    }
+
+    private static void string(final ByteBuf buf, final int type, final String value) {
+        final byte[] bytes = value.getBytes(Charsets.UTF_8);
+        buf.writeShort(type);
+        buf.writeShort(4 + bytes.length + 1);
+        buf.writeBytes(bytes);
+        buf.writeByte(0);
+    }
+
+    private void receive(final ByteBuf buf) {
+        channel.writeInbound(new DatagramPacket(buf, address, address));
+    }
+
+    @Test
+    public void testSamplesAreOffered() {
+        final ByteBuf buf = Unpooled.buffer();
+
+        string(buf, CollectdParser.HOST, "a");
+        buf.writeShort(CollectdParser.TIME);
+        buf.writeShort(12);
+        buf.writeLong(10L);
+        string(buf, CollectdParser.PLUGIN, "cpu");
+        string(buf, CollectdParser.PLUGIN_INSTANCE, "0");
+        string(buf, CollectdParser.TYPE, "cpu");
+        string(buf, CollectdParser.TYPE_INSTANCE, "idle");
+        buf.writeShort(CollectdParser.VALUES);
+        buf.writeShort(4 + 2 + 9);
+        buf.writeShort(1);
+        buf.writeByte(CollectdSample.DERIVE);
+        buf.writeLong(42L);
+
+        final int size = buf.readableBytes();
+        receive(buf);
+
+        verify(reporter).reportMessageSize(size);
+        verify(ingestion).offer(ImmutableList.of(
+            new CollectdSample("a", 10L, "cpu", "0", "cpu", "idle",
+                ImmutableList.of(new CollectdValue.Derive(42L)), 0L, "", 0L)));
+        verify(reporter, never()).reportMessageError();
+    }
+
+    @Test
+    public void testMalformedPacketIsReported() {
+        receive(Unpooled.wrappedBuffer(new byte[]{0, 1}));
+
+        verify(reporter).reportMessageError();
+        verify(ingestion, never()).offer(anyListOf(CollectdSample.class));
+    }
+}
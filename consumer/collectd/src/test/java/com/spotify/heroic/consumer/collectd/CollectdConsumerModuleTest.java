@@ -0,0 +1,67 @@
+package com.spotify.heroic.consumer.collectd;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.heroic.HeroicMappers;
+import com.spotify.heroic.grammar.QueryParser;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+public class CollectdConsumerModuleTest {
+    private final ObjectMapper mapper = HeroicMappers.json(Mockito.mock(QueryParser.class));
+
+    private CollectdConsumerModule parse(final String json) throws Exception {
+        return (CollectdConsumerModule) mapper
+            .readValue(json, CollectdConsumerModule.Builder.class)
+            .build();
+    }
+
+    @Test
+    public void testDefaults() throws Exception {
+        final CollectdConsumerModule module = parse("{}");
+
+        assertEquals(Optional.empty(), module.getPort());
+        assertEquals(CollectdConsumerModule.DEFAULT_RECEIVERS, module.getReceivers());
+        assertEquals(CollectdConsumerModule.DEFAULT_WORKERS, module.getWorkers());
+        assertEquals(CollectdConsumerModule.DEFAULT_QUEUE_SIZE, module.getQueueSize());
+    }
+
+    @Test
+    public void testConfig() throws Exception {
+        final CollectdConsumerModule module =
+            parse("{\"port\": 1234, \"receivers\": 2, \"workers\": 8, \"queueSize\": 100}");
+
+        assertEquals(Optional.of(1234), module.getPort());
+        assertEquals(2, module.getReceivers());
+        assertEquals(8, module.getWorkers());
+        assertEquals(100, module.getQueueSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPortTooSmall() {
+        CollectdConsumerModule.builder().port(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPortTooLarge() {
+        CollectdConsumerModule.builder().port(CollectdConsumerModule.MAX_PORT + 1).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidReceivers() {
+        CollectdConsumerModule.builder().receivers(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWorkers() {
+        CollectdConsumerModule.builder().workers(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQueueSize() {
+        CollectdConsumerModule.builder().queueSize(-1).build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.spotify.heroic.consumer.collectd;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.ingestion.IngestionGroup;
+import com.spotify.heroic.metric.WriteMetric;
+import com.spotify.heroic.metric.WriteResult;
+import com.spotify.heroic.statistics.ConsumerReporter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CollectdIngestionTest {
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final AtomicLong errors = new AtomicLong();
+    private final LongAdder consumed = new LongAdder();
+
+    @Mock
+    private IngestionGroup group;
+
+    @Mock
+    private ConsumerReporter reporter;
+
+    private final CollectdTemplates templates =
+        new CollectdTemplates(Optional.empty(), CollectdTypes.supplyDefault(), 10L, 10L);
+
+    @Before
+    public void setup() {
+        doReturn(async.resolved(WriteResult.of())).when(group).write(any(WriteMetric.class));
+    }
+
+    private CollectdIngestion ingestion(final int queueSize) {
+        return new CollectdIngestion(async, group, templates, reporter, errors, consumed, 2,
+            queueSize);
+    }
+
+    private CollectdSample sample(final String type) {
+        return new CollectdSample("a", 10L, type, "", type, "",
+            ImmutableList.of(new CollectdValue.Gauge(1D), new CollectdValue.Gauge(2D),
+                new CollectdValue.Gauge(3D)), 10L, "", 0L);
+    }
+
+    @Test
+    public void testSamplesAreIngested() throws Exception {
+        final CollectdIngestion ingestion = ingestion(10);
+        ingestion.start();
+
+        /* load is mapped to three series, the default mapping writes every value */
+        ingestion.offer(ImmutableList.of(sample("load"), sample("cpu")));
+
+        verify(group, timeout(5000).times(6)).write(any(WriteMetric.class));
+
+        ingestion.stop().get();
+        assertEquals(2L, consumed.sum());
+        assertEquals(0L, errors.get());
+        verify(reporter).reportSamplesDecoded(2);
+    }
+
+    @Test
+    public void testFailedWritesAreCounted() throws Exception {
+        doReturn(async.failed(new RuntimeException("boom")))
+            .when(group)
+            .write(any(WriteMetric.class));
+
+        final CollectdIngestion ingestion = ingestion(10);
+        ingestion.start();
+        ingestion.offer(ImmutableList.of(sample("cpu")));
+
+        verify(group, timeout(5000).times(3)).write(any(WriteMetric.class));
+
+        ingestion.stop().get();
+        assertEquals(1L, consumed.sum());
+        assertEquals(1L, errors.get());
+    }
+
+    @Test
+    public void testDropsWhenQueueIsFull() throws Exception {
+        final CollectdIngestion ingestion = ingestion(1);
+
+        /* not started, so nothing is taken off the queue */
+        ingestion.offer(ImmutableList.of(sample("cpu"), sample("cpu"), sample("cpu")));
+
+        verify(reporter).reportSamplesDecoded(3);
+        verify(reporter).reportSamplesDropped(2);
+
+        /* samples still queued when stopping are dropped */
+        ingestion.stop().get();
+        verify(reporter).reportSamplesDropped(1);
+        verify(group, times(0)).write(any(WriteMetric.class));
+    }
+}
@@ -0,0 +1,94 @@
+package com.spotify.heroic.consumer.collectd;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.heroic.common.GrokProcessor;
+import com.spotify.heroic.common.Series;
+import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.WriteMetric;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CollectdTemplatesTest {
+    private final CollectdTemplates templates =
+        new CollectdTemplates(Optional.empty(), CollectdTypes.supplyDefault(), 10L, 10L);
+
+    private CollectdSample sample(
+        final String host, final long time, final String plugin, final String pluginInstance,
+        final String type, final String typeInstance, final double... values
+    ) {
+        final ImmutableList.Builder<CollectdValue> v = ImmutableList.builder();
+
+        for (final double value : values) {
+            v.add(new CollectdValue.Gauge(value));
+        }
+
+        return new CollectdSample(host, time, plugin, pluginInstance, type, typeInstance,
+            v.build(), 10L, "", 0L);
+    }
+
+    private List<WriteMetric> convert(final CollectdSample s) {
+        return templates.template(s).convert(s);
+    }
+
+    @Test
+    public void testMappedType() {
+        final List<WriteMetric> writes =
+            convert(sample("a", 10L, "load", "", "load", "", 1D, 2D, 3D));
+
+        assertEquals(3, writes.size());
+
+        final Series series = writes.get(1).getSeries();
+        assertEquals(CollectdTypes.DEFAULT_KEY, series.getKey());
+        assertEquals("load-midterm", series.getTags().get("what"));
+        assertEquals("a", series.getTags().get("host"));
+        assertEquals(ImmutableList.of(new Point(10000L, 2D)),
+            writes.get(1).getData().getDataAs(Point.class));
+    }
+
+    @Test
+    public void testDefaultType() {
+        final List<WriteMetric> writes = convert(sample("a", 10L, "cpu", "0", "cpu", "idle", 42D));
+
+        assertEquals(1, writes.size());
+        assertEquals(ImmutableMap.of("host", "a", "plugin", "cpu", "plugin_instance", "0", "type",
+            "cpu", "type_instance", "idle"), writes.get(0).getSeries().getTags());
+        assertEquals(ImmutableList.of(new Point(10000L, 42D)),
+            writes.get(0).getData().getDataAs(Point.class));
+    }
+
+    @Test
+    public void testTemplatesAreReused() {
+        final CollectdSample first = sample("a", 10L, "cpu", "0", "cpu", "idle", 1D);
+        final CollectdSample second = sample("a", 20L, "cpu", "0", "cpu", "idle", 2D);
+
+        /* only the time and the values differ */
+        assertSame(templates.template(first), templates.template(second));
+        assertSame(convert(first).get(0).getSeries(), convert(second).get(0).getSeries());
+
+        assertNotSame(templates.template(first),
+            templates.template(sample("a", 10L, "cpu", "0", "cpu", "user", 1D)));
+        assertNotSame(templates.template(first),
+            templates.template(sample("b", 10L, "cpu", "0", "cpu", "idle", 1D)));
+    }
+
+    @Test
+    public void testHostTags() {
+        final CollectdTemplates templates = new CollectdTemplates(
+            Optional.of(new GrokProcessor(ImmutableMap.of(), "%{role}\\.%{site}")),
+            CollectdTypes.supplyDefault(), 10L, 10L);
+
+        final CollectdSample s = sample("web.lon", 10L, "cpu", "", "cpu", "", 1D);
+        final Series series = templates.template(s).convert(s).get(0).getSeries();
+
+        assertEquals("web", series.getTags().get("role"));
+        assertEquals("lon", series.getTags().get("site"));
+        assertEquals("web.lon", series.getTags().get("host"));
+    }
+}
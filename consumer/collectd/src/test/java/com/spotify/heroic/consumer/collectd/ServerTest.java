@@ -0,0 +1,147 @@
+package com.spotify.heroic.consumer.collectd;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.statistics.ConsumerReporter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.TinyAsync;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ServerTest {
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final InetAddress host = InetAddress.getLoopbackAddress();
+
+    @Mock
+    private CollectdIngestion ingestion;
+
+    @Mock
+    private ConsumerReporter reporter;
+
+    private NioEventLoopGroup group;
+    private Bootstrap bootstrap;
+
+    @Before
+    public void setup() {
+        doReturn(async.resolved()).when(ingestion).stop();
+
+        group = new NioEventLoopGroup(1);
+        bootstrap = new Bootstrap()
+            .group(group)
+            .channel(NioDatagramChannel.class)
+            .handler(new ChannelInboundHandlerAdapter());
+    }
+
+    @After
+    public void teardown() {
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    private int freePort() throws Exception {
+        try (final DatagramSocket socket = new DatagramSocket(0, host)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private void assertBound(final Server server, final int sockets, final int port) {
+        assertEquals(sockets, server.getChannels().size());
+
+        for (final Channel channel : server.getChannels()) {
+            assertEquals(port, ((InetSocketAddress) channel.localAddress()).getPort());
+        }
+    }
+
+    @Test
+    public void testShutdownWhenBindFails() throws Exception {
+        try (final DatagramSocket taken = new DatagramSocket(0, host)) {
+            final AsyncFuture<Server> server =
+                Server.bind(async, bootstrap, group, ingestion, host, taken.getLocalPort(), 1);
+
+            try {
+                server.get();
+                fail("bind should fail");
+            } catch (final ExecutionException e) {
+                /* expected */
+            }
+        }
+
+        assertTrue(group.awaitTermination(10, TimeUnit.SECONDS));
+        verify(ingestion, timeout(5000)).stop();
+        verify(ingestion, never()).start();
+    }
+
+    @Test
+    public void testStartAndShutdown() throws Exception {
+        final Server server = Server.bind(async, bootstrap, group, ingestion, host, 0, 1).get();
+
+        verify(ingestion).start();
+        assertFalse(group.isShuttingDown());
+
+        server.shutdown().get();
+        assertTrue(group.awaitTermination(10, TimeUnit.SECONDS));
+        verify(ingestion).stop();
+    }
+
+    @Test
+    public void testBindMultipleSockets() throws Exception {
+        final int port = freePort();
+        bootstrap.option(ChannelOption.SO_REUSEADDR, true);
+
+        final Server server = Server.bind(async, bootstrap, group, ingestion, host, port, 2).get();
+
+        assertBound(server, 2, port);
+        verify(ingestion).start();
+
+        server.shutdown().get();
+        assertTrue(group.awaitTermination(10, TimeUnit.SECONDS));
+        verify(ingestion).stop();
+    }
+
+    @Test
+    public void testSetupMultipleReceivers() throws Exception {
+        assumeTrue("native epoll is available", Epoll.isAvailable());
+
+        final int port = freePort();
+        final Server server = Server
+            .setup(async, new CollectdChannelHandler(ingestion, reporter), ingestion, host, port,
+                2)
+            .get();
+
+        assertBound(server, 2, port);
+        verify(ingestion).start();
+
+        server.shutdown().get();
+        assertTrue(server.getGroup().awaitTermination(10, TimeUnit.SECONDS));
+        verify(ingestion).stop();
+    }
+}
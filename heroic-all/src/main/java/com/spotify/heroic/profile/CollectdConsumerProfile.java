@@ -42,6 +42,8 @@ public class CollectdConsumerProfile extends HeroicProfileBase {
 
         params.get("host").ifPresent(module::host);
         params.getInteger("port").ifPresent(module::port);
+        params.getInteger("receivers").ifPresent(module::receivers);
+        params.getInteger("workers").ifPresent(module::workers);
         params
             .get("pattern")
             .map(p -> new GrokProcessor(ImmutableMap.of(), p))
@@ -68,7 +70,10 @@ public class CollectdConsumerProfile extends HeroicProfileBase {
         // @formatter:off
         return ImmutableList.of(
             parameter("host", "Host to bind to", "<host>"),
-            parameter("port", "Port to bind to", "<port>")
+            parameter("port", "Port to bind to", "<port>"),
+            parameter("receivers", "Number of sockets to receive on (requires epoll if more " +
+                "than one)", "<number>"),
+            parameter("workers", "Number of threads ingesting received samples", "<number>")
         );
         // @formatter:on
     }
@@ -22,12 +22,15 @@
 package com.spotify.heroic;
 
 import com.spotify.heroic.lifecycle.LifeCycle;
+import com.spotify.heroic.statistics.QueryReporter;
 
 import javax.inject.Named;
 
 public interface QueryComponent {
     QueryManager queryManager();
 
+    QueryReporter queryReporter();
+
     @Named("query")
     default LifeCycle queryLife() {
         return LifeCycle.empty();
@@ -24,6 +24,7 @@ package com.spotify.heroic;
 import com.spotify.heroic.cluster.ClusterShardGroup;
 import com.spotify.heroic.common.UsableGroupManager;
 import com.spotify.heroic.metric.QueryResult;
+import com.spotify.heroic.metric.SlowQuery;
 import eu.toolchain.async.AsyncFuture;
 
 import java.util.Collection;
@@ -39,11 +40,26 @@ public interface QueryManager extends UsableGroupManager<QueryManager.Group> {
 
     QueryBuilder newQueryFromString(String query);
 
+    /**
+     * The most recent queries which took longer than the slow-query threshold, most recent first.
+     */
+    List<SlowQuery> slowQueries();
+
     AsyncFuture<Void> initialized();
 
     interface Group {
         AsyncFuture<QueryResult> query(Query query);
 
+        /**
+         * Perform a batch of queries.
+         * <p>
+         * Queries which are not cached are sent to each shard together, so that metadata lookups
+         * and fetches can be shared between them.
+         *
+         * @return One result for every query, in the same order as the queries.
+         */
+        AsyncFuture<List<QueryResult>> queryBatch(List<Query> queries);
+
         List<ClusterShardGroup> shards();
     }
 }
@@ -23,6 +23,7 @@ package com.spotify.heroic;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.spotify.heroic.common.Duration;
 import com.spotify.heroic.metric.QueryTrace;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -33,11 +34,12 @@ import java.util.Optional;
 import static java.util.Optional.ofNullable;
 
 @RequiredArgsConstructor
-@EqualsAndHashCode(of = {"tracing", "fetchSize"})
+@EqualsAndHashCode(of = {"tracing", "fetchSize", "deadline"})
 public class QueryOptions {
     public static final boolean DEFAULT_TRACING = false;
 
-    public static final QueryOptions DEFAULTS = new QueryOptions(DEFAULT_TRACING, Optional.empty());
+    public static final QueryOptions DEFAULTS =
+        new QueryOptions(DEFAULT_TRACING, Optional.empty(), Optional.empty());
 
     // XXX: remove ones deployed everywhere.
     @Getter
@@ -58,13 +60,21 @@ public class QueryOptions {
      */
     private final Optional<Integer> fetchSize;
 
+    /**
+     * How long the query is allowed to run before whatever has been aggregated so far is returned
+     * as a partial result.
+     */
+    private final Optional<Duration> deadline;
+
     @JsonCreator
     public QueryOptions(
         @JsonProperty("tracing") Boolean tracing,
-        @JsonProperty("fetchSize") Optional<Integer> fetchSize
+        @JsonProperty("fetchSize") Optional<Integer> fetchSize,
+        @JsonProperty("deadline") Optional<Duration> deadline
     ) {
         this.tracing = ofNullable(tracing).orElse(DEFAULT_TRACING);
         this.fetchSize = fetchSize;
+        this.deadline = ofNullable(deadline).orElseGet(Optional::empty);
     }
 
     public boolean isTracing() {
@@ -75,6 +85,17 @@ public class QueryOptions {
         return fetchSize;
     }
 
+    public Optional<Duration> getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Build a copy of these options with a different deadline.
+     */
+    public QueryOptions withDeadline(final Duration deadline) {
+        return new QueryOptions(tracing, fetchSize, Optional.of(deadline));
+    }
+
     public static QueryOptions defaults() {
         return DEFAULTS;
     }
@@ -86,6 +107,7 @@ public class QueryOptions {
     public static class Builder {
         private boolean tracing = false;
         private Optional<Integer> fetchSize = Optional.empty();
+        private Optional<Duration> deadline = Optional.empty();
 
         public Builder tracing(boolean tracing) {
             this.tracing = tracing;
@@ -97,8 +119,13 @@ public class QueryOptions {
             return this;
         }
 
+        public Builder deadline(Duration deadline) {
+            this.deadline = Optional.of(deadline);
+            return this;
+        }
+
         public QueryOptions build() {
-            return new QueryOptions(tracing, fetchSize);
+            return new QueryOptions(tracing, fetchSize, deadline);
         }
     }
 }
@@ -25,6 +25,7 @@ import com.spotify.heroic.metric.Event;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 
 import java.util.Map;
@@ -50,5 +51,10 @@ public abstract class AbstractAnyBucket implements Bucket {
         update(tags, sample);
     }
 
+    @Override
+    public void updateSketch(Map<String, String> tags, Sketch sample) {
+        /* sketches summarize many samples, and can only be interpreted by their producer */
+    }
+
     public abstract void update(Map<String, String> tags, Metric sample);
 }
@@ -24,6 +24,7 @@ package com.spotify.heroic.aggregation;
 import com.spotify.heroic.metric.Event;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 
 import java.util.Map;
@@ -44,4 +45,8 @@ public abstract class AbstractBucket implements Bucket {
     @Override
     public void updateGroup(Map<String, String> tags, MetricGroup sample) {
     }
+
+    @Override
+    public void updateSketch(Map<String, String> tags, Sketch sample) {
+    }
 }
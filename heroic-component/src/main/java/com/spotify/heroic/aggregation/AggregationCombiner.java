@@ -25,10 +25,25 @@ import com.google.common.collect.ImmutableList;
 import com.spotify.heroic.metric.ShardedResultGroup;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public interface AggregationCombiner {
     List<ShardedResultGroup> combine(List<List<ShardedResultGroup>> all);
 
+    /**
+     * Combine the given results, using the given pool for work that can be done in parallel.
+     * <p>
+     * Combiners that can not split up their work run entirely on the calling thread.
+     *
+     * @param pool Pool to run parallel work on, its parallelism decides how many parts the work
+     * is split into.
+     */
+    default List<ShardedResultGroup> combine(
+        List<List<ShardedResultGroup>> all, ForkJoinPool pool
+    ) {
+        return combine(all);
+    }
+
     static AggregationCombiner DEFAULT = new AggregationCombiner() {
         @Override
         public List<ShardedResultGroup> combine(List<List<ShardedResultGroup>> all) {
@@ -56,6 +56,22 @@ public interface AggregationInstance {
      */
     long cadence();
 
+    /**
+     * Check if this aggregation can be fed pre-aggregated rollups instead of raw points.
+     * <p>
+     * A rollup summarizes all points in the interval {@code (t - resolution, t]} as a single
+     * {@link com.spotify.heroic.metric.Spread} with timestamp {@code t}, where {@code t} is a
+     * multiple of the resolution. An aggregation supports a resolution if it produces the same
+     * result when fed such spreads as when fed the points that they summarize, given a range that
+     * starts on a multiple of the resolution.
+     *
+     * @param resolution Resolution of the rollup in milliseconds.
+     * @return {@code true} if rollups of the given resolution can be used.
+     */
+    default boolean supportsRollup(long resolution) {
+        return false;
+    }
+
     /**
      * Traverse the possible aggregations and build the necessary graph out of them.
      */
@@ -36,6 +36,17 @@ public interface AggregationRegistry {
         String id, Class<A> type, Class<I> instanceType, AggregationDSL dsl
     );
 
+    /**
+     * Register an aggregation instance that has no aggregation of its own.
+     * <p>
+     * This is used for the intermediate forms of distributed aggregations, which are only ever
+     * sent between nodes.
+     *
+     * @param id The id of the instance, will be used in the type field.
+     * @param instanceType The type of the instance.
+     */
+    <I extends AggregationInstance> void registerInstance(String id, Class<I> instanceType);
+
     Module module();
 
     AggregationFactory newAggregationFactory();
@@ -24,19 +24,44 @@ package com.spotify.heroic.aggregation;
 import com.spotify.heroic.metric.Event;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 
+import java.util.List;
 import java.util.Map;
 
 public interface Bucket {
     void updatePoint(Map<String, String> tags, Point sample);
 
+    /**
+     * Update the bucket with a run of points which all belong to this bucket.
+     * <p>
+     * Buckets that can reduce a run of points cheaper than one point at a time, e.g. by only
+     * performing a single atomic update for the whole run, should override this.
+     *
+     * @param samples List of points, of which only the valid points in the range
+     * {@code [start, end)} are used.
+     */
+    default void updatePoints(
+        Map<String, String> tags, List<Point> samples, int start, int end
+    ) {
+        for (int i = start; i < end; i++) {
+            final Point sample = samples.get(i);
+
+            if (sample.valid()) {
+                updatePoint(tags, sample);
+            }
+        }
+    }
+
     void updateEvent(Map<String, String> tags, Event sample);
 
     void updateSpread(Map<String, String> tags, Spread sample);
 
     void updateGroup(Map<String, String> tags, MetricGroup sample);
 
+    void updateSketch(Map<String, String> tags, Sketch sample);
+
     /**
      * Get the timestamp for the bucket.
      *
@@ -33,6 +33,7 @@ import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 import lombok.AccessLevel;
 import lombok.Data;
@@ -45,6 +46,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.LongAdder;
 
@@ -53,6 +55,10 @@ import java.util.concurrent.atomic.LongAdder;
  * <p>
  * A bucket aggregation is used to down-sample a lot of data into distinct buckets over time, making
  * them useful for presentation purposes. Buckets have to be thread safe.
+ * <p>
+ * When the extent is a multiple of the size, aggregations which provide a {@link SlidingWindow}
+ * collect samples into non-overlapping base buckets, and build each window from the base buckets
+ * it covers. Otherwise every sample is fed into each bucket that it overlaps.
  *
  * @param <B> The bucket type.
  * @author udoprog
@@ -86,10 +92,23 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
 
         private final long offset;
 
+        /* how far back in time each bucket extends */
+        private final long span;
+
+        /* number of buckets in each window, if buckets are combined using a sliding window */
+        private final int width;
+
+        private final Optional<SlidingWindow<B>> window;
+
         @Override
         public void updatePoints(
             Map<String, String> group, List<Point> values
         ) {
+            if (span == size) {
+                feedRuns(group, values);
+                return;
+            }
+
             feed(MetricType.POINT, values, (bucket, m) -> bucket.updatePoint(group, m));
         }
 
@@ -114,6 +133,13 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
             feed(MetricType.GROUP, values, (bucket, m) -> bucket.updateGroup(group, m));
         }
 
+        @Override
+        public void updateSketches(
+            Map<String, String> group, List<Sketch> values
+        ) {
+            feed(MetricType.SKETCH, values, (bucket, m) -> bucket.updateSketch(group, m));
+        }
+
         private <T extends Metric> void feed(
             final MetricType type, List<T> values, final BucketConsumer<B, T> consumer
         ) {
@@ -140,9 +166,59 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
             this.sampleSize.add(sampleSize);
         }
 
+        /**
+         * Feed points when buckets do not overlap, which means that every point belongs to at
+         * most one bucket.
+         * <p>
+         * Consecutive points that belong to the same bucket are given to it as a single run, which
+         * for sorted input means that each bucket is updated once per call.
+         */
+        private void feedRuns(final Map<String, String> group, final List<Point> values) {
+            if (!input.contains(MetricType.POINT)) {
+                return;
+            }
+
+            final int count = values.size();
+            int sampleSize = 0;
+            int start = 0;
+
+            while (start < count) {
+                /* same as matching, the bucket is the one ending at or after the timestamp */
+                final long index =
+                    Math.floorDiv(values.get(start).getTimestamp() - offset - 1 + size, size);
+                final long last = offset + index * size;
+                final long first = last - size + 1;
+
+                int end = start;
+
+                while (end < count) {
+                    final Point p = values.get(end);
+                    final long t = p.getTimestamp();
+
+                    if (t < first || t > last) {
+                        break;
+                    }
+
+                    if (p.valid()) {
+                        sampleSize += 1;
+                    }
+
+                    end++;
+                }
+
+                if (index >= 0 && index < buckets.size()) {
+                    buckets.get((int) index).updatePoints(group, values, start, end);
+                }
+
+                start = end;
+            }
+
+            this.sampleSize.add(sampleSize);
+        }
+
         private Iterator<B> matching(final Metric m) {
             final long ts = m.getTimestamp() - offset - 1;
-            final long te = ts + extent;
+            final long te = ts + span;
 
             if (te < 0) {
                 return Collections.emptyIterator();
@@ -160,7 +236,7 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
                     }
 
                     final long m = current % size;
-                    return (current >= 0 && current > ts) && (m >= 0 && m < extent);
+                    return (current >= 0 && current > ts) && (m >= 0 && m < span);
                 }
 
                 @Override
@@ -176,9 +252,7 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
         public AggregationResult result() {
             final List<Metric> result = new ArrayList<>(buckets.size());
 
-            for (final B bucket : buckets) {
-                final Metric d = build(bucket);
-
+            for (final Metric d : metrics()) {
                 if (!d.valid()) {
                     continue;
                 }
@@ -193,6 +267,20 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
                 ImmutableList.of(new AggregationData(EMPTY_GROUP, metrics));
             return new AggregationResult(updates, statistics);
         }
+
+        private List<Metric> metrics() {
+            if (window.isPresent()) {
+                return window.get().windows(buckets, width);
+            }
+
+            final List<Metric> metrics = new ArrayList<>(buckets.size());
+
+            for (final B bucket : buckets) {
+                metrics.add(build(bucket));
+            }
+
+            return metrics;
+        }
     }
 
     @Override
@@ -221,6 +309,14 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
         return size;
     }
 
+    /**
+     * Check if every bucket of this aggregation covers a whole number of intervals of the given
+     * resolution, which is required for {@link #supportsRollup(long)}.
+     */
+    protected boolean alignedTo(final long resolution) {
+        return resolution > 0 && size % resolution == 0 && extent % resolution == 0;
+    }
+
     @Override
     public ReducerSession reducer(DateRange range) {
         return new BucketReducerSession<B>(out, size, this::buildBucket, this::build, range);
@@ -232,11 +328,6 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
     }
 
     public Session session(final DateRange range) {
-        final List<B> buckets = buildBuckets(range, size);
-        return new Session(buckets, range.start());
-    }
-
-    private List<B> buildBuckets(final DateRange range, long size) {
         final long start = range.start();
         final long count = (range.diff() + size) / size;
 
@@ -244,6 +335,22 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
             throw new IllegalArgumentException(String.format("range %s, size %d", range, size));
         }
 
+        if (extent > size && extent % size == 0) {
+            final Optional<SlidingWindow<B>> window = slidingWindow();
+            final long width = extent / size;
+
+            if (window.isPresent() && count + width - 1 <= MAX_BUCKET_COUNT) {
+                /* base buckets start early enough for the first window to be complete */
+                final long offset = start - (width - 1) * size;
+                return new Session(buildBuckets(offset, count + width - 1), offset, size,
+                    (int) width, window);
+            }
+        }
+
+        return new Session(buildBuckets(start, count), start, extent, 1, Optional.empty());
+    }
+
+    private List<B> buildBuckets(final long start, final long count) {
         final List<B> buckets = new ArrayList<>((int) count);
 
         for (int i = 0; i < count; i++) {
@@ -257,6 +364,16 @@ public abstract class BucketAggregationInstance<B extends Bucket> implements Agg
 
     protected abstract Metric build(B bucket);
 
+    /**
+     * Sliding window used to combine base buckets when the extent is a multiple of the size.
+     * <p>
+     * Aggregations that can compose the result of a window from the buckets it covers should
+     * override this, which avoids feeding each sample into every overlapping bucket.
+     */
+    protected Optional<SlidingWindow<B>> slidingWindow() {
+        return Optional.empty();
+    }
+
     private static interface BucketConsumer<B extends Bucket, M extends Metric> {
         void apply(B bucket, M metric);
     }
@@ -31,6 +31,7 @@ import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 import lombok.RequiredArgsConstructor;
 
@@ -65,7 +66,37 @@ public class BucketReducerSession<B extends Bucket> implements ReducerSession {
 
     @Override
     public void updatePoints(Map<String, String> group, List<Point> values) {
-        feed(MetricType.POINT, values, (bucket, m) -> bucket.updatePoint(group, m));
+        final int count = values.size();
+        int sampleSize = 0;
+        int start = 0;
+
+        /* give consecutive points that belong to the same bucket to it as a single run */
+        while (start < count) {
+            final long i = (values.get(start).getTimestamp() - offset) / size;
+            int end = start;
+
+            while (end < count) {
+                final Point p = values.get(end);
+
+                if ((p.getTimestamp() - offset) / size != i) {
+                    break;
+                }
+
+                if (p.valid() && i >= 0 && i < buckets.size()) {
+                    sampleSize += 1;
+                }
+
+                end++;
+            }
+
+            if (i >= 0 && i < buckets.size()) {
+                buckets.get((int) i).updatePoints(group, values, start, end);
+            }
+
+            start = end;
+        }
+
+        this.sampleSize.add(sampleSize);
     }
 
     @Override
@@ -83,6 +114,11 @@ public class BucketReducerSession<B extends Bucket> implements ReducerSession {
         feed(MetricType.GROUP, values, (bucket, m) -> bucket.updateGroup(group, m));
     }
 
+    @Override
+    public void updateSketches(Map<String, String> group, List<Sketch> values) {
+        feed(MetricType.SKETCH, values, (bucket, m) -> bucket.updateSketch(group, m));
+    }
+
     private <T extends Metric> void feed(
         final MetricType type, List<T> values, final BucketConsumer<B, T> consumer
     ) {
@@ -30,6 +30,7 @@ import com.spotify.heroic.common.Statistics;
 import com.spotify.heroic.metric.Event;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 import lombok.AccessLevel;
 import lombok.Data;
@@ -76,6 +77,14 @@ public class ChainInstance implements AggregationInstance {
         return chain.get(chain.size() - 1).cadence();
     }
 
+    /**
+     * Only the first aggregation in the chain is fed the fetched data.
+     */
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return chain.get(0).supportsRollup(resolution);
+    }
+
     @Override
     public AggregationInstance distributed() {
         final Iterator<AggregationInstance> it = chain.iterator();
@@ -159,6 +168,13 @@ public class ChainInstance implements AggregationInstance {
             first.updateSpreads(group, values);
         }
 
+        @Override
+        public void updateSketches(
+            Map<String, String> group, List<Sketch> values
+        ) {
+            first.updateSketches(group, values);
+        }
+
         @Override
         public void updateGroup(
             Map<String, String> group, List<MetricGroup> values
@@ -32,6 +32,7 @@ import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 import lombok.Data;
 import lombok.ToString;
@@ -106,6 +107,13 @@ public class EmptyInstance implements AggregationInstance {
             sessions.get(group).spreads.add(values);
         }
 
+        @Override
+        public void updateSketches(
+            Map<String, String> group, List<Sketch> values
+        ) {
+            sessions.get(group).sketches.add(values);
+        }
+
         @Override
         public void updateGroup(
             Map<String, String> group, List<MetricGroup> values
@@ -140,6 +148,11 @@ public class EmptyInstance implements AggregationInstance {
                     groups.add(collectGroup(group, sub.spreads, MetricType.SPREAD.comparator(),
                         MetricCollection::spreads));
                 }
+
+                if (!sub.sketches.isEmpty()) {
+                    groups.add(collectGroup(group, sub.sketches, MetricType.SKETCH.comparator(),
+                        MetricCollection::sketches));
+                }
             }
 
             return new AggregationResult(groups.build(), Statistics.empty());
@@ -181,6 +194,8 @@ public class EmptyInstance implements AggregationInstance {
             new ConcurrentLinkedQueue<>();
         private final ConcurrentLinkedQueue<Collected<MetricGroup>> groups =
             new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<Collected<Sketch>> sketches =
+            new ConcurrentLinkedQueue<>();
 
         @Override
         public void updatePoints(Map<String, String> group, List<Point> values) {
@@ -202,6 +217,11 @@ public class EmptyInstance implements AggregationInstance {
             groups.add(new Collected<MetricGroup>(group, values));
         }
 
+        @Override
+        public void updateSketches(Map<String, String> group, List<Sketch> values) {
+            sketches.add(new Collected<Sketch>(group, values));
+        }
+
         @Override
         public ReducerResult result() {
             final ImmutableList.Builder<MetricCollection> groups = ImmutableList.builder();
@@ -226,6 +246,11 @@ public class EmptyInstance implements AggregationInstance {
                     MetricCollection::spreads));
             }
 
+            if (!this.sketches.isEmpty()) {
+                groups.add(collectGroup(this.sketches, MetricType.SKETCH.comparator(),
+                    MetricCollection::sketches));
+            }
+
             return new ReducerResult(groups.build(), Statistics.empty());
         }
 
@@ -264,5 +289,6 @@ public class EmptyInstance implements AggregationInstance {
         private final ConcurrentLinkedQueue<List<Spread>> spreads = new ConcurrentLinkedQueue<>();
         private final ConcurrentLinkedQueue<List<MetricGroup>> groups =
             new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<List<Sketch>> sketches = new ConcurrentLinkedQueue<>();
     }
 }
@@ -35,6 +35,7 @@ import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
 import com.spotify.heroic.metric.SeriesValues;
 import com.spotify.heroic.metric.ShardedResultGroup;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -48,6 +49,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -154,6 +157,11 @@ public abstract class GroupingAggregation implements AggregationInstance {
         return each.cadence();
     }
 
+    @Override
+    public boolean supportsRollup(final long resolution) {
+        return each.supportsRollup(resolution);
+    }
+
     @Override
     public AggregationInstance distributed() {
         return newInstance(of, each.distributed());
@@ -171,46 +179,99 @@ public abstract class GroupingAggregation implements AggregationInstance {
      * same id. Because of this, each group must instantiate an {@link
      * AggregationInstance#reducer(DateRange)}, belonging to the child aggregation to recombine
      * results that are from different groups.
+     * <p>
+     * When combined using a pool, groups are partitioned by the hash of their key so that all
+     * groups with the same key end up in the same partition, and each partition is reduced in
+     * parallel.
      */
     @Override
     public AggregationCombiner combiner(final DateRange range) {
-        return (all) -> {
-            final Map<Map<String, String>, Reduction> sessions = new HashMap<>();
+        return new AggregationCombiner() {
+            @Override
+            public List<ShardedResultGroup> combine(final List<List<ShardedResultGroup>> all) {
+                return reduce(range, all);
+            }
 
-            /* iterate through all groups and setup, and feed a reducer session for every group */
-            for (List<ShardedResultGroup> groups : all) {
-                for (final ShardedResultGroup g : groups) {
-                    final Map<String, String> key = g.getKey();
+            @Override
+            public List<ShardedResultGroup> combine(
+                final List<List<ShardedResultGroup>> all, final ForkJoinPool pool
+            ) {
+                final int parallelism = pool.getParallelism();
 
-                    Reduction red = sessions.get(key);
+                if (parallelism <= 1) {
+                    return reduce(range, all);
+                }
+
+                final List<List<ShardedResultGroup>> partitions = new ArrayList<>(parallelism);
+
+                for (int i = 0; i < parallelism; i++) {
+                    partitions.add(new ArrayList<>());
+                }
 
-                    if (red == null) {
-                        red = new Reduction(each.reducer(range));
-                        sessions.put(key, red);
+                for (final List<ShardedResultGroup> groups : all) {
+                    for (final ShardedResultGroup g : groups) {
+                        final int partition = Math.floorMod(g.getKey().hashCode(), parallelism);
+                        partitions.get(partition).add(g);
                     }
+                }
+
+                final List<ForkJoinTask<List<ShardedResultGroup>>> tasks = new ArrayList<>();
+
+                for (final List<ShardedResultGroup> partition : partitions) {
+                    if (!partition.isEmpty()) {
+                        tasks.add(pool.submit(() -> reduce(range, ImmutableList.of(partition))));
+                    }
+                }
+
+                final ImmutableList.Builder<ShardedResultGroup> groups = ImmutableList.builder();
 
-                    g.getGroup().updateReducer(red.session, key);
-                    red.series.addSeriesValues(g.getSeries());
+                for (final ForkJoinTask<List<ShardedResultGroup>> task : tasks) {
+                    groups.addAll(task.join());
                 }
+
+                return groups.build();
             }
+        };
+    }
 
-            /* build results from every reducer group into a final result */
-            final ImmutableList.Builder<ShardedResultGroup> groups = ImmutableList.builder();
+    private List<ShardedResultGroup> reduce(
+        final DateRange range, final List<List<ShardedResultGroup>> all
+    ) {
+        final Map<Map<String, String>, Reduction> sessions = new HashMap<>();
 
-            for (final Map.Entry<Map<String, String>, Reduction> e : sessions.entrySet()) {
-                final Map<String, String> key = e.getKey();
-                final Reduction red = e.getValue();
+        /* iterate through all groups and setup, and feed a reducer session for every group */
+        for (List<ShardedResultGroup> groups : all) {
+            for (final ShardedResultGroup g : groups) {
+                final Map<String, String> key = g.getKey();
 
-                final SeriesValues series = red.series.build();
+                Reduction red = sessions.get(key);
 
-                for (final MetricCollection metrics : red.session.result().getResult()) {
-                    groups.add(new ShardedResultGroup(ImmutableMap.of(), key, series, metrics,
-                        each.cadence()));
+                if (red == null) {
+                    red = new Reduction(each.reducer(range));
+                    sessions.put(key, red);
                 }
+
+                g.getGroup().updateReducer(red.session, key);
+                red.series.addSeriesValues(g.getSeries());
             }
+        }
 
-            return groups.build();
-        };
+        /* build results from every reducer group into a final result */
+        final ImmutableList.Builder<ShardedResultGroup> groups = ImmutableList.builder();
+
+        for (final Map.Entry<Map<String, String>, Reduction> e : sessions.entrySet()) {
+            final Map<String, String> key = e.getKey();
+            final Reduction red = e.getValue();
+
+            final SeriesValues series = red.series.build();
+
+            for (final MetricCollection metrics : red.session.result().getResult()) {
+                groups.add(new ShardedResultGroup(ImmutableMap.of(), key, series, metrics,
+                    each.cadence()));
+            }
+        }
+
+        return groups.build();
     }
 
     @Override
@@ -253,6 +314,14 @@ public abstract class GroupingAggregation implements AggregationInstance {
             session(group, key).updateSpreads(key, values);
         }
 
+        @Override
+        public void updateSketches(
+            Map<String, String> group, List<Sketch> values
+        ) {
+            final Map<String, String> key = key(group);
+            session(group, key).updateSketches(key, values);
+        }
+
         @Override
         public void updateGroup(
             Map<String, String> group, List<MetricGroup> values
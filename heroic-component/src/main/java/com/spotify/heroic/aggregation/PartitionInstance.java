@@ -30,6 +30,7 @@ import com.spotify.heroic.metric.Event;
 import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -129,6 +130,15 @@ public class PartitionInstance implements AggregationInstance {
             }
         }
 
+        @Override
+        public void updateSketches(
+            Map<String, String> group, List<Sketch> values
+        ) {
+            for (final AggregationSession s : sessions) {
+                s.updateSketches(group, values);
+            }
+        }
+
         @Override
         public void updateGroup(
             Map<String, String> group, List<MetricGroup> values
@@ -179,6 +189,13 @@ public class PartitionInstance implements AggregationInstance {
             }
         }
 
+        @Override
+        public void updateSketches(Map<String, String> group, List<Sketch> values) {
+            for (final ReducerSession s : sessions) {
+                s.updateSketches(group, values);
+            }
+        }
+
         @Override
         public void updateGroup(Map<String, String> group, List<MetricGroup> values) {
             for (final ReducerSession s : sessions) {
@@ -24,6 +24,7 @@ package com.spotify.heroic.aggregation;
 import com.spotify.heroic.metric.Event;
 import com.spotify.heroic.metric.MetricGroup;
 import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.Sketch;
 import com.spotify.heroic.metric.Spread;
 
 import java.util.List;
@@ -46,5 +47,7 @@ public interface ReducerSession {
 
     void updateGroup(Map<String, String> group, List<MetricGroup> values);
 
+    void updateSketches(Map<String, String> group, List<Sketch> values);
+
     ReducerResult result();
 }
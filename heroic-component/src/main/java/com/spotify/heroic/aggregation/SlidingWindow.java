@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.aggregation;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.metric.Metric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Builds the result of sliding windows from non-overlapping base buckets.
+ * <p>
+ * Instead of feeding every sample into each window that it overlaps, samples are fed into exactly
+ * one base bucket, and every window is composed from a run of consecutive base buckets when the
+ * result is built. This makes the cost per sample independent of how many windows overlap.
+ * <p>
+ * Each window is described by a set of columns that are read from the base buckets:
+ * <ul>
+ * <li>{@link Builder#additive(ToDoubleFunction)} columns are summed over the window using prefix
+ * sums, this is suitable for invertible quantities like counts, sums and sums of squares.</li>
+ * <li>{@link Builder#min(ToDoubleFunction)} and {@link Builder#max(ToDoubleFunction)} columns are
+ * maintained using a monotonic queue of base buckets. Non-finite values indicate an empty bucket
+ * and are ignored.</li>
+ * </ul>
+ * Since additive columns are calculated as the difference of two prefix sums, rounding errors are
+ * relative to the magnitude of the sum of all preceding buckets, and not only to that of the
+ * window.
+ *
+ * @param <B> The type of the base buckets.
+ */
+public class SlidingWindow<B extends Bucket> {
+    private final List<Column<B>> columns;
+    private final WindowFunction function;
+
+    private SlidingWindow(final List<Column<B>> columns, final WindowFunction function) {
+        this.columns = columns;
+        this.function = function;
+    }
+
+    /**
+     * Build one metric for each complete window of base buckets.
+     * <p>
+     * Window {@code i} consists of the base buckets {@code [i, i + width)}, and is given the
+     * timestamp of its last bucket.
+     *
+     * @param buckets Base buckets, ordered by timestamp.
+     * @param width Number of base buckets in each window.
+     * @return A list with one metric per window, which are invalid for windows without a value.
+     */
+    public List<Metric> windows(final List<B> buckets, final int width) {
+        final int count = buckets.size();
+        final int columns = this.columns.size();
+
+        final double[] prefix = new double[(count + 1) * columns];
+        final double[] table = new double[count * columns];
+
+        for (int i = 0; i < count; i++) {
+            final B bucket = buckets.get(i);
+
+            for (int c = 0; c < columns; c++) {
+                final double value = this.columns.get(c).value.applyAsDouble(bucket);
+                table[i * columns + c] = value;
+                prefix[(i + 1) * columns + c] = prefix[i * columns + c] + value;
+            }
+        }
+
+        final int[][] queues = new int[columns][];
+        final int[] heads = new int[columns];
+        final int[] tails = new int[columns];
+
+        for (int c = 0; c < columns; c++) {
+            if (this.columns.get(c).kind != Kind.ADDITIVE) {
+                queues[c] = new int[count];
+            }
+        }
+
+        final List<Metric> result = new ArrayList<>(Math.max(count - width + 1, 0));
+        final double[] values = new double[columns];
+
+        for (int i = 0; i < count; i++) {
+            final int first = i - width + 1;
+
+            for (int c = 0; c < columns; c++) {
+                final Kind kind = this.columns.get(c).kind;
+
+                if (kind == Kind.ADDITIVE) {
+                    if (first >= 0) {
+                        values[c] = prefix[(i + 1) * columns + c] - prefix[first * columns + c];
+                    }
+
+                    continue;
+                }
+
+                final int[] queue = queues[c];
+                final double value = table[i * columns + c];
+
+                if (Double.isFinite(value)) {
+                    /* drop buckets that can never be the extreme of a window again */
+                    while (tails[c] > heads[c] &&
+                        kind.dominates(value, table[queue[tails[c] - 1] * columns + c])) {
+                        tails[c]--;
+                    }
+
+                    queue[tails[c]++] = i;
+                }
+
+                if (first < 0) {
+                    continue;
+                }
+
+                while (tails[c] > heads[c] && queue[heads[c]] < first) {
+                    heads[c]++;
+                }
+
+                values[c] =
+                    tails[c] > heads[c] ? table[queue[heads[c]] * columns + c] : Double.NaN;
+            }
+
+            if (first >= 0) {
+                result.add(function.apply(buckets.get(i).timestamp(), values));
+            }
+        }
+
+        return result;
+    }
+
+    public static <B extends Bucket> Builder<B> builder() {
+        return new Builder<>();
+    }
+
+    public static class Builder<B extends Bucket> {
+        private final ImmutableList.Builder<Column<B>> columns = ImmutableList.builder();
+
+        /**
+         * Add a column that is summed over each window.
+         */
+        public Builder<B> additive(final ToDoubleFunction<B> value) {
+            columns.add(new Column<>(Kind.ADDITIVE, value));
+            return this;
+        }
+
+        /**
+         * Add a column that is the smallest finite value in each window, or NaN if none.
+         */
+        public Builder<B> min(final ToDoubleFunction<B> value) {
+            columns.add(new Column<>(Kind.MIN, value));
+            return this;
+        }
+
+        /**
+         * Add a column that is the largest finite value in each window, or NaN if none.
+         */
+        public Builder<B> max(final ToDoubleFunction<B> value) {
+            columns.add(new Column<>(Kind.MAX, value));
+            return this;
+        }
+
+        /**
+         * Build the sliding window.
+         *
+         * @param function Function building the metric of a window, which is given the values of
+         * all columns in the order that they were added.
+         */
+        public SlidingWindow<B> build(final WindowFunction function) {
+            return new SlidingWindow<>(columns.build(), function);
+        }
+    }
+
+    public interface WindowFunction {
+        /**
+         * Build the metric of a single window.
+         *
+         * @param timestamp Timestamp of the window.
+         * @param values Values of all columns, only valid for the duration of the call.
+         */
+        Metric apply(long timestamp, double[] values);
+    }
+
+    private enum Kind {
+        ADDITIVE, MIN, MAX;
+
+        boolean dominates(final double value, final double other) {
+            return this == MIN ? value <= other : value >= other;
+        }
+    }
+
+    private static class Column<B> {
+        private final Kind kind;
+        private final ToDoubleFunction<B> value;
+
+        Column(final Kind kind, final ToDoubleFunction<B> value) {
+            this.kind = kind;
+            this.value = value;
+        }
+    }
+}
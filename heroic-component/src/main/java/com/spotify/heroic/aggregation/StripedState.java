@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.aggregation;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Partial state of a bucket, spread over a number of stripes so that threads updating the same
+ * bucket concurrently do not contend on the same state.
+ * <p>
+ * Like {@link java.util.concurrent.atomic.LongAdder}, a single stripe is used until contention is
+ * detected, at which point more stripes are added, up to the number of available processors. Each
+ * thread keeps to its own stripe unless it finds it busy, so in the common case a stripe is only
+ * touched by a single thread and acquiring it is an uncontended compare-and-set.
+ * <p>
+ * The partial state of a stripe is only created once a thread first updates it, since states may
+ * be large, and added stripes are not necessarily all used.
+ * <p>
+ * The partial states are only combined when the bucket is read, using {@link #forEach(Consumer)}.
+ *
+ * @param <T> Type of the partial state, which does not have to be thread-safe.
+ */
+public class StripedState<T> {
+    static final int MAX_STRIPES = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Per-thread hash used to pick a stripe, changed whenever the picked stripe is busy.
+     */
+    private static final ThreadLocal<int[]> PROBE =
+        ThreadLocal.withInitial(() -> new int[]{ThreadLocalRandom.current().nextInt() | 1});
+
+    private final Supplier<T> supplier;
+    private final int maxStripes;
+
+    private volatile Stripe<T>[] stripes;
+
+    public StripedState(final Supplier<T> supplier) {
+        this(supplier, MAX_STRIPES);
+    }
+
+    /**
+     * @param maxStripes The maximum number of stripes, must be a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    public StripedState(final Supplier<T> supplier, final int maxStripes) {
+        if (Integer.bitCount(maxStripes) != 1) {
+            throw new IllegalArgumentException("maxStripes must be a power of two: " + maxStripes);
+        }
+
+        this.supplier = supplier;
+        this.maxStripes = maxStripes;
+        this.stripes = new Stripe[]{new Stripe<>()};
+    }
+
+    /**
+     * Update one of the partial states.
+     * <p>
+     * The state is guaranteed not to be accessed by any other thread while the update runs.
+     */
+    public void update(final Consumer<? super T> update) {
+        update((state, u) -> u.accept(state), update);
+    }
+
+    /**
+     * Update one of the partial states with the given value.
+     * <p>
+     * This avoids allocating a capturing lambda for every update.
+     *
+     * @see #update(Consumer)
+     */
+    public <V> void update(final BiConsumer<? super T, ? super V> update, final V value) {
+        final int[] probe = PROBE.get();
+
+        while (true) {
+            final Stripe<T>[] current = stripes;
+            final Stripe<T> stripe = current[probe[0] & (current.length - 1)];
+
+            if (stripe.busy.compareAndSet(false, true)) {
+                try {
+                    if (stripe.state == null) {
+                        stripe.state = supplier.get();
+                    }
+
+                    update.accept(stripe.state, value);
+                } finally {
+                    stripe.busy.set(false);
+                }
+
+                return;
+            }
+
+            probe[0] = rehash(probe[0]);
+
+            if (current.length < maxStripes) {
+                grow(current);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Visit every partial state which has been updated, one at a time.
+     * <p>
+     * Each state is guaranteed not to be accessed by any other thread while it is being visited.
+     */
+    public void forEach(final Consumer<? super T> consumer) {
+        for (final Stripe<T> stripe : stripes) {
+            while (!stripe.busy.compareAndSet(false, true)) {
+                Thread.yield();
+            }
+
+            try {
+                if (stripe.state != null) {
+                    consumer.accept(stripe.state);
+                }
+            } finally {
+                stripe.busy.set(false);
+            }
+        }
+    }
+
+    /**
+     * The current number of stripes.
+     */
+    public int stripes() {
+        return stripes.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void grow(final Stripe<T>[] current) {
+        /* another thread already grew the stripes */
+        if (stripes != current) {
+            return;
+        }
+
+        final Stripe<T>[] next = new Stripe[current.length << 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+
+        for (int i = current.length; i < next.length; i++) {
+            next[i] = new Stripe<>();
+        }
+
+        stripes = next;
+    }
+
+    /**
+     * Marsaglia xorshift, same as used by {@link java.util.concurrent.atomic.LongAdder}.
+     */
+    private static int rehash(int h) {
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        return h;
+    }
+
+    static int ceilingPowerOfTwo(final int value) {
+        if (value <= 1) {
+            return 1;
+        }
+
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static class Stripe<T> {
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        /* created on first update, only accessed while holding busy */
+        private T state;
+    }
+}
@@ -34,6 +34,7 @@ import com.spotify.heroic.metadata.DeleteSeries;
 import com.spotify.heroic.metadata.FindKeys;
 import com.spotify.heroic.metadata.FindSeries;
 import com.spotify.heroic.metadata.FindTags;
+import com.spotify.heroic.metric.FullQuery;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.ResultGroups;
 import com.spotify.heroic.metric.WriteMetric;
@@ -64,6 +65,8 @@ public interface ClusterNode extends UsableGroupManager<ClusterNode.Group> {
             QueryOptions options
         );
 
+        AsyncFuture<List<FullQuery.Result>> queryBatch(List<FullQuery> queries);
+
         AsyncFuture<FindTags> findTags(RangeFilter filter);
 
         AsyncFuture<FindKeys> findKeys(RangeFilter filter);
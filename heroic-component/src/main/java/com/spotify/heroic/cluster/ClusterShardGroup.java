@@ -30,6 +30,8 @@ import lombok.Data;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 @Data
@@ -63,8 +65,30 @@ public class ClusterShardGroup {
             };
         };
 
-        return async
-            .retryUntilResolved(() -> function.apply(it.next()), iteratorPolicy)
-            .directTransform(RetryResult::getResult);
+        /* the attempt currently in flight, so that it can be cancelled along with the request */
+        final AtomicReference<AsyncFuture<T>> current = new AtomicReference<>();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        final AsyncFuture<T> result = async.retryUntilResolved(() -> {
+            if (cancelled.get()) {
+                return async.cancelled();
+            }
+
+            final AsyncFuture<T> attempt = function.apply(it.next());
+            current.set(attempt);
+            return attempt;
+        }, iteratorPolicy).directTransform(RetryResult::getResult);
+
+        result.onCancelled(() -> {
+            cancelled.set(true);
+
+            final AsyncFuture<T> attempt = current.get();
+
+            if (attempt != null) {
+                attempt.cancel();
+            }
+        });
+
+        return result;
     }
 }
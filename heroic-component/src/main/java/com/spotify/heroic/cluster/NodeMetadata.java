@@ -32,6 +32,16 @@ import java.util.UUID;
 
 @Data
 public class NodeMetadata {
+    /**
+     * Version of the metadata reported by this node.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * First version reported by nodes which serve batched queries.
+     */
+    public static final int QUERY_BATCH_VERSION = 1;
+
     private final int version;
     private final UUID id;
     private final Map<String, String> tags;
@@ -114,6 +124,13 @@ public class NodeMetadata {
         return true;
     }
 
+    /**
+     * Check if the node serves batched queries, older nodes must be sent one query at a time.
+     */
+    public boolean supportsQueryBatch() {
+        return version >= QUERY_BATCH_VERSION;
+    }
+
     public NodeMetadata forVersion(int version) {
         return new NodeMetadata(version, id, tags, capabilities, service);
     }
@@ -33,6 +33,7 @@ import com.spotify.heroic.metadata.DeleteSeries;
 import com.spotify.heroic.metadata.FindKeys;
 import com.spotify.heroic.metadata.FindSeries;
 import com.spotify.heroic.metadata.FindTags;
+import com.spotify.heroic.metric.FullQuery;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.QueryTrace;
 import com.spotify.heroic.metric.ResultGroups;
@@ -45,7 +46,9 @@ import com.spotify.heroic.suggest.TagSuggest;
 import com.spotify.heroic.suggest.TagValueSuggest;
 import com.spotify.heroic.suggest.TagValuesSuggest;
 import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.Transform;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -77,6 +80,21 @@ public class TracingClusterNodeGroup implements ClusterNode.Group {
             .directTransform(ResultGroups.trace(query));
     }
 
+    @Override
+    public AsyncFuture<List<FullQuery.Result>> queryBatch(List<FullQuery> queries) {
+        final Transform<ResultGroups, ResultGroups> trace = ResultGroups.trace(query);
+
+        return delegate.queryBatch(queries).directTransform(results -> {
+            final List<FullQuery.Result> traced = new ArrayList<>(results.size());
+
+            for (final FullQuery.Result r : results) {
+                traced.add(r.transform(trace));
+            }
+
+            return traced;
+        });
+    }
+
     @Override
     public AsyncFuture<FindTags> findTags(RangeFilter filter) {
         return delegate.findTags(filter);
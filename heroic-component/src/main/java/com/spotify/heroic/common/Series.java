@@ -52,8 +52,17 @@ public class Series implements Comparable<Series> {
     @AutoSerialize.Ignore
     final HashCode hashCode;
 
+    /**
+     * Lazily computed string form of the hash, used as a document id by several backends.
+     */
+    @AutoSerialize.Ignore
+    private volatile String hash;
+
     /**
      * Package-private constructor to avoid invalid inputs.
+     * <p>
+     * The tags are stored as given, and must not be modified afterwards. Interned series store
+     * their tags in an immutable sorted map, see {@link SeriesInterner}.
      *
      * @param key The key of the time series.
      * @param tags The tags of the time series.
@@ -102,7 +111,14 @@ public class Series implements Comparable<Series> {
     }
 
     public String hash() {
-        return hashCode.toString();
+        String hash = this.hash;
+
+        if (hash == null) {
+            hash = hashCode.toString();
+            this.hash = hash;
+        }
+
+        return hash;
     }
 
     @Override
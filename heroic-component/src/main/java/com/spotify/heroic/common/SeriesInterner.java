@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Canonicalizes hot series.
+ * <p>
+ * Looking up a series by its key and tags only needs the regular hash code of the tags, so
+ * series that are repeatedly ingested are only sorted and hashed once. Since the same instance
+ * is returned every time, caches of forms derived from a series (like serialized row keys) are
+ * cheap to look up.
+ * <p>
+ * Keys and tags of interned series are pooled, so that strings which are shared by many series
+ * are only stored once. The tags are canonicalized into an immutable sorted map, which is backed
+ * by compact sorted arrays.
+ */
+public class SeriesInterner {
+    public static final long DEFAULT_MAX_SIZE = 100000;
+
+    private final Interner<String> strings = Interners.newWeakInterner();
+    private final Cache<Key, Series> series;
+
+    public SeriesInterner(final long maxSize) {
+        this.series = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    public SeriesInterner() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Get the canonical series for the given key and tags.
+     * <p>
+     * The tags must not be modified after they have been passed in.
+     */
+    public Series intern(final String key, final Map<String, String> tags) {
+        final Series existing = series.getIfPresent(new Key(key, tags));
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final ImmutableSortedMap.Builder<String, String> pooled = ImmutableSortedMap.naturalOrder();
+
+        for (final Map.Entry<String, String> e : tags.entrySet()) {
+            pooled.put(strings.intern(e.getKey()), strings.intern(e.getValue()));
+        }
+
+        return put(new Series(key == null ? null : strings.intern(key), pooled.build()));
+    }
+
+    /**
+     * Get the canonical instance of the given series.
+     */
+    public Series intern(final Series s) {
+        final Series existing = series.getIfPresent(new Key(s.getKey(), s.getTags()));
+
+        if (existing != null) {
+            return existing;
+        }
+
+        return put(s);
+    }
+
+    public long size() {
+        return series.size();
+    }
+
+    private Series put(final Series s) {
+        final Key key = new Key(s.getKey(), s.getTags());
+
+        /* another thread might have raced us, make sure that everyone gets the same instance */
+        final Series existing = series.asMap().putIfAbsent(key, s);
+        return existing != null ? existing : s;
+    }
+
+    /**
+     * Lookup key, which compares equal for any map implementation with the same entries.
+     */
+    @Data
+    private static class Key {
+        private final String key;
+        private final Map<String, String> tags;
+    }
+}
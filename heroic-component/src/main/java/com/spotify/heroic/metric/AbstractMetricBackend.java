@@ -21,20 +21,36 @@
 
 package com.spotify.heroic.metric;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.spotify.heroic.QueryOptions;
 import com.spotify.heroic.async.AsyncObservable;
 import com.spotify.heroic.async.AsyncObserver;
+import com.spotify.heroic.common.DateRange;
 import com.spotify.heroic.common.OptionalLimit;
+import com.spotify.heroic.common.Series;
 import com.spotify.heroic.common.Statistics;
 import eu.toolchain.async.AsyncFramework;
 import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.FutureDone;
+import eu.toolchain.async.ResolvableFuture;
+import eu.toolchain.async.StreamCollector;
 import lombok.RequiredArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @RequiredArgsConstructor
 public abstract class AbstractMetricBackend implements MetricBackend {
+    private static final QueryTrace.Identifier FETCH_SPLIT =
+        QueryTrace.identifier(AbstractMetricBackend.class, "fetch_split");
+
     private final AsyncFramework async;
 
     @Override
@@ -137,4 +153,222 @@ public abstract class AbstractMetricBackend implements MetricBackend {
             }
         });
     }
+
+    /**
+     * Fetch the given range by splitting it into aligned sub-ranges, which are read in parallel
+     * with bounded concurrency.
+     * <p>
+     * Every sub-range is retried independently if it fails, and the data read by it is accounted
+     * against the given watcher as soon as it is available. No new sub-ranges are started once
+     * the quota has been violated. The data of all sub-ranges is combined in order, so that
+     * consumers receive it sorted.
+     * <p>
+     * If splitting is disabled, the whole range is fetched with a single call to the given fetch,
+     * which is then responsible for any quota accounting like it would be without splitting.
+     *
+     * @param series The series being fetched.
+     * @param range The range to fetch.
+     * @param watcher Watcher that the read data is accounted against.
+     * @param split How to split the range.
+     * @param fetch Fetches a single sub-range, must not account data to the watcher itself.
+     * @return A future containing the combined data of all sub-ranges.
+     */
+    protected AsyncFuture<FetchData> fetchSplit(
+        final Series series, final DateRange range, final FetchQuotaWatcher watcher,
+        final FetchSplit split, final SubRangeFetch fetch
+    ) {
+        if (!split.isEnabled()) {
+            try {
+                return fetch.fetch(range);
+            } catch (final Exception e) {
+                return async.failed(e);
+            }
+        }
+
+        final List<DateRange> ranges = split.split(range);
+        final AtomicReferenceArray<FetchData> results = new AtomicReferenceArray<>(ranges.size());
+        final List<Callable<AsyncFuture<FetchData>>> fetches = new ArrayList<>(ranges.size());
+
+        for (int i = 0; i < ranges.size(); i++) {
+            final int index = i;
+            final DateRange r = ranges.get(i);
+
+            fetches.add(() -> {
+                if (!watcher.mayReadData()) {
+                    throw new RuntimeException("Quota limit violated");
+                }
+
+                return retry(fetch, r, split.getRetries()).directTransform(data -> {
+                    long read = 0;
+
+                    for (final MetricCollection g : data.getGroups()) {
+                        read += g.size();
+                    }
+
+                    if (!watcher.readData(read)) {
+                        throw new RuntimeException("Quota limit violated");
+                    }
+
+                    results.set(index, data);
+                    return data;
+                });
+            });
+        }
+
+        final Stopwatch w = Stopwatch.createStarted();
+
+        return async.eventuallyCollect(fetches, new StreamCollector<FetchData, FetchData>() {
+            final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+            @Override
+            public void resolved(final FetchData result) throws Exception {
+            }
+
+            @Override
+            public void failed(final Throwable cause) throws Exception {
+                errors.add(cause);
+            }
+
+            @Override
+            public void cancelled() throws Exception {
+            }
+
+            @Override
+            public FetchData end(final int resolved, final int failed, final int cancelled)
+                throws Exception {
+                if (failed > 0 || cancelled > 0) {
+                    final Exception e = new Exception(
+                        "Some sub-range fetches failed (" + failed + ") or were cancelled (" +
+                            cancelled + ")");
+
+                    for (final Throwable t : errors) {
+                        e.addSuppressed(t);
+                    }
+
+                    throw e;
+                }
+
+                return combine(series, results, w.elapsed(TimeUnit.NANOSECONDS));
+            }
+        }, split.getParallelism());
+    }
+
+    private AsyncFuture<FetchData> retry(
+        final SubRangeFetch fetch, final DateRange range, final int retries
+    ) throws Exception {
+        if (retries <= 0) {
+            return fetch.fetch(range);
+        }
+
+        final ResolvableFuture<FetchData> future = async.future();
+        final AsyncFuture<FetchData> attempt = fetch.fetch(range);
+
+        future.onCancelled(attempt::cancel);
+
+        attempt.onDone(new FutureDone<FetchData>() {
+            @Override
+            public void failed(final Throwable cause) throws Exception {
+                if (future.isDone()) {
+                    return;
+                }
+
+                final AsyncFuture<FetchData> next;
+
+                try {
+                    next = retry(fetch, range, retries - 1);
+                } catch (final Exception e) {
+                    e.addSuppressed(cause);
+                    future.fail(e);
+                    return;
+                }
+
+                future.onCancelled(next::cancel);
+                next.onDone(new FutureDone<FetchData>() {
+                    @Override
+                    public void failed(final Throwable retried) throws Exception {
+                        retried.addSuppressed(cause);
+                        future.fail(retried);
+                    }
+
+                    @Override
+                    public void resolved(final FetchData result) throws Exception {
+                        future.resolve(result);
+                    }
+
+                    @Override
+                    public void cancelled() throws Exception {
+                        future.cancel();
+                    }
+                });
+            }
+
+            @Override
+            public void resolved(final FetchData result) throws Exception {
+                future.resolve(result);
+            }
+
+            @Override
+            public void cancelled() throws Exception {
+                future.cancel();
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Combine the data of in-order sub-ranges.
+     * <p>
+     * Data on the boundary between two sub-ranges is only kept once, since backends are not
+     * consistent in if the end of a range is inclusive or not.
+     */
+    private static FetchData combine(
+        final Series series, final AtomicReferenceArray<FetchData> results, final long elapsed
+    ) {
+        if (results.length() == 1) {
+            return results.get(0);
+        }
+
+        final ImmutableList.Builder<Long> times = ImmutableList.builder();
+        final ImmutableList.Builder<QueryTrace> traces = ImmutableList.builder();
+        final Map<MetricType, List<Metric>> data = new LinkedHashMap<>();
+
+        for (int i = 0; i < results.length(); i++) {
+            final FetchData result = results.get(i);
+
+            times.addAll(result.getTimes());
+            traces.add(result.getTrace());
+
+            for (final MetricCollection g : result.getGroups()) {
+                final List<Metric> target =
+                    data.computeIfAbsent(g.getType(), t -> new ArrayList<>());
+
+                final long boundary = target.isEmpty() ? Long.MIN_VALUE
+                    : target.get(target.size() - 1).getTimestamp();
+
+                for (final Metric m : g.getData()) {
+                    if (m.getTimestamp() > boundary) {
+                        target.add(m);
+                    }
+                }
+            }
+        }
+
+        final List<MetricCollection> groups = new ArrayList<>(data.size());
+
+        for (final Map.Entry<MetricType, List<Metric>> e : data.entrySet()) {
+            groups.add(MetricCollection.build(e.getKey(), e.getValue()));
+        }
+
+        return new FetchData(series, times.build(), groups,
+            new QueryTrace(FETCH_SPLIT, elapsed, traces.build()));
+    }
+
+    /**
+     * Fetches the data of a single sub-range.
+     */
+    @FunctionalInterface
+    protected interface SubRangeFetch {
+        AsyncFuture<FetchData> fetch(DateRange range) throws Exception;
+    }
 }
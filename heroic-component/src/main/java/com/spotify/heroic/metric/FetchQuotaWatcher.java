@@ -30,6 +30,16 @@ public interface FetchQuotaWatcher {
      */
     boolean readData(long n);
 
+    /**
+     * Indicates that backend has read {@code n} more bytes.
+     * <p>
+     * This is only used for statistics, and is not reported by every backend.
+     *
+     * @param n The number of bytes read by the backend.
+     */
+    default void readBytes(long n) {
+    }
+
     /**
      * Indicates if readData quota has been breached or not.
      *
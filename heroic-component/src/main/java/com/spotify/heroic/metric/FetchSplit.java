@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Duration;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Configuration for how a backend splits the range of a single fetch into smaller sub-ranges.
+ *
+ * @see AbstractMetricBackend#fetchSplit
+ */
+@Data
+public class FetchSplit {
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_RETRIES = 1;
+
+    /**
+     * The size of every sub-range, sub-ranges are aligned to multiples of this size. If empty,
+     * fetches are not split.
+     */
+    private final Optional<Duration> size;
+
+    /**
+     * How many sub-ranges of a single fetch that are read in parallel.
+     */
+    private final int parallelism;
+
+    /**
+     * How many times a failed sub-range is retried before the fetch fails.
+     */
+    private final int retries;
+
+    @JsonCreator
+    public FetchSplit(
+        @JsonProperty("size") Optional<Duration> size,
+        @JsonProperty("parallelism") Optional<Integer> parallelism,
+        @JsonProperty("retries") Optional<Integer> retries
+    ) {
+        this.size = size;
+        this.parallelism = parallelism.orElse(DEFAULT_PARALLELISM);
+        this.retries = retries.orElse(DEFAULT_RETRIES);
+
+        if (this.parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        if (this.retries < 0) {
+            throw new IllegalArgumentException("retries must not be negative");
+        }
+    }
+
+    /**
+     * If fetches should be split at all. When disabled, backends fetch the whole range as a single
+     * request, without retries.
+     */
+    public boolean isEnabled() {
+        return size.isPresent();
+    }
+
+    /**
+     * Split the given range into aligned sub-ranges, in order.
+     */
+    public List<DateRange> split(final DateRange range) {
+        final long step = size.map(Duration::toMilliseconds).orElse(0L);
+
+        if (step <= 0 || range.diff() <= step) {
+            return ImmutableList.of(range);
+        }
+
+        final ImmutableList.Builder<DateRange> ranges = ImmutableList.builder();
+
+        long start = range.start();
+
+        while (start < range.end()) {
+            final long end = Math.min(range.end(), Math.floorDiv(start, step) * step + step);
+            ranges.add(new DateRange(start, end));
+            start = end;
+        }
+
+        return ranges.build();
+    }
+
+    public static FetchSplit disabled() {
+        return new FetchSplit(Optional.empty(), Optional.empty(), Optional.empty());
+    }
+}
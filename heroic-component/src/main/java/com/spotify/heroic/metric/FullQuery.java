@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.aggregation.AggregationInstance;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.filter.Filter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.Transform;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A fully planned query, as it is sent to the nodes of each shard.
+ */
+@Data
+public class FullQuery {
+    private final MetricType source;
+    private final Filter filter;
+    private final DateRange range;
+    private final AggregationInstance aggregation;
+    private final QueryOptions options;
+
+    @JsonCreator
+    public FullQuery(
+        @JsonProperty("source") final MetricType source,
+        @JsonProperty("filter") final Filter filter,
+        @JsonProperty("range") final DateRange range,
+        @JsonProperty("aggregation") final AggregationInstance aggregation,
+        @JsonProperty("options") final QueryOptions options
+    ) {
+        this.source = checkNotNull(source, "source");
+        this.filter = checkNotNull(filter, "filter");
+        this.range = checkNotNull(range, "range");
+        this.aggregation = checkNotNull(aggregation, "aggregation");
+        this.options = checkNotNull(options, "options");
+    }
+
+    /**
+     * Run every query of a batch on its own, through the given function.
+     * <p>
+     * Used for nodes which do not support batched queries, see
+     * {@link com.spotify.heroic.cluster.NodeMetadata#supportsQueryBatch()}.
+     */
+    public static AsyncFuture<List<Result>> each(
+        final AsyncFramework async, final List<FullQuery> queries,
+        final Function<FullQuery, AsyncFuture<ResultGroups>> query
+    ) {
+        final List<AsyncFuture<Result>> results = new ArrayList<>(queries.size());
+
+        for (final FullQuery q : queries) {
+            results.add(
+                query.apply(q).directTransform(Result::resolved).catchFailed(Result::failed));
+        }
+
+        final AsyncFuture<List<Result>> future =
+            async.collectAndDiscard(results).directTransform(ignore -> {
+                final List<Result> collected = new ArrayList<>(results.size());
+
+                for (final AsyncFuture<Result> result : results) {
+                    collected.add(result.getNow());
+                }
+
+                return collected;
+            });
+
+        future.onCancelled(() -> results.forEach(AsyncFuture::cancel));
+        return future;
+    }
+
+    /**
+     * The result of a single query in a batch.
+     * <p>
+     * Queries in a batch fail independently of each other, so a failure is carried as a value
+     * instead of failing the entire batch.
+     */
+    @Data
+    public static class Result {
+        private final Optional<ResultGroups> groups;
+        private final Optional<String> error;
+
+        @JsonCreator
+        public Result(
+            @JsonProperty("groups") final Optional<ResultGroups> groups,
+            @JsonProperty("error") final Optional<String> error
+        ) {
+            this.groups = groups;
+            this.error = error;
+        }
+
+        public Result transform(final Transform<ResultGroups, ResultGroups> transform)
+            throws Exception {
+            if (!groups.isPresent()) {
+                return this;
+            }
+
+            return resolved(transform.transform(groups.get()));
+        }
+
+        /**
+         * Convert into result groups, using the given transform to represent a failure.
+         */
+        public ResultGroups toResultGroups(final Transform<Throwable, ResultGroups> failed)
+            throws Exception {
+            if (groups.isPresent()) {
+                return groups.get();
+            }
+
+            return failed.transform(new Exception(error.orElse("<null>")));
+        }
+
+        public static Result resolved(final ResultGroups groups) {
+            return new Result(Optional.of(groups), Optional.empty());
+        }
+
+        public static Result failed(final Throwable e) {
+            return new Result(Optional.empty(), Optional.of(errorMessage(e)));
+        }
+
+        private static String errorMessage(final Throwable e) {
+            final String message = e.getMessage() == null ? "<null>" : e.getMessage();
+
+            if (e.getCause() == null) {
+                return message;
+            }
+
+            return String.format("%s, caused by %s", message, errorMessage(e.getCause()));
+        }
+    }
+}
@@ -28,6 +28,8 @@ import com.spotify.heroic.common.Series;
 import com.spotify.heroic.filter.Filter;
 import eu.toolchain.async.AsyncFuture;
 
+import java.util.List;
+
 public interface MetricBackendGroup extends MetricBackend {
     /**
      * Perform a direct query for data points.
@@ -45,6 +47,16 @@ public interface MetricBackendGroup extends MetricBackend {
         QueryOptions options
     );
 
+    /**
+     * Perform a batch of queries.
+     * <p>
+     * Metadata lookups and fetches are shared between the queries in the batch where possible.
+     *
+     * @param queries Queries to perform.
+     * @return One result for every query, in the same order as the queries.
+     */
+    AsyncFuture<List<FullQuery.Result>> queryBatch(List<FullQuery> queries);
+
     /**
      * Fetch metrics with a default (no-op) quota watcher. This method allows for the fetching of an
      * indefinite amount of metrics.
@@ -41,7 +41,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * A collection of metrics.
  * <p>
  * Metrics are constrained to the implemented types below, so far these are {@link Point}, {@link
- * Event}, {@link Spread} , and {@link MetricGroup}.
+ * Event}, {@link Spread}, {@link MetricGroup}, and {@link Sketch}.
  * <p>
  * There is a JSON serialization available in {@link MetricCollectionSerialization} which correctly
  * preserves the type information of these collections.
@@ -66,6 +66,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @see Spread
  * @see Event
  * @see MetricGroup
+ * @see Sketch
  */
 @Data
 @RequiredArgsConstructor(access = AccessLevel.PACKAGE)
@@ -131,7 +132,8 @@ public abstract class MetricCollection {
         MetricType.GROUP, GroupCollection::new,
         MetricType.POINT, PointCollection::new,
         MetricType.EVENT, EventCollection::new,
-        MetricType.SPREAD, SpreadCollection::new
+        MetricType.SPREAD, SpreadCollection::new,
+        MetricType.SKETCH, SketchCollection::new
     );
     // @formatter:on
 
@@ -151,6 +153,10 @@ public abstract class MetricCollection {
         return new SpreadCollection(metrics);
     }
 
+    public static MetricCollection sketches(List<Sketch> metrics) {
+        return new SketchCollection(metrics);
+    }
+
     public static MetricCollection build(
         final MetricType key, final List<? extends Metric> metrics
     ) {
@@ -279,4 +285,32 @@ public abstract class MetricCollection {
             return (List<MetricGroup>) data;
         }
     }
+
+    @SuppressWarnings("unchecked")
+    private static class SketchCollection extends MetricCollection {
+        SketchCollection(List<? extends Metric> sketches) {
+            super(MetricType.SKETCH, sketches);
+        }
+
+        @Override
+        public void updateAggregation(
+            AggregationSession session, Map<String, String> tags
+        ) {
+            session.updateSketches(tags, adapt());
+        }
+
+        @Override
+        public void updateReducer(ReducerSession session, final Map<String, String> tags) {
+            session.updateSketches(tags, adapt());
+        }
+
+        @Override
+        public void updateBucket(Bucket bucket, Map<String, String> tags) {
+            adapt().forEach((m) -> bucket.updateSketch(tags, m));
+        }
+
+        private List<Sketch> adapt() {
+            return (List<Sketch>) data;
+        }
+    }
 }
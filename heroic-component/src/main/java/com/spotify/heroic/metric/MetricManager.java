@@ -24,9 +24,26 @@ package com.spotify.heroic.metric;
 import com.spotify.heroic.common.GroupSet;
 import com.spotify.heroic.common.UsableGroupManager;
 
+import java.util.List;
+import java.util.Optional;
+
 public interface MetricManager extends UsableGroupManager<MetricBackendGroup> {
     String FAILED = "MetricManager.failed";
     String RESOLVED = "MetricManager.resolved";
 
     GroupSet<MetricBackend> groupSet();
+
+    /**
+     * List all queries that are currently admitted or queued for admission on this node.
+     *
+     * @return A snapshot of the running queries.
+     */
+    List<RunningQuery> runningQueries();
+
+    /**
+     * Get the rollups maintained for ingested points, if configured.
+     */
+    default Optional<Rollups> rollups() {
+        return Optional.empty();
+    }
 }
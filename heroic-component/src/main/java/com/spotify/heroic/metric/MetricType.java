@@ -40,7 +40,8 @@ public enum MetricType {
     POINT(Point.class, "points", Point.comparator()),
     EVENT(Event.class, "events", Event.comparator()),
     SPREAD(Spread.class, "spreads", Spread.comparator()),
-    GROUP(MetricGroup.class, "groups", MetricGroup.comparator());
+    GROUP(MetricGroup.class, "groups", MetricGroup.comparator()),
+    SKETCH(Sketch.class, "sketches", Sketch.comparator());
     // @formatter:on
 
     private final Class<? extends Metric> type;
@@ -61,6 +61,12 @@ public class QueryResult {
      */
     private final QueryTrace trace;
 
+    /**
+     * Indicates that one or more shards did not finish before the query deadline, and that the
+     * groups only contain what was available at that time.
+     */
+    private final boolean partial;
+
     /**
      * Collect result parts into a complete result.
      *
@@ -77,8 +83,10 @@ public class QueryResult {
             final List<RequestError> errors = new ArrayList<>();
             final List<ShardTrace> traces = new ArrayList<>();
             final ImmutableList.Builder<QueryTrace> queryTraces = ImmutableList.builder();
+            boolean partial = false;
 
             for (final QueryResultPart part : parts) {
+                partial = partial || part.isPartial();
                 errors.addAll(part.getErrors());
                 traces.add(part.getTrace());
                 queryTraces.add(part.getQueryTrace());
@@ -91,8 +99,9 @@ public class QueryResult {
             }
 
             final List<ShardedResultGroup> groups = combiner.combine(all);
-            return new QueryResult(range, groups, errors, traces,
-                new QueryTrace(what, w.elapsed(TimeUnit.NANOSECONDS), queryTraces.build()));
+            final QueryTrace trace =
+                new QueryTrace(what, w.elapsed(TimeUnit.NANOSECONDS), queryTraces.build());
+            return new QueryResult(range, groups, errors, traces, trace, partial);
         };
     }
 }
@@ -58,6 +58,11 @@ public class QueryResultPart {
      */
     private final QueryTrace queryTrace;
 
+    /**
+     * Indicates that the shard did not finish before the query deadline.
+     */
+    private final boolean partial;
+
     public static Transform<ResultGroups, QueryResultPart> fromResultGroup(
         final ClusterShardGroup shard
     ) {
@@ -74,7 +79,19 @@ public class QueryResultPart {
                 ShardTrace.of(shard.getShard(), w.elapsed(TimeUnit.MILLISECONDS),
                     result.getStatistics(), Optional.empty());
 
-            return new QueryResultPart(groups, result.getErrors(), shardTrace, result.getTrace());
+            final List<RequestError> errors;
+
+            if (result.isPartial()) {
+                errors = ImmutableList.<RequestError>builder()
+                    .addAll(result.getErrors())
+                    .add(ShardError.deadlineExceeded(shard))
+                    .build();
+            } else {
+                errors = result.getErrors();
+            }
+
+            return new QueryResultPart(groups, errors, shardTrace, result.getTrace(),
+                result.isPartial());
         };
     }
 
@@ -50,16 +50,39 @@ public final class ResultGroups {
     private final Statistics statistics;
     private final QueryTrace trace;
 
+    /**
+     * Indicates that the query deadline was reached before all data could be aggregated, and that
+     * the groups only contain what was available at that time.
+     */
+    private final boolean partial;
+
     @JsonCreator
     public ResultGroups(
         @JsonProperty("groups") List<ResultGroup> groups,
         @JsonProperty("errors") List<RequestError> errors,
-        @JsonProperty("statistics") Statistics statistics, @JsonProperty("trace") QueryTrace trace
+        @JsonProperty("statistics") Statistics statistics, @JsonProperty("trace") QueryTrace trace,
+        @JsonProperty("partial") Boolean partial
     ) {
         this.groups = groups;
         this.errors = Optional.fromNullable(errors).or(EMPTY_ERRORS);
         this.statistics = Objects.requireNonNull(statistics, "statistics");
         this.trace = Objects.requireNonNull(trace, "trace");
+        this.partial = Optional.fromNullable(partial).or(false);
+    }
+
+    public ResultGroups(
+        final List<ResultGroup> groups, final List<RequestError> errors,
+        final Statistics statistics, final QueryTrace trace
+    ) {
+        this(groups, errors, statistics, trace, false);
+    }
+
+    /**
+     * An empty result for a query whose deadline passed before any data could be fetched.
+     */
+    public static ResultGroups partial(final QueryTrace.Identifier what) {
+        return new ResultGroups(ImmutableList.of(), ImmutableList.of(), Statistics.empty(),
+            new QueryTrace(what), true);
     }
 
     public static ResultGroups empty(final QueryTrace.Identifier what) {
@@ -76,16 +99,18 @@ public final class ResultGroups {
             final ImmutableList.Builder<QueryTrace> traces = ImmutableList.builder();
 
             Statistics statistics = Statistics.empty();
+            boolean partial = false;
 
             for (final ResultGroups r : results) {
                 groups.addAll(r.groups);
                 errors.addAll(r.errors);
                 traces.add(r.trace);
                 statistics = statistics.merge(r.statistics);
+                partial = partial || r.partial;
             }
 
             return new ResultGroups(groups.build(), errors.build(), statistics,
-                new QueryTrace(what, w.elapsed(TimeUnit.NANOSECONDS), traces.build()));
+                new QueryTrace(what, w.elapsed(TimeUnit.NANOSECONDS), traces.build()), partial);
         };
     }
 
@@ -100,6 +125,7 @@ public final class ResultGroups {
         final Stopwatch w = Stopwatch.createStarted();
 
         return r -> new ResultGroups(r.groups, r.errors, r.statistics,
-            new QueryTrace(what, w.elapsed(TimeUnit.NANOSECONDS), ImmutableList.of(r.trace)));
+            new QueryTrace(what, w.elapsed(TimeUnit.NANOSECONDS), ImmutableList.of(r.trace)),
+            r.partial);
     }
 }
@@ -0,0 +1,705 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.aggregation.AggregationInstance;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Series;
+import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pre-aggregated rollups of point series, maintained at ingest time.
+ * <p>
+ * For every configured resolution, the points of a series are summarized into intervals {@code
+ * (t - resolution, t]}, where {@code t} is a multiple of the resolution. This is the same way that
+ * bucket aggregations assign points to buckets. Each summary holds the count, sum, sum of squares,
+ * min and max of the valid points in the interval, and is stored as five point series which are
+ * derived from the original series (see {@link #series(Series, long, Stat)}).
+ * <p>
+ * Summaries are kept in memory until their interval has been closed for the flush delay, after
+ * which they are written and any late points for them are dropped. This requires that all points
+ * of a series are ingested by the same node, and only one node may write rollups to a group (see
+ * {@link #WRITER}). Intervals that started before this process began maintaining rollups are not
+ * written, since the points ingested before that are not part of their summaries.
+ * <p>
+ * Rollups for data that was stored before they were enabled can be written by compacting the raw
+ * data (see {@link #summarize(Series, long, List, long, long)} and {@link #compacted(long)}).
+ * <p>
+ * Queries may read rollups instead of raw points for the part of their range that is known to be
+ * complete, as long as their aggregation supports it (see {@link
+ * AggregationInstance#supportsRollup(long)}). Rollups written at ingest are only known to be
+ * complete by the process that wrote them, and only for intervals that it wrote successfully.
+ */
+@ToString(of = {"resolutions", "group", "flushDelay", "flushInterval", "since"})
+public class Rollups {
+    public enum Stat {
+        COUNT, SUM, SUM2, MIN, MAX
+    }
+
+    private static final Stat[] STATS = Stat.values();
+    private static final String INFIX = "/rollup/";
+
+    /**
+     * Series in the rollup group that the node writing rollups at ingest heartbeats to.
+     */
+    public static final Series WRITER = Series.of("heroic" + INFIX + "writer");
+
+    /**
+     * Series in the rollup group that the node compacting raw data heartbeats to.
+     */
+    public static final Series COMPACTOR = Series.of("heroic" + INFIX + "compactor");
+
+    /**
+     * Series in the rollup group that completed compaction passes are recorded in, the timestamp
+     * of the latest point is the compaction watermark (see {@link #compacted(long)}).
+     */
+    public static final Series COMPACTED = Series.of("heroic" + INFIX + "compacted");
+
+    /**
+     * Series in the rollup group that the progress of compaction passes is recorded in, as one
+     * event per pass at the end of the pass.
+     */
+    public static final Series COMPACTION = Series.of("heroic" + INFIX + "compaction");
+
+    /**
+     * Configured resolutions, coarsest first.
+     */
+    @Getter
+    private final List<Long> resolutions;
+    @Getter
+    private final Optional<String> group;
+    @Getter
+    private final long flushDelay;
+    @Getter
+    private final long flushInterval;
+    private final Optional<Long> since;
+
+    /* open summaries, by the timestamp of their interval */
+    private final ConcurrentSkipListMap<Long, ConcurrentMap<Key, Summary>> open =
+        new ConcurrentSkipListMap<>();
+    private final LongAdder late = new LongAdder();
+
+    /* writers hold the read lock, flushing holds the write lock while detaching summaries */
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    /* guarded by flushLock, all intervals ending at or before this have been flushed */
+    private long flushed = Long.MIN_VALUE;
+    /* all intervals ending at or before this have been compacted from raw data */
+    @Getter
+    private volatile long compacted = Long.MIN_VALUE;
+    /* intervals starting before this are not summarized, since they might be partial */
+    private volatile long begin = Long.MAX_VALUE;
+    /* set if points have been summarized */
+    private volatile boolean updated = false;
+    /* set if another node is writing rollups to the same group */
+    private volatile boolean conflict = false;
+
+    /* guarded by this, all flushes up to this have been written or have failed */
+    private long written = Long.MIN_VALUE;
+    /* guarded by this, flushes that failed to be written, in order */
+    private final List<Failed> failed = new ArrayList<>();
+
+    /**
+     * @param resolutions Resolutions in milliseconds to maintain rollups for.
+     * @param group Backend group that rollups are written to and read from.
+     * @param flushDelay How long in milliseconds to wait for late points after an interval has
+     * been closed, before it is flushed.
+     * @param flushInterval How often in milliseconds summaries are flushed.
+     * @param since Time from which rollups are available for reading, or empty if only rollups
+     * that have been compacted from raw data should be read.
+     */
+    public Rollups(
+        final List<Long> resolutions, final Optional<String> group, final long flushDelay,
+        final long flushInterval, final Optional<Long> since
+    ) {
+        for (final long resolution : resolutions) {
+            if (resolution <= 0) {
+                throw new IllegalArgumentException("resolution must be positive: " + resolution);
+            }
+        }
+
+        this.resolutions = ImmutableList.copyOf(resolutions
+            .stream()
+            .distinct()
+            .sorted(Comparator.reverseOrder())
+            .iterator());
+        this.group = group;
+        this.flushDelay = flushDelay;
+        this.flushInterval = flushInterval;
+        this.since = since;
+    }
+
+    /**
+     * Build the series that the given statistic of a rollup is stored as.
+     */
+    public static Series series(final Series series, final long resolution, final Stat stat) {
+        return Series.of(
+            series.getKey() + INFIX + resolution + "/" + stat.name().toLowerCase(),
+            series.getTags());
+    }
+
+    /**
+     * Check if the given series stores a rollup.
+     */
+    public static boolean isRollup(final Series series) {
+        return series.getKey().contains(INFIX);
+    }
+
+    /**
+     * Update the rollups of the written series with the points being written.
+     */
+    public void update(final WriteMetric write) {
+        if (write.getData().getType() != MetricType.POINT || resolutions.isEmpty() || conflict) {
+            return;
+        }
+
+        final List<Point> points = write.getData().getDataAs(Point.class);
+
+        final Lock lock = flushLock.readLock();
+        lock.lock();
+
+        try {
+            for (final long resolution : resolutions) {
+                update(new Key(write.getSeries(), resolution), points);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(final Key key, final List<Point> points) {
+        final int count = points.size();
+
+        int start = 0;
+
+        /* summarize runs of points in the same interval before touching the shared state */
+        while (start < count) {
+            final long timestamp = end(points.get(start).getTimestamp(), key.resolution);
+            final Summary run = new Summary(timestamp);
+
+            int end = start;
+
+            while (end < count &&
+                end(points.get(end).getTimestamp(), key.resolution) == timestamp) {
+                final Point p = points.get(end++);
+
+                if (p.valid()) {
+                    run.add(p.getValue());
+                }
+            }
+
+            /* intervals that started before this process would only be partly summarized */
+            if (timestamp <= flushed) {
+                late.add(end - start);
+            } else if (run.count > 0 && timestamp - key.resolution >= begin) {
+                updated = true;
+
+                open
+                    .computeIfAbsent(timestamp, t -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key, k -> new Summary(timestamp))
+                    .merge(run);
+            }
+
+            start = end;
+        }
+    }
+
+    /**
+     * Start summarizing points, only intervals that start at or after the given time are
+     * summarized.
+     */
+    public synchronized void begin(final long now) {
+        if (begin == Long.MAX_VALUE) {
+            begin = now;
+        }
+    }
+
+    /**
+     * Check if any points have been summarized by this process.
+     */
+    public boolean isUpdated() {
+        return updated;
+    }
+
+    /**
+     * Check if another node was found writing rollups to the same group.
+     */
+    public boolean isConflict() {
+        return conflict;
+    }
+
+    /**
+     * Stop summarizing points since another node is writing rollups to the same group, which
+     * means that the rollups written by this process can't be trusted.
+     */
+    public void conflict() {
+        conflict = true;
+
+        final Lock lock = flushLock.writeLock();
+        lock.lock();
+
+        try {
+            open.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Detach all summaries whose interval was closed at least the flush delay before the given
+     * time, and build the writes for them.
+     * <p>
+     * Points for the detached intervals that arrive after this are dropped. The outcome of
+     * writing the flush must be reported through {@link #written(Flush, boolean)} before queries
+     * read the intervals.
+     *
+     * @param now The current time.
+     * @return The flush, with the writes to perform against the rollup group.
+     */
+    public Flush flush(final long now) {
+        final List<ConcurrentMap<Key, Summary>> ready;
+        final long from;
+        final long until;
+
+        final Lock lock = flushLock.writeLock();
+        lock.lock();
+
+        try {
+            from = flushed;
+            flushed = Math.max(flushed, now - flushDelay);
+            until = flushed;
+
+            final NavigableMap<Long, ConcurrentMap<Key, Summary>> head =
+                open.headMap(flushed, true);
+            ready = new ArrayList<>(head.values());
+            head.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        /* intervals are detached in order, so each list of summaries is sorted by time */
+        final Map<Key, List<Summary>> byKey = new HashMap<>();
+
+        for (final ConcurrentMap<Key, Summary> summaries : ready) {
+            for (final Map.Entry<Key, Summary> e : summaries.entrySet()) {
+                byKey.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(e.getValue());
+            }
+        }
+
+        final List<WriteMetric> writes = new ArrayList<>(byKey.size() * STATS.length);
+
+        for (final Map.Entry<Key, List<Summary>> e : byKey.entrySet()) {
+            writes.addAll(writes(e.getKey(), e.getValue()));
+        }
+
+        return new Flush(from, until, writes);
+    }
+
+    /**
+     * Record the outcome of writing a flush.
+     * <p>
+     * Intervals of a successful flush can be read by queries on this node, while the intervals of
+     * a failed flush are read from raw data until they have been compacted.
+     */
+    public synchronized void written(final Flush flush, final boolean success) {
+        if (!success) {
+            final Failed last = failed.isEmpty() ? null : failed.get(failed.size() - 1);
+
+            if (last != null && last.until >= flush.from) {
+                failed.set(failed.size() - 1,
+                    new Failed(last.from, Math.max(last.until, flush.until)));
+            } else {
+                failed.add(new Failed(flush.from, flush.until));
+            }
+        }
+
+        written = Math.max(written, flush.until);
+    }
+
+    /**
+     * Summarize raw points into the writes for all intervals of the given resolution that end in
+     * {@code (from, until]}.
+     * <p>
+     * Only use this for intervals where all points are given, since the writes replace any
+     * existing rollups for them.
+     *
+     * @param points Points to summarize, sorted by timestamp.
+     * @return Writes to perform against the rollup group.
+     */
+    public static List<WriteMetric> summarize(
+        final Series series, final long resolution, final List<Point> points, final long from,
+        final long until
+    ) {
+        final List<Summary> summaries = new ArrayList<>();
+
+        Summary current = null;
+
+        for (final Point p : points) {
+            final long timestamp = end(p.getTimestamp(), resolution);
+
+            if (timestamp <= from || timestamp > until || !p.valid()) {
+                continue;
+            }
+
+            if (current == null || current.timestamp != timestamp) {
+                current = new Summary(timestamp);
+                summaries.add(current);
+            }
+
+            current.add(p.getValue());
+        }
+
+        if (summaries.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        return writes(new Key(series, resolution), summaries);
+    }
+
+    /**
+     * Mark all intervals ending at or before the given time as compacted, which allows queries to
+     * read rollups for them.
+     */
+    public void compacted(final long until) {
+        synchronized (this) {
+            compacted = Math.max(compacted, until);
+            /* compaction runs after the flush of an interval, so it has replaced failed flushes */
+            failed.removeIf(f -> f.until <= compacted);
+        }
+    }
+
+    private static List<WriteMetric> writes(final Key key, final List<Summary> summaries) {
+        final List<WriteMetric> writes = new ArrayList<>(STATS.length);
+
+        for (final Stat stat : STATS) {
+            final List<Point> points = new ArrayList<>(summaries.size());
+
+            for (final Summary s : summaries) {
+                points.add(new Point(s.timestamp, s.get(stat)));
+            }
+
+            writes.add(new WriteMetric(series(key.series, key.resolution, stat),
+                MetricCollection.points(points)));
+        }
+
+        return writes;
+    }
+
+    /**
+     * Number of intervals that currently have open summaries.
+     */
+    public int pending() {
+        return open.size();
+    }
+
+    /**
+     * Number of points that were dropped since their interval had already been flushed.
+     */
+    public long late() {
+        return late.sum();
+    }
+
+    /**
+     * Plan how to read the given range using the coarsest rollup that is supported by the
+     * aggregation.
+     *
+     * @return A plan, or empty if rollups can't be used for the query.
+     */
+    public Optional<Plan> plan(
+        final MetricType source, final AggregationInstance aggregation, final DateRange range
+    ) {
+        if (source != MetricType.POINT) {
+            return Optional.empty();
+        }
+
+        final long compacted;
+        final long written;
+        final List<Failed> failed;
+
+        synchronized (this) {
+            compacted = this.compacted;
+            written = this.written;
+            failed = new ArrayList<>(this.failed);
+        }
+
+        /* rollups written at ingest are available for intervals starting at or after this */
+        final Optional<Long> ingested = since
+            .filter(s -> !conflict && written != Long.MIN_VALUE && begin != Long.MAX_VALUE)
+            .map(s -> Math.max(s, begin));
+
+        /* rollups are available for intervals in (from, until] */
+        final long from;
+        final long until;
+
+        if (ingested.isPresent()) {
+            from = compacted >= ingested.get() ? 0L : ingested.get();
+            until = Math.max(compacted, written);
+        } else if (compacted != Long.MIN_VALUE) {
+            from = 0L;
+            until = compacted;
+        } else {
+            return Optional.empty();
+        }
+
+        for (final long resolution : resolutions) {
+            if (!aggregation.supportsRollup(resolution) ||
+                Math.floorMod(range.start(), resolution) != 0) {
+                continue;
+            }
+
+            /* rollups cover (first, last] */
+            final long first = Math.max(range.start(), ceil(from, resolution));
+            long last = Math.min(floor(range.end(), resolution), floor(until, resolution));
+
+            /* stop before the first failed flush */
+            for (final Failed f : failed) {
+                if (f.until > first && f.from < last) {
+                    last = Math.min(last,
+                        floor(Math.max(first, Math.max(f.from, compacted)), resolution));
+                }
+            }
+
+            if (last - first < resolution) {
+                continue;
+            }
+
+            final Optional<DateRange> tail = last < range.end() ?
+                Optional.of(new DateRange(last + 1, range.end())) : Optional.empty();
+
+            return Optional.of(new Plan(resolution, new DateRange(range.start(), first),
+                new DateRange(first + 1, last), tail));
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Convert the fetched statistics of a rollup into spreads.
+     *
+     * @param stats Fetched data for each statistic, in the order of {@link Stat#values()}.
+     * @return Spreads for all intervals where every statistic is present.
+     */
+    public static MetricCollection spreads(final List<FetchData> stats) {
+        final SortedMap<Long, double[]> cells = new TreeMap<>();
+
+        for (int i = 0; i < STATS.length; i++) {
+            for (final MetricCollection g : stats.get(i).getGroups()) {
+                if (g.getType() != MetricType.POINT) {
+                    continue;
+                }
+
+                for (final Point p : g.getDataAs(Point.class)) {
+                    cells.computeIfAbsent(p.getTimestamp(), t -> {
+                        final double[] values = new double[STATS.length];
+                        Arrays.fill(values, Double.NaN);
+                        return values;
+                    })[i] = p.getValue();
+                }
+            }
+        }
+
+        final List<Spread> spreads = new ArrayList<>(cells.size());
+
+        for (final Map.Entry<Long, double[]> e : cells.entrySet()) {
+            final double[] v = e.getValue();
+
+            /* partially written intervals are ignored */
+            if (Arrays.stream(v).anyMatch(Double::isNaN) || v[0] < 1D) {
+                continue;
+            }
+
+            spreads.add(new Spread(e.getKey(), (long) v[0], v[1], v[2], v[3], v[4]));
+        }
+
+        return MetricCollection.spreads(spreads);
+    }
+
+    /**
+     * Find the ranges of the given rollup range that have no cells in the given spreads.
+     * <p>
+     * Cells are missing when the intervals were never written to the rollup group, e.g. since the
+     * series is ingested by another node, or when they were only partially written. These ranges
+     * have to be read as raw points.
+     *
+     * @param spreads Spreads read from the rollup, as built by {@link #spreads(List)}.
+     * @param rollup Range that was read from the rollup, which covers whole intervals.
+     * @param resolution Resolution of the rollup.
+     * @return The ranges without rollup cells, in order.
+     */
+    public static List<DateRange> missing(
+        final MetricCollection spreads, final DateRange rollup, final long resolution
+    ) {
+        final Set<Long> present = new HashSet<>();
+
+        for (final Spread s : spreads.getDataAs(Spread.class)) {
+            present.add(s.getTimestamp());
+        }
+
+        final List<DateRange> missing = new ArrayList<>();
+        long start = -1L;
+
+        for (long t = rollup.start() - 1 + resolution; t <= rollup.end(); t += resolution) {
+            if (!present.contains(t)) {
+                /* the interval of a cell is (t - resolution, t] */
+                start = start < 0L ? t - resolution + 1 : start;
+                continue;
+            }
+
+            if (start >= 0L) {
+                missing.add(new DateRange(start, t - resolution));
+                start = -1L;
+            }
+        }
+
+        if (start >= 0L) {
+            missing.add(new DateRange(start, rollup.end()));
+        }
+
+        return missing;
+    }
+
+    /**
+     * The timestamp of the interval that the given timestamp belongs to.
+     */
+    public static long end(final long timestamp, final long resolution) {
+        return floor(timestamp - 1, resolution) + resolution;
+    }
+
+    private static long floor(final long timestamp, final long resolution) {
+        return Math.floorDiv(timestamp, resolution) * resolution;
+    }
+
+    private static long ceil(final long timestamp, final long resolution) {
+        return -floor(-timestamp, resolution);
+    }
+
+    /**
+     * How to read a range using rollups.
+     */
+    @Data
+    public static class Plan {
+        private final long resolution;
+        /**
+         * Range to read raw points for, before the rollups.
+         */
+        private final DateRange head;
+        /**
+         * Range to read rollups for.
+         */
+        private final DateRange rollup;
+        /**
+         * Range to read raw points for, after the rollups.
+         */
+        private final Optional<DateRange> tail;
+    }
+
+    /**
+     * Summaries detached by a flush, for intervals ending in {@code (from, until]}.
+     */
+    @Data
+    public static class Flush {
+        private final long from;
+        private final long until;
+        private final List<WriteMetric> writes;
+    }
+
+    @Data
+    private static class Failed {
+        private final long from;
+        private final long until;
+    }
+
+    @Data
+    private static class Key {
+        private final Series series;
+        private final long resolution;
+    }
+
+    private static class Summary {
+        private final long timestamp;
+
+        private long count = 0L;
+        private double sum = 0D;
+        private double sum2 = 0D;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        Summary(final long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        void add(final double value) {
+            count++;
+            sum += value;
+            sum2 += value * value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        synchronized void merge(final Summary o) {
+            count += o.count;
+            sum += o.sum;
+            sum2 += o.sum2;
+            min = Math.min(min, o.min);
+            max = Math.max(max, o.max);
+        }
+
+        synchronized double get(final Stat stat) {
+            switch (stat) {
+                case COUNT:
+                    return count;
+                case SUM:
+                    return sum;
+                case SUM2:
+                    return sum2;
+                case MIN:
+                    return min;
+                case MAX:
+                    return max;
+                default:
+                    throw new IllegalArgumentException("stat: " + stat);
+            }
+        }
+    }
+}
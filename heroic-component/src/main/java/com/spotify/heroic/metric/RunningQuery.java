@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.spotify.heroic.common.DateRange;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * A snapshot of a query that is currently admitted (or waiting to be admitted) on this node.
+ */
+@Data
+public class RunningQuery {
+    private final UUID id;
+    private final State state;
+    private final MetricType source;
+    private final String filter;
+    private final DateRange range;
+
+    /**
+     * Milliseconds since the query was submitted for admission.
+     */
+    private final long age;
+
+    /**
+     * Number of series matched by the query filter.
+     */
+    private final long seriesCount;
+
+    /**
+     * Number of buckets estimated by the aggregation, or {@code -1} if unknown.
+     */
+    private final long buckets;
+
+    /**
+     * The up-front cost estimate used when admitting the query.
+     */
+    private final long estimatedCost;
+
+    /**
+     * Number of data points read by the query so far.
+     */
+    private final long pointsRead;
+
+    /**
+     * Number of bytes read by the query so far, for backends that report it.
+     */
+    private final long bytesRead;
+
+    /**
+     * CPU time in nanoseconds spent aggregating data for the query so far.
+     */
+    private final long cpuTime;
+
+    /**
+     * Bytes allocated on the heap while aggregating data for the query so far.
+     */
+    private final long allocatedBytes;
+
+    public enum State {
+        QUEUED, RUNNING
+    }
+}
@@ -50,10 +50,19 @@ public class ShardError implements RequestError {
     }
 
     public static ShardError fromThrowable(ClusterShardGroup c, Throwable e) {
-        final List<String> nodes =
-            c.getGroups().stream().map(Object::toString).collect(Collectors.toList());
         final String message = errorMessage(e);
-        return new ShardError(nodes, c.getShard(), message);
+        return new ShardError(nodes(c), c.getShard(), message);
+    }
+
+    /**
+     * Indicates that the shard did not finish in time, and that its result is partial.
+     */
+    public static ShardError deadlineExceeded(ClusterShardGroup c) {
+        return new ShardError(nodes(c), c.getShard(), "deadline exceeded, result is partial");
+    }
+
+    private static List<String> nodes(ClusterShardGroup c) {
+        return c.getGroups().stream().map(Object::toString).collect(Collectors.toList());
     }
 
     private static String errorMessage(Throwable e) {
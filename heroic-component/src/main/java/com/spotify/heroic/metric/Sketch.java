@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An opaque, serialized summary of many samples.
+ * <p>
+ * Sketches are produced by distributed aggregations whose intermediate state can not be expressed
+ * as a {@link Spread}, like quantiles. Only the aggregation that produced a sketch knows how to
+ * interpret its state.
+ */
+@Data
+@EqualsAndHashCode(exclude = {"valueHash"})
+public class Sketch implements Metric {
+    private final long timestamp;
+    private final byte[] state;
+    private final int valueHash;
+
+    public Sketch(final long timestamp, final byte[] state) {
+        this.timestamp = timestamp;
+        this.state = state;
+        this.valueHash = Arrays.hashCode(state);
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public int valueHash() {
+        return valueHash;
+    }
+
+    @Override
+    public boolean valid() {
+        return true;
+    }
+
+    public static Comparator<Metric> comparator() {
+        return comparator;
+    }
+
+    static final Comparator<Metric> comparator = new Comparator<Metric>() {
+        @Override
+        public int compare(Metric a, Metric b) {
+            return Long.compare(a.getTimestamp(), b.getTimestamp());
+        }
+    };
+}
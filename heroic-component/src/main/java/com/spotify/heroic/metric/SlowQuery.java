@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.spotify.heroic.common.DateRange;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A query that took longer than the configured slow-query threshold to complete, together with
+ * the plan it was performed with and the resources it used.
+ */
+@Data
+public class SlowQuery {
+    /**
+     * Milliseconds since the epoch when the query completed.
+     */
+    private final long timestamp;
+
+    /**
+     * Milliseconds the query took to complete.
+     */
+    private final long duration;
+
+    private final MetricType source;
+    private final String filter;
+    private final String aggregation;
+    private final DateRange range;
+
+    /**
+     * Number of series matched by the query filter, summed over all shards.
+     */
+    private final long seriesCount;
+
+    /**
+     * Number of buckets estimated by the aggregation, or {@code -1} if unknown.
+     */
+    private final long buckets;
+
+    /**
+     * The up-front cost estimates used when admitting the query, summed over all shards.
+     */
+    private final long estimatedCost;
+
+    /**
+     * Number of data points read by the query, summed over all shards.
+     */
+    private final long pointsRead;
+
+    /**
+     * Number of bytes read by the query, for backends that report it.
+     */
+    private final long bytesRead;
+
+    /**
+     * Indicates that one or more shards did not finish before the query deadline.
+     */
+    private final boolean partial;
+
+    private final List<RequestError> errors;
+
+    /**
+     * Why the query did not complete, if it failed or was cancelled.
+     */
+    private final Optional<String> failure;
+
+    /**
+     * Latency and statistics of every shard that was part of the query.
+     */
+    private final List<ShardTrace> shards;
+
+    private final QueryTrace trace;
+}
@@ -29,4 +29,14 @@ public interface ConsumerReporter {
     void reportConsumerSchemaError();
 
     void reportMessageDrift(final long ms);
+
+    /**
+     * Report that the given number of samples were decoded from a received message.
+     */
+    void reportSamplesDecoded(final int count);
+
+    /**
+     * Report that the given number of decoded samples were dropped before being ingested.
+     */
+    void reportSamplesDropped(final int count);
 }
@@ -29,4 +29,45 @@ public interface MetricBackendReporter {
     FutureReporter.Context reportFindSeries();
 
     FutureReporter.Context reportQueryMetrics();
+
+    /**
+     * Report a fetch that was either coalesced with an in-flight fetch, or issued to the backend.
+     */
+    void reportFetchCoalesced(boolean coalesced);
+
+    /**
+     * Report how long a query waited for all of its fetches to complete.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    void reportFetchWait(long nanos);
+
+    /**
+     * Report the time a backend spent decoding the data of a single fetch.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    void reportFetchDecode(long nanos);
+
+    /**
+     * Report the total time a query spent feeding fetched data into its aggregation session.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    void reportAggregationUpdate(long nanos);
+
+    /**
+     * Report the time it took to build the result of an aggregation session.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    void reportAggregationResult(long nanos);
+
+    /**
+     * Report the amount of data read by a single query.
+     *
+     * @param points Number of data points read.
+     * @param bytes Number of bytes read, as reported by the backends.
+     */
+    void reportQueryRead(long points, long bytes);
 }
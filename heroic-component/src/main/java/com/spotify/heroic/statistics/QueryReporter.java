@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.statistics;
+
+public interface QueryReporter {
+    /**
+     * Report the time it took to build a query from a query string.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    void reportParse(long nanos);
+
+    void reportParseCache(boolean hit);
+
+    void reportAggregationCache(boolean hit);
+
+    /**
+     * Report the time it took to combine the results of all shards.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    void reportCombine(long nanos);
+
+    /**
+     * Report the time it took to serialize a query response.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    void reportSerialization(long nanos);
+}
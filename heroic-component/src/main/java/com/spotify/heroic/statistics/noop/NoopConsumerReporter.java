@@ -43,6 +43,14 @@ public class NoopConsumerReporter implements ConsumerReporter {
     public void reportMessageDrift(final long ms) {
     }
 
+    @Override
+    public void reportSamplesDecoded(final int count) {
+    }
+
+    @Override
+    public void reportSamplesDropped(final int count) {
+    }
+
     private static final NoopConsumerReporter instance = new NoopConsumerReporter();
 
     public static NoopConsumerReporter get() {
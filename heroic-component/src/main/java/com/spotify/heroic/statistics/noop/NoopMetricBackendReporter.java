@@ -44,6 +44,30 @@ public class NoopMetricBackendReporter implements MetricBackendReporter {
         return NoopFutureReporterContext.get();
     }
 
+    @Override
+    public void reportFetchCoalesced(final boolean coalesced) {
+    }
+
+    @Override
+    public void reportFetchWait(final long nanos) {
+    }
+
+    @Override
+    public void reportFetchDecode(final long nanos) {
+    }
+
+    @Override
+    public void reportAggregationUpdate(final long nanos) {
+    }
+
+    @Override
+    public void reportAggregationResult(final long nanos) {
+    }
+
+    @Override
+    public void reportQueryRead(final long points, final long bytes) {
+    }
+
     private static final NoopMetricBackendReporter instance = new NoopMetricBackendReporter();
 
     public static NoopMetricBackendReporter get() {
@@ -15,6 +15,8 @@ import org.mockito.Mockito;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
 
 public class BucketAggregationTest {
     public final class IterableBuilder {
@@ -51,6 +53,12 @@ public class BucketAggregationTest {
     }
 
     public BucketAggregationInstance<TestBucket> setup(long sampling, long extent) {
+        return setup(sampling, extent, Optional.empty());
+    }
+
+    public BucketAggregationInstance<TestBucket> setup(
+        long sampling, long extent, final Optional<SlidingWindow<TestBucket>> window
+    ) {
         return new BucketAggregationInstance<TestBucket>(sampling, extent,
             ImmutableSet.of(MetricType.POINT), MetricType.POINT) {
             @Override
@@ -63,6 +71,11 @@ public class BucketAggregationTest {
                 return new Point(bucket.timestamp, bucket.sum);
             }
 
+            @Override
+            protected Optional<SlidingWindow<TestBucket>> slidingWindow() {
+                return window;
+            }
+
             @Override
             public ReducerSession reducer(final DateRange range) {
                 return Mockito.mock(ReducerSession.class);
@@ -109,6 +122,23 @@ public class BucketAggregationTest {
         Assert.assertEquals(expected, result.getResult().get(0).getMetrics().getData());
     }
 
+    @Test
+    public void testUnsortedRuns() {
+        final BucketAggregationInstance<TestBucket> a = setup(1000, 1000);
+        final AggregationSession session =
+            a.session(states, new DateRange(1000, 3000)).getSession();
+        session.updatePoints(group,
+            build().add(3500, 1.0).add(1500, 1.0).add(999, 1.0).add(1200, Double.NaN)
+                .add(2000, 1.0).add(500, 1.0).add(0, 1.0).result());
+
+        final AggregationResult result = session.result();
+
+        Assert.assertEquals(build().add(1000, 2.0).add(2000, 2.0).add(3000, 0.0).result(),
+            result.getResult().get(0).getMetrics().getData());
+        Assert.assertEquals(6L,
+            result.getStatistics().get(AggregationInstance.SAMPLE_SIZE, 0L));
+    }
+
     @Test
     public void testUnevenSampling() {
         final BucketAggregationInstance<TestBucket> a = setup(999, 499);
@@ -122,4 +152,34 @@ public class BucketAggregationTest {
         Assert.assertEquals(build().add(1000, 2.0).add(1999, 0.0).add(2998, 0.0).result(),
             result.getResult().get(0).getMetrics().getData());
     }
+
+    @Test
+    public void testSlidingWindowSameAsOverlappingBuckets() {
+        final SlidingWindow<TestBucket> window = SlidingWindow.<TestBucket>builder()
+            .additive(TestBucket::getSum)
+            .build((timestamp, v) -> new Point(timestamp, v[0]));
+
+        final Random random = new Random(0x1234L);
+        final List<Point> input = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            input.add(new Point(random.nextInt(14000) - 2000, random.nextInt(10)));
+        }
+
+        final DateRange range = new DateRange(1000, 10000);
+        final AggregationSession overlapping =
+            setup(1000, 3000).session(states, range).getSession();
+        final AggregationSession sliding =
+            setup(1000, 3000, Optional.of(window)).session(states, range).getSession();
+
+        overlapping.updatePoints(group, input);
+        sliding.updatePoints(group, input);
+
+        final AggregationResult expected = overlapping.result();
+        final AggregationResult result = sliding.result();
+
+        Assert.assertEquals(expected.getResult().get(0).getMetrics().getData(),
+            result.getResult().get(0).getMetrics().getData());
+        Assert.assertEquals(expected.getStatistics(), result.getStatistics());
+    }
 }
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
@@ -200,6 +201,49 @@ public class GroupingAggregationTest {
         verify(r, times(1)).updatePoints(ImmutableMap.of("id", "b"), ImmutableList.of());
     }
 
+    @Test
+    public void testParallelCombiner() {
+        final AggregationInstance each = mock(AggregationInstance.class);
+        final SimpleGroup g = new SimpleGroup(Optional.empty(), each);
+
+        final ReducerSession r = mock(ReducerSession.class);
+        final DateRange range = mock(DateRange.class);
+
+        doReturn(r).when(each).reducer(range);
+        doReturn(new ReducerResult(ImmutableList.of(), Statistics.empty())).when(r).result();
+
+        final ImmutableMap<String, String> shard = ImmutableMap.of();
+        final MetricCollection empty = MetricCollection.points(ImmutableList.of());
+
+        final List<List<ShardedResultGroup>> all = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            final List<ShardedResultGroup> groups = new ArrayList<>();
+
+            for (int k = 0; k < 10; k++) {
+                groups.add(new ShardedResultGroup(shard, ImmutableMap.of("id", "k" + k),
+                    SeriesValues.of("id", "k" + k), empty, 0));
+            }
+
+            all.add(groups);
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            assertTrue(g.combiner(range).combine(all, pool).isEmpty());
+        } finally {
+            pool.shutdown();
+        }
+
+        /* every key is reduced exactly once, regardless of which partition it ends up in */
+        verify(each, times(10)).reducer(range);
+
+        for (int k = 0; k < 10; k++) {
+            verify(r, times(3)).updatePoints(ImmutableMap.of("id", "k" + k), ImmutableList.of());
+        }
+    }
+
     public static class SimpleGroup extends GroupingAggregation {
         public SimpleGroup(final Optional<List<String>> of, final AggregationInstance each) {
             super(of, each);
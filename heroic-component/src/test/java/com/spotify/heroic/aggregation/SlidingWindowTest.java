@@ -0,0 +1,73 @@
+package com.spotify.heroic.aggregation;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.aggregation.BucketAggregationTest.TestBucket;
+import com.spotify.heroic.metric.Metric;
+import com.spotify.heroic.metric.Point;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SlidingWindowTest {
+    private List<TestBucket> buckets(final double... values) {
+        final List<TestBucket> buckets = new ArrayList<>();
+
+        for (int i = 0; i < values.length; i++) {
+            final TestBucket bucket = new TestBucket(i * 10L);
+            bucket.setSum(values[i]);
+            buckets.add(bucket);
+        }
+
+        return buckets;
+    }
+
+    private SlidingWindow<TestBucket> single(final SlidingWindow.Builder<TestBucket> builder) {
+        return builder.build((timestamp, v) -> {
+            if (Double.isNaN(v[0])) {
+                return Metric.invalid();
+            }
+
+            return new Point(timestamp, v[0]);
+        });
+    }
+
+    @Test
+    public void testAdditive() {
+        final SlidingWindow<TestBucket> window =
+            single(SlidingWindow.<TestBucket>builder().additive(TestBucket::getSum));
+
+        assertEquals(ImmutableList.of(new Point(20L, 6D), new Point(30L, 9D), new Point(40L, 12D)),
+            window.windows(buckets(1, 2, 3, 4, 5), 3));
+    }
+
+    @Test
+    public void testMin() {
+        final SlidingWindow<TestBucket> window =
+            single(SlidingWindow.<TestBucket>builder().min(TestBucket::getSum));
+
+        assertEquals(ImmutableList.of(new Point(10L, 3D), new Point(20L, 1D), new Point(30L, 1D),
+            new Point(40L, 2D), Metric.invalid(), new Point(60L, 4D)),
+            window.windows(buckets(5, 3, 1, 2, Double.NaN, Double.NaN, 4), 2));
+    }
+
+    @Test
+    public void testMax() {
+        final SlidingWindow<TestBucket> window =
+            single(SlidingWindow.<TestBucket>builder().max(TestBucket::getSum));
+
+        assertEquals(ImmutableList.of(new Point(20L, 5D), new Point(30L, 3D), new Point(40L, 4D),
+            new Point(50L, 4D)),
+            window.windows(buckets(5, 3, 1, 2, 4, Double.NEGATIVE_INFINITY), 3));
+    }
+
+    @Test
+    public void testWiderThanBuckets() {
+        final SlidingWindow<TestBucket> window =
+            single(SlidingWindow.<TestBucket>builder().additive(TestBucket::getSum));
+
+        assertEquals(ImmutableList.of(), window.windows(buckets(1, 2), 3));
+    }
+}
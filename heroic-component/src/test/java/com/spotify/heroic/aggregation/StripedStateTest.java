@@ -0,0 +1,98 @@
+package com.spotify.heroic.aggregation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StripedStateTest {
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final StripedState<long[]> state = new StripedState<>(() -> new long[1], 4);
+
+        final int threads = 8;
+        final int updates = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            final Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+
+                for (int j = 0; j < updates; j++) {
+                    state.update((s, v) -> s[0] += v, 1L);
+                }
+            });
+
+            t.start();
+            workers.add(t);
+        }
+
+        start.countDown();
+
+        for (final Thread t : workers) {
+            t.join();
+        }
+
+        final long[] sum = new long[1];
+        state.forEach(s -> sum[0] += s[0]);
+
+        assertEquals((long) threads * updates, sum[0]);
+        assertTrue(state.stripes() <= 4);
+    }
+
+    @Test
+    public void testSingleStripeWhenUncontended() {
+        final StripedState<long[]> state = new StripedState<>(() -> new long[1], 4);
+
+        for (int i = 0; i < 1000; i++) {
+            state.update(s -> s[0]++);
+        }
+
+        assertEquals(1, state.stripes());
+    }
+
+    @Test
+    public void testStatesCreatedOnFirstUpdate() {
+        final AtomicInteger created = new AtomicInteger();
+        final StripedState<long[]> state = new StripedState<>(() -> {
+            created.incrementAndGet();
+            return new long[1];
+        }, 4);
+
+        final List<long[]> visited = new ArrayList<>();
+        state.forEach(visited::add);
+
+        assertEquals(0, created.get());
+        assertEquals(0, visited.size());
+
+        state.update(s -> s[0]++);
+        state.forEach(visited::add);
+
+        assertEquals(1, created.get());
+        assertEquals(1, visited.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxStripesPowerOfTwo() {
+        new StripedState<>(() -> new long[1], 3);
+    }
+
+    @Test
+    public void testCeilingPowerOfTwo() {
+        assertEquals(1, StripedState.ceilingPowerOfTwo(0));
+        assertEquals(1, StripedState.ceilingPowerOfTwo(1));
+        assertEquals(4, StripedState.ceilingPowerOfTwo(3));
+        assertEquals(4, StripedState.ceilingPowerOfTwo(4));
+        assertEquals(16, StripedState.ceilingPowerOfTwo(9));
+    }
+}
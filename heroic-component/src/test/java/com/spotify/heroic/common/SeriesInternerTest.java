@@ -0,0 +1,63 @@
+package com.spotify.heroic.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SeriesInternerTest {
+    private final SeriesInterner interner = new SeriesInterner(10);
+
+    @Test
+    public void testSameInstance() {
+        final Map<String, String> tags = new HashMap<>();
+        tags.put("host", "foo");
+        tags.put("role", "bar");
+
+        final Series a = interner.intern("key", tags);
+        final Series b = interner.intern("key", ImmutableMap.of("role", "bar", "host", "foo"));
+
+        assertSame(a, b);
+        assertEquals(Series.of("key", tags), a);
+        assertSame(a, interner.intern(Series.of("key", tags)));
+    }
+
+    @Test
+    public void testDifferentSeries() {
+        final Series a = interner.intern("key", ImmutableMap.of("host", "foo"));
+        final Series b = interner.intern("key", ImmutableMap.of("host", "bar"));
+        final Series c = interner.intern("other", ImmutableMap.of("host", "foo"));
+
+        assertNotSame(a, b);
+        assertNotSame(a, c);
+        assertEquals(3, interner.size());
+    }
+
+    @Test
+    public void testTagsCanonicalizedOnce() {
+        final Series a = interner.intern("key", ImmutableMap.of("host", "foo"));
+        assertTrue(a.getTags() instanceof ImmutableSortedMap);
+
+        /* series that are not interned keep the tags that they were built with */
+        final SortedMap<String, String> tags = new TreeMap<>(ImmutableMap.of("host", "foo"));
+        assertSame(tags, new Series("key", tags).getTags());
+        assertEquals(a, new Series("key", tags));
+    }
+
+    @Test
+    public void testPooledStrings() {
+        final Series a = interner.intern("key", ImmutableMap.of("host", new String("foo")));
+        final Series b = interner.intern("key", ImmutableMap.of("site", new String("foo")));
+
+        assertSame(a.getTags().get("host"), b.getTags().get("site"));
+    }
+}
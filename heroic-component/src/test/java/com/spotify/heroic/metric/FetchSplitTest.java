@@ -0,0 +1,40 @@
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Duration;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+public class FetchSplitTest {
+    private final FetchSplit split =
+        new FetchSplit(Optional.of(Duration.ofMilliseconds(100)), Optional.empty(),
+            Optional.empty());
+
+    @Test
+    public void testDisabled() {
+        final DateRange range = new DateRange(0L, 1000L);
+        assertEquals(ImmutableList.of(range), FetchSplit.disabled().split(range));
+    }
+
+    @Test
+    public void testShortRangeIsNotSplit() {
+        final DateRange range = new DateRange(150L, 220L);
+        assertEquals(ImmutableList.of(range), split.split(range));
+    }
+
+    @Test
+    public void testSplitIsAligned() {
+        assertEquals(ImmutableList.of(new DateRange(50L, 100L), new DateRange(100L, 200L),
+            new DateRange(200L, 300L), new DateRange(300L, 320L)),
+            split.split(new DateRange(50L, 320L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() {
+        new FetchSplit(Optional.empty(), Optional.of(0), Optional.empty());
+    }
+}
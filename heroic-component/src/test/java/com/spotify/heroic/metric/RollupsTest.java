@@ -0,0 +1,251 @@
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.heroic.aggregation.AggregationInstance;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Series;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RollupsTest {
+    private final Series series = Series.of("foo", ImmutableMap.of("host", "a"));
+
+    @Mock
+    private AggregationInstance aggregation;
+
+    private WriteMetric write(final Point... points) {
+        return new WriteMetric(series, MetricCollection.points(ImmutableList.copyOf(points)));
+    }
+
+    private Map<Series, List<Point>> byStat(final List<WriteMetric> writes) {
+        final Map<Series, List<Point>> result = new HashMap<>();
+
+        for (final WriteMetric w : writes) {
+            result.put(w.getSeries(), w.getData().getDataAs(Point.class));
+        }
+
+        return result;
+    }
+
+    private List<Point> stat(
+        final Map<Series, List<Point>> writes, final long resolution, final Rollups.Stat stat
+    ) {
+        return writes.get(Rollups.series(series, resolution, stat));
+    }
+
+    private Rollups rollups(final List<Long> resolutions, final Optional<Long> since) {
+        final Rollups rollups = new Rollups(resolutions, Optional.empty(), 5L, 5L, since);
+        rollups.begin(0L);
+        return rollups;
+    }
+
+    @Test
+    public void testUpdateAndFlush() {
+        final Rollups rollups = rollups(ImmutableList.of(10L), Optional.empty());
+
+        rollups.update(write(new Point(1L, 1D), new Point(5L, 5D), new Point(11L, 7D)));
+        rollups.update(write(new Point(10L, 10D), new Point(12L, Double.NaN)));
+
+        /* interval (0, 10] is not closed long enough yet */
+        assertTrue(rollups.flush(14L).getWrites().isEmpty());
+
+        final Map<Series, List<Point>> writes = byStat(rollups.flush(15L).getWrites());
+        assertEquals(Rollups.Stat.values().length, writes.size());
+
+        assertEquals(ImmutableList.of(new Point(10L, 3D)),
+            stat(writes, 10L, Rollups.Stat.COUNT));
+        assertEquals(ImmutableList.of(new Point(10L, 16D)), stat(writes, 10L, Rollups.Stat.SUM));
+        assertEquals(ImmutableList.of(new Point(10L, 126D)),
+            stat(writes, 10L, Rollups.Stat.SUM2));
+        assertEquals(ImmutableList.of(new Point(10L, 1D)), stat(writes, 10L, Rollups.Stat.MIN));
+        assertEquals(ImmutableList.of(new Point(10L, 10D)), stat(writes, 10L, Rollups.Stat.MAX));
+
+        assertEquals(1, rollups.pending());
+    }
+
+    @Test
+    public void testLatePointsDropped() {
+        final Rollups rollups = rollups(ImmutableList.of(10L), Optional.empty());
+
+        rollups.update(write(new Point(1L, 1D)));
+        rollups.flush(15L);
+
+        rollups.update(write(new Point(7L, 2D), new Point(17L, 3D)));
+        assertEquals(1L, rollups.late());
+
+        final Map<Series, List<Point>> writes = byStat(rollups.flush(25L).getWrites());
+        assertEquals(ImmutableList.of(new Point(20L, 1D)),
+            stat(writes, 10L, Rollups.Stat.COUNT));
+        assertEquals(0, rollups.pending());
+    }
+
+    @Test
+    public void testIntervalsBeforeBeginNotSummarized() {
+        final Rollups rollups =
+            new Rollups(ImmutableList.of(10L), Optional.empty(), 5L, 5L, Optional.empty());
+
+        /* nothing is summarized before rollups have begun */
+        rollups.update(write(new Point(1L, 1D)));
+        assertFalse(rollups.isUpdated());
+
+        rollups.begin(5L);
+        rollups.update(write(new Point(7L, 2D), new Point(17L, 3D)));
+
+        final Map<Series, List<Point>> writes = byStat(rollups.flush(25L).getWrites());
+        assertEquals(ImmutableList.of(new Point(20L, 1D)),
+            stat(writes, 10L, Rollups.Stat.COUNT));
+    }
+
+    @Test
+    public void testPlan() {
+        final Rollups rollups = rollups(ImmutableList.of(10L, 100L), Optional.of(0L));
+
+        doReturn(true).when(aggregation).supportsRollup(anyLong());
+
+        /* nothing has been written yet */
+        assertEquals(Optional.empty(),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(0L, 1000L)));
+
+        rollups.written(rollups.flush(995L), true);
+
+        /* coarsest resolution first, the tail of the range is not flushed yet */
+        assertEquals(Optional.of(
+            new Rollups.Plan(100L, new DateRange(0L, 0L), new DateRange(1L, 900L),
+                Optional.of(new DateRange(901L, 1000L)))),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(0L, 1000L)));
+
+        doReturn(false).when(aggregation).supportsRollup(100L);
+
+        assertEquals(Optional.of(
+            new Rollups.Plan(10L, new DateRange(0L, 0L), new DateRange(1L, 990L),
+                Optional.of(new DateRange(991L, 1000L)))),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(0L, 1000L)));
+
+        /* start not aligned to any resolution */
+        assertEquals(Optional.empty(),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(5L, 1000L)));
+
+        assertEquals(Optional.empty(),
+            rollups.plan(MetricType.SPREAD, aggregation, new DateRange(0L, 1000L)));
+    }
+
+    @Test
+    public void testPlanRespectsSince() {
+        final Rollups rollups = rollups(ImmutableList.of(10L), Optional.of(42L));
+        rollups.written(rollups.flush(1005L), true);
+
+        doReturn(true).when(aggregation).supportsRollup(anyLong());
+
+        assertEquals(Optional.of(
+            new Rollups.Plan(10L, new DateRange(0L, 50L), new DateRange(51L, 100L),
+                Optional.empty())),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(0L, 100L)));
+    }
+
+    @Test
+    public void testPlanRespectsBegin() {
+        final Rollups rollups =
+            new Rollups(ImmutableList.of(10L), Optional.empty(), 5L, 5L, Optional.of(0L));
+        rollups.begin(42L);
+        rollups.written(rollups.flush(1005L), true);
+
+        doReturn(true).when(aggregation).supportsRollup(anyLong());
+
+        assertEquals(Optional.of(
+            new Rollups.Plan(10L, new DateRange(0L, 50L), new DateRange(51L, 100L),
+                Optional.empty())),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(0L, 100L)));
+    }
+
+    @Test
+    public void testPlanStopsAtFailedFlush() {
+        final Rollups rollups = rollups(ImmutableList.of(10L), Optional.of(0L));
+
+        doReturn(true).when(aggregation).supportsRollup(anyLong());
+
+        rollups.written(rollups.flush(505L), true);
+        rollups.written(rollups.flush(705L), false);
+        rollups.written(rollups.flush(1005L), true);
+
+        assertEquals(Optional.of(
+            new Rollups.Plan(10L, new DateRange(0L, 0L), new DateRange(1L, 500L),
+                Optional.of(new DateRange(501L, 1000L)))),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(0L, 1000L)));
+
+        /* compaction replaces the failed intervals */
+        rollups.compacted(700L);
+
+        assertEquals(Optional.of(
+            new Rollups.Plan(10L, new DateRange(0L, 0L), new DateRange(1L, 1000L),
+                Optional.empty())),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(0L, 1000L)));
+    }
+
+    @Test
+    public void testConflictDisablesIngestRollups() {
+        final Rollups rollups = rollups(ImmutableList.of(10L), Optional.of(0L));
+
+        doReturn(true).when(aggregation).supportsRollup(anyLong());
+
+        rollups.update(write(new Point(1L, 1D)));
+        rollups.written(rollups.flush(1005L), true);
+        rollups.conflict();
+
+        rollups.update(write(new Point(1001L, 1D)));
+        assertEquals(0, rollups.pending());
+
+        assertEquals(Optional.empty(),
+            rollups.plan(MetricType.POINT, aggregation, new DateRange(0L, 1000L)));
+    }
+
+    @Test
+    public void testSpreads() {
+        final QueryTrace trace = new QueryTrace(QueryTrace.identifier(RollupsTest.class, "test"));
+        final double[][] stats = {{3D, 4D}, {16D, 7D}, {126D, 49D}, {1D, 7D}, {10D}};
+
+        final ImmutableList.Builder<FetchData> fetched = ImmutableList.builder();
+
+        for (final double[] values : stats) {
+            final ImmutableList.Builder<Point> points = ImmutableList.builder();
+
+            for (int i = 0; i < values.length; i++) {
+                points.add(new Point(10L * (i + 1), values[i]));
+            }
+
+            fetched.add(new FetchData(series, ImmutableList.of(),
+                ImmutableList.of(MetricCollection.points(points.build())), trace));
+        }
+
+        /* the second interval is missing its max, and is ignored */
+        assertEquals(ImmutableList.of(new Spread(10L, 3L, 16D, 126D, 1D, 10D)),
+            Rollups.spreads(fetched.build()).getDataAs(Spread.class));
+    }
+
+    @Test
+    public void testMissing() {
+        final MetricCollection spreads = MetricCollection.spreads(
+            ImmutableList.of(new Spread(20L, 1L, 1D, 1D, 1D, 1D),
+                new Spread(50L, 1L, 1D, 1D, 1D, 1D)));
+
+        /* cells for (10, 20] and (40, 50] are present */
+        assertEquals(ImmutableList.of(new DateRange(1L, 10L), new DateRange(21L, 40L),
+            new DateRange(51L, 60L)), Rollups.missing(spreads, new DateRange(1L, 60L), 10L));
+        assertEquals(ImmutableList.of(),
+            Rollups.missing(spreads, new DateRange(11L, 20L), 10L));
+    }
+}
@@ -24,12 +24,19 @@ package com.spotify.heroic;
 import com.spotify.heroic.cache.CacheComponent;
 import com.spotify.heroic.cluster.ClusterComponent;
 import com.spotify.heroic.dagger.CorePrimaryComponent;
+import com.spotify.heroic.lifecycle.LifeCycle;
 import dagger.Component;
 
+import javax.inject.Named;
+
 @QueryScope
-@Component(
+@Component(modules = CoreQueryModule.class,
     dependencies = {CorePrimaryComponent.class, ClusterComponent.class, CacheComponent.class})
 public interface CoreQueryComponent extends QueryComponent {
     @Override
     CoreQueryManager queryManager();
+
+    @Override
+    @Named("query")
+    LifeCycle queryLife();
 }
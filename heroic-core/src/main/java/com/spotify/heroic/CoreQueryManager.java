@@ -21,11 +21,12 @@
 
 package com.spotify.heroic;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
 import com.spotify.heroic.aggregation.Aggregation;
 import com.spotify.heroic.aggregation.AggregationCombiner;
-import com.spotify.heroic.aggregation.AggregationContext;
 import com.spotify.heroic.aggregation.AggregationFactory;
 import com.spotify.heroic.aggregation.AggregationInstance;
 import com.spotify.heroic.aggregation.DefaultAggregationContext;
@@ -35,6 +36,7 @@ import com.spotify.heroic.cluster.ClusterManager;
 import com.spotify.heroic.cluster.ClusterShardGroup;
 import com.spotify.heroic.common.DateRange;
 import com.spotify.heroic.common.Duration;
+import com.spotify.heroic.common.Statistics;
 import com.spotify.heroic.filter.Filter;
 import com.spotify.heroic.filter.TrueFilter;
 import com.spotify.heroic.grammar.DefaultScope;
@@ -44,25 +46,42 @@ import com.spotify.heroic.grammar.IntegerExpression;
 import com.spotify.heroic.grammar.QueryExpression;
 import com.spotify.heroic.grammar.QueryParser;
 import com.spotify.heroic.grammar.RangeExpression;
+import com.spotify.heroic.metric.FullQuery;
 import com.spotify.heroic.metric.MetricType;
+import com.spotify.heroic.metric.QueryAdmissionController;
 import com.spotify.heroic.metric.QueryResult;
 import com.spotify.heroic.metric.QueryResultPart;
 import com.spotify.heroic.metric.QueryTrace;
 import com.spotify.heroic.metric.ResultGroups;
+import com.spotify.heroic.metric.ShardTrace;
+import com.spotify.heroic.metric.SlowQuery;
+import com.spotify.heroic.scheduler.Scheduler;
+import com.spotify.heroic.statistics.QueryReporter;
 import eu.toolchain.async.AsyncFramework;
 import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.FutureDone;
+import eu.toolchain.async.ResolvableFuture;
+import eu.toolchain.async.Transform;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+@QueryScope
 public class CoreQueryManager implements QueryManager {
     public static final long SHIFT_TOLERANCE = TimeUnit.MILLISECONDS.convert(10, TimeUnit.SECONDS);
     public static final QueryTrace.Identifier QUERY_NODE =
@@ -70,18 +89,61 @@ public class CoreQueryManager implements QueryManager {
     public static final QueryTrace.Identifier QUERY =
         QueryTrace.identifier(CoreQueryManager.class, "query");
 
+    /**
+     * The fraction of the query deadline that is given to shards, the rest is reserved for
+     * transferring and combining their results.
+     */
+    public static final double SHARD_DEADLINE_FRACTION = 0.8D;
+
+    /**
+     * The maximum number of distinct query strings that are kept in their parsed form.
+     */
+    public static final long PARSE_CACHE_SIZE = 10000L;
+
+    /**
+     * The maximum number of distinct aggregation and cadence pairs that are kept applied.
+     */
+    public static final long AGGREGATION_CACHE_SIZE = 10000L;
+
+    /**
+     * The maximum number of distinct aggregation expressions that are kept built.
+     */
+    public static final long BUILT_CACHE_SIZE = 1000L;
+
     private final Set<String> features;
     private final AsyncFramework async;
     private final ClusterManager cluster;
     private final QueryParser parser;
     private final QueryCache queryCache;
     private final AggregationFactory aggregations;
+    private final Scheduler scheduler;
+    private final QueryReporter reporter;
+    private final SlowQueryLog slowQueryLog;
+    private final ForkJoinPool combinePool;
+
+    /**
+     * Parsed, but not evaluated, query strings. Relative time expressions are only resolved when
+     * evaluated, so these are safe to re-use regardless of when the query is performed.
+     */
+    private final Cache<String, List<Expression>> parsed =
+        CacheBuilder.newBuilder().maximumSize(PARSE_CACHE_SIZE).build();
+
+    /**
+     * Built aggregations, keyed by their expression regardless of where it is in the query.
+     */
+    private final Cache<FunctionKey, Aggregation> built =
+        CacheBuilder.newBuilder().maximumSize(BUILT_CACHE_SIZE).build();
+
+    private final Cache<AggregationKey, AggregationInstance> applied =
+        CacheBuilder.newBuilder().maximumSize(AGGREGATION_CACHE_SIZE).build();
 
     @Inject
     public CoreQueryManager(
         @Named("features") final Set<String> features, final AsyncFramework async,
         final ClusterManager cluster, final QueryParser parser, final QueryCache queryCache,
-        final AggregationFactory aggregations
+        final AggregationFactory aggregations, final Scheduler scheduler,
+        final QueryReporter reporter, final SlowQueryLog slowQueryLog,
+        @Named("combine") final ForkJoinPool combinePool
     ) {
         this.features = features;
         this.async = async;
@@ -89,6 +151,10 @@ public class CoreQueryManager implements QueryManager {
         this.parser = parser;
         this.queryCache = queryCache;
         this.aggregations = aggregations;
+        this.scheduler = scheduler;
+        this.reporter = reporter;
+        this.slowQueryLog = slowQueryLog;
+        this.combinePool = combinePool;
     }
 
     @Override
@@ -125,8 +191,67 @@ public class CoreQueryManager implements QueryManager {
 
     @Override
     public QueryBuilder newQueryFromString(final String queryString) {
-        final List<Expression> expressions = parser.parse(queryString);
+        final long start = System.nanoTime();
+
+        try {
+            return buildQuery(parse(queryString));
+        } finally {
+            reporter.reportParse(System.nanoTime() - start);
+        }
+    }
+
+    private List<Expression> parse(final String queryString) {
+        final String key = queryString.trim();
+        final List<Expression> cached = parsed.getIfPresent(key);
+
+        reporter.reportParseCache(cached != null);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<Expression> expressions = ImmutableList.copyOf(parser.parse(queryString));
+        parsed.put(key, expressions);
+        return expressions;
+    }
+
+    private Aggregation buildAggregation(final FunctionExpression e) {
+        final FunctionKey key = FunctionKey.of(e);
+        final Aggregation cached = built.getIfPresent(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Aggregation aggregation =
+            aggregations.build(e.getName(), e.getArguments(), e.getKeywords());
+        built.put(key, aggregation);
+        return aggregation;
+    }
+
+    /**
+     * Apply the given aggregation, re-using a previously applied instance if the same aggregation
+     * has been applied with the same cadence before.
+     */
+    private AggregationInstance applyAggregation(
+        final Aggregation aggregation, final Duration cadence
+    ) {
+        final AggregationKey key = new AggregationKey(aggregation, cadence);
+        final AggregationInstance cached = applied.getIfPresent(key);
+
+        reporter.reportAggregationCache(cached != null);
+
+        if (cached != null) {
+            return cached;
+        }
 
+        final AggregationInstance instance =
+            aggregation.apply(new DefaultAggregationContext(cadence));
+        applied.put(key, instance);
+        return instance;
+    }
+
+    private QueryBuilder buildQuery(final List<Expression> expressions) {
         final Expression.Scope scope = new DefaultScope(System.currentTimeMillis());
 
         if (expressions.size() != 1) {
@@ -154,8 +279,7 @@ public class CoreQueryManager implements QueryManager {
                     e.getSelect().map(expr -> expr.visit(new Expression.Visitor<Aggregation>() {
                         @Override
                         public Aggregation visitFunction(final FunctionExpression e) {
-                            return aggregations.build(e.getName(), e.getArguments(),
-                                e.getKeywords());
+                            return buildAggregation(e);
                         }
                     }));
 
@@ -170,6 +294,11 @@ public class CoreQueryManager implements QueryManager {
         });
     }
 
+    @Override
+    public List<SlowQuery> slowQueries() {
+        return slowQueryLog.entries();
+    }
+
     @Override
     public AsyncFuture<Void> initialized() {
         return cluster.initialized();
@@ -181,8 +310,63 @@ public class CoreQueryManager implements QueryManager {
 
         @Override
         public AsyncFuture<QueryResult> query(Query q) {
-            final List<AsyncFuture<QueryResultPart>> futures = new ArrayList<>();
+            final Plan plan = plan(q);
+
+            return queryCache.load(plan.getSource(), plan.getFilter(), plan.getRange(),
+                plan.getAggregation(), plan.getOptions(), () -> execute(plan));
+        }
+
+        @Override
+        public AsyncFuture<List<QueryResult>> queryBatch(final List<Query> queries) {
+            final List<AsyncFuture<QueryResult>> results = new ArrayList<>(queries.size());
+
+            final List<Plan> pending = new ArrayList<>();
+            final List<ResolvableFuture<QueryResult>> pendingResults = new ArrayList<>();
+
+            for (final Query q : queries) {
+                final Plan plan = plan(q);
+
+                /* the cache calls the loader immediately if the query is not cached, which lets
+                 * all queries that need to be performed be sent to the shards together */
+                results.add(queryCache.load(plan.getSource(), plan.getFilter(), plan.getRange(),
+                    plan.getAggregation(), plan.getOptions(), () -> {
+                        final ResolvableFuture<QueryResult> result = async.future();
+                        pending.add(plan);
+                        pendingResults.add(result);
+                        return result;
+                    }));
+            }
+
+            if (!pending.isEmpty()) {
+                executeBatch(pending, pendingResults);
+            }
+
+            final AsyncFuture<List<QueryResult>> future =
+                async.collectAndDiscard(results).directTransform(ignore -> {
+                    final List<QueryResult> collected = new ArrayList<>(results.size());
+
+                    for (final AsyncFuture<QueryResult> result : results) {
+                        collected.add(result.getNow());
+                    }
+
+                    return collected;
+                });
+
+            future.onCancelled(() -> {
+                for (final AsyncFuture<QueryResult> result : results) {
+                    result.cancel();
+                }
+            });
 
+            return future;
+        }
+
+        @Override
+        public List<ClusterShardGroup> shards() {
+            return shards;
+        }
+
+        private Plan plan(final Query q) {
             final MetricType source = q.getSource().orElse(MetricType.POINT);
 
             final QueryOptions options = q.getOptions().orElseGet(QueryOptions::defaults);
@@ -195,38 +379,280 @@ public class CoreQueryManager implements QueryManager {
 
             final Filter filter = q.getFilter().orElseGet(TrueFilter::get);
 
-            final AggregationContext context = new DefaultAggregationContext(cadence);
-            final AggregationInstance root = aggregation.apply(context);
+            final AggregationInstance root = applyAggregation(aggregation, cadence);
 
             final AggregationInstance aggregationInstance;
-            final AggregationCombiner combiner;
+            final AggregationCombiner rootCombiner;
 
             if (features.contains(Query.DISTRIBUTED_AGGREGATIONS) ||
                 q.hasFeature(Query.DISTRIBUTED_AGGREGATIONS)) {
                 aggregationInstance = root.distributed();
-                combiner = root.combiner(range);
+                rootCombiner = root.combiner(range);
             } else {
                 aggregationInstance = root;
-                combiner = AggregationCombiner.DEFAULT;
+                rootCombiner = AggregationCombiner.DEFAULT;
             }
 
-            return queryCache.load(source, filter, range, aggregationInstance, options, () -> {
-                for (final ClusterShardGroup shard : shards) {
-                    final AsyncFuture<QueryResultPart> queryPart = shard
-                        .apply(g -> g.query(source, filter, range, aggregationInstance, options))
+            final AggregationCombiner combiner = all -> {
+                final long start = System.nanoTime();
+
+                try {
+                    return rootCombiner.combine(all, combinePool);
+                } finally {
+                    reporter.reportCombine(System.nanoTime() - start);
+                }
+            };
+
+            final Optional<Duration> deadline = options.getDeadline();
+
+            /* shards get a shorter deadline, so that their partial results arrive in time */
+            final QueryOptions shardOptions = deadline
+                .map(d -> options.withDeadline(Duration.ofMilliseconds(
+                    (long) (d.toMilliseconds() * SHARD_DEADLINE_FRACTION))))
+                .orElse(options);
+
+            return new Plan(source, filter, range, aggregationInstance, combiner, options,
+                shardOptions);
+        }
+
+        private AsyncFuture<QueryResult> execute(final Plan plan) {
+            final long started = System.nanoTime();
+            final List<AsyncFuture<QueryResultPart>> futures = new ArrayList<>();
+
+            for (final ClusterShardGroup shard : shards) {
+                final AsyncFuture<ResultGroups> request = shard.apply(
+                    g -> g.query(plan.getSource(), plan.getFilter(), plan.getRange(),
+                        plan.getAggregation(), plan.getShardOptions()));
+
+                final AsyncFuture<QueryResultPart> queryPart =
+                    withDeadline(request, plan.getOptions().getDeadline(),
+                        () -> ResultGroups.partial(QUERY_NODE))
                         .catchFailed(ResultGroups.shardError(QUERY_NODE, shard))
                         .directTransform(QueryResultPart.fromResultGroup(shard));
 
-                    futures.add(queryPart);
-                }
+                futures.add(queryPart);
+            }
+
+            final AsyncFuture<QueryResult> result = async.collect(futures,
+                QueryResult.collectParts(QUERY, plan.getRange(), plan.getCombiner()));
 
-                return async.collect(futures, QueryResult.collectParts(QUERY, range, combiner));
+            /* stop all shard requests if the query is abandoned */
+            result.onCancelled(() -> {
+                for (final AsyncFuture<QueryResultPart> part : futures) {
+                    part.cancel();
+                }
             });
+
+            result.onDone(logIfSlow(plan, started));
+            return result;
         }
 
-        @Override
-        public List<ClusterShardGroup> shards() {
-            return shards;
+        /**
+         * Send the given queries to every shard as a single batch, and complete the given results
+         * as the responses arrive.
+         * <p>
+         * Shard requests are only stopped once every query in the batch has been abandoned.
+         */
+        private void executeBatch(
+            final List<Plan> plans, final List<ResolvableFuture<QueryResult>> results
+        ) {
+            final long started = System.nanoTime();
+            final int size = plans.size();
+
+            final List<FullQuery> queries = new ArrayList<>(size);
+            final List<List<AsyncFuture<QueryResultPart>>> parts = new ArrayList<>(size);
+
+            for (final Plan plan : plans) {
+                queries.add(new FullQuery(plan.getSource(), plan.getFilter(), plan.getRange(),
+                    plan.getAggregation(), plan.getShardOptions()));
+                parts.add(new ArrayList<>());
+            }
+
+            final Optional<Duration> deadline = batchDeadline(plans);
+            final List<AsyncFuture<List<FullQuery.Result>>> requests = new ArrayList<>();
+
+            for (final ClusterShardGroup shard : shards) {
+                final AsyncFuture<List<FullQuery.Result>> request =
+                    withDeadline(shard.apply(g -> g.queryBatch(queries)), deadline, () -> {
+                        final List<FullQuery.Result> partial = new ArrayList<>(size);
+                        final ResultGroups empty = ResultGroups.partial(QUERY_NODE);
+
+                        for (int i = 0; i < size; i++) {
+                            partial.add(FullQuery.Result.resolved(empty));
+                        }
+
+                        return partial;
+                    });
+
+                requests.add(request);
+
+                final Transform<Throwable, ResultGroups> shardError =
+                    ResultGroups.shardError(QUERY_NODE, shard);
+
+                for (int i = 0; i < size; i++) {
+                    final int index = i;
+
+                    parts.get(i).add(request
+                        .directTransform(r -> r.get(index).toResultGroups(shardError))
+                        .catchFailed(shardError)
+                        .directTransform(QueryResultPart.fromResultGroup(shard)));
+                }
+            }
+
+            final AtomicInteger remaining = new AtomicInteger(size);
+
+            for (int i = 0; i < size; i++) {
+                final Plan plan = plans.get(i);
+                final ResolvableFuture<QueryResult> result = results.get(i);
+
+                forward(async.collect(parts.get(i),
+                    QueryResult.collectParts(QUERY, plan.getRange(), plan.getCombiner())), result);
+
+                result.onDone(logIfSlow(plan, started));
+
+                result.onCancelled(() -> {
+                    if (remaining.decrementAndGet() == 0) {
+                        for (final AsyncFuture<List<FullQuery.Result>> request : requests) {
+                            request.cancel();
+                        }
+                    }
+                });
+            }
+        }
+
+        /**
+         * Add the given query to the slow-query log once it is done, if it took long enough.
+         * <p>
+         * Queries that failed or were cancelled (for example when the client timed out) are
+         * logged with the cause, since they are often the slowest ones.
+         */
+        private FutureDone<QueryResult> logIfSlow(final Plan plan, final long started) {
+            return new FutureDone<QueryResult>() {
+                @Override
+                public void failed(final Throwable cause) throws Exception {
+                    logIfSlow(plan, started, Optional.empty(),
+                        Optional.of("failed: " + cause.toString()));
+                }
+
+                @Override
+                public void resolved(final QueryResult result) throws Exception {
+                    logIfSlow(plan, started, Optional.of(result), Optional.empty());
+                }
+
+                @Override
+                public void cancelled() throws Exception {
+                    logIfSlow(plan, started, Optional.empty(), Optional.of("cancelled"));
+                }
+            };
+        }
+
+        /**
+         * Resource usage is summed from the statistics reported by each shard, which are only
+         * available if the query completed.
+         */
+        private void logIfSlow(
+            final Plan plan, final long started, final Optional<QueryResult> result,
+            final Optional<String> failure
+        ) {
+            final long duration =
+                TimeUnit.MILLISECONDS.convert(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+            if (!slowQueryLog.isSlow(duration)) {
+                return;
+            }
+
+            final List<ShardTrace> traces =
+                result.map(QueryResult::getTraces).orElseGet(ImmutableList::of);
+
+            Statistics s = Statistics.empty();
+
+            for (final ShardTrace trace : traces) {
+                s = s.merge(trace.getStatistics());
+            }
+
+            slowQueryLog.log(new SlowQuery(System.currentTimeMillis(), duration,
+                plan.getSource(), plan.getFilter().toDSL(), plan.getAggregation().toString(),
+                plan.getRange(), s.get(QueryAdmissionController.SERIES, 0L),
+                plan.getAggregation().estimate(plan.getRange()),
+                s.get(QueryAdmissionController.ESTIMATED_COST, 0L),
+                s.get(QueryAdmissionController.POINTS_READ, 0L),
+                s.get(QueryAdmissionController.BYTES_READ, 0L),
+                result.map(QueryResult::isPartial).orElse(false),
+                result.map(QueryResult::getErrors).orElseGet(ImmutableList::of), failure, traces,
+                result.map(QueryResult::getTrace).orElseGet(() -> new QueryTrace(QUERY))));
+        }
+
+        /**
+         * The deadline of a batch is the longest deadline of its queries, the shards still honor
+         * the deadline of each individual query.
+         */
+        private Optional<Duration> batchDeadline(final List<Plan> plans) {
+            Optional<Duration> deadline = Optional.empty();
+
+            for (final Plan plan : plans) {
+                final Optional<Duration> d = plan.getOptions().getDeadline();
+
+                if (!d.isPresent()) {
+                    return Optional.empty();
+                }
+
+                if (!deadline.isPresent() ||
+                    d.get().toMilliseconds() > deadline.get().toMilliseconds()) {
+                    deadline = d;
+                }
+            }
+
+            return deadline;
+        }
+
+        /**
+         * Bound the given shard request by the query deadline.
+         * <p>
+         * If the shard has not responded by the time the deadline expires, the request is aborted
+         * and the shard is reported as a partial (empty) result.
+         */
+        private <T> AsyncFuture<T> withDeadline(
+            final AsyncFuture<T> request, final Optional<Duration> deadline,
+            final Supplier<T> partial
+        ) {
+            if (!deadline.isPresent()) {
+                return request;
+            }
+
+            final ResolvableFuture<T> bounded = async.future();
+            bounded.onCancelled(request::cancel);
+
+            final ScheduledFuture<?> timeout =
+                scheduler.schedule("query-deadline", deadline.get().toMilliseconds(),
+                    TimeUnit.MILLISECONDS, () -> {
+                        if (bounded.resolve(partial.get())) {
+                            request.cancel();
+                        }
+                    });
+
+            /* don't keep the request around until the deadline if it completes before it */
+            bounded.onFinished(() -> timeout.cancel(false));
+            forward(request, bounded);
+            return bounded;
+        }
+
+        private <T> void forward(final AsyncFuture<T> from, final ResolvableFuture<T> to) {
+            from.onDone(new FutureDone<T>() {
+                @Override
+                public void failed(final Throwable cause) throws Exception {
+                    to.fail(cause);
+                }
+
+                @Override
+                public void resolved(final T result) throws Exception {
+                    to.resolve(result);
+                }
+
+                @Override
+                public void cancelled() throws Exception {
+                    to.cancel();
+                }
+            });
         }
 
         private Duration buildCadence(final Aggregation aggregation, final DateRange rawRange) {
@@ -246,6 +672,50 @@ public class CoreQueryManager implements QueryManager {
         }
     }
 
+    @Data
+    private static class Plan {
+        private final MetricType source;
+        private final Filter filter;
+        private final DateRange range;
+        private final AggregationInstance aggregation;
+        private final AggregationCombiner combiner;
+        private final QueryOptions options;
+        private final QueryOptions shardOptions;
+    }
+
+    /**
+     * Identifies a function expression by its name and the representation of its arguments, since
+     * expressions compare equal only if they are at the same position in the query text.
+     */
+    @Data
+    static class FunctionKey {
+        private final String name;
+        private final List<String> arguments;
+        private final Map<String, String> keywords;
+
+        static FunctionKey of(final FunctionExpression e) {
+            final List<String> arguments = new ArrayList<>(e.getArguments().size());
+
+            for (final Expression a : e.getArguments()) {
+                arguments.add(a.toRepr());
+            }
+
+            final Map<String, String> keywords = new HashMap<>(e.getKeywords().size());
+
+            for (final Map.Entry<String, Expression> k : e.getKeywords().entrySet()) {
+                keywords.put(k.getKey(), k.getValue().toRepr());
+            }
+
+            return new FunctionKey(e.getName(), arguments, keywords);
+        }
+    }
+
+    @Data
+    private static class AggregationKey {
+        private final Aggregation aggregation;
+        private final Duration cadence;
+    }
+
     private static final SortedSet<Long> INTERVAL_FACTORS =
         ImmutableSortedSet.of(TimeUnit.MILLISECONDS.convert(1, TimeUnit.MILLISECONDS),
             TimeUnit.MILLISECONDS.convert(5, TimeUnit.MILLISECONDS),
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.common.Duration;
+import com.spotify.heroic.lifecycle.LifeCycle;
+import com.spotify.heroic.lifecycle.LifeCycleManager;
+import com.spotify.heroic.statistics.HeroicReporter;
+import com.spotify.heroic.statistics.QueryReporter;
+import dagger.Module;
+import eu.toolchain.async.AsyncFramework;
+import dagger.Provides;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+import javax.inject.Named;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static com.spotify.heroic.common.Optionals.pickOptional;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+@Module
+@RequiredArgsConstructor
+public class CoreQueryModule {
+    public static final Duration DEFAULT_SLOW_QUERY_THRESHOLD = Duration.of(10, TimeUnit.SECONDS);
+    public static final int DEFAULT_SLOW_QUERY_LOG_SIZE = 100;
+    public static final long DEFAULT_SLOW_QUERY_LOG_MAX_FILE_SIZE = 100L * 1024L * 1024L;
+    public static final int DEFAULT_SLOW_QUERY_LOG_MAX_FILES = 5;
+    public static final int DEFAULT_COMBINE_PARALLELISM =
+        Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Queries taking at least this long are added to the slow-query log.
+     */
+    private final Optional<Duration> slowQueryThreshold;
+    private final int slowQueryLogSize;
+    private final Optional<Path> slowQueryLogFile;
+    private final long slowQueryLogMaxFileSize;
+    private final int slowQueryLogMaxFiles;
+
+    /**
+     * Number of threads used to combine the results of all shards.
+     */
+    private final int combineParallelism;
+
+    @Provides
+    @QueryScope
+    public QueryReporter reporter(HeroicReporter reporter) {
+        return reporter.newQueryReporter();
+    }
+
+    @Provides
+    @QueryScope
+    public SlowQueryLog slowQueryLog(
+        final AsyncFramework async,
+        @Named(HeroicCore.APPLICATION_JSON_INTERNAL) final ObjectMapper mapper
+    ) {
+        final long threshold = slowQueryThreshold.map(Duration::toMilliseconds).orElse(-1L);
+        return new SlowQueryLog(async, threshold, slowQueryLogSize, slowQueryLogFile,
+            slowQueryLogMaxFileSize, slowQueryLogMaxFiles, mapper);
+    }
+
+    @Provides
+    @QueryScope
+    @Named("query")
+    public LifeCycle queryLife(
+        final LifeCycleManager manager, final AsyncFramework async,
+        final SlowQueryLog slowQueryLog, @Named("combine") final ForkJoinPool combinePool
+    ) {
+        // @formatter:off
+        return LifeCycle.combined(ImmutableList.of(
+            manager.build(slowQueryLog),
+            manager.build(registry -> registry.stop(() -> async.call(() -> {
+                /* let combines of in-flight queries finish */
+                combinePool.shutdown();
+                combinePool.awaitTermination(10, TimeUnit.SECONDS);
+                return null;
+            })))
+        ));
+        // @formatter:on
+    }
+
+    @Provides
+    @QueryScope
+    @Named("combine")
+    public ForkJoinPool combinePool() {
+        return new ForkJoinPool(combineParallelism);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    @AllArgsConstructor
+    public static class Builder {
+        private Optional<Boolean> slowQueryLog = empty();
+        private Optional<Duration> slowQueryThreshold = empty();
+        private Optional<Integer> slowQueryLogSize = empty();
+        private Optional<String> slowQueryLogFile = empty();
+        private Optional<Long> slowQueryLogMaxFileSize = empty();
+        private Optional<Integer> slowQueryLogMaxFiles = empty();
+        private Optional<Integer> combineParallelism = empty();
+
+        public Builder slowQueryLog(final boolean slowQueryLog) {
+            this.slowQueryLog = of(slowQueryLog);
+            return this;
+        }
+
+        public Builder slowQueryThreshold(final Duration slowQueryThreshold) {
+            this.slowQueryThreshold = of(slowQueryThreshold);
+            return this;
+        }
+
+        public Builder slowQueryLogSize(final int slowQueryLogSize) {
+            this.slowQueryLogSize = of(slowQueryLogSize);
+            return this;
+        }
+
+        public Builder slowQueryLogFile(final String slowQueryLogFile) {
+            this.slowQueryLogFile = of(slowQueryLogFile);
+            return this;
+        }
+
+        public Builder slowQueryLogMaxFileSize(final long slowQueryLogMaxFileSize) {
+            this.slowQueryLogMaxFileSize = of(slowQueryLogMaxFileSize);
+            return this;
+        }
+
+        public Builder slowQueryLogMaxFiles(final int slowQueryLogMaxFiles) {
+            this.slowQueryLogMaxFiles = of(slowQueryLogMaxFiles);
+            return this;
+        }
+
+        public Builder combineParallelism(final int combineParallelism) {
+            this.combineParallelism = of(combineParallelism);
+            return this;
+        }
+
+        public Builder merge(final Builder o) {
+            // @formatter:off
+            return new Builder(
+                pickOptional(slowQueryLog, o.slowQueryLog),
+                pickOptional(slowQueryThreshold, o.slowQueryThreshold),
+                pickOptional(slowQueryLogSize, o.slowQueryLogSize),
+                pickOptional(slowQueryLogFile, o.slowQueryLogFile),
+                pickOptional(slowQueryLogMaxFileSize, o.slowQueryLogMaxFileSize),
+                pickOptional(slowQueryLogMaxFiles, o.slowQueryLogMaxFiles),
+                pickOptional(combineParallelism, o.combineParallelism)
+            );
+            // @formatter:on
+        }
+
+        public CoreQueryModule build() {
+            final Optional<Duration> threshold = slowQueryLog.orElse(true) ? of(
+                slowQueryThreshold.orElse(DEFAULT_SLOW_QUERY_THRESHOLD)) : empty();
+
+            // @formatter:off
+            return new CoreQueryModule(
+                threshold,
+                slowQueryLogSize.orElse(DEFAULT_SLOW_QUERY_LOG_SIZE),
+                slowQueryLogFile.map(Paths::get),
+                slowQueryLogMaxFileSize.orElse(DEFAULT_SLOW_QUERY_LOG_MAX_FILE_SIZE),
+                slowQueryLogMaxFiles.orElse(DEFAULT_SLOW_QUERY_LOG_MAX_FILES),
+                Math.max(combineParallelism.orElse(DEFAULT_COMBINE_PARALLELISM), 1)
+            );
+            // @formatter:on
+        }
+    }
+}
@@ -114,6 +114,7 @@ public class HeroicConfig {
     private final AnalyticsModule analytics;
     private final CoreGeneratorModule generator;
     private final StatisticsModule statistics;
+    private final CoreQueryModule query;
 
     private final String version;
     private final String service;
@@ -193,6 +194,7 @@ public class HeroicConfig {
         private Optional<AnalyticsModule.Builder> analytics = empty();
         private Optional<CoreGeneratorModule.Builder> generator = empty();
         private Optional<StatisticsModule> statistics = empty();
+        private Optional<CoreQueryModule.Builder> query = empty();
 
         private Optional<String> version = empty();
         private Optional<String> service = empty();
@@ -278,6 +280,11 @@ public class HeroicConfig {
             return this;
         }
 
+        public Builder query(CoreQueryModule.Builder query) {
+            this.query = of(query);
+            return this;
+        }
+
         public Builder shellServer(ShellServerModule.Builder shellServer) {
             this.shellServer = of(shellServer);
             return this;
@@ -307,6 +314,7 @@ public class HeroicConfig {
                 pickOptional(analytics, o.analytics),
                 mergeOptional(generator, o.generator, CoreGeneratorModule.Builder::merge),
                 pickOptional(statistics, o.statistics),
+                mergeOptional(query, o.query, CoreQueryModule.Builder::merge),
                 pickOptional(service, o.service),
                 pickOptional(version, o.version)
             );
@@ -346,6 +354,7 @@ public class HeroicConfig {
                 analytics.map(AnalyticsModule.Builder::build).orElseGet(NullAnalyticsModule::new),
                 generator.orElseGet(CoreGeneratorModule::builder).build(),
                 statistics.orElseGet(NoopStatisticsModule::new),
+                query.orElseGet(CoreQueryModule::builder).build(),
                 version.orElse(defaultVersion),
                 service.orElse(DEFAULT_SERVICE)
             );
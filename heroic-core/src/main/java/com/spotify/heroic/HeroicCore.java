@@ -420,6 +420,7 @@ public class HeroicCore implements HeroicConfiguration {
 
         final QueryComponent query = DaggerCoreQueryComponent
             .builder()
+            .coreQueryModule(config.getQuery())
             .corePrimaryComponent(primary)
             .clusterComponent(cluster)
             .cacheComponent(cache)
@@ -56,6 +56,8 @@ import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.MetricTypeSerialization;
 import com.spotify.heroic.metric.Point;
 import com.spotify.heroic.metric.PointSerialization;
+import com.spotify.heroic.metric.Sketch;
+import com.spotify.heroic.metric.SketchSerialization;
 import com.spotify.heroic.metric.Spread;
 import com.spotify.heroic.metric.SpreadSerialization;
 import com.spotify.heroic.statistics.StatisticsModule;
@@ -135,6 +137,9 @@ public final class HeroicMappers {
         module.addSerializer(MetricGroup.class, new MetricGroupSerialization.Serializer());
         module.addDeserializer(MetricGroup.class, new MetricGroupSerialization.Deserializer());
 
+        module.addSerializer(Sketch.class, new SketchSerialization.Serializer());
+        module.addDeserializer(Sketch.class, new SketchSerialization.Deserializer());
+
         module.addSerializer(MetricCollection.class,
             new MetricCollectionSerialization.Serializer());
         module.addDeserializer(MetricCollection.class,
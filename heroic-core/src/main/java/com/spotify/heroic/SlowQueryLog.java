@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.spotify.heroic.lifecycle.LifeCycleRegistry;
+import com.spotify.heroic.lifecycle.LifeCycles;
+import com.spotify.heroic.metric.SlowQuery;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most recent queries that took longer than a threshold to complete.
+ * <p>
+ * Entries are kept in a bounded in-memory buffer, and are optionally appended as JSON lines to a
+ * local file. The file is rotated once it grows beyond a maximum size, keeping a fixed number of
+ * old files around as {@code <file>.1} through {@code <file>.<n>}.
+ * <p>
+ * Entries are handed to a single background writer through a bounded queue, so that logging a
+ * query never blocks on the file. Entries are dropped if the writer falls too far behind.
+ */
+@Slf4j
+@ToString(of = {"threshold", "size", "path"})
+public class SlowQueryLog implements LifeCycles {
+    /**
+     * The maximum number of entries waiting to be written to the file.
+     */
+    public static final int QUEUE_SIZE = 1000;
+
+    private final AsyncFramework async;
+    private final long threshold;
+    private final int size;
+    private final Optional<Path> path;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final ObjectMapper mapper;
+
+    private final Object lock = new Object();
+    private final Deque<SlowQuery> entries = new ArrayDeque<>();
+
+    private final BlockingQueue<SlowQuery> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile ExecutorService writer;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param threshold Queries taking at least this many milliseconds are logged, a negative
+     * value disables the log.
+     * @param size The maximum number of entries kept in memory.
+     * @param path File to append entries to, if any.
+     * @param maxFileSize The size in bytes at which the file is rotated.
+     * @param maxFiles The number of rotated files to keep.
+     */
+    public SlowQueryLog(
+        final AsyncFramework async, final long threshold, final int size,
+        final Optional<Path> path, final long maxFileSize, final int maxFiles,
+        final ObjectMapper mapper
+    ) {
+        this.async = async;
+        this.threshold = threshold;
+        this.size = size;
+        this.path = path;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void register(LifeCycleRegistry registry) {
+        registry.start(this::start);
+        registry.stop(this::stop);
+    }
+
+    /**
+     * Check if a query that took the given number of milliseconds should be logged.
+     */
+    public boolean isSlow(final long duration) {
+        return threshold >= 0 && duration >= threshold;
+    }
+
+    public void log(final SlowQuery query) {
+        synchronized (lock) {
+            if (size > 0) {
+                if (entries.size() >= size) {
+                    entries.removeFirst();
+                }
+
+                entries.addLast(query);
+            }
+        }
+
+        if (path.isPresent() && !queue.offer(query)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * The logged queries, most recent first.
+     */
+    public List<SlowQuery> entries() {
+        final ImmutableList.Builder<SlowQuery> result = ImmutableList.builder();
+
+        synchronized (lock) {
+            entries.descendingIterator().forEachRemaining(result::add);
+        }
+
+        return result.build();
+    }
+
+    AsyncFuture<Void> start() {
+        return async.call(() -> {
+            if (!path.isPresent()) {
+                return null;
+            }
+
+            final Path p = path.get();
+
+            writer = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("heroic-slow-query-log").build());
+
+            /* polls, since interrupting the writer could abort a write half-way */
+            writer.execute(() -> {
+                try {
+                    while (!stopped) {
+                        final SlowQuery query = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                        if (query != null) {
+                            write(p, query);
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    log.warn("Slow query writer interrupted");
+                }
+            });
+
+            return null;
+        });
+    }
+
+    /**
+     * Stop the writer, and write the entries which are still queued.
+     */
+    AsyncFuture<Void> stop() {
+        return async.call(() -> {
+            stopped = true;
+
+            if (writer != null) {
+                writer.shutdown();
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            }
+
+            path.ifPresent(p -> {
+                SlowQuery query;
+
+                while ((query = queue.poll()) != null) {
+                    write(p, query);
+                }
+            });
+
+            return null;
+        });
+    }
+
+    /**
+     * Called by the writer, or when stopping. Synchronized in case the writer did not terminate
+     * in time, which is otherwise uncontended.
+     */
+    private synchronized void write(final Path p, final SlowQuery query) {
+        final long lost = dropped.getAndSet(0L);
+
+        if (lost > 0) {
+            log.warn("Dropped {} slow queries, since writing them to {} fell behind", lost, p);
+        }
+
+        final byte[] line;
+
+        try {
+            line = (mapper.writeValueAsString(query) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            log.error("Failed to serialize slow query: {}", query, e);
+            return;
+        }
+
+        try {
+            if (Files.exists(p) && Files.size(p) + line.length > maxFileSize) {
+                rotate(p);
+            }
+
+            Files.write(p, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (final IOException e) {
+            log.error("Failed to write slow query to {}", p, e);
+        }
+    }
+
+    private void rotate(final Path p) throws IOException {
+        if (maxFiles <= 0) {
+            Files.delete(p);
+            return;
+        }
+
+        Files.deleteIfExists(rotated(p, maxFiles));
+
+        for (int i = maxFiles - 1; i > 0; i--) {
+            final Path from = rotated(p, i);
+
+            if (Files.exists(from)) {
+                Files.move(from, rotated(p, i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        Files.move(p, rotated(p, 1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Path rotated(final Path p, final int index) {
+        return p.resolveSibling(p.getFileName() + "." + index);
+    }
+}
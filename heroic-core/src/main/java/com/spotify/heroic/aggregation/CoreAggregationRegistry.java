@@ -75,6 +75,25 @@ public class CoreAggregationRegistry implements AggregationRegistry {
         }
     }
 
+    @Override
+    public <I extends AggregationInstance> void registerInstance(
+        final String id, final Class<I> instanceType
+    ) {
+        synchronized (lock) {
+            if (instanceMap.containsKey(instanceType)) {
+                throw new IllegalArgumentException("An aggregation instance with the same type (" +
+                    instanceType.getCanonicalName() + ") is already registered");
+            }
+
+            if (instanceMap.containsValue(id) || builderMap.containsKey(id)) {
+                throw new IllegalArgumentException("An aggregation with the same id (" + id +
+                    ") is already registered");
+            }
+
+            instanceMap.put(instanceType, id);
+        }
+    }
+
     public Module module() {
         final SimpleModule m = new SimpleModule("aggregationRegistry");
 
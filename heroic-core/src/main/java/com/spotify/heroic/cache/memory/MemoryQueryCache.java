@@ -29,23 +29,30 @@ import com.spotify.heroic.common.DateRange;
 import com.spotify.heroic.filter.Filter;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.QueryResult;
+import eu.toolchain.async.AsyncFramework;
 import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.FutureDone;
+import eu.toolchain.async.ResolvableFuture;
 import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import net.jodah.expiringmap.ExpirationPolicy;
 import net.jodah.expiringmap.ExpiringMap;
 
 import javax.inject.Inject;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 @CacheScope
 public class MemoryQueryCache implements QueryCache {
-    private final ExpiringMap<Key, AsyncFuture<QueryResult>> cache;
+    private final AsyncFramework async;
+    private final ExpiringMap<Key, Entry> cache;
 
     private final Object lock = new Object();
 
     @Inject
-    public MemoryQueryCache() {
+    public MemoryQueryCache(final AsyncFramework async) {
+        this.async = async;
         this.cache = ExpiringMap.builder().variableExpiration().build();
     }
 
@@ -61,23 +68,79 @@ public class MemoryQueryCache implements QueryCache {
 
         final Key k = new Key(source, filter, range, aggregationInstance, options);
 
-        final AsyncFuture<QueryResult> result = cache.get(k);
+        final Entry result = cache.get(k);
 
         if (result != null) {
-            return result;
+            return result.view();
         }
 
         synchronized (lock) {
-            final AsyncFuture<QueryResult> candidate = cache.get(k);
+            final Entry candidate = cache.get(k);
 
             if (candidate != null) {
-                return candidate;
+                return candidate.view();
             }
 
-            final AsyncFuture<QueryResult> next = loader.get();
+            final Entry next = new Entry(k, loader.get());
             cache.put(k, next, ExpirationPolicy.ACCESSED, aggregationInstance.cadence(),
                 TimeUnit.MILLISECONDS);
-            return next;
+
+            /* a partial result is only good for the callers already waiting on it */
+            next.shared.onResolved(r -> {
+                if (r.isPartial()) {
+                    synchronized (lock) {
+                        cache.remove(k, next);
+                    }
+                }
+            });
+
+            return next.view();
+        }
+    }
+
+    /**
+     * A cached query shared between all callers.
+     * <p>
+     * Every caller is handed a separate view of the shared query, so that one caller cancelling
+     * does not affect the others. The shared query is only cancelled (and evicted) when all views
+     * of it have been cancelled before it completed.
+     */
+    @RequiredArgsConstructor
+    private class Entry {
+        private final Key key;
+        private final AsyncFuture<QueryResult> shared;
+        private final AtomicInteger views = new AtomicInteger();
+
+        AsyncFuture<QueryResult> view() {
+            final ResolvableFuture<QueryResult> view = async.future();
+            views.incrementAndGet();
+
+            shared.onDone(new FutureDone<QueryResult>() {
+                @Override
+                public void failed(final Throwable cause) throws Exception {
+                    view.fail(cause);
+                }
+
+                @Override
+                public void resolved(final QueryResult result) throws Exception {
+                    view.resolve(result);
+                }
+
+                @Override
+                public void cancelled() throws Exception {
+                    view.cancel();
+                }
+            });
+
+            view.onCancelled(() -> {
+                if (views.decrementAndGet() <= 0 && shared.cancel()) {
+                    synchronized (lock) {
+                        cache.remove(key, this);
+                    }
+                }
+            });
+
+            return view;
         }
     }
 
@@ -118,7 +118,7 @@ public class ClusterManagerModule {
         @Provides
         @ClusterScope
         public NodeMetadata localMetadata(final ServiceInfo service) {
-            return new NodeMetadata(0, id, tags, capabilities, service);
+            return new NodeMetadata(NodeMetadata.VERSION, id, tags, capabilities, service);
         }
 
         @Provides
@@ -33,6 +33,7 @@ import com.spotify.heroic.metadata.DeleteSeries;
 import com.spotify.heroic.metadata.FindKeys;
 import com.spotify.heroic.metadata.FindSeries;
 import com.spotify.heroic.metadata.FindTags;
+import com.spotify.heroic.metric.FullQuery;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.QueryTrace;
 import com.spotify.heroic.metric.ResultGroups;
@@ -46,6 +47,7 @@ import com.spotify.heroic.suggest.TagValueSuggest;
 import com.spotify.heroic.suggest.TagValuesSuggest;
 import eu.toolchain.async.AsyncFramework;
 import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.Transform;
 import lombok.RequiredArgsConstructor;
 
 import java.util.ArrayList;
@@ -88,6 +90,50 @@ public class CoreClusterNodeGroup implements ClusterNodeGroup {
         return async.collect(futures, ResultGroups.collect(QUERY));
     }
 
+    @Override
+    public AsyncFuture<List<FullQuery.Result>> queryBatch(List<FullQuery> queries) {
+        final List<AsyncFuture<List<ResultGroups>>> futures = new ArrayList<>(entries.size());
+
+        for (final ClusterShardGroup c : entries) {
+            final Transform<Throwable, ResultGroups> shardError =
+                ResultGroups.shardError(QUERY_NODE, c);
+
+            futures.add(c.apply(g -> g.queryBatch(queries)).directTransform(results -> {
+                final List<ResultGroups> groups = new ArrayList<>(results.size());
+
+                for (final FullQuery.Result r : results) {
+                    groups.add(r.toResultGroups(shardError));
+                }
+
+                return groups;
+            }).catchFailed(e -> {
+                final List<ResultGroups> groups = new ArrayList<>(queries.size());
+
+                for (int i = 0; i < queries.size(); i++) {
+                    groups.add(shardError.transform(e));
+                }
+
+                return groups;
+            }));
+        }
+
+        return async.collectAndDiscard(futures).directTransform(ignore -> {
+            final List<FullQuery.Result> results = new ArrayList<>(queries.size());
+
+            for (int i = 0; i < queries.size(); i++) {
+                final List<ResultGroups> parts = new ArrayList<>(futures.size());
+
+                for (final AsyncFuture<List<ResultGroups>> shard : futures) {
+                    parts.add(shard.getNow().get(i));
+                }
+
+                results.add(FullQuery.Result.resolved(ResultGroups.collect(QUERY).collect(parts)));
+            }
+
+            return results;
+        });
+    }
+
     @Override
     public AsyncFuture<FindTags> findTags(RangeFilter filter) {
         final List<AsyncFuture<FindTags>> futures = new ArrayList<>(entries.size());
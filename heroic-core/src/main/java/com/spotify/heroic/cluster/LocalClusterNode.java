@@ -35,6 +35,7 @@ import com.spotify.heroic.metadata.FindSeries;
 import com.spotify.heroic.metadata.FindTags;
 import com.spotify.heroic.metadata.MetadataBackend;
 import com.spotify.heroic.metadata.MetadataManager;
+import com.spotify.heroic.metric.FullQuery;
 import com.spotify.heroic.metric.MetricBackendGroup;
 import com.spotify.heroic.metric.MetricManager;
 import com.spotify.heroic.metric.MetricType;
@@ -115,6 +116,11 @@ public class LocalClusterNode implements ClusterNode {
             return metrics().query(source, filter, range, aggregation, options);
         }
 
+        @Override
+        public AsyncFuture<List<FullQuery.Result>> queryBatch(List<FullQuery> queries) {
+            return metrics().queryBatch(queries);
+        }
+
         @Override
         public AsyncFuture<FindTags> findTags(RangeFilter filter) {
             return metadata().findTags(filter);
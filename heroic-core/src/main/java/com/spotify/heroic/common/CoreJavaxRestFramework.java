@@ -30,6 +30,7 @@ import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.CompletionCallback;
 import javax.ws.rs.container.ConnectionCallback;
 import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 @Slf4j
@@ -58,6 +59,7 @@ public final class CoreJavaxRestFramework implements JavaxRestFramework {
                     .status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(new InternalErrorMessage(e.getMessage(),
                         Response.Status.INTERNAL_SERVER_ERROR))
+                    .type(MediaType.APPLICATION_JSON)
                     .build());
             }
 
@@ -73,11 +75,17 @@ public final class CoreJavaxRestFramework implements JavaxRestFramework {
 
             @Override
             public void cancelled() throws Exception {
+                /* cancelled because the client went away, or timed out */
+                if (response.isDone()) {
+                    return;
+                }
+
                 log.error("Request cancelled");
                 response.resume(Response
                     .status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(new InternalErrorMessage("request cancelled",
                         Response.Status.INTERNAL_SERVER_ERROR))
+                    .type(MediaType.APPLICATION_JSON)
                     .build());
             }
         });
@@ -90,6 +98,12 @@ public final class CoreJavaxRestFramework implements JavaxRestFramework {
             @Override
             public void handleTimeout(AsyncResponse asyncResponse) {
                 log.warn("Client timed out");
+                asyncResponse.resume(Response
+                    .status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(new InternalErrorMessage("request timed out",
+                        Response.Status.SERVICE_UNAVAILABLE))
+                    .type(MediaType.APPLICATION_JSON)
+                    .build());
                 callback.cancel();
             }
         });
@@ -34,6 +34,7 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.spotify.heroic.common.Series;
+import com.spotify.heroic.common.SeriesInterner;
 import com.spotify.heroic.consumer.ConsumerSchema;
 import com.spotify.heroic.consumer.ConsumerSchemaException;
 import com.spotify.heroic.consumer.ConsumerSchemaValidationException;
@@ -124,6 +125,7 @@ public class Spotify100 implements ConsumerSchema {
     public static class Consumer implements ConsumerSchema.Consumer {
         private final IngestionGroup ingestion;
         private final ConsumerReporter reporter;
+        private final SeriesInterner interner = new SeriesInterner();
 
         @Inject
         public Consumer(IngestionGroup ingestion, ConsumerReporter reporter) {
@@ -165,7 +167,7 @@ public class Spotify100 implements ConsumerSchema {
             final Map<String, String> tags = new HashMap<String, String>(metric.getAttributes());
             tags.put(HOST, metric.getHost());
 
-            final Series series = Series.of(metric.getKey(), tags);
+            final Series series = interner.intern(metric.getKey(), tags);
             final Point p = new Point(metric.getTime(), metric.getValue());
             final List<Point> points = ImmutableList.of(p);
 
@@ -28,6 +28,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.collect.ImmutableList;
 import com.spotify.heroic.common.DateRange;
 import com.spotify.heroic.common.Statistics;
+import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.QueryTrace;
 import com.spotify.heroic.metric.RequestError;
@@ -71,24 +72,37 @@ public class QueryMetricsResponse {
     @Getter
     private final QueryTrace trace;
 
+    /**
+     * Indicates that the query deadline was reached, and that the result is partial.
+     */
+    @Getter
+    private final boolean partial;
+
+    /**
+     * Serializes the response in a single pass over the result.
+     * <p>
+     * Groups are written as they are visited, and common tags are computed along the way and
+     * written after the result, so that nothing needs to be buffered. The serializer for the
+     * values of a group is resolved once per group, instead of once per value.
+     */
     public static class Serializer extends JsonSerializer<QueryMetricsResponse> {
         @Override
         public void serialize(
             QueryMetricsResponse response, JsonGenerator g, SerializerProvider provider
         ) throws IOException {
-            final List<ShardedResultGroup> result = response.getResult();
-            final Map<String, SortedSet<String>> common = calculateCommon(g, result);
-
             g.writeStartObject();
 
             g.writeObjectField("range", response.getRange());
             g.writeObjectField("trace", response.getTrace());
+            g.writeBooleanField("partial", response.isPartial());
 
-            g.writeFieldName("commonTags");
-            serializeCommonTags(g, common);
+            final CommonTags common = new CommonTags();
 
             g.writeFieldName("result");
-            serializeResult(g, common, result);
+            serializeResult(g, provider, common, response.getResult());
+
+            g.writeFieldName("commonTags");
+            serializeCommonTags(g, common.getCommon());
 
             g.writeFieldName("errors");
             serializeErrors(g, response.getErrors());
@@ -127,44 +141,10 @@ public class QueryMetricsResponse {
             g.writeEndArray();
         }
 
-        private Map<String, SortedSet<String>> calculateCommon(
-            final JsonGenerator g, final List<ShardedResultGroup> result
-        ) {
-            final Map<String, SortedSet<String>> common = new HashMap<>();
-            final Set<String> blacklist = new HashSet<>();
-
-            for (final ShardedResultGroup r : result) {
-                final Set<Map.Entry<String, SortedSet<String>>> entries =
-                    r.getSeries().getTags().entrySet();
-
-                for (final Map.Entry<String, SortedSet<String>> e : entries) {
-                    if (blacklist.contains(e.getKey())) {
-                        continue;
-                    }
-
-                    final SortedSet<String> previous = common.put(e.getKey(), e.getValue());
-
-                    if (previous == null) {
-                        continue;
-                    }
-
-                    if (previous.equals(e.getValue())) {
-                        continue;
-                    }
-
-                    blacklist.add(e.getKey());
-                    common.remove(e.getKey());
-                }
-            }
-
-            return common;
-        }
-
         private void serializeResult(
-            final JsonGenerator g, final Map<String, SortedSet<String>> common,
+            final JsonGenerator g, final SerializerProvider provider, final CommonTags common,
             final List<ShardedResultGroup> result
         ) throws IOException {
-
             g.writeStartArray();
 
             for (final ShardedResultGroup group : result) {
@@ -173,14 +153,18 @@ public class QueryMetricsResponse {
                 final MetricCollection collection = group.getGroup();
                 final SeriesValues series = group.getSeries();
 
+                common.update(series.getTags());
+
                 g.writeStringField("type", collection.getType().identifier());
                 g.writeStringField("hash", Integer.toHexString(group.hashCode()));
                 g.writeObjectField("shard", group.getShard());
                 g.writeNumberField("cadence", group.getCadence());
-                g.writeObjectField("values", collection.getData());
+
+                g.writeFieldName("values");
+                writeValues(g, provider, collection);
 
                 writeKey(g, series.getKeys());
-                writeTags(g, common, series.getTags());
+                writeTags(g, series.getTags());
                 writeTagCounts(g, series.getTags());
 
                 g.writeEndObject();
@@ -189,6 +173,22 @@ public class QueryMetricsResponse {
             g.writeEndArray();
         }
 
+        void writeValues(
+            final JsonGenerator g, final SerializerProvider provider,
+            final MetricCollection collection
+        ) throws IOException {
+            final JsonSerializer<Object> serializer =
+                provider.findValueSerializer(collection.getType().type());
+
+            g.writeStartArray();
+
+            for (final Metric m : collection.getData()) {
+                serializer.serialize(m, g, provider);
+            }
+
+            g.writeEndArray();
+        }
+
         void writeKey(JsonGenerator g, final SortedSet<String> keys) throws IOException {
             g.writeFieldName("key");
 
@@ -199,20 +199,13 @@ public class QueryMetricsResponse {
             }
         }
 
-        void writeTags(
-            JsonGenerator g, final Map<String, SortedSet<String>> common,
-            final Map<String, SortedSet<String>> tags
-        ) throws IOException {
+        void writeTags(JsonGenerator g, final Map<String, SortedSet<String>> tags)
+            throws IOException {
             g.writeFieldName("tags");
 
             g.writeStartObject();
 
             for (final Map.Entry<String, SortedSet<String>> pair : tags.entrySet()) {
-                // TODO: enable this when commonTags is used.
-                /*if (common.containsKey(pair.getKey())) {
-                    continue;
-                }*/
-
                 final SortedSet<String> values = pair.getValue();
 
                 if (values.size() != 1) {
@@ -244,4 +237,37 @@ public class QueryMetricsResponse {
             g.writeEndObject();
         }
     }
+
+    /**
+     * Incrementally computes the tags which have the same values in every group.
+     */
+    static class CommonTags {
+        private final Map<String, SortedSet<String>> common = new HashMap<>();
+        private final Set<String> blacklist = new HashSet<>();
+
+        void update(final Map<String, SortedSet<String>> tags) {
+            for (final Map.Entry<String, SortedSet<String>> e : tags.entrySet()) {
+                if (blacklist.contains(e.getKey())) {
+                    continue;
+                }
+
+                final SortedSet<String> previous = common.put(e.getKey(), e.getValue());
+
+                if (previous == null) {
+                    continue;
+                }
+
+                if (previous.equals(e.getValue())) {
+                    continue;
+                }
+
+                blacklist.add(e.getKey());
+                common.remove(e.getKey());
+            }
+        }
+
+        Map<String, SortedSet<String>> getCommon() {
+            return common;
+        }
+    }
 }
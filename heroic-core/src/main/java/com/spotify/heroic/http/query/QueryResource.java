@@ -27,10 +27,9 @@ import com.spotify.heroic.QueryBuilder;
 import com.spotify.heroic.QueryManager;
 import com.spotify.heroic.common.JavaxRestFramework;
 import com.spotify.heroic.metric.QueryResult;
-import eu.toolchain.async.AsyncFramework;
+import com.spotify.heroic.ws.ColumnarMessageBodyWriter;
 import eu.toolchain.async.AsyncFuture;
 import lombok.Data;
-import org.apache.commons.lang3.tuple.Pair;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
@@ -42,6 +41,7 @@ import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -55,18 +55,17 @@ import java.util.function.Supplier;
 public class QueryResource {
     private final JavaxRestFramework httpAsync;
     private final QueryManager query;
-    private final AsyncFramework async;
 
     @Inject
-    public QueryResource(JavaxRestFramework httpAsync, QueryManager query, AsyncFramework async) {
+    public QueryResource(JavaxRestFramework httpAsync, QueryManager query) {
         this.httpAsync = httpAsync;
         this.query = query;
-        this.async = async;
     }
 
     @POST
     @Path("metrics")
     @Consumes(MediaType.TEXT_PLAIN)
+    @Produces({MediaType.APPLICATION_JSON, ColumnarMessageBodyWriter.MEDIA_TYPE})
     public void metricsText(
         @Suspended final AsyncResponse response, @QueryParam("group") String group, String query
     ) {
@@ -81,6 +80,7 @@ public class QueryResource {
     @POST
     @Path("metrics")
     @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, ColumnarMessageBodyWriter.MEDIA_TYPE})
     public void metrics(
         @Suspended final AsyncResponse response, @QueryParam("group") String group,
         QueryMetrics query
@@ -95,29 +95,32 @@ public class QueryResource {
 
     @POST
     @Path("batch")
+    @Produces({MediaType.APPLICATION_JSON, ColumnarMessageBodyWriter.MEDIA_TYPE})
     public void metrics(
         @Suspended final AsyncResponse response, @QueryParam("backend") String group,
         final QueryBatch query
     ) {
         final QueryManager.Group g = this.query.useOptionalGroup(Optional.ofNullable(group));
 
-        final List<AsyncFuture<Pair<String, QueryResult>>> futures = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        final List<Query> queries = new ArrayList<>();
 
         for (final Map.Entry<String, QueryMetrics> e : query.getQueries().entrySet()) {
-            final Query q = setupQuery(e.getValue()).rangeIfAbsent(query.getRange()).build();
-            futures.add(g.query(q).directTransform(r -> Pair.of(e.getKey(), r)));
+            names.add(e.getKey());
+            queries.add(setupQuery(e.getValue()).rangeIfAbsent(query.getRange()).build());
         }
 
         final AsyncFuture<QueryBatchResponse> future =
-            async.collect(futures).directTransform(entries -> {
+            g.queryBatch(queries).directTransform(entries -> {
                 final ImmutableMap.Builder<String, QueryMetricsResponse> results =
                     ImmutableMap.builder();
 
-                for (final Pair<String, QueryResult> e : entries) {
-                    final QueryResult r = e.getRight();
-                    results.put(e.getLeft(),
+                final Iterator<String> it = names.iterator();
+
+                for (final QueryResult r : entries) {
+                    results.put(it.next(),
                         new QueryMetricsResponse(r.getRange(), r.getGroups(), r.getErrors(),
-                            r.getTrace()));
+                            r.getTrace(), r.isPartial()));
                 }
 
                 return new QueryBatchResponse(results.build());
@@ -135,7 +138,7 @@ public class QueryResource {
 
         httpAsync.bind(response, callback,
             r -> new QueryMetricsResponse(r.getRange(), r.getGroups(), r.getErrors(),
-                r.getTrace()));
+                r.getTrace(), r.isPartial()));
     }
 
     @SuppressWarnings("deprecation")
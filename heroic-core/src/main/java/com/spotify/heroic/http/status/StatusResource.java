@@ -21,6 +21,7 @@
 
 package com.spotify.heroic.http.status;
 
+import com.spotify.heroic.QueryManager;
 import com.spotify.heroic.cluster.ClusterManager;
 import com.spotify.heroic.common.GroupMember;
 import com.spotify.heroic.common.ServiceInfo;
@@ -30,6 +31,8 @@ import com.spotify.heroic.metadata.MetadataBackend;
 import com.spotify.heroic.metadata.MetadataManager;
 import com.spotify.heroic.metric.MetricBackend;
 import com.spotify.heroic.metric.MetricManager;
+import com.spotify.heroic.metric.RunningQuery;
+import com.spotify.heroic.metric.SlowQuery;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
@@ -38,6 +41,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.List;
 import java.util.Set;
 
 @Path("/status")
@@ -49,17 +53,19 @@ public class StatusResource {
     private final MetadataManager metadata;
     private final ClusterManager cluster;
     private final ServiceInfo service;
+    private final QueryManager query;
 
     @Inject
     public StatusResource(
         final Set<Consumer> consumers, final MetricManager metric, final MetadataManager metadata,
-        final ClusterManager cluster, final ServiceInfo service
+        final ClusterManager cluster, final ServiceInfo service, final QueryManager query
     ) {
         this.consumers = consumers;
         this.metric = metric;
         this.metadata = metadata;
         this.cluster = cluster;
         this.service = service;
+        this.query = query;
     }
 
     @GET
@@ -83,6 +89,18 @@ public class StatusResource {
         return Response.status(Response.Status.OK).entity(response).build();
     }
 
+    @GET
+    @Path("queries")
+    public List<RunningQuery> queries() {
+        return metric.runningQueries();
+    }
+
+    @GET
+    @Path("slow-queries")
+    public List<SlowQuery> slowQueries() {
+        return query.slowQueries();
+    }
+
     private StatusResponse.Cluster buildClusterStatus() {
         final ClusterManager.Statistics s = cluster.getStatistics();
 
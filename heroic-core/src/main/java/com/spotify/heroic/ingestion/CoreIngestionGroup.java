@@ -29,6 +29,7 @@ import com.spotify.heroic.filter.Filter;
 import com.spotify.heroic.metadata.MetadataBackend;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricBackend;
+import com.spotify.heroic.metric.Rollups;
 import com.spotify.heroic.metric.WriteMetric;
 import com.spotify.heroic.metric.WriteResult;
 import com.spotify.heroic.statistics.IngestionManagerReporter;
@@ -56,6 +57,7 @@ public class CoreIngestionGroup implements IngestionGroup {
     private final Optional<MetricBackend> metric;
     private final Optional<MetadataBackend> metadata;
     private final Optional<SuggestBackend> suggest;
+    private final Optional<Rollups> rollups;
 
     @Override
     public Groups groups() {
@@ -137,7 +139,22 @@ public class CoreIngestionGroup implements IngestionGroup {
         final MetricBackend metric, final WriteMetric write
     ) {
         try {
-            return metric.write(write);
+            final AsyncFuture<WriteResult> result = metric.write(write);
+
+            if (!rollups.isPresent()) {
+                return result;
+            }
+
+            final Rollups r = rollups.get();
+
+            /* only points that were stored are summarized */
+            return result.directTransform(w -> {
+                if (w.getErrors().isEmpty()) {
+                    r.update(write);
+                }
+
+                return w;
+            });
         } catch (final Exception e) {
             return async.failed(e);
         }
@@ -126,7 +126,8 @@ public class IngestionManagerImpl implements IngestionManager {
 
             optionally(updateMetrics, () -> metric.apply(input)),
             optionally(updateMetadata, () -> metadata.apply(input)),
-            optionally(updateSuggestions, () -> suggest.apply(input))
+            optionally(updateSuggestions, () -> suggest.apply(input)),
+            updateMetrics ? this.metric.rollups() : Optional.empty()
         );
         // @formatter:on
     }
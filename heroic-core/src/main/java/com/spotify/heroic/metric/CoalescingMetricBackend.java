@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.async.AsyncObservable;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Groups;
+import com.spotify.heroic.common.Series;
+import com.spotify.heroic.common.Statistics;
+import com.spotify.heroic.statistics.MetricBackendReporter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.FutureDone;
+import eu.toolchain.async.ResolvableFuture;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A metric backend that shares in-flight fetches between concurrent identical requests.
+ * <p>
+ * A fetch joins an in-flight fetch for the same type, series and options if the range of the
+ * in-flight fetch contains the requested range, in which case the shared data is cropped to the
+ * requested range. The shared fetch is only cancelled once every request waiting for it has been
+ * cancelled.
+ * <p>
+ * Quota is accounted for every request that receives the data. The shared fetch itself is
+ * limited by the remaining quota of the request that started it.
+ */
+@RequiredArgsConstructor
+public class CoalescingMetricBackend implements MetricBackend {
+    private final AsyncFramework async;
+    private final MetricBackend delegate;
+    private final MetricBackendReporter reporter;
+
+    private final Object lock = new Object();
+    private final Map<FetchKey, List<InFlight>> inFlight = new HashMap<>();
+
+    @Override
+    public Statistics getStatistics() {
+        return delegate.getStatistics();
+    }
+
+    @Override
+    public AsyncFuture<Void> configure() {
+        return delegate.configure();
+    }
+
+    @Override
+    public AsyncFuture<WriteResult> write(final WriteMetric write) {
+        return delegate.write(write);
+    }
+
+    @Override
+    public AsyncFuture<WriteResult> write(final Collection<WriteMetric> writes) {
+        return delegate.write(writes);
+    }
+
+    @Override
+    public AsyncFuture<FetchData> fetch(
+        final MetricType type, final Series series, final DateRange range,
+        final FetchQuotaWatcher watcher, final QueryOptions options
+    ) {
+        final FetchKey key = new FetchKey(type, series, options);
+
+        final InFlight shared;
+        final boolean coalesced;
+
+        synchronized (lock) {
+            final List<InFlight> candidates =
+                inFlight.computeIfAbsent(key, k -> new ArrayList<>());
+
+            InFlight found = null;
+
+            for (final InFlight candidate : candidates) {
+                if (candidate.waiters > 0 && !candidate.future.isDone() &&
+                    candidate.contains(range)) {
+                    found = candidate;
+                    break;
+                }
+            }
+
+            coalesced = found != null;
+
+            if (found == null) {
+                found = new InFlight(range, async.future());
+                candidates.add(found);
+            }
+
+            found.waiters++;
+            shared = found;
+        }
+
+        reporter.reportFetchCoalesced(coalesced);
+
+        if (!coalesced) {
+            start(key, shared, type, series, watcher, options);
+        }
+
+        return view(shared).directTransform(data -> {
+            final FetchData result =
+                shared.range.equals(range) ? data : LocalMetricManager.crop(data, range);
+
+            int read = 0;
+
+            for (final MetricCollection g : result.getGroups()) {
+                read += g.size();
+            }
+
+            if (!watcher.readData(read)) {
+                throw new RuntimeException("Quota limit violated");
+            }
+
+            return result;
+        });
+    }
+
+    @Override
+    public Iterable<BackendEntry> listEntries() {
+        return delegate.listEntries();
+    }
+
+    @Override
+    public AsyncObservable<BackendKeySet> streamKeys(
+        final BackendKeyFilter filter, final QueryOptions options
+    ) {
+        return delegate.streamKeys(filter, options);
+    }
+
+    @Override
+    public AsyncObservable<BackendKeySet> streamKeysPaged(
+        final BackendKeyFilter filter, final QueryOptions options, final int pageSize
+    ) {
+        return delegate.streamKeysPaged(filter, options, pageSize);
+    }
+
+    @Override
+    public AsyncFuture<List<String>> serializeKeyToHex(final BackendKey key) {
+        return delegate.serializeKeyToHex(key);
+    }
+
+    @Override
+    public AsyncFuture<List<BackendKey>> deserializeKeyFromHex(final String key) {
+        return delegate.deserializeKeyFromHex(key);
+    }
+
+    @Override
+    public AsyncFuture<Void> deleteKey(final BackendKey key, final QueryOptions options) {
+        return delegate.deleteKey(key, options);
+    }
+
+    @Override
+    public AsyncFuture<Long> countKey(final BackendKey key, final QueryOptions options) {
+        return delegate.countKey(key, options);
+    }
+
+    @Override
+    public AsyncFuture<MetricCollection> fetchRow(final BackendKey key) {
+        return delegate.fetchRow(key);
+    }
+
+    @Override
+    public AsyncObservable<MetricCollection> streamRow(final BackendKey key) {
+        return delegate.streamRow(key);
+    }
+
+    @Override
+    public boolean isReady() {
+        return delegate.isReady();
+    }
+
+    @Override
+    public Groups groups() {
+        return delegate.groups();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString() + "{coalescing}";
+    }
+
+    private void start(
+        final FetchKey key, final InFlight shared, final MetricType type, final Series series,
+        final FetchQuotaWatcher watcher, final QueryOptions options
+    ) {
+        shared.future.onFinished(() -> {
+            synchronized (lock) {
+                final List<InFlight> candidates = inFlight.get(key);
+
+                if (candidates != null && candidates.remove(shared) && candidates.isEmpty()) {
+                    inFlight.remove(key);
+                }
+            }
+        });
+
+        final AsyncFuture<FetchData> fetch;
+
+        try {
+            fetch = delegate.fetch(type, series, shared.range,
+                new LimitedFetchQuotaWatcher(watcher.getReadDataQuota()), options);
+        } catch (final Exception e) {
+            shared.future.fail(e);
+            return;
+        }
+
+        shared.future.onCancelled(fetch::cancel);
+
+        fetch.onDone(new FutureDone<FetchData>() {
+            @Override
+            public void failed(final Throwable cause) throws Exception {
+                shared.future.fail(cause);
+            }
+
+            @Override
+            public void resolved(final FetchData result) throws Exception {
+                shared.future.resolve(result);
+            }
+
+            @Override
+            public void cancelled() throws Exception {
+                shared.future.cancel();
+            }
+        });
+    }
+
+    /**
+     * Build a separate view of the shared fetch, cancelling the shared fetch once the last view
+     * of it is cancelled.
+     */
+    private AsyncFuture<FetchData> view(final InFlight shared) {
+        final ResolvableFuture<FetchData> view = async.future();
+
+        shared.future.onDone(new FutureDone<FetchData>() {
+            @Override
+            public void failed(final Throwable cause) throws Exception {
+                view.fail(cause);
+            }
+
+            @Override
+            public void resolved(final FetchData result) throws Exception {
+                view.resolve(result);
+            }
+
+            @Override
+            public void cancelled() throws Exception {
+                view.cancel();
+            }
+        });
+
+        view.onCancelled(() -> {
+            final boolean last;
+
+            synchronized (lock) {
+                last = --shared.waiters == 0;
+            }
+
+            if (last) {
+                shared.future.cancel();
+            }
+        });
+
+        return view;
+    }
+
+    @Data
+    private static class FetchKey {
+        private final MetricType type;
+        private final Series series;
+        private final QueryOptions options;
+    }
+
+    @RequiredArgsConstructor
+    private static class InFlight {
+        private final DateRange range;
+        private final ResolvableFuture<FetchData> future;
+
+        /* guarded by lock */
+        private int waiters = 0;
+
+        boolean contains(final DateRange other) {
+            return range.start() <= other.start() && other.end() <= range.end();
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import com.spotify.heroic.QueryOptions;
 import com.spotify.heroic.aggregation.AggregationData;
 import com.spotify.heroic.aggregation.AggregationInstance;
@@ -34,6 +35,7 @@ import com.spotify.heroic.aggregation.AggregationState;
 import com.spotify.heroic.aggregation.AggregationTraversal;
 import com.spotify.heroic.async.AsyncObservable;
 import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Duration;
 import com.spotify.heroic.common.GroupSet;
 import com.spotify.heroic.common.Groups;
 import com.spotify.heroic.common.OptionalLimit;
@@ -45,12 +47,16 @@ import com.spotify.heroic.filter.Filter;
 import com.spotify.heroic.metadata.FindSeries;
 import com.spotify.heroic.metadata.MetadataBackend;
 import com.spotify.heroic.metadata.MetadataManager;
+import com.spotify.heroic.scheduler.Scheduler;
 import com.spotify.heroic.statistics.MetricBackendReporter;
 import eu.toolchain.async.AsyncFramework;
 import eu.toolchain.async.AsyncFuture;
 import eu.toolchain.async.Collector;
+import eu.toolchain.async.FutureDone;
 import eu.toolchain.async.LazyTransform;
+import eu.toolchain.async.ResolvableFuture;
 import eu.toolchain.async.StreamCollector;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
@@ -58,14 +64,19 @@ import org.apache.commons.lang3.NotImplementedException;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @ToString(of = {})
@@ -74,6 +85,8 @@ public class LocalMetricManager implements MetricManager {
         QueryTrace.identifier(LocalMetricManager.class, "query");
     private static final QueryTrace.Identifier FETCH =
         QueryTrace.identifier(LocalMetricManager.class, "fetch");
+    private static final QueryTrace.Identifier ROLLUP =
+        QueryTrace.identifier(LocalMetricManager.class, "rollup");
     private static final QueryTrace.Identifier KEYS =
         QueryTrace.identifier(LocalMetricManager.class, "keys");
 
@@ -109,6 +122,9 @@ public class LocalMetricManager implements MetricManager {
     private final GroupSet<MetricBackend> groupSet;
     private final MetadataManager metadata;
     private final MetricBackendReporter reporter;
+    private final QueryAdmissionController admission;
+    private final Scheduler scheduler;
+    private final Optional<Rollups> rollups;
 
     /**
      * @param groupLimit The maximum amount of groups this manager will allow to be generated.
@@ -117,12 +133,16 @@ public class LocalMetricManager implements MetricManager {
      * may produce.
      * @param dataLimit The maximum number of samples a single query is allowed to fetch.
      * @param fetchParallelism How many fetches that are allowed to be performed in parallel.
+     * @param admission Controller deciding when queries are allowed to start fetching data.
+     * @param scheduler Scheduler used to expire queries that have a deadline.
+     * @param rollups Rollups that queries may read instead of raw points.
      */
     public LocalMetricManager(
         final int groupLimit, final long seriesLimit, final long aggregationLimit,
         final long dataLimit, final int fetchParallelism, final AsyncFramework async,
         final GroupSet<MetricBackend> groupSet, final MetadataManager metadata,
-        final MetricBackendReporter reporter
+        final MetricBackendReporter reporter, final QueryAdmissionController admission,
+        final Scheduler scheduler, final Optional<Rollups> rollups
     ) {
         this.groupLimit = groupLimit;
         this.seriesLimit = seriesLimit;
@@ -133,6 +153,9 @@ public class LocalMetricManager implements MetricManager {
         this.groupSet = groupSet;
         this.metadata = metadata;
         this.reporter = reporter;
+        this.admission = admission;
+        this.scheduler = scheduler;
+        this.rollups = rollups;
     }
 
     @Override
@@ -140,6 +163,16 @@ public class LocalMetricManager implements MetricManager {
         return groupSet;
     }
 
+    @Override
+    public List<RunningQuery> runningQueries() {
+        return admission.runningQueries();
+    }
+
+    @Override
+    public Optional<Rollups> rollups() {
+        return rollups;
+    }
+
     @Override
     public MetricBackendGroup useOptionalGroup(final Optional<String> group) {
         return new Group(groupSet.useOptionalGroup(group), metadata.useDefaultGroup());
@@ -171,13 +204,103 @@ public class LocalMetricManager implements MetricManager {
             MetricType source, final Filter filter, final DateRange range,
             final AggregationInstance aggregation, final QueryOptions options
         ) {
-            final FetchQuotaWatcher watcher = new LimitedFetchQuotaWatcher(dataLimit);
+            final InFlight inFlight = new InFlight();
+            inFlight.expireAfter(options.getDeadline());
+
+            final AsyncFuture<FindSeries> series = inFlight
+                .track(metadata.findSeries(rangeFilter(filter, range)))
+                .onDone(reporter.reportFindSeries());
+
+            return query(source, filter, range, aggregation, options, inFlight, series,
+                (s, watcher, fetches) -> runVoid(b -> {
+                    fetches.add(
+                        () -> inFlight.start(() -> b.fetch(source, s, range, watcher, options)));
+                    return null;
+                }));
+        }
+
+        @Override
+        public AsyncFuture<List<FullQuery.Result>> queryBatch(final List<FullQuery> queries) {
+            final Batch batch = new Batch();
+
+            final List<AsyncFuture<FindSeries>> lookups = new ArrayList<>(queries.size());
+            final List<AsyncFuture<FindSeries>> found = new ArrayList<>(queries.size());
+
+            for (final FullQuery q : queries) {
+                final AsyncFuture<FindSeries> lookup =
+                    batch.findSeries(rangeFilter(q.getFilter(), q.getRange()));
+                lookups.add(lookup);
+                found.add(lookup.catchFailed(e -> FindSeries.EMPTY));
+            }
+
+            /* fetches can only be planned once all series of the batch are known */
+            final AsyncFuture<Void> planned =
+                async.collectAndDiscard(found).directTransform(ignore -> {
+                    batch.plan(queries, found);
+                    return null;
+                });
+
+            final List<AsyncFuture<FullQuery.Result>> results = new ArrayList<>(queries.size());
+
+            for (int i = 0; i < queries.size(); i++) {
+                final FullQuery q = queries.get(i);
+                final AsyncFuture<FindSeries> lookup = lookups.get(i);
+
+                final InFlight inFlight = new InFlight();
+                inFlight.expireAfter(q.getOptions().getDeadline());
+
+                final AsyncFuture<FindSeries> series =
+                    inFlight.track(planned.lazyTransform(ignore -> batch.view(lookup)));
+
+                final AsyncFuture<ResultGroups> result =
+                    query(q.getSource(), q.getFilter(), q.getRange(), q.getAggregation(),
+                        q.getOptions(), inFlight, series,
+                        (s, watcher, fetches) -> fetches.add(() -> inFlight.start(
+                            () -> batch.fetch(q.getSource(), s, q.getRange(), watcher,
+                                q.getOptions()))));
+
+                results.add(result
+                    .directTransform(FullQuery.Result::resolved)
+                    .catchFailed(FullQuery.Result::failed));
+            }
+
+            final AsyncFuture<List<FullQuery.Result>> future =
+                async.collectAndDiscard(results).directTransform(ignore -> {
+                    final List<FullQuery.Result> collected = new ArrayList<>(results.size());
+
+                    for (final AsyncFuture<FullQuery.Result> result : results) {
+                        collected.add(result.getNow());
+                    }
+
+                    return collected;
+                });
+
+            future.onCancelled(() -> {
+                for (final AsyncFuture<FullQuery.Result> result : results) {
+                    result.cancel();
+                }
+
+                batch.cancel();
+            });
+
+            return future;
+        }
+
+        private AsyncFuture<ResultGroups> query(
+            final MetricType source, final Filter filter, final DateRange range,
+            final AggregationInstance aggregation, final QueryOptions options,
+            final InFlight inFlight, final AsyncFuture<FindSeries> series, final FetchSetup setup
+        ) {
+            final FetchSetup fetchSetup = rollups
+                .flatMap(r -> r
+                    .plan(source, aggregation, range)
+                    .map(plan -> rollupSetup(r, plan, inFlight, options)))
+                .orElse(setup);
 
-            /* groupLoadLimit + 1, so that we return one too many results when more than
-             * groupLoadLimit series are available. This will cause the query engine to reject the
-             * request because of too large group. */
-            final RangeFilter rangeFilter =
-                new RangeFilter(filter, range, OptionalLimit.of(seriesLimit + 1));
+            final QueryAdmissionController.Ticket ticket =
+                admission.newTicket(source, filter, range);
+            final FetchQuotaWatcher watcher =
+                ticket.watch(new LimitedFetchQuotaWatcher(dataLimit));
 
             final LazyTransform<FindSeries, ResultGroups> transform = (final FindSeries result) -> {
                 /* if empty, there are not time series on this shard */
@@ -209,73 +332,156 @@ public class LocalMetricManager implements MetricManager {
                             "timeseries would be sent to your client).");
                 }
 
-                final AggregationSession session = traversal.getSession();
+                ticket.estimate(result.getSize(), estimate);
 
-                final List<Callable<AsyncFuture<FetchData>>> fetches = new ArrayList<>();
+                return inFlight
+                    .track(admission.admit(ticket))
+                    .lazyTransform(admitted -> inFlight.track(
+                        fetchAndAggregate(aggregation, options, traversal, ticket, watcher,
+                            inFlight, fetchSetup)));
+            };
+
+            final AsyncFuture<ResultGroups> future = series
+                .lazyTransform(transform)
+                .onFinished(ticket::release)
+                .onDone(reporter.reportQueryMetrics());
 
-                final Map<Map<String, String>, Set<Series>> lookup = new HashMap<>();
+            future.onCancelled(inFlight::cancel);
+            future.onFinished(inFlight::finish);
+            return future;
+        }
 
-                /* setup fetches */
+        private AsyncFuture<ResultGroups> fetchAndAggregate(
+            final AggregationInstance aggregation, final QueryOptions options,
+            final AggregationTraversal traversal, final QueryAdmissionController.Ticket ticket,
+            final FetchQuotaWatcher watcher, final InFlight inFlight, final FetchSetup setup
+        ) throws Exception {
+            final AggregationSession session = traversal.getSession();
 
-                for (final AggregationState state : traversal.getStates()) {
-                    final Set<Series> series = state.getSeries();
-                    lookup.put(state.getKey(), series);
+            final List<Callable<AsyncFuture<FetchData>>> fetches = new ArrayList<>();
 
-                    if (series.isEmpty()) {
-                        continue;
-                    }
+            final Map<Map<String, String>, Set<Series>> lookup = new HashMap<>();
 
-                    runVoid(b -> {
-                        for (final Series s : series) {
-                            fetches.add(() -> b.fetch(source, s, range, watcher, options));
-                        }
+            /* setup fetches */
 
-                        return null;
-                    });
-                }
+            for (final AggregationState state : traversal.getStates()) {
+                final Set<Series> series = state.getSeries();
+                lookup.put(state.getKey(), series);
 
-                /* setup collector */
-
-                final ResultCollector collector;
-
-                final Stopwatch w = Stopwatch.createStarted();
-
-                if (options.isTracing()) {
-                    // tracing enabled, keeps track of each individual FetchData trace.
-                    collector = new ResultCollector(watcher, aggregation, session, lookup) {
-                        final ConcurrentLinkedQueue<QueryTrace> traces =
-                            new ConcurrentLinkedQueue<>();
-
-                        @Override
-                        public void resolved(FetchData result) throws Exception {
-                            traces.add(result.getTrace());
-                            super.resolved(result);
-                        }
-
-                        @Override
-                        public QueryTrace buildTrace() {
-                            return new QueryTrace(QUERY, w.elapsed(TimeUnit.NANOSECONDS),
-                                ImmutableList.copyOf(traces));
-                        }
-                    };
-                } else {
-                    // very limited tracing, does not collected each individual FetchData trace.
-                    collector = new ResultCollector(watcher, aggregation, session, lookup) {
-                        @Override
-                        public QueryTrace buildTrace() {
-                            return new QueryTrace(QUERY, w.elapsed(TimeUnit.NANOSECONDS));
-                        }
-                    };
+                for (final Series s : series) {
+                    setup.setup(s, watcher, fetches);
                 }
+            }
 
-                return async.eventuallyCollect(fetches, collector, fetchParallelism);
-            };
+            /* setup collector */
 
-            return metadata
-                .findSeries(rangeFilter)
-                .onDone(reporter.reportFindSeries())
-                .lazyTransform(transform)
-                .onDone(reporter.reportQueryMetrics());
+            final ResultCollector collector;
+
+            final Stopwatch w = Stopwatch.createStarted();
+
+            if (options.isTracing()) {
+                // tracing enabled, keeps track of each individual FetchData trace.
+                collector = new ResultCollector(watcher, ticket, inFlight, aggregation, session,
+                    lookup, reporter) {
+                    final ConcurrentLinkedQueue<QueryTrace> traces =
+                        new ConcurrentLinkedQueue<>();
+
+                    @Override
+                    public void resolved(FetchData result) throws Exception {
+                        traces.add(result.getTrace());
+                        super.resolved(result);
+                    }
+
+                    @Override
+                    public QueryTrace buildTrace() {
+                        return new QueryTrace(QUERY, w.elapsed(TimeUnit.NANOSECONDS),
+                            ImmutableList.copyOf(traces));
+                    }
+                };
+            } else {
+                // very limited tracing, does not collected each individual FetchData trace.
+                collector = new ResultCollector(watcher, ticket, inFlight, aggregation, session,
+                    lookup, reporter) {
+                    @Override
+                    public QueryTrace buildTrace() {
+                        return new QueryTrace(QUERY, w.elapsed(TimeUnit.NANOSECONDS));
+                    }
+                };
+            }
+
+            return async.eventuallyCollect(fetches, collector, fetchParallelism);
+        }
+
+        /**
+         * Set up fetches that read rollups for the range covered by the plan, and raw points for
+         * the rest.
+         */
+        private FetchSetup rollupSetup(
+            final Rollups rollups, final Rollups.Plan plan, final InFlight inFlight,
+            final QueryOptions options
+        ) {
+            final MetricBackendGroup group =
+                LocalMetricManager.this.useOptionalGroup(rollups.getGroup());
+
+            return (s, watcher, fetches) -> fetches.add(
+                () -> inFlight.start(() -> fetchRollup(plan, group, s, watcher, options)));
+        }
+
+        private AsyncFuture<FetchData> fetchRollup(
+            final Rollups.Plan plan, final MetricBackendGroup group, final Series series,
+            final FetchQuotaWatcher watcher, final QueryOptions options
+        ) {
+            final List<AsyncFuture<FetchData>> stats = new ArrayList<>();
+
+            for (final Rollups.Stat stat : Rollups.Stat.values()) {
+                stats.add(group.fetch(MetricType.POINT,
+                    Rollups.series(series, plan.getResolution(), stat), plan.getRollup(), watcher,
+                    options));
+            }
+
+            final AsyncFuture<FetchData> rollup =
+                async.collectAndDiscard(stats).lazyTransform(ignore -> {
+                    final List<FetchData> fetched = new ArrayList<>(stats.size());
+
+                    for (final AsyncFuture<FetchData> stat : stats) {
+                        fetched.add(stat.getNow());
+                    }
+
+                    final MetricCollection spreads = Rollups.spreads(fetched);
+
+                    final List<AsyncFuture<FetchData>> cells = new ArrayList<>();
+                    cells.add(async.resolved(new FetchData(series, ImmutableList.of(),
+                        ImmutableList.of(spreads), new QueryTrace(ROLLUP))));
+
+                    /* intervals that this node didn't roll up are read as raw points */
+                    for (final DateRange missing : Rollups.missing(spreads, plan.getRollup(),
+                        plan.getResolution())) {
+                        cells.add(fetch(MetricType.POINT, series, missing, watcher, options));
+                    }
+
+                    return async.collect(cells, FetchData.collect(ROLLUP, series));
+                });
+
+            final List<AsyncFuture<FetchData>> parts = new ArrayList<>();
+            parts.add(fetch(MetricType.POINT, series, plan.getHead(), watcher, options));
+            parts.add(rollup);
+            plan
+                .getTail()
+                .ifPresent(tail -> parts.add(
+                    fetch(MetricType.POINT, series, tail, watcher, options)));
+
+            return async.collect(parts, FetchData.collect(FETCH, series));
+        }
+
+        /**
+         * Build the metadata filter for the given query.
+         * <p>
+         * The limit is seriesLimit + 1, so that we return one too many results when more than
+         * seriesLimit series are available. This will cause the query engine to reject the
+         * request because of too large group.
+         */
+        private RangeFilter rangeFilter(final Filter filter, final DateRange range) {
+            return new RangeFilter(filter, range, OptionalLimit.of(seriesLimit + 1));
         }
 
         @Override
@@ -407,6 +613,159 @@ public class LocalMetricManager implements MetricManager {
             return AsyncObservable.chain(run(b -> b.streamRow(key)));
         }
 
+        /**
+         * Metadata lookups and fetches that are shared between the queries of a single batch.
+         * <p>
+         * Lookups are shared between queries with identical range filters. Fetches are planned
+         * once all lookups have completed, so that each series is read once for every span of
+         * overlapping query ranges, and each query receives only the part of the span that it
+         * asked for.
+         * <p>
+         * Every query is handed a separate view of the shared operations, so that a query
+         * reaching its deadline does not abort operations that other queries are waiting for.
+         * A shared fetch is instead bounded by the sum of the quotas, and the latest deadline, of
+         * the queries that it is shared between.
+         */
+        private class Batch {
+            private final long started = System.nanoTime();
+            private final Map<RangeFilter, AsyncFuture<FindSeries>> lookups = new HashMap<>();
+            private final Map<SeriesKey, List<Span>> spans = new ConcurrentHashMap<>();
+            private final ConcurrentMap<SpanKey, AsyncFuture<FetchData>> fetches =
+                new ConcurrentHashMap<>();
+
+            AsyncFuture<FindSeries> findSeries(final RangeFilter filter) {
+                return lookups.computeIfAbsent(filter,
+                    f -> metadata.findSeries(f).onDone(reporter.reportFindSeries()));
+            }
+
+            void plan(final List<FullQuery> queries, final List<AsyncFuture<FindSeries>> found)
+                throws Exception {
+                final Map<SeriesKey, List<FullQuery>> users = new HashMap<>();
+
+                for (int i = 0; i < queries.size(); i++) {
+                    final FullQuery q = queries.get(i);
+
+                    for (final Series s : found.get(i).getNow().getSeries()) {
+                        users
+                            .computeIfAbsent(new SeriesKey(q.getSource(), s),
+                                k -> new ArrayList<>())
+                            .add(q);
+                    }
+                }
+
+                for (final Map.Entry<SeriesKey, List<FullQuery>> e : users.entrySet()) {
+                    final List<DateRange> ranges = new ArrayList<>();
+
+                    for (final FullQuery q : e.getValue()) {
+                        ranges.add(q.getRange());
+                    }
+
+                    final List<Span> planned = new ArrayList<>();
+
+                    for (final DateRange range : mergeOverlapping(ranges)) {
+                        planned.add(Span.of(range, e.getValue()));
+                    }
+
+                    spans.put(e.getKey(), planned);
+                }
+            }
+
+            AsyncFuture<FetchData> fetch(
+                final MetricType source, final Series series, final DateRange range,
+                final FetchQuotaWatcher watcher, final QueryOptions options
+            ) {
+                final Span span = span(new SeriesKey(source, series), range);
+
+                /* quota is accounted for every query that receives the data as well */
+                final AsyncFuture<FetchData> shared =
+                    fetches.computeIfAbsent(new SpanKey(source, series, span.getRange()),
+                        k -> expireAfter(span.getDeadline(),
+                            Group.this.fetch(source, series, span.getRange(),
+                                new LimitedFetchQuotaWatcher(span.quota(dataLimit)), options)));
+
+                return view(shared).directTransform(data -> {
+                    final FetchData result =
+                        span.getRange().equals(range) ? data : crop(data, range);
+
+                    int read = 0;
+
+                    for (final MetricCollection g : result.getGroups()) {
+                        read += g.size();
+                    }
+
+                    if (!watcher.readData(read)) {
+                        throw new RuntimeException("Quota limit violated");
+                    }
+
+                    return result;
+                });
+            }
+
+            <T> AsyncFuture<T> view(final AsyncFuture<T> shared) {
+                final ResolvableFuture<T> view = async.future();
+
+                shared.onDone(new FutureDone<T>() {
+                    @Override
+                    public void failed(final Throwable cause) throws Exception {
+                        view.fail(cause);
+                    }
+
+                    @Override
+                    public void resolved(final T result) throws Exception {
+                        view.resolve(result);
+                    }
+
+                    @Override
+                    public void cancelled() throws Exception {
+                        view.cancel();
+                    }
+                });
+
+                return view;
+            }
+
+            void cancel() {
+                for (final AsyncFuture<FindSeries> lookup : lookups.values()) {
+                    lookup.cancel();
+                }
+
+                for (final AsyncFuture<FetchData> fetch : fetches.values()) {
+                    fetch.cancel();
+                }
+            }
+
+            /**
+             * Cancel the given shared fetch once the deadline, counted from the start of the
+             * batch, has expired.
+             */
+            private <T> AsyncFuture<T> expireAfter(
+                final Optional<Duration> deadline, final AsyncFuture<T> future
+            ) {
+                deadline.ifPresent(d -> {
+                    final long elapsed = TimeUnit.MILLISECONDS.convert(
+                        System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+                    scheduler.schedule("batch-fetch-deadline",
+                        Math.max(d.toMilliseconds() - elapsed, 0L), TimeUnit.MILLISECONDS,
+                        future::cancel);
+                });
+
+                return future;
+            }
+
+            private Span span(final SeriesKey key, final DateRange range) {
+                for (final Span span : spans.getOrDefault(key, ImmutableList.of())) {
+                    final DateRange r = span.getRange();
+
+                    if (r.start() <= range.start() && range.end() <= r.end()) {
+                        return span;
+                    }
+                }
+
+                return new Span(range, 1, Optional.empty());
+            }
+        }
+
         private void runVoid(InternalOperation<Void> op) {
             for (final MetricBackend b : backends.getMembers()) {
                 try {
@@ -432,6 +791,135 @@ public class LocalMetricManager implements MetricManager {
         }
     }
 
+    /**
+     * Keeps track of the in-flight operations of a single query, so that they can be aborted and
+     * no new ones are started when the query is cancelled.
+     * <p>
+     * When the deadline of the query expires, only the fetch operations are aborted. The query
+     * itself keeps going so that it can build a partial result out of what has been aggregated so
+     * far.
+     */
+    private class InFlight {
+        private final Set<AsyncFuture<?>> futures = Sets.newConcurrentHashSet();
+        private final Set<AsyncFuture<?>> operations = Sets.newConcurrentHashSet();
+        private volatile boolean cancelled = false;
+        private volatile boolean expired = false;
+        private volatile Optional<ScheduledFuture<?>> timeout = Optional.empty();
+
+        <T> AsyncFuture<T> track(final AsyncFuture<T> future) {
+            return register(futures, future);
+        }
+
+        <T> AsyncFuture<T> start(final Callable<AsyncFuture<T>> operation) throws Exception {
+            if (cancelled || expired) {
+                return async.cancelled();
+            }
+
+            return register(operations, operation.call());
+        }
+
+        void expireAfter(final Optional<Duration> deadline) {
+            timeout = deadline.map(d -> scheduler.schedule("query-deadline", d.toMilliseconds(),
+                TimeUnit.MILLISECONDS, this::expire));
+        }
+
+        /**
+         * Stop waiting for the deadline, the query has completed.
+         */
+        void finish() {
+            timeout.ifPresent(t -> t.cancel(false));
+        }
+
+        boolean isExpired() {
+            return expired && !cancelled;
+        }
+
+        void cancel() {
+            cancelled = true;
+            cancelAll(futures);
+            cancelAll(operations);
+        }
+
+        void expire() {
+            expired = true;
+            cancelAll(operations);
+        }
+
+        private <T> AsyncFuture<T> register(
+            final Set<AsyncFuture<?>> set, final AsyncFuture<T> future
+        ) {
+            set.add(future);
+
+            /* checked after adding to avoid racing with cancel() and expire() */
+            if (cancelled || (expired && set == operations)) {
+                future.cancel();
+            }
+
+            future.onFinished(() -> set.remove(future));
+            return future;
+        }
+
+        private void cancelAll(final Set<AsyncFuture<?>> set) {
+            for (final AsyncFuture<?> future : set) {
+                future.cancel();
+            }
+        }
+    }
+
+    /**
+     * Merge the given ranges into the smallest set of spans that covers them, where each span
+     * consists of ranges that overlap.
+     */
+    static List<DateRange> mergeOverlapping(final List<DateRange> ranges) {
+        final List<DateRange> sorted = new ArrayList<>(ranges);
+        Collections.sort(sorted);
+
+        final List<DateRange> spans = new ArrayList<>();
+        DateRange current = null;
+
+        for (final DateRange range : sorted) {
+            if (current == null) {
+                current = range;
+                continue;
+            }
+
+            if (current.overlap(range)) {
+                current = current.join(range);
+                continue;
+            }
+
+            spans.add(current);
+            current = range;
+        }
+
+        if (current != null) {
+            spans.add(current);
+        }
+
+        return spans;
+    }
+
+    /**
+     * Only keep the data of the given fetch which is within the given range.
+     */
+    static FetchData crop(final FetchData data, final DateRange range) {
+        final List<MetricCollection> groups = new ArrayList<>(data.getGroups().size());
+
+        for (final MetricCollection g : data.getGroups()) {
+            final List<Metric> inside = new ArrayList<>();
+
+            for (final Metric m : g.getData()) {
+                if (range.contains(m.getTimestamp())) {
+                    inside.add(m);
+                }
+            }
+
+            groups.add(MetricCollection.build(g.getType(), inside));
+        }
+
+        return new FetchData(data.getSeries(), data.getTimes(), groups, data.getTrace());
+    }
+
     private static List<AggregationState> states(Set<Series> series) {
         return ImmutableList.copyOf(series
             .stream()
@@ -444,15 +932,27 @@ public class LocalMetricManager implements MetricManager {
         implements StreamCollector<FetchData, ResultGroups> {
         final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
         final FetchQuotaWatcher watcher;
+        final QueryAdmissionController.Ticket ticket;
+        final InFlight inFlight;
         final AggregationInstance aggregation;
         final AggregationSession session;
         final Map<Map<String, String>, Set<Series>> lookup;
+        final MetricBackendReporter reporter;
+
+        final long started = System.nanoTime();
+        final LongAdder updateTime = new LongAdder();
 
         @Override
         public void resolved(FetchData result) throws Exception {
+            final QueryAdmissionController.Ticket.Usage usage = ticket.usage();
+            final long start = System.nanoTime();
+
             for (final MetricCollection g : result.getGroups()) {
                 g.updateAggregation(session, result.getSeries().getTags());
             }
+
+            updateTime.add(System.nanoTime() - start);
+            usage.end();
         }
 
         @Override
@@ -468,7 +968,14 @@ public class LocalMetricManager implements MetricManager {
 
         @Override
         public ResultGroups end(int resolved, int failed, int cancelled) throws Exception {
-            if (failed > 0 || cancelled > 0) {
+            reporter.reportFetchWait(System.nanoTime() - started);
+            reporter.reportAggregationUpdate(updateTime.sum());
+            reporter.reportQueryRead(ticket.pointsRead(), ticket.bytesRead());
+
+            /* fetches that did not complete before the deadline only make the result partial */
+            final boolean partial = inFlight.isExpired() && (failed > 0 || cancelled > 0);
+
+            if (!partial && (failed > 0 || cancelled > 0)) {
                 final Exception e = new Exception(
                     "Some fetches failed (" + failed + ") or were cancelled (" + cancelled + ")");
 
@@ -481,7 +988,11 @@ public class LocalMetricManager implements MetricManager {
 
             final QueryTrace trace = buildTrace();
 
+            final QueryAdmissionController.Ticket.Usage usage = ticket.usage();
+            final long resultStart = System.nanoTime();
             final AggregationResult result = session.result();
+            reporter.reportAggregationResult(System.nanoTime() - resultStart);
+            usage.end();
 
             final List<ResultGroup> groups = new ArrayList<>();
 
@@ -504,11 +1015,89 @@ public class LocalMetricManager implements MetricManager {
                     aggregation.cadence()));
             }
 
-            final Statistics stat = result.getStatistics();
-            return new ResultGroups(groups, ImmutableList.of(), stat, trace);
+            final Statistics stat = result.getStatistics().merge(ticket.statistics());
+            return new ResultGroups(groups, ImmutableList.of(), stat, trace, partial);
         }
     }
 
+    @Data
+    private static class SeriesKey {
+        private final MetricType source;
+        private final Series series;
+    }
+
+    /**
+     * A range of a series which is fetched once for the queries of a batch that overlap it.
+     */
+    @Data
+    static class Span {
+        private final DateRange range;
+        /* the number of queries sharing the span */
+        private final int queries;
+        /* the latest deadline of the queries, or empty if any of them has none */
+        private final Optional<Duration> deadline;
+
+        /**
+         * The sum of the quotas of the queries sharing the span, limited to what a quota watcher
+         * can report.
+         */
+        long quota(final long dataLimit) {
+            if (dataLimit >= Integer.MAX_VALUE / queries) {
+                return Integer.MAX_VALUE;
+            }
+
+            return dataLimit * queries;
+        }
+
+        static Span of(final DateRange range, final List<FullQuery> users) {
+            int queries = 0;
+            boolean unbounded = false;
+            Optional<Duration> deadline = Optional.empty();
+
+            for (final FullQuery q : users) {
+                final DateRange r = q.getRange();
+
+                if (r.start() < range.start() || range.end() < r.end()) {
+                    continue;
+                }
+
+                queries++;
+
+                final Optional<Duration> d = q.getOptions().getDeadline();
+
+                if (!d.isPresent()) {
+                    unbounded = true;
+                    continue;
+                }
+
+                if (!deadline.isPresent() ||
+                    d.get().toMilliseconds() > deadline.get().toMilliseconds()) {
+                    deadline = d;
+                }
+            }
+
+            return new Span(range, Math.max(queries, 1),
+                unbounded ? Optional.empty() : deadline);
+        }
+    }
+
+    @Data
+    private static class SpanKey {
+        private final MetricType source;
+        private final Series series;
+        private final DateRange range;
+    }
+
+    /**
+     * Sets up the fetches of a single series for a query.
+     */
+    private interface FetchSetup {
+        void setup(
+            Series series, FetchQuotaWatcher watcher,
+            List<Callable<AsyncFuture<FetchData>>> fetches
+        ) throws Exception;
+    }
+
     private static interface InternalOperation<T> {
         T run(MetricBackend backend) throws Exception;
     }
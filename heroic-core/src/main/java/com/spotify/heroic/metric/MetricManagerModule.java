@@ -21,16 +21,20 @@
 
 package com.spotify.heroic.metric;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.spotify.heroic.analytics.AnalyticsComponent;
 import com.spotify.heroic.analytics.MetricAnalytics;
+import com.spotify.heroic.common.Duration;
 import com.spotify.heroic.common.GroupSet;
 import com.spotify.heroic.common.ModuleIdBuilder;
 import com.spotify.heroic.dagger.CorePrimaryComponent;
 import com.spotify.heroic.lifecycle.LifeCycle;
+import com.spotify.heroic.lifecycle.LifeCycleManager;
 import com.spotify.heroic.metadata.MetadataComponent;
 import com.spotify.heroic.metadata.MetadataManager;
+import com.spotify.heroic.scheduler.Scheduler;
 import com.spotify.heroic.statistics.HeroicReporter;
 import com.spotify.heroic.statistics.MetricBackendReporter;
 import dagger.Component;
@@ -47,6 +51,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.spotify.heroic.common.Optionals.mergeOptionalList;
 import static com.spotify.heroic.common.Optionals.pickOptional;
@@ -60,6 +65,16 @@ public class MetricManagerModule {
     public static final long DEFAULT_AGGREGATION_LIMIT = 10000;
     public static final long DEFAULT_DATA_LIMIT = 30000000;
     public static final int DEFAULT_FETCH_PARALLELISM = 100;
+    public static final int DEFAULT_QUERY_CONCURRENCY_LIMIT = 50;
+    public static final long DEFAULT_QUERY_COST_BUDGET = 1000000000;
+    public static final int DEFAULT_QUERY_QUEUE_LIMIT = 100;
+    public static final Duration DEFAULT_ROLLUP_FLUSH_DELAY = Duration.of(1, TimeUnit.MINUTES);
+    public static final Duration DEFAULT_ROLLUP_FLUSH_INTERVAL = Duration.of(1, TimeUnit.MINUTES);
+    public static final Duration DEFAULT_ROLLUP_COMPACT_INTERVAL = Duration.of(1, TimeUnit.DAYS);
+    public static final double DEFAULT_ROLLUP_COMPACT_RATE = 100000D;
+    public static final int DEFAULT_ROLLUP_COMPACT_SLICE_KEYS = 1000;
+    public static final Duration DEFAULT_ROLLUP_COMPACT_SLICE_INTERVAL =
+        Duration.of(10, TimeUnit.SECONDS);
 
     private final List<MetricModule> backends;
     private final Optional<List<String>> defaultBackends;
@@ -89,6 +104,38 @@ public class MetricManagerModule {
      */
     private final int fetchParallelism;
 
+    /**
+     * How many queries are allowed to fetch data at the same time.
+     */
+    private final int queryConcurrencyLimit;
+
+    /**
+     * The total estimated cost (series times buckets) of all queries allowed to fetch data at the
+     * same time.
+     */
+    private final long queryCostBudget;
+
+    /**
+     * How many queries are allowed to wait for admission before new ones are rejected.
+     */
+    private final int queryQueueLimit;
+
+    /**
+     * Backend groups in which concurrent fetches for the same series and range are coalesced into
+     * a single read.
+     */
+    private final Set<String> coalescedGroups;
+
+    /**
+     * Rollups maintained for ingested points, if any resolutions are configured.
+     */
+    private final Optional<Rollups> rollups;
+
+    /**
+     * How to compact raw data into rollups, if enabled.
+     */
+    private final Optional<RollupCompactor.Config> rollupCompaction;
+
     public MetricComponent module(
         final CorePrimaryComponent primary, final MetadataComponent metadata,
         final AnalyticsComponent analytics
@@ -97,7 +144,8 @@ public class MetricManagerModule {
             .builder()
             .corePrimaryComponent(primary)
             .m(new M(backends, defaultBackends, groupLimit, seriesLimit, aggregationLimit,
-                dataLimit, fetchParallelism, primary))
+                dataLimit, fetchParallelism, queryConcurrencyLimit, queryCostBudget,
+                queryQueueLimit, coalescedGroups, rollups, rollupCompaction, primary))
             .metadataComponent(metadata)
             .analyticsComponent(analytics)
             .build();
@@ -127,6 +175,12 @@ public class MetricManagerModule {
         private final long aggregationLimit;
         private final long dataLimit;
         private final int fetchParallelism;
+        private final int queryConcurrencyLimit;
+        private final long queryCostBudget;
+        private final int queryQueueLimit;
+        private final Set<String> coalescedGroups;
+        private final Optional<Rollups> rollups;
+        private final Optional<RollupCompactor.Config> rollupCompaction;
         private final CorePrimaryComponent primary;
 
         @Provides
@@ -165,30 +219,86 @@ public class MetricManagerModule {
         @Provides
         @MetricScope
         public Set<MetricBackend> backends(
-            List<MetricModule.Exposed> components, MetricBackendReporter reporter
+            List<MetricModule.Exposed> components, MetricBackendReporter reporter,
+            AsyncFramework async
         ) {
             return ImmutableSet.copyOf(components
                 .stream()
                 .map(MetricModule.Exposed::backend)
                 .map(reporter::decorate)
+                .map(b -> coalesce(b, reporter, async))
                 .iterator());
         }
 
+        private MetricBackend coalesce(
+            final MetricBackend backend, final MetricBackendReporter reporter,
+            final AsyncFramework async
+        ) {
+            for (final String group : backend.groups()) {
+                if (coalescedGroups.contains(group)) {
+                    return new CoalescingMetricBackend(async, backend, reporter);
+                }
+            }
+
+            return backend;
+        }
+
         @Provides
         @MetricScope
         @Named("metric")
-        public LifeCycle metricLife(List<MetricModule.Exposed> components) {
-            return LifeCycle.combined(components.stream().map(MetricModule.Exposed::life));
+        public LifeCycle metricLife(
+            List<MetricModule.Exposed> components, LifeCycleManager manager,
+            Optional<RollupFlusher> rollupFlusher, Optional<RollupCompactor> rollupCompactor
+        ) {
+            final List<LifeCycle> life = new ArrayList<>();
+            components.stream().map(MetricModule.Exposed::life).forEach(life::add);
+            rollupFlusher.map(manager::build).ifPresent(life::add);
+            rollupCompactor.map(manager::build).ifPresent(life::add);
+            return LifeCycle.combined(life);
+        }
+
+        @Provides
+        @MetricScope
+        public Optional<Rollups> rollups() {
+            return rollups;
+        }
+
+        @Provides
+        @MetricScope
+        public Optional<RollupFlusher> rollupFlusher(
+            final AsyncFramework async, final MetricManager metric, final Scheduler scheduler
+        ) {
+            return rollups.map(
+                r -> new RollupFlusher(async, r, metric, scheduler, RollupLease.localOwner()));
+        }
+
+        @Provides
+        @MetricScope
+        public Optional<RollupCompactor> rollupCompactor(
+            final AsyncFramework async, final MetricManager metric,
+            @Named("application/json") final ObjectMapper mapper
+        ) {
+            return rollups.flatMap(r -> rollupCompaction.map(
+                c -> new RollupCompactor(async, r, metric, mapper, c, RollupLease.localOwner())));
+        }
+
+        @Provides
+        @MetricScope
+        public QueryAdmissionController admission(final AsyncFramework async) {
+            return new QueryAdmissionController(async, queryConcurrencyLimit, queryCostBudget,
+                queryQueueLimit);
         }
 
         @Provides
         @MetricScope
         public MetricManager metricManager(
             final AsyncFramework async, final GroupSet<MetricBackend> backends,
-            final MetadataManager metadata, final MetricBackendReporter reporter
+            final MetadataManager metadata, final MetricBackendReporter reporter,
+            final QueryAdmissionController admission, final Scheduler scheduler
         ) {
             return new LocalMetricManager(groupLimit, seriesLimit, aggregationLimit, dataLimit,
-                fetchParallelism, async, backends, metadata, reporter);
+                fetchParallelism, async, backends, metadata, reporter, admission, scheduler,
+                rollups);
         }
     }
 
@@ -206,6 +316,20 @@ public class MetricManagerModule {
         private Optional<Long> aggregationLimit = empty();
         private Optional<Long> dataLimit = empty();
         private Optional<Integer> fetchParallelism = empty();
+        private Optional<Integer> queryConcurrencyLimit = empty();
+        private Optional<Long> queryCostBudget = empty();
+        private Optional<Integer> queryQueueLimit = empty();
+        private Optional<List<String>> coalescedGroups = empty();
+        private Optional<List<Duration>> rollupResolutions = empty();
+        private Optional<String> rollupGroup = empty();
+        private Optional<Duration> rollupFlushDelay = empty();
+        private Optional<Duration> rollupFlushInterval = empty();
+        private Optional<Long> rollupSince = empty();
+        private Optional<Duration> rollupCompactAge = empty();
+        private Optional<Duration> rollupCompactInterval = empty();
+        private Optional<Double> rollupCompactRate = empty();
+        private Optional<Integer> rollupCompactSliceKeys = empty();
+        private Optional<Duration> rollupCompactSliceInterval = empty();
 
         public Builder backends(List<MetricModule> backends) {
             this.backends = of(backends);
@@ -242,6 +366,115 @@ public class MetricManagerModule {
             return this;
         }
 
+        public Builder queryConcurrencyLimit(Integer queryConcurrencyLimit) {
+            this.queryConcurrencyLimit = of(queryConcurrencyLimit);
+            return this;
+        }
+
+        public Builder queryCostBudget(Long queryCostBudget) {
+            this.queryCostBudget = of(queryCostBudget);
+            return this;
+        }
+
+        public Builder queryQueueLimit(Integer queryQueueLimit) {
+            this.queryQueueLimit = of(queryQueueLimit);
+            return this;
+        }
+
+        public Builder coalescedGroups(List<String> coalescedGroups) {
+            this.coalescedGroups = of(coalescedGroups);
+            return this;
+        }
+
+        /**
+         * Resolutions to maintain rollups for at ingest time, rollups are disabled if empty.
+         * <p>
+         * Only one node may ingest points into the cluster while rollups are maintained at
+         * ingest, a node that detects another writer stops maintaining them.
+         */
+        public Builder rollupResolutions(List<Duration> rollupResolutions) {
+            this.rollupResolutions = of(rollupResolutions);
+            return this;
+        }
+
+        /**
+         * Backend group that rollups are written to and read from.
+         */
+        public Builder rollupGroup(String rollupGroup) {
+            this.rollupGroup = of(rollupGroup);
+            return this;
+        }
+
+        /**
+         * How long to wait for late points after a rollup interval has been closed.
+         */
+        public Builder rollupFlushDelay(Duration rollupFlushDelay) {
+            this.rollupFlushDelay = of(rollupFlushDelay);
+            return this;
+        }
+
+        /**
+         * How often closed rollup intervals are written.
+         */
+        public Builder rollupFlushInterval(Duration rollupFlushInterval) {
+            this.rollupFlushInterval = of(rollupFlushInterval);
+            return this;
+        }
+
+        /**
+         * Time in milliseconds since the epoch from which rollups have been written for all
+         * series, queries only read rollups written at ingest when this is set.
+         */
+        public Builder rollupSince(Long rollupSince) {
+            this.rollupSince = of(rollupSince);
+            return this;
+        }
+
+        /**
+         * Compact raw data that is older than the given age into rollups in the background.
+         * <p>
+         * Only one node compacts into the rollup group at a time, other nodes with this set
+         * stand by. All nodes with rollups configured read the compacted rollups.
+         */
+        public Builder rollupCompactAge(Duration rollupCompactAge) {
+            this.rollupCompactAge = of(rollupCompactAge);
+            return this;
+        }
+
+        /**
+         * Time between two compaction passes.
+         */
+        public Builder rollupCompactInterval(Duration rollupCompactInterval) {
+            this.rollupCompactInterval = of(rollupCompactInterval);
+            return this;
+        }
+
+        /**
+         * Maximum number of raw points per second read by compaction.
+         */
+        public Builder rollupCompactRate(Double rollupCompactRate) {
+            this.rollupCompactRate = of(rollupCompactRate);
+            return this;
+        }
+
+        /**
+         * Number of rows that compaction processes in one slice, progress is recorded in the
+         * rollup group after each slice.
+         */
+        public Builder rollupCompactSliceKeys(Integer rollupCompactSliceKeys) {
+            this.rollupCompactSliceKeys = of(rollupCompactSliceKeys);
+            return this;
+        }
+
+        /**
+         * Time between two compaction slices, which is also how often the compaction lease is
+         * renewed while a slice is in progress.
+         */
+        public Builder rollupCompactSliceInterval(Duration rollupCompactSliceInterval) {
+            this.rollupCompactSliceInterval = of(rollupCompactSliceInterval);
+            return this;
+        }
+
         public Builder merge(final Builder o) {
             // @formatter:off
             return new Builder(
@@ -251,7 +484,21 @@ public class MetricManagerModule {
                 pickOptional(seriesLimit, o.seriesLimit),
                 pickOptional(aggregationLimit, o.aggregationLimit),
                 pickOptional(dataLimit, o.dataLimit),
-                pickOptional(fetchParallelism, o.fetchParallelism)
+                pickOptional(fetchParallelism, o.fetchParallelism),
+                pickOptional(queryConcurrencyLimit, o.queryConcurrencyLimit),
+                pickOptional(queryCostBudget, o.queryCostBudget),
+                pickOptional(queryQueueLimit, o.queryQueueLimit),
+                mergeOptionalList(o.coalescedGroups, coalescedGroups),
+                pickOptional(rollupResolutions, o.rollupResolutions),
+                pickOptional(rollupGroup, o.rollupGroup),
+                pickOptional(rollupFlushDelay, o.rollupFlushDelay),
+                pickOptional(rollupFlushInterval, o.rollupFlushInterval),
+                pickOptional(rollupSince, o.rollupSince),
+                pickOptional(rollupCompactAge, o.rollupCompactAge),
+                pickOptional(rollupCompactInterval, o.rollupCompactInterval),
+                pickOptional(rollupCompactRate, o.rollupCompactRate),
+                pickOptional(rollupCompactSliceKeys, o.rollupCompactSliceKeys),
+                pickOptional(rollupCompactSliceInterval, o.rollupCompactSliceInterval)
             );
             // @formatter:on
         }
@@ -265,7 +512,50 @@ public class MetricManagerModule {
                 seriesLimit.orElse(DEFAULT_SERIES_LIMIT),
                 aggregationLimit.orElse(DEFAULT_AGGREGATION_LIMIT),
                 dataLimit.orElse(DEFAULT_DATA_LIMIT),
-                fetchParallelism.orElse(DEFAULT_FETCH_PARALLELISM)
+                fetchParallelism.orElse(DEFAULT_FETCH_PARALLELISM),
+                queryConcurrencyLimit.orElse(DEFAULT_QUERY_CONCURRENCY_LIMIT),
+                queryCostBudget.orElse(DEFAULT_QUERY_COST_BUDGET),
+                queryQueueLimit.orElse(DEFAULT_QUERY_QUEUE_LIMIT),
+                ImmutableSet.copyOf(coalescedGroups.orElseGet(ImmutableList::of)),
+                rollupResolutions.filter(r -> !r.isEmpty()).map(this::buildRollups),
+                rollupCompactAge.map(this::buildRollupCompaction)
+            );
+            // @formatter:on
+        }
+
+        private Rollups buildRollups(final List<Duration> resolutions) {
+            // @formatter:off
+            return new Rollups(
+                ImmutableList.copyOf(resolutions.stream().map(Duration::toMilliseconds).iterator()),
+                rollupGroup,
+                rollupFlushDelay.orElse(DEFAULT_ROLLUP_FLUSH_DELAY).toMilliseconds(),
+                rollupFlushInterval.orElse(DEFAULT_ROLLUP_FLUSH_INTERVAL).toMilliseconds(),
+                rollupSince
+            );
+            // @formatter:on
+        }
+
+        private RollupCompactor.Config buildRollupCompaction(final Duration age) {
+            final long flushed =
+                rollupFlushDelay.orElse(DEFAULT_ROLLUP_FLUSH_DELAY).toMilliseconds() +
+                    rollupFlushInterval.orElse(DEFAULT_ROLLUP_FLUSH_INTERVAL).toMilliseconds();
+
+            /* compaction must run after the flush of an interval, so that it replaces failures */
+            if (age.toMilliseconds() <= flushed) {
+                throw new IllegalArgumentException(
+                    "rollupCompactAge must be longer than rollupFlushDelay and " +
+                        "rollupFlushInterval combined: " + age);
+            }
+
+            // @formatter:off
+            return new RollupCompactor.Config(
+                age.toMilliseconds(),
+                rollupCompactInterval.orElse(DEFAULT_ROLLUP_COMPACT_INTERVAL).toMilliseconds(),
+                rollupCompactRate.orElse(DEFAULT_ROLLUP_COMPACT_RATE),
+                rollupCompactSliceKeys.orElse(DEFAULT_ROLLUP_COMPACT_SLICE_KEYS),
+                rollupCompactSliceInterval
+                    .orElse(DEFAULT_ROLLUP_COMPACT_SLICE_INTERVAL)
+                    .toMilliseconds()
             );
             // @formatter:on
         }
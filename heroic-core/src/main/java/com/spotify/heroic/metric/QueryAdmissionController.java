@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Statistics;
+import com.spotify.heroic.filter.Filter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.ResolvableFuture;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides if queries are allowed to start fetching data on this node.
+ * <p>
+ * Each query is given an up-front cost estimate (number of series times the estimated number of
+ * buckets), which is admitted against a global budget. Queries that do not fit are queued in
+ * order of arrival until enough budget is released, or rejected outright if the queue is full.
+ * <p>
+ * A query that is larger than the whole budget is still admitted once nothing else is running,
+ * so that it is not starved forever.
+ */
+@ToString(of = {"concurrencyLimit", "costBudget", "queueLimit"})
+public class QueryAdmissionController {
+    public static final String SERIES = "query-series";
+    public static final String ESTIMATED_COST = "query-estimated-cost";
+    public static final String POINTS_READ = "query-points-read";
+    public static final String BYTES_READ = "query-bytes-read";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final AsyncFramework async;
+    private final int concurrencyLimit;
+    private final long costBudget;
+    private final int queueLimit;
+
+    private final Object lock = new Object();
+    private final Set<Ticket> running = new LinkedHashSet<>();
+    private final Deque<Ticket> queue = new ArrayDeque<>();
+    private long admittedCost = 0L;
+
+    /**
+     * @param concurrencyLimit The maximum number of queries that may run at the same time.
+     * @param costBudget The maximum total estimated cost of all running queries.
+     * @param queueLimit The maximum number of queries waiting for admission.
+     */
+    public QueryAdmissionController(
+        final AsyncFramework async, final int concurrencyLimit, final long costBudget,
+        final int queueLimit
+    ) {
+        this.async = async;
+        this.concurrencyLimit = concurrencyLimit;
+        this.costBudget = costBudget;
+        this.queueLimit = queueLimit;
+    }
+
+    /**
+     * Create a new ticket for a query, which is used to track its resource usage.
+     */
+    public Ticket newTicket(final MetricType source, final Filter filter, final DateRange range) {
+        return new Ticket(UUID.randomUUID(), source, filter.toDSL(), range, System.nanoTime());
+    }
+
+    /**
+     * Attempt to admit the given ticket.
+     *
+     * @param ticket Ticket to admit, must have been estimated.
+     * @return A future that is resolved when the query is admitted, or failed if the query was
+     * rejected.
+     */
+    public AsyncFuture<Ticket> admit(final Ticket ticket) {
+        final ResolvableFuture<Ticket> future;
+
+        synchronized (lock) {
+            if (queue.isEmpty() && fits(ticket.estimatedCost)) {
+                start(ticket);
+                return async.resolved(ticket);
+            }
+
+            if (queue.size() >= queueLimit) {
+                return async.failed(new IllegalStateException(String.format(
+                    "Query rejected, node is overloaded (%d running, %d queued, cost %d/%d)",
+                    running.size(), queue.size(), admittedCost, costBudget)));
+            }
+
+            future = async.future();
+            ticket.pending = future;
+            queue.add(ticket);
+        }
+
+        future.onCancelled(() -> release(ticket));
+        return future;
+    }
+
+    /**
+     * Release the budget held by the given ticket, and admit any queued tickets that now fit.
+     * <p>
+     * It is safe to call this multiple times, and for tickets that were never admitted.
+     */
+    public void release(final Ticket ticket) {
+        final List<Ticket> admitted = new ArrayList<>();
+
+        synchronized (lock) {
+            if (running.remove(ticket)) {
+                admittedCost -= ticket.estimatedCost;
+            } else {
+                queue.remove(ticket);
+            }
+
+            while (!queue.isEmpty() && fits(queue.peek().estimatedCost)) {
+                final Ticket next = queue.poll();
+                start(next);
+                admitted.add(next);
+            }
+        }
+
+        for (final Ticket next : admitted) {
+            if (!next.pending.resolve(next)) {
+                /* raced with a cancel, give the budget back */
+                release(next);
+            }
+        }
+    }
+
+    /**
+     * Build a snapshot of all running and queued queries.
+     */
+    public List<RunningQuery> runningQueries() {
+        final long now = System.nanoTime();
+        final ImmutableList.Builder<RunningQuery> result = ImmutableList.builder();
+
+        synchronized (lock) {
+            for (final Ticket t : running) {
+                result.add(t.snapshot(RunningQuery.State.RUNNING, now));
+            }
+
+            for (final Ticket t : queue) {
+                result.add(t.snapshot(RunningQuery.State.QUEUED, now));
+            }
+        }
+
+        return result.build();
+    }
+
+    private boolean fits(final long cost) {
+        if (running.size() >= concurrencyLimit) {
+            return false;
+        }
+
+        return running.isEmpty() || admittedCost + cost <= costBudget;
+    }
+
+    private void start(final Ticket ticket) {
+        running.add(ticket);
+        admittedCost += ticket.estimatedCost;
+    }
+
+    private static long currentThreadCpuTime() {
+        if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+            return 0L;
+        }
+
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return 0L;
+        }
+
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(
+            Thread.currentThread().getId());
+    }
+
+    /**
+     * Tracks the estimated and actual resource usage of a single query.
+     */
+    @RequiredArgsConstructor
+    @ToString(of = {"id", "source", "filter", "range"})
+    public class Ticket {
+        @Getter
+        private final UUID id;
+        private final MetricType source;
+        private final String filter;
+        private final DateRange range;
+        private final long started;
+
+        private final LongAdder pointsRead = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder cpuTime = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private volatile long seriesCount = 0L;
+        private volatile long buckets = -1L;
+        private volatile long estimatedCost = 0L;
+
+        /* guarded by lock */
+        private ResolvableFuture<Ticket> pending;
+
+        /**
+         * Provide the up-front estimate of the query.
+         *
+         * @param seriesCount Number of series matched.
+         * @param buckets Number of buckets estimated by the aggregation, or {@code -1} if unknown.
+         */
+        public void estimate(final long seriesCount, final long buckets) {
+            this.seriesCount = seriesCount;
+            this.buckets = buckets;
+            this.estimatedCost = seriesCount * Math.max(buckets, 1L);
+        }
+
+        /**
+         * Wrap the given quota watcher so that all data read is accounted to this ticket.
+         */
+        public FetchQuotaWatcher watch(final FetchQuotaWatcher delegate) {
+            return new FetchQuotaWatcher() {
+                @Override
+                public boolean readData(final long n) {
+                    pointsRead.add(n);
+                    return delegate.readData(n);
+                }
+
+                @Override
+                public void readBytes(final long n) {
+                    bytesRead.add(n);
+                    delegate.readBytes(n);
+                }
+
+                @Override
+                public boolean mayReadData() {
+                    return delegate.mayReadData();
+                }
+
+                @Override
+                public int getReadDataQuota() {
+                    return delegate.getReadDataQuota();
+                }
+
+                @Override
+                public boolean isQuotaViolated() {
+                    return delegate.isQuotaViolated();
+                }
+            };
+        }
+
+        /**
+         * Number of data points read by the query so far.
+         */
+        public long pointsRead() {
+            return pointsRead.sum();
+        }
+
+        /**
+         * Number of bytes read by the query so far, for backends that report it.
+         */
+        public long bytesRead() {
+            return bytesRead.sum();
+        }
+
+        /**
+         * Statistics describing the resources used by the query, which are sent back to the node
+         * coordinating the query as part of the shard result.
+         */
+        public Statistics statistics() {
+            return Statistics.of(ImmutableMap.of(SERIES, seriesCount, ESTIMATED_COST, estimatedCost,
+                POINTS_READ, pointsRead.sum(), BYTES_READ, bytesRead.sum()));
+        }
+
+        /**
+         * Start measuring CPU and heap usage on the current thread.
+         * <p>
+         * The returned usage must be ended on the same thread.
+         */
+        public Usage usage() {
+            return new Usage(currentThreadCpuTime(), currentThreadAllocatedBytes());
+        }
+
+        /**
+         * Release the budget held by this ticket.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                QueryAdmissionController.this.release(this);
+            }
+        }
+
+        RunningQuery snapshot(final RunningQuery.State state, final long now) {
+            return new RunningQuery(id, state, source, filter, range,
+                TimeUnit.MILLISECONDS.convert(now - started, TimeUnit.NANOSECONDS), seriesCount,
+                buckets, estimatedCost, pointsRead.sum(), bytesRead.sum(), cpuTime.sum(),
+                allocatedBytes.sum());
+        }
+
+        @RequiredArgsConstructor
+        public class Usage {
+            private final long cpu;
+            private final long allocated;
+
+            public void end() {
+                cpuTime.add(currentThreadCpuTime() - cpu);
+                allocatedBytes.add(currentThreadAllocatedBytes() - allocated);
+            }
+        }
+    }
+}
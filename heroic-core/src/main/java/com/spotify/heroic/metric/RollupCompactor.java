@@ -0,0 +1,506 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.math.LongMath;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.async.AsyncObserver;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.OptionalLimit;
+import com.spotify.heroic.common.Series;
+import com.spotify.heroic.lifecycle.LifeCycleRegistry;
+import com.spotify.heroic.lifecycle.LifeCycles;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.ResolvableFuture;
+import lombok.Data;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that compacts raw points older than a configured age into rollups.
+ * <p>
+ * Each pass streams all row keys of the default group, and writes the rollups of every interval
+ * that ended after the previous pass and at least the configured age before the pass started.
+ * Intervals at the edges of a row are read across the neighbouring rows, since they might not be
+ * complete within a single row. The raw rows are left as they are.
+ * <p>
+ * Rows which end before the intervals of a pass are skipped without being read. Since the width of
+ * rows isn't known, it is estimated as the greatest common divisor of the bases of all rows seen.
+ * <p>
+ * Rows are processed in slices on a dedicated thread, and progress is recorded in the {@link
+ * Rollups#COMPACTION} series of the rollup group after each slice, so that a pass can be resumed
+ * by whichever node compacts next. The job throttles itself to a configured number of points per
+ * second, and defers work while queries are waiting for admission on this node.
+ * <p>
+ * Only one node may compact into a rollup group, which is enforced with the {@link
+ * Rollups#COMPACTOR} lease. The lease is renewed between rows while a slice takes longer than the
+ * slice interval. Completed passes are recorded in the {@link Rollups#COMPACTED} series, from
+ * which all nodes read the ranges that are covered by rollups (see {@link
+ * RollupFlusher#sync(long)}).
+ */
+@Slf4j
+@ToString(of = {"config"})
+public class RollupCompactor implements LifeCycles {
+    private static final TypeReference<Map<String, Object>> PAYLOAD =
+        new TypeReference<Map<String, Object>>() {
+        };
+
+    private final AsyncFramework async;
+    private final Rollups rollups;
+    private final MetricManager metric;
+    private final ObjectMapper mapper;
+    private final Config config;
+    private final RateLimiter rateLimiter;
+    private final RollupLease lease;
+
+    private volatile ScheduledExecutorService executor;
+
+    /* only accessed by the compaction thread */
+    private boolean loaded = false;
+    private Optional<State> state = Optional.empty();
+    private long width = 0L;
+    private boolean held = true;
+
+    public RollupCompactor(
+        final AsyncFramework async, final Rollups rollups, final MetricManager metric,
+        final ObjectMapper mapper, final Config config, final String owner
+    ) {
+        this.async = async;
+        this.rollups = rollups;
+        this.metric = metric;
+        this.mapper = mapper;
+        this.config = config;
+        this.rateLimiter = RateLimiter.create(config.getRate());
+        this.lease = new RollupLease(async, metric, rollups.getGroup(), Rollups.COMPACTOR,
+            config.getSliceInterval() * 3, owner);
+    }
+
+    @Override
+    public void register(LifeCycleRegistry registry) {
+        registry.start(this::start);
+        registry.stop(this::stop);
+    }
+
+    /**
+     * Process the next slice of rows, starting a new pass if the previous one has completed and
+     * the next is due.
+     */
+    public void slice(final long now) throws Exception {
+        if (!renew(now)) {
+            return;
+        }
+
+        final MetricBackendGroup raw = metric.useDefaultGroup();
+        final MetricBackendGroup target = metric.useOptionalGroup(rollups.getGroup());
+
+        if (!loaded) {
+            load(target, now);
+        }
+
+        final Optional<State> pass = pass(target, now);
+
+        if (!pass.isPresent()) {
+            return;
+        }
+
+        final State current = pass.get();
+
+        if (busy()) {
+            log.debug("Deferring rollup compaction, queries are waiting for admission");
+            return;
+        }
+
+        BackendKeyFilter filter =
+            BackendKeyFilter.of().withLimit(OptionalLimit.of(config.getSliceKeys()));
+
+        if (current.getLast().isPresent()) {
+            filter = filter.withStart(BackendKeyFilter.gt(current.getLast().get().toBackendKey()));
+        }
+
+        final List<BackendKey> keys = keys(raw, filter);
+
+        if (keys.isEmpty()) {
+            record(target, current.getUntil());
+            store(target, new State(current.getFrom(), current.getUntil(), Optional.empty(), true));
+            rollups.compacted(current.getUntil());
+            log.info("Compacted rollups for intervals ending in ({}, {}]", current.getFrom(),
+                current.getUntil());
+            return;
+        }
+
+        for (final BackendKey key : keys) {
+            width = LongMath.gcd(width, Math.abs(key.getBase()));
+        }
+
+        final long started = System.nanoTime();
+        long renewed = 0L;
+
+        for (final BackendKey key : keys) {
+            final long elapsed =
+                TimeUnit.MILLISECONDS.convert(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+            /* a slice can outlast the lease, so keep it alive in between rows */
+            if (elapsed - renewed >= config.getSliceInterval()) {
+                renewed = elapsed;
+
+                /* the progress of the slice is left to the new holder of the lease */
+                if (!renew(now + elapsed)) {
+                    return;
+                }
+            }
+
+            compact(raw, target, key, current.getFrom(), current.getUntil());
+        }
+
+        final BackendKey last = keys.get(keys.size() - 1);
+        store(target, new State(current.getFrom(), current.getUntil(),
+            Optional.of(new Position(last.getSeries(), last.getBase())), false));
+    }
+
+    /**
+     * Renew the compaction lease.
+     *
+     * @return {@code true} if this node holds the lease.
+     */
+    private boolean renew(final long now) throws Exception {
+        if (!lease.renew(now).get()) {
+            if (held) {
+                log.warn("Another node is compacting rollups into {}, only one node may do so",
+                    rollups.getGroup());
+            }
+
+            held = false;
+            /* the other node might make progress, read it when the lease is taken over */
+            loaded = false;
+            return false;
+        }
+
+        held = true;
+        return true;
+    }
+
+    /**
+     * Get the pass that is in progress, or start a new one if it is due.
+     */
+    private Optional<State> pass(final MetricBackendGroup target, final long now)
+        throws Exception {
+        final long until = now - config.getAge();
+        final State next;
+
+        if (!state.isPresent()) {
+            next = new State(Long.MIN_VALUE, until, Optional.empty(), false);
+        } else if (state.get().isDone() &&
+            until - state.get().getUntil() >= config.getInterval()) {
+            next = new State(state.get().getUntil(), until, Optional.empty(), false);
+        } else {
+            return state.filter(s -> !s.isDone());
+        }
+
+        log.info("Compacting rollups for intervals ending in ({}, {}]", next.getFrom(),
+            next.getUntil());
+        store(target, next);
+        return Optional.of(next);
+    }
+
+    private void compact(
+        final MetricBackendGroup raw, final MetricBackendGroup target, final BackendKey key,
+        final long from, final long until
+    ) throws Exception {
+        if (key.getType() != MetricType.POINT || Rollups.isRollup(key.getSeries()) ||
+            key.getBase() > until || ended(key, from)) {
+            return;
+        }
+
+        final MetricCollection row = raw.fetchRow(key).get();
+
+        if (row.getType() != MetricType.POINT || row.isEmpty()) {
+            return;
+        }
+
+        final List<Point> points = row.getDataAs(Point.class);
+        rateLimiter.acquire(points.size());
+
+        final Series series = key.getSeries();
+        final List<WriteMetric> writes = new ArrayList<>();
+
+        for (final long resolution : rollups.getResolutions()) {
+            final long first = Rollups.end(points.get(0).getTimestamp(), resolution);
+            final long last = Rollups.end(points.get(points.size() - 1).getTimestamp(), resolution);
+
+            /* intervals strictly inside of the row are complete */
+            writes.addAll(Rollups.summarize(series, resolution, points, Math.max(from, first),
+                Math.min(until, last - resolution)));
+
+            for (final long edge : ImmutableSet.of(first, last)) {
+                if (edge <= from || edge > until) {
+                    continue;
+                }
+
+                final FetchData data = raw
+                    .fetch(MetricType.POINT, series, new DateRange(edge - resolution + 1, edge),
+                        QueryOptions.defaults())
+                    .get();
+
+                for (final MetricCollection g : data.getGroups()) {
+                    if (g.getType() == MetricType.POINT) {
+                        writes.addAll(Rollups.summarize(series, resolution,
+                            g.getDataAs(Point.class), edge - resolution, edge));
+                    }
+                }
+            }
+        }
+
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        final WriteResult result = target.write(writes).get();
+
+        if (!result.getErrors().isEmpty()) {
+            throw new RuntimeException(
+                "Failed to write rollups for " + key + ": " + result.getErrors());
+        }
+    }
+
+    /**
+     * Check if the given row ends before any interval that ends after the given time.
+     * <p>
+     * The estimated width is a multiple of the actual width, since all bases are multiples of it,
+     * so this never considers a row to have ended before it actually has.
+     */
+    private boolean ended(final BackendKey key, final long from) {
+        if (width <= 0L || from == Long.MIN_VALUE) {
+            return false;
+        }
+
+        return key.getBase() + width + rollups.getResolutions().get(0) <= from;
+    }
+
+    /**
+     * Record a completed pass in the rollup group.
+     */
+    private void record(final MetricBackendGroup target, final long until) throws Exception {
+        final WriteResult result = target
+            .write(new WriteMetric(Rollups.COMPACTED,
+                MetricCollection.points(ImmutableList.of(new Point(until, 1D)))))
+            .get();
+
+        if (!result.getErrors().isEmpty()) {
+            throw new RuntimeException(
+                "Failed to record compacted rollups until " + until + ": " + result.getErrors());
+        }
+    }
+
+    private List<BackendKey> keys(final MetricBackendGroup raw, final BackendKeyFilter filter)
+        throws Exception {
+        final List<BackendKey> keys = Collections.synchronizedList(new ArrayList<>());
+        final ResolvableFuture<Void> future = async.future();
+
+        raw.streamKeys(filter, QueryOptions.defaults()).observe(AsyncObserver.bind(future, set -> {
+            keys.addAll(set.getKeys());
+            return async.resolved();
+        }));
+
+        future.get();
+        return keys;
+    }
+
+    private boolean busy() {
+        return metric
+            .runningQueries()
+            .stream()
+            .anyMatch(q -> q.getState() == RunningQuery.State.QUEUED);
+    }
+
+    /**
+     * Read the progress of the latest pass from the rollup group.
+     */
+    private void load(final MetricBackendGroup target, final long now) throws Exception {
+        final FetchData data = target
+            .fetch(MetricType.EVENT, Rollups.COMPACTION, new DateRange(0L, now),
+                QueryOptions.defaults())
+            .get();
+
+        Optional<Event> latest = Optional.empty();
+
+        for (final MetricCollection g : data.getGroups()) {
+            if (g.getType() != MetricType.EVENT) {
+                continue;
+            }
+
+            for (final Event e : g.getDataAs(Event.class)) {
+                if (!latest.isPresent() || e.getTimestamp() >= latest.get().getTimestamp()) {
+                    latest = Optional.of(e);
+                }
+            }
+        }
+
+        loaded = true;
+
+        if (!latest.isPresent()) {
+            return;
+        }
+
+        final State stored = mapper.convertValue(latest.get().getPayload(), State.class);
+        state = Optional.of(stored);
+        rollups.compacted(stored.isDone() ? stored.getUntil() : stored.getFrom());
+        log.info("Resuming rollup compaction from {}", stored);
+    }
+
+    /**
+     * Record the progress of a pass in the rollup group, the latest progress of a pass replaces
+     * the previous one since it is written at the same time.
+     */
+    private void store(final MetricBackendGroup target, final State next) throws Exception {
+        state = Optional.of(next);
+
+        final Event progress = new Event(next.getUntil(), mapper.convertValue(next, PAYLOAD));
+        final WriteResult result = target
+            .write(new WriteMetric(Rollups.COMPACTION,
+                MetricCollection.events(ImmutableList.of(progress))))
+            .get();
+
+        if (!result.getErrors().isEmpty()) {
+            throw new RuntimeException(
+                "Failed to record rollup compaction progress: " + result.getErrors());
+        }
+    }
+
+    private AsyncFuture<Void> start() {
+        return async.call(() -> {
+            executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("heroic-rollup-compaction").build());
+            executor.scheduleWithFixedDelay(this::run, 0L, config.getSliceInterval(),
+                TimeUnit.MILLISECONDS);
+            return null;
+        });
+    }
+
+    private AsyncFuture<Void> stop() {
+        return async.<Void>call(() -> {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor.awaitTermination(config.getSliceInterval(), TimeUnit.MILLISECONDS);
+            }
+
+            return null;
+        }).lazyTransform(ignore -> lease.release(System.currentTimeMillis()));
+    }
+
+    private void run() {
+        try {
+            slice(System.currentTimeMillis());
+        } catch (final Exception e) {
+            log.error("Failed to compact rollups", e);
+        }
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * Only intervals that ended at least this many milliseconds ago are compacted.
+         */
+        private final long age;
+
+        /**
+         * Milliseconds between the cutoffs of two passes.
+         */
+        private final long interval;
+
+        /**
+         * Maximum number of raw points read per second.
+         */
+        private final double rate;
+
+        /**
+         * Maximum number of rows processed in one slice.
+         */
+        private final int sliceKeys;
+
+        /**
+         * Milliseconds between two slices.
+         */
+        private final long sliceInterval;
+    }
+
+    /**
+     * Progress of a single pass.
+     */
+    @Data
+    public static class State {
+        private final long from;
+        private final long until;
+        private final Optional<Position> last;
+        private final boolean done;
+
+        @JsonCreator
+        public State(
+            @JsonProperty("from") final long from, @JsonProperty("until") final long until,
+            @JsonProperty("last") final Optional<Position> last,
+            @JsonProperty("done") final boolean done
+        ) {
+            this.from = from;
+            this.until = until;
+            this.last = last;
+            this.done = done;
+        }
+    }
+
+    /**
+     * The last row key processed by a pass.
+     */
+    @Data
+    public static class Position {
+        private final Series series;
+        private final long base;
+
+        @JsonCreator
+        public Position(
+            @JsonProperty("series") final Series series, @JsonProperty("base") final long base
+        ) {
+            this.series = series;
+            this.base = base;
+        }
+
+        public BackendKey toBackendKey() {
+            return new BackendKey(series, base);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.lifecycle.LifeCycleRegistry;
+import com.spotify.heroic.lifecycle.LifeCycles;
+import com.spotify.heroic.scheduler.Scheduler;
+import com.spotify.heroic.scheduler.Task;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes closed rollup intervals to the rollup group, and reads the compaction
+ * watermark recorded there by the node running compaction (see {@link RollupCompactor}).
+ * <p>
+ * Writing requires holding the {@link Rollups#WRITER} lease, a node that finds another node
+ * writing rollups to the same group stops maintaining rollups altogether. Intervals that are
+ * still open when the node is stopped are not written, since they are incomplete, and the lease
+ * is released so that another node can take over writing.
+ */
+@Slf4j
+@ToString(of = {"rollups"})
+public class RollupFlusher implements LifeCycles {
+    private final AsyncFramework async;
+    private final Rollups rollups;
+    private final MetricManager metric;
+    private final Scheduler scheduler;
+    private final RollupLease lease;
+
+    public RollupFlusher(
+        final AsyncFramework async, final Rollups rollups, final MetricManager metric,
+        final Scheduler scheduler, final String owner
+    ) {
+        this.async = async;
+        this.rollups = rollups;
+        this.metric = metric;
+        this.scheduler = scheduler;
+        this.lease = new RollupLease(async, metric, rollups.getGroup(), Rollups.WRITER,
+            rollups.getFlushInterval() * 3, owner);
+    }
+
+    @Override
+    public void register(LifeCycleRegistry registry) {
+        registry.start(this::start);
+        registry.stop(this::stop);
+    }
+
+    /**
+     * Read the latest compaction watermark from the rollup group.
+     */
+    public AsyncFuture<Void> sync(final long now) {
+        final long from = Math.max(rollups.getCompacted() + 1, 0L);
+
+        if (from > now) {
+            return async.resolved();
+        }
+
+        return metric
+            .useOptionalGroup(rollups.getGroup())
+            .fetch(MetricType.POINT, Rollups.COMPACTED, new DateRange(from, now),
+                QueryOptions.defaults())
+            .<Void>directTransform(data -> {
+                for (final MetricCollection g : data.getGroups()) {
+                    if (g.getType() != MetricType.POINT) {
+                        continue;
+                    }
+
+                    for (final Point p : g.getDataAs(Point.class)) {
+                        rollups.compacted(p.getTimestamp());
+                    }
+                }
+
+                return null;
+            })
+            .catchFailed(e -> {
+                log.warn("Failed to read rollup compaction watermark", e);
+                return null;
+            });
+    }
+
+    /**
+     * Write all intervals that are ready at the given time.
+     */
+    public AsyncFuture<Void> flush(final long now) {
+        /* nodes that don't ingest any points are not writers */
+        if (!rollups.isUpdated() || rollups.isConflict()) {
+            return async.resolved();
+        }
+
+        return lease.renew(now).lazyTransform(held -> {
+            if (!held) {
+                log.error("Another node is writing rollups to {}, only one node may do so. " +
+                    "Rollups will not be maintained by this node", rollups.getGroup());
+                rollups.conflict();
+                return async.resolved();
+            }
+
+            return write(rollups.flush(now));
+        });
+    }
+
+    private AsyncFuture<Void> write(final Rollups.Flush flush) {
+        if (flush.getWrites().isEmpty()) {
+            rollups.written(flush, true);
+            return async.resolved();
+        }
+
+        return metric
+            .useOptionalGroup(rollups.getGroup())
+            .write(flush.getWrites())
+            .directTransform(result -> {
+                if (!result.getErrors().isEmpty()) {
+                    log.warn("Failed to write {} rollup(s): {}", result.getErrors().size(),
+                        result.getErrors());
+                    rollups.written(flush, false);
+                    return null;
+                }
+
+                rollups.written(flush, true);
+                log.debug("Flushed {} rollup series ({} pending, {} late point(s))",
+                    flush.getWrites().size(), rollups.pending(), rollups.late());
+                return null;
+            })
+            .onFailed(e -> {
+                log.warn("Failed to write rollups", e);
+                rollups.written(flush, false);
+            });
+    }
+
+    private AsyncFuture<Void> start() {
+        rollups.begin(System.currentTimeMillis());
+
+        scheduler.periodically("rollup-flush", rollups.getFlushInterval(), TimeUnit.MILLISECONDS,
+            new Task() {
+                @Override
+                public void run() throws Exception {
+                    final long now = System.currentTimeMillis();
+                    sync(now).get();
+                    flush(now).get();
+                }
+            });
+
+        return async.resolved();
+    }
+
+    private AsyncFuture<Void> stop() {
+        final long now = System.currentTimeMillis();
+        return flush(now).lazyTransform(ignore -> lease.release(now));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Series;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Makes sure that only one node in the cluster performs a rollup job against a group.
+ * <p>
+ * Every holder heartbeats by writing a point with an id derived from the name of its owner to a
+ * series in the group. The owner is stable across restarts of the same node, so a node that
+ * restarts within the timeout recognizes its own heartbeats. A holder that finds a heartbeat from
+ * another owner within the timeout has lost the lease, unless that owner has released it since.
+ * Two nodes that start at the same time might both see the lease as free once, but will find each
+ * other on their next renewal.
+ */
+@Slf4j
+@ToString(of = {"group", "series", "timeout", "owner"})
+public class RollupLease {
+    /**
+     * Value written by a holder that releases the lease, ids are always in [1, 2).
+     */
+    static final double RELEASED = 0D;
+
+    private final AsyncFramework async;
+    private final MetricManager metric;
+    private final Optional<String> group;
+    private final Series series;
+    private final long timeout;
+    private final String owner;
+    private final double id;
+
+    private volatile boolean held = false;
+
+    /**
+     * @param series Series that heartbeats are written to.
+     * @param timeout Milliseconds after which the heartbeat of another owner is ignored.
+     * @param owner Name of the owner of the lease, which should be stable across restarts.
+     */
+    public RollupLease(
+        final AsyncFramework async, final MetricManager metric, final Optional<String> group,
+        final Series series, final long timeout, final String owner
+    ) {
+        this.async = async;
+        this.metric = metric;
+        this.group = group;
+        this.series = series;
+        this.timeout = timeout;
+        this.owner = owner;
+        this.id = id(owner);
+    }
+
+    /**
+     * Renew the lease.
+     *
+     * @return A future resolved to {@code true} if this process holds the lease, or {@code false}
+     * if another owner has held it within the timeout. The future fails if the state of the
+     * lease could not be determined.
+     */
+    public AsyncFuture<Boolean> renew(final long now) {
+        final MetricBackendGroup backend = metric.useOptionalGroup(group);
+
+        return backend
+            .fetch(MetricType.POINT, series, new DateRange(now - timeout, now),
+                QueryOptions.defaults())
+            .lazyTransform(data -> {
+                if (heldByOther(data)) {
+                    held = false;
+                    return async.resolved(false);
+                }
+
+                return write(backend, now, id).directTransform(ignore -> {
+                    held = true;
+                    return true;
+                });
+            });
+    }
+
+    /**
+     * Release the lease if it is held, so that another owner may take it over without waiting
+     * for the timeout.
+     */
+    public AsyncFuture<Void> release(final long now) {
+        if (!held) {
+            return async.resolved();
+        }
+
+        held = false;
+        return write(metric.useOptionalGroup(group), now, RELEASED);
+    }
+
+    private boolean heldByOther(final FetchData data) {
+        final List<Point> heartbeats = new ArrayList<>();
+
+        for (final MetricCollection g : data.getGroups()) {
+            if (g.getType() == MetricType.POINT) {
+                heartbeats.addAll(g.getDataAs(Point.class));
+            }
+        }
+
+        heartbeats.sort(Comparator.comparingLong(Point::getTimestamp));
+
+        boolean other = false;
+
+        for (final Point p : heartbeats) {
+            if (p.getValue() == RELEASED) {
+                other = false;
+            } else if (p.getValue() != id) {
+                other = true;
+            }
+        }
+
+        return other;
+    }
+
+    private AsyncFuture<Void> write(
+        final MetricBackendGroup backend, final long now, final double value
+    ) {
+        final WriteMetric heartbeat = new WriteMetric(series,
+            MetricCollection.points(ImmutableList.of(new Point(now, value))));
+
+        return backend.write(heartbeat).directTransform(result -> {
+            if (!result.getErrors().isEmpty()) {
+                throw new RuntimeException(
+                    "Failed to write heartbeat to " + series + ": " + result.getErrors());
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Derive the id of the given owner, which is written as the value of its heartbeats.
+     */
+    static double id(final String owner) {
+        final int hash = Hashing.murmur3_32().hashString(owner, StandardCharsets.UTF_8).asInt();
+        return 1D + (hash & 0xffffffffL) / (double) (1L << 32);
+    }
+
+    /**
+     * Name of the local host, which is used as the owner of the leases held by this node.
+     * <p>
+     * Falls back to a random owner if the host name can't be determined, in which case a restart
+     * within the timeout of a lease will find the lease held by the previous process.
+     */
+    public static String localOwner() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (final UnknownHostException e) {
+            log.warn("Failed to determine local host name, using a random lease owner", e);
+            return UUID.randomUUID().toString();
+        }
+    }
+}
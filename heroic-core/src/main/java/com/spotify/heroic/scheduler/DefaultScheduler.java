@@ -26,6 +26,7 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -64,13 +65,15 @@ public class DefaultScheduler implements Scheduler {
     }
 
     @Override
-    public void schedule(long value, TimeUnit unit, final Task task) {
-        schedule(UNKNOWN, value, unit, task);
+    public ScheduledFuture<?> schedule(long value, TimeUnit unit, final Task task) {
+        return schedule(UNKNOWN, value, unit, task);
     }
 
     @Override
-    public void schedule(final String name, long value, TimeUnit unit, final Task task) {
-        scheduler.schedule(new Runnable() {
+    public ScheduledFuture<?> schedule(
+        final String name, long value, TimeUnit unit, final Task task
+    ) {
+        return scheduler.schedule(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -57,6 +57,7 @@ import com.spotify.heroic.shell.task.MetadataTags;
 import com.spotify.heroic.shell.task.ParseQuery;
 import com.spotify.heroic.shell.task.Pause;
 import com.spotify.heroic.shell.task.Query;
+import com.spotify.heroic.shell.task.QueryPerformance;
 import com.spotify.heroic.shell.task.ReadWriteTest;
 import com.spotify.heroic.shell.task.Refresh;
 import com.spotify.heroic.shell.task.Resume;
@@ -125,6 +126,7 @@ public final class Tasks {
         shellTask(SuggestTagKeyCount::setup, SuggestTagKeyCount.class);
         shellTask(SuggestPerformance::setup, SuggestPerformance.class);
         shellTask(Query::setup, Query.class);
+        shellTask(QueryPerformance::setup, QueryPerformance.class);
         shellTask(ReadWriteTest::setup, ReadWriteTest.class);
         shellTask(Pause::setup, Pause.class);
         shellTask(Resume::setup, Resume.class);
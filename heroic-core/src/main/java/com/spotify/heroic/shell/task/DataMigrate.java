@@ -21,7 +21,10 @@
 
 package com.spotify.heroic.shell.task;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.RateLimiter;
 import com.spotify.heroic.QueryOptions;
 import com.spotify.heroic.async.AsyncObservable;
 import com.spotify.heroic.async.AsyncObserver;
@@ -35,6 +38,7 @@ import com.spotify.heroic.metric.MetricBackend;
 import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricManager;
 import com.spotify.heroic.metric.WriteMetric;
+import com.spotify.heroic.scheduler.Scheduler;
 import com.spotify.heroic.shell.ShellIO;
 import com.spotify.heroic.shell.ShellTask;
 import com.spotify.heroic.shell.TaskName;
@@ -53,36 +57,60 @@ import org.kohsuke.args4j.Option;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Migrate data from one backend group to another.
+ * <p>
+ * The key space can be split into a number of ranges which are migrated in parallel. The progress
+ * of each range is recorded in an optional checkpoint file, from which an interrupted migration
+ * is resumed.
+ */
 @TaskUsage("Migrate data from one backend to another")
 @TaskName("data-migrate")
 public class DataMigrate implements ShellTask {
-    public static final long DOTS = 100;
-    public static final long LINES = DOTS * 20;
     public static final long ALLOWED_ERRORS = 5;
     public static final long ALLOWED_FAILED_KEYS = 100;
 
+    /* 2^64, used to convert a token into a position in the key space */
+    private static final double TOKEN_SPACE = 18446744073709551616D;
+
+    /* milliseconds to wait before asking the rate limiter for permits again */
+    private static final long RATE_RETRY = 10;
+
     private final QueryParser parser;
     private final MetricManager metric;
     private final AsyncFramework async;
     private final ObjectMapper mapper;
+    private final Scheduler scheduler;
 
     @Inject
     public DataMigrate(
         QueryParser parser, MetricManager metric, AsyncFramework async,
-        @Named("application/json") ObjectMapper mapper
+        @Named("application/json") ObjectMapper mapper, Scheduler scheduler
     ) {
         this.parser = parser;
         this.metric = metric;
         this.async = async;
         this.mapper = mapper;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -94,6 +122,15 @@ public class DataMigrate implements ShellTask {
     public AsyncFuture<Void> run(final ShellIO io, final TaskParameters p) throws Exception {
         final Parameters params = (Parameters) p;
 
+        if (params.ranges < 1) {
+            throw new IllegalArgumentException("--ranges must be at least 1");
+        }
+
+        if (params.ranges > 1 && params.hasKeyBounds()) {
+            throw new IllegalArgumentException(
+                "--ranges can not be combined with --start, --end, --start-token, or --end-token");
+        }
+
         final QueryOptions.Builder options = QueryOptions.builder().tracing(params.tracing);
 
         params.fetchSize.ifPresent(options::fetchSize);
@@ -104,23 +141,55 @@ public class DataMigrate implements ShellTask {
 
         final BackendKeyFilter keyFilter = Tasks.setupKeyFilter(params, mapper);
 
-        final ResolvableFuture<Void> future = async.future();
+        final Optional<Path> checkpoint = params.checkpoint.map(Paths::get);
+        final Bounds bounds =
+            new Bounds(params.startFraction(), params.endFraction(), filter.toDSL());
+        final List<Range> ranges = setupRanges(mapper, checkpoint, bounds, params.ranges);
+
+        final Optional<RateLimiter> limiter =
+            params.rate > 0D ? Optional.of(RateLimiter.create(params.rate)) : Optional.empty();
 
         /* all errors seen */
         final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
 
-        final AsyncObservable<BackendKeySet> observable;
+        final List<AsyncFuture<Void>> futures = new ArrayList<>();
+
+        for (final Range range : ranges) {
+            if (range.isDone()) {
+                continue;
+            }
 
-        if (params.keysPaged) {
-            observable = from.streamKeysPaged(keyFilter, options.build(), params.keysPageSize);
-        } else {
-            observable = from.streamKeys(keyFilter, options.build());
+            final BackendKeyFilter rangeFilter = range.filter(keyFilter, params.ranges > 1);
+            final ResolvableFuture<Void> future = async.future();
+
+            final AsyncObservable<BackendKeySet> observable;
+
+            if (params.keysPaged) {
+                observable =
+                    from.streamKeysPaged(rangeFilter, options.build(), params.keysPageSize);
+            } else {
+                observable = from.streamKeys(rangeFilter, options.build());
+            }
+
+            observable.observe(
+                new KeyObserver(io, params, filter, from, to, future, errors, range, limiter));
+
+            futures.add(future.directTransform(v -> {
+                range.end();
+                return null;
+            }));
         }
 
-        observable.observe(new KeyObserver(io, params, filter, from, to, future, errors));
+        final Progress progress =
+            new Progress(io, bounds, ranges, checkpoint, errors, params.progressInterval);
 
-        return future.directTransform(v -> {
-            io.out().println();
+        final AsyncFuture<Void> all = async.collectAndDiscard(futures);
+
+        all.onFinished(progress::finish);
+        progress.schedule();
+
+        return all.directTransform(v -> {
+            progress.report();
 
             if (!errors.isEmpty()) {
                 io.out().println("ERRORS: ");
@@ -136,6 +205,308 @@ public class DataMigrate implements ShellTask {
         });
     }
 
+    /**
+     * Split the requested part of the key space into ranges, or restore them from the checkpoint
+     * if it exists.
+     * <p>
+     * A checkpoint is only restored if it was recorded for the same bounds, filter, and number of
+     * ranges, since resuming it would otherwise skip or duplicate parts of the key space.
+     */
+    static List<Range> setupRanges(
+        final ObjectMapper mapper, final Optional<Path> checkpoint, final Bounds bounds,
+        final int count
+    ) throws Exception {
+        final Optional<Path> existing = checkpoint.filter(Files::exists);
+
+        if (existing.isPresent()) {
+            final Checkpoint restored =
+                mapper.readValue(existing.get().toFile(), Checkpoint.class);
+
+            if (!restored.getBounds().equals(bounds)) {
+                throw new IllegalArgumentException(String.format(
+                    "Checkpoint %s was recorded for %s, but %s was requested", existing.get(),
+                    restored.getBounds(), bounds));
+            }
+
+            if (restored.getRanges().size() != count) {
+                throw new IllegalArgumentException(String.format(
+                    "Checkpoint %s has %d range(s), but %d were requested", existing.get(),
+                    restored.getRanges().size(), count));
+            }
+
+            return restored.getRanges().stream().map(Range::new).collect(Collectors.toList());
+        }
+
+        final float start = bounds.getStart();
+        final float step = (bounds.getEnd() - start) / count;
+
+        final List<Range> ranges = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            final float end = i == count - 1 ? bounds.getEnd() : start + step * (i + 1);
+            ranges.add(new Range(start + step * i, end));
+        }
+
+        return ranges;
+    }
+
+    static String formatDuration(final long seconds) {
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    /**
+     * Progress of migrating a single range of the key space.
+     * <p>
+     * Keys are tracked in the order they are streamed, and the checkpoint only advances past a key
+     * once it and every key before it has been migrated. A range that sees an error stops
+     * advancing, so that it is migrated again from the last good key when resumed.
+     */
+    static class Range {
+        @Getter
+        private final float start;
+        @Getter
+        private final float end;
+
+        private final AtomicLong keys;
+        private final AtomicLong points;
+
+        /* keys being migrated in stream order, mapped to if they are finished */
+        private final LinkedHashMap<BackendKey, Boolean> pending = new LinkedHashMap<>();
+
+        /* guarded by this */
+        private Optional<BackendKey> last;
+        private boolean done;
+        private boolean stuck = false;
+
+        Range(final float start, final float end) {
+            this.start = start;
+            this.end = end;
+            this.keys = new AtomicLong();
+            this.points = new AtomicLong();
+            this.last = Optional.empty();
+            this.done = false;
+        }
+
+        Range(final RangeState state) {
+            this.start = state.getStart();
+            this.end = state.getEnd();
+            this.keys = new AtomicLong(state.getKeys());
+            this.points = new AtomicLong(state.getPoints());
+            this.last = state.getLast().map(BackendKeyArgument::toBackendKey);
+            this.done = state.isDone();
+        }
+
+        BackendKeyFilter filter(final BackendKeyFilter base, final boolean split) {
+            BackendKeyFilter filter = base;
+
+            if (split) {
+                filter = filter
+                    .withStart(BackendKeyFilter.gtePercentage(start))
+                    .withEnd(BackendKeyFilter.ltPercentage(end));
+            }
+
+            final Optional<BackendKey> last = last();
+
+            if (last.isPresent()) {
+                filter = filter.withStart(BackendKeyFilter.gt(last.get()));
+            }
+
+            return filter;
+        }
+
+        synchronized void begin(final BackendKey key) {
+            if (!stuck) {
+                pending.put(key, false);
+            }
+        }
+
+        synchronized void finish(final BackendKey key) {
+            keys.incrementAndGet();
+
+            if (stuck || !pending.containsKey(key)) {
+                return;
+            }
+
+            pending.put(key, true);
+
+            final Iterator<Map.Entry<BackendKey, Boolean>> it = pending.entrySet().iterator();
+
+            while (it.hasNext()) {
+                final Map.Entry<BackendKey, Boolean> e = it.next();
+
+                if (!e.getValue()) {
+                    break;
+                }
+
+                last = Optional.of(e.getKey());
+                it.remove();
+            }
+        }
+
+        synchronized void fail() {
+            stuck = true;
+            pending.clear();
+        }
+
+        synchronized void end() {
+            done = !stuck;
+        }
+
+        void addPoints(final long n) {
+            points.addAndGet(n);
+        }
+
+        long keys() {
+            return keys.get();
+        }
+
+        long points() {
+            return points.get();
+        }
+
+        synchronized boolean isDone() {
+            return done;
+        }
+
+        synchronized Optional<BackendKey> last() {
+            return last;
+        }
+
+        /**
+         * Estimate how much of the range has been migrated, based on the token of the last
+         * migrated key.
+         * <p>
+         * Only keys with tokens (like the ones from the datastax backend) give an estimate,
+         * otherwise the range is reported as not started until it is done.
+         */
+        synchronized double progress() {
+            if (done) {
+                return 1D;
+            }
+
+            final Optional<Long> token = last.flatMap(BackendKey::getToken);
+
+            if (!token.isPresent() || end <= start) {
+                return 0D;
+            }
+
+            final double position = 0.5D + token.get() / TOKEN_SPACE;
+            return Math.min(1D, Math.max(0D, (position - start) / (end - start)));
+        }
+
+        synchronized RangeState state() {
+            final Optional<BackendKeyArgument> argument = last.map(
+                k -> new BackendKeyArgument(k.getSeries(), k.getBase(), k.getType(), k.getToken()));
+            return new RangeState(start, end, argument, done, keys.get(), points.get());
+        }
+    }
+
+    /**
+     * Periodically reports the progress of all ranges, and records it in the checkpoint.
+     */
+    class Progress {
+        final ShellIO io;
+        final Bounds bounds;
+        final List<Range> ranges;
+        final Optional<Path> checkpoint;
+        final ConcurrentLinkedQueue<Throwable> errors;
+        final int interval;
+
+        final long started = System.nanoTime();
+        final long startPoints;
+        final double startProgress;
+
+        volatile boolean finished = false;
+
+        Progress(
+            final ShellIO io, final Bounds bounds, final List<Range> ranges,
+            final Optional<Path> checkpoint, final ConcurrentLinkedQueue<Throwable> errors,
+            final int interval
+        ) {
+            this.io = io;
+            this.bounds = bounds;
+            this.ranges = ranges;
+            this.checkpoint = checkpoint;
+            this.errors = errors;
+            this.interval = interval;
+            this.startPoints = points();
+            this.startProgress = progress();
+        }
+
+        void schedule() {
+            scheduler.schedule("data-migrate-progress", interval, TimeUnit.SECONDS, () -> {
+                if (finished) {
+                    return;
+                }
+
+                report();
+                save();
+                schedule();
+            });
+        }
+
+        void finish() throws Exception {
+            finished = true;
+            save();
+        }
+
+        void report() {
+            final double seconds = Math.max(System.nanoTime() - started, 1L) / 1e9D;
+            final double progress = progress();
+            final long points = points();
+            final long keys = ranges.stream().mapToLong(Range::keys).sum();
+            final long done = ranges.stream().filter(Range::isDone).count();
+
+            final double rate = (progress - startProgress) / seconds;
+            final String eta =
+                rate > 0D ? formatDuration((long) ((1D - progress) / rate)) : "unknown";
+
+            synchronized (io) {
+                io.out().println(String.format(
+                    "%.1f%% (%d/%d ranges done), %d keys, %d points (%.0f points/s), " +
+                        "%d errors, elapsed %s, ETA %s", progress * 100D, done, ranges.size(),
+                    keys, points, (points - startPoints) / seconds, errors.size(),
+                    formatDuration((long) seconds), eta));
+                io.out().flush();
+            }
+        }
+
+        synchronized void save() throws Exception {
+            if (!checkpoint.isPresent()) {
+                return;
+            }
+
+            final Checkpoint next = new Checkpoint(bounds,
+                ranges.stream().map(Range::state).collect(Collectors.toList()));
+
+            final Path path = checkpoint.get();
+            final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tmp, mapper.writeValueAsBytes(next));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        long points() {
+            return ranges.stream().mapToLong(Range::points).sum();
+        }
+
+        /**
+         * Progress of all ranges, weighted by how much of the key space they cover.
+         */
+        double progress() {
+            double total = 0D;
+            double covered = 0D;
+
+            for (final Range range : ranges) {
+                final double width = Math.max(range.getEnd() - range.getStart(), 0F);
+                total += width;
+                covered += width * range.progress();
+            }
+
+            return total > 0D ? covered / total : 0D;
+        }
+    }
+
     @Data
     class KeyObserver implements AsyncObserver<BackendKeySet> {
         final ShellIO io;
@@ -145,6 +516,8 @@ public class DataMigrate implements ShellTask {
         final MetricBackend to;
         final ResolvableFuture<Void> future;
         final ConcurrentLinkedQueue<Throwable> errors;
+        final Range range;
+        final Optional<RateLimiter> limiter;
 
         final Object lock = new Object();
 
@@ -159,9 +532,6 @@ public class DataMigrate implements ShellTask {
         /* a queue of the next keys to migrate */
         final ConcurrentLinkedQueue<BackendKey> current = new ConcurrentLinkedQueue<>();
 
-        /* the total number of keys migrated */
-        final AtomicLong total = new AtomicLong();
-
         /* the total number of failed keys */
         final AtomicLong failedKeys = new AtomicLong();
 
@@ -177,6 +547,11 @@ public class DataMigrate implements ShellTask {
             failedKeys.addAndGet(set.getFailedKeys());
             totalKeys.addAndGet(set.getFailedKeys() + set.getKeys().size());
 
+            if (set.getFailedKeys() > 0) {
+                /* keys were skipped, so the checkpoint must not advance past them */
+                range.fail();
+            }
+
             if (errors.size() > ALLOWED_ERRORS) {
                 return async.failed(new RuntimeException("too many failed migrations"));
             }
@@ -193,6 +568,8 @@ public class DataMigrate implements ShellTask {
                 return async.resolved();
             }
 
+            /* register keys in the order they were streamed before any of them are migrated */
+            set.getKeys().forEach(range::begin);
             current.addAll(set.getKeys());
 
             synchronized (lock) {
@@ -229,7 +606,8 @@ public class DataMigrate implements ShellTask {
 
             from
                 .streamRow(key)
-                .observe(new RowObserver(errors, to, future, key, () -> done, this::endOneRuntime));
+                .observe(new RowObserver(errors, to, future, key, range, limiter, () -> done,
+                    this::endOneRuntime));
         }
 
         void endOneRuntime(final BackendKey key) {
@@ -241,7 +619,7 @@ public class DataMigrate implements ShellTask {
         }
 
         void endOne(final BackendKey key) throws Exception {
-            streamDot(io, key, total.incrementAndGet());
+            range.finish(key);
 
             // opportunistically pick up the next available task without locking (if available).
             final BackendKey k = current.poll();
@@ -270,6 +648,7 @@ public class DataMigrate implements ShellTask {
                 io.out().println("Cancelled when reading keys");
             }
 
+            range.fail();
             end();
         }
 
@@ -281,6 +660,7 @@ public class DataMigrate implements ShellTask {
                 io.out().flush();
             }
 
+            range.fail();
             end();
         }
 
@@ -297,21 +677,6 @@ public class DataMigrate implements ShellTask {
                 future.resolve(null);
             }
         }
-
-        void streamDot(final ShellIO io, final BackendKey key, final long n) throws Exception {
-            if (n % LINES == 0) {
-                synchronized (io) {
-                    io.out().println(" failedKeys: " + failedKeys.get() + ", last: " +
-                        mapper.writeValueAsString(key));
-                    io.out().flush();
-                }
-            } else if (n % DOTS == 0) {
-                synchronized (io) {
-                    io.out().print(".");
-                    io.out().flush();
-                }
-            }
-        }
     }
 
     @Data
@@ -320,6 +685,8 @@ public class DataMigrate implements ShellTask {
         final MetricBackend to;
         final ResolvableFuture<Void> future;
         final BackendKey key;
+        final Range range;
+        final Optional<RateLimiter> limiter;
         final Supplier<Boolean> done;
         final Consumer<BackendKey> end;
 
@@ -329,21 +696,58 @@ public class DataMigrate implements ShellTask {
                 return async.cancelled();
             }
 
-            final AsyncFuture<Void> write =
-                to.write(new WriteMetric(key.getSeries(), value)).directTransform(v -> null);
+            final AsyncFuture<Void> write = acquire(value.size()).lazyTransform(
+                ignore -> to.write(new WriteMetric(key.getSeries(), value)).directTransform(v -> {
+                    range.addPoints(value.size());
+                    return null;
+                }));
 
             future.bind(write);
             return write;
         }
 
+        /**
+         * Wait for the rate limiter (if any) to permit writing the given number of points.
+         * <p>
+         * The limiter is polled without blocking, and polled again through the scheduler until
+         * it permits the write, so that no shared thread is held up while waiting.
+         */
+        AsyncFuture<Void> acquire(final int points) {
+            if (!limiter.isPresent() || points <= 0) {
+                return async.resolved();
+            }
+
+            final ResolvableFuture<Void> permit = async.future();
+            tryAcquire(limiter.get(), points, permit);
+            return permit;
+        }
+
+        void tryAcquire(
+            final RateLimiter limiter, final int points, final ResolvableFuture<Void> permit
+        ) {
+            if (permit.isDone()) {
+                return;
+            }
+
+            if (limiter.tryAcquire(points)) {
+                permit.resolve(null);
+                return;
+            }
+
+            scheduler.schedule("data-migrate-rate", RATE_RETRY, TimeUnit.MILLISECONDS,
+                () -> tryAcquire(limiter, points, permit));
+        }
+
         @Override
         public void cancel() throws Exception {
+            range.fail();
             end();
         }
 
         @Override
         public void fail(Throwable cause) throws Exception {
             errors.add(cause);
+            range.fail();
             end();
         }
 
@@ -353,6 +757,72 @@ public class DataMigrate implements ShellTask {
         }
     }
 
+    /**
+     * Contents of the checkpoint file.
+     */
+    @Data
+    public static class Checkpoint {
+        private final Bounds bounds;
+        private final List<RangeState> ranges;
+
+        @JsonCreator
+        public Checkpoint(
+            @JsonProperty("bounds") final Bounds bounds,
+            @JsonProperty("ranges") final List<RangeState> ranges
+        ) {
+            this.bounds = checkNotNull(bounds, "bounds");
+            this.ranges = checkNotNull(ranges, "ranges");
+        }
+    }
+
+    /**
+     * The part of the key space, and the filter, that a migration was started for.
+     */
+    @Data
+    public static class Bounds {
+        private final float start;
+        private final float end;
+        private final String filter;
+
+        @JsonCreator
+        public Bounds(
+            @JsonProperty("start") final float start, @JsonProperty("end") final float end,
+            @JsonProperty("filter") final String filter
+        ) {
+            this.start = start;
+            this.end = end;
+            this.filter = checkNotNull(filter, "filter");
+        }
+    }
+
+    /**
+     * Recorded progress of a single range.
+     */
+    @Data
+    public static class RangeState {
+        private final float start;
+        private final float end;
+        private final Optional<BackendKeyArgument> last;
+        private final boolean done;
+        private final long keys;
+        private final long points;
+
+        @JsonCreator
+        public RangeState(
+            @JsonProperty("start") final float start, @JsonProperty("end") final float end,
+            @JsonProperty("last") final Optional<BackendKeyArgument> last,
+            @JsonProperty("done") final boolean done, @JsonProperty("keys") final long keys,
+            @JsonProperty("points") final long points
+        ) {
+            this.start = start;
+            this.end = end;
+            this.last = last;
+            this.done = done;
+            this.keys = keys;
+            this.points = points;
+        }
+    }
+
     @ToString
     private static class Parameters extends Tasks.KeyspaceBase {
         @Option(name = "-f", aliases = {"--from"}, usage = "Backend group to load data from",
@@ -383,13 +853,46 @@ public class DataMigrate implements ShellTask {
         private boolean tracing = false;
 
         @Option(name = "--parallelism",
-            usage = "The number of migration requests to send in parallel (default: 100)",
-            metaVar = "<number>")
+            usage = "The number of migration requests to send in parallel for each range " +
+                "(default: 100)", metaVar = "<number>")
         private int parallelism = Runtime.getRuntime().availableProcessors() * 4;
 
+        @Option(name = "--ranges",
+            usage = "Split the key space into the given number of ranges, which are migrated " +
+                "in parallel. Requires a backend which supports percentage key filters " +
+                "(default: 1)", metaVar = "<number>")
+        private int ranges = 1;
+
+        @Option(name = "--checkpoint",
+            usage = "File to record the progress of each range in, the migration is resumed " +
+                "from it if it exists", metaVar = "<file>")
+        private Optional<String> checkpoint = Optional.empty();
+
+        @Option(name = "--rate",
+            usage = "Maximum number of points to migrate per second, 0 for no limit (default: 0)",
+            metaVar = "<points>")
+        private double rate = 0D;
+
+        @Option(name = "--progress-interval",
+            usage = "Seconds between progress reports and checkpoints (default: 10)",
+            metaVar = "<seconds>")
+        private int progressInterval = 10;
+
         @Argument
         @Getter
         private List<String> query = new ArrayList<String>();
+
+        private boolean hasKeyBounds() {
+            return start != null || end != null || startToken != null || endToken != null;
+        }
+
+        private float startFraction() {
+            return startPercentage >= 0 ? startPercentage / 100f : 0f;
+        }
+
+        private float endFraction() {
+            return endPercentage >= 0 ? endPercentage / 100f : 1f;
+        }
     }
 
     public static DataMigrate setup(final CoreComponent core) {
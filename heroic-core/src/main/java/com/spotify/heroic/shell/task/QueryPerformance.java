@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.shell.task;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.RateLimiter;
+import com.spotify.heroic.QueryManager;
+import com.spotify.heroic.common.Duration;
+import com.spotify.heroic.common.Statistics;
+import com.spotify.heroic.dagger.CoreComponent;
+import com.spotify.heroic.metric.QueryAdmissionController;
+import com.spotify.heroic.metric.QueryResult;
+import com.spotify.heroic.metric.ShardTrace;
+import com.spotify.heroic.shell.AbstractShellTaskParams;
+import com.spotify.heroic.shell.ShellIO;
+import com.spotify.heroic.shell.ShellTask;
+import com.spotify.heroic.shell.TaskName;
+import com.spotify.heroic.shell.TaskParameters;
+import com.spotify.heroic.shell.TaskUsage;
+import dagger.Component;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.FutureDone;
+import lombok.ToString;
+import org.kohsuke.args4j.Option;
+
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@TaskUsage("Replay a set of queries and measure query throughput and latency")
+@TaskName("query-performance")
+public class QueryPerformance implements ShellTask {
+    public static final String INDEX = "{index}";
+
+    private final QueryManager query;
+    private final AsyncFramework async;
+
+    @Inject
+    public QueryPerformance(QueryManager query, AsyncFramework async) {
+        this.query = query;
+        this.async = async;
+    }
+
+    @Override
+    public TaskParameters params() {
+        return new Parameters();
+    }
+
+    @Override
+    public AsyncFuture<Void> run(final ShellIO io, final TaskParameters base) throws Exception {
+        final Parameters params = (Parameters) base;
+
+        final List<String> queries = loadQueries(io, params);
+
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("No queries to perform");
+        }
+
+        final QueryManager.Group group = query.useOptionalGroup(params.group);
+
+        if (params.warmup.toMilliseconds() > 0) {
+            io.out().println(String.format("Warming up for %s", params.warmup));
+            io.out().flush();
+            perform(group, queries, params, params.warmup);
+        }
+
+        io.out().println(String.format("Running %d distinct queries for %s", queries.size(),
+            params.duration));
+        io.out().flush();
+
+        final Collected collected = perform(group, queries, params, params.duration);
+        collected.print(io.out());
+        io.out().flush();
+
+        return async.resolved();
+    }
+
+    private List<String> loadQueries(final ShellIO io, final Parameters params) throws Exception {
+        final ImmutableList.Builder<String> queries = ImmutableList.builder();
+
+        if (params.file.isPresent()) {
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                io.newInputStream(Paths.get(params.file.get())), Charsets.UTF_8))) {
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    final String trimmed = line.trim();
+
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                        continue;
+                    }
+
+                    queries.add(trimmed);
+                }
+            }
+
+            return queries.build();
+        }
+
+        for (int i = 0; i < params.count; i++) {
+            queries.add(params.template.replace(INDEX, Integer.toString(i)));
+        }
+
+        return queries.build();
+    }
+
+    /**
+     * Perform queries in a round-robin fashion until the given duration has passed, keeping at
+     * most {@code parallelism} queries in flight, and issuing at most {@code rate} queries per
+     * second if a rate is configured.
+     */
+    private Collected perform(
+        final QueryManager.Group group, final List<String> queries, final Parameters params,
+        final Duration duration
+    ) throws Exception {
+        final Collected collected = new Collected();
+        final Semaphore inFlight = new Semaphore(params.parallelism);
+        final Optional<RateLimiter> limiter =
+            params.rate > 0 ? Optional.of(RateLimiter.create(params.rate)) : Optional.empty();
+
+        final long started = System.nanoTime();
+        final long end = started + TimeUnit.NANOSECONDS.convert(duration.toMilliseconds(),
+            TimeUnit.MILLISECONDS);
+
+        int index = 0;
+
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            limiter.ifPresent(RateLimiter::acquire);
+
+            final String queryString = queries.get(index++ % queries.size());
+            final long start = System.nanoTime();
+
+            final AsyncFuture<QueryResult> result;
+
+            try {
+                result = group.query(query.newQueryFromString(queryString).build());
+            } catch (final Exception e) {
+                inFlight.release();
+                collected.failed.incrementAndGet();
+                continue;
+            }
+
+            result.onDone(new FutureDone<QueryResult>() {
+                @Override
+                public void failed(final Throwable cause) throws Exception {
+                    collected.failed.incrementAndGet();
+                    inFlight.release();
+                }
+
+                @Override
+                public void resolved(final QueryResult result) throws Exception {
+                    collected.resolved(result, System.nanoTime() - start);
+                    inFlight.release();
+                }
+
+                @Override
+                public void cancelled() throws Exception {
+                    collected.failed.incrementAndGet();
+                    inFlight.release();
+                }
+            });
+        }
+
+        /* wait for all queries still in flight */
+        inFlight.acquire(params.parallelism);
+        collected.runtime = System.nanoTime() - started;
+        return collected;
+    }
+
+    private static class Collected {
+        final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong withErrors = new AtomicLong();
+        final AtomicLong partial = new AtomicLong();
+        final AtomicLong pointsRead = new AtomicLong();
+        long runtime = 0L;
+
+        void resolved(final QueryResult result, final long latency) {
+            latencies.add(latency);
+
+            if (!result.getErrors().isEmpty()) {
+                withErrors.incrementAndGet();
+            }
+
+            if (result.isPartial()) {
+                partial.incrementAndGet();
+            }
+
+            Statistics s = Statistics.empty();
+
+            for (final ShardTrace trace : result.getTraces()) {
+                s = s.merge(trace.getStatistics());
+            }
+
+            pointsRead.addAndGet(s.get(QueryAdmissionController.POINTS_READ, 0L));
+        }
+
+        void print(final PrintWriter out) {
+            final List<Long> times = new ArrayList<>(latencies);
+            Collections.sort(times);
+
+            final double seconds = runtime / 1e9;
+
+            out.println(String.format("   queries: %d", times.size() + failed.get()));
+            out.println(String.format("    failed: %d", failed.get()));
+            out.println(String.format("    errors: %d query(s) with errors", withErrors.get()));
+            out.println(String.format("   partial: %d", partial.get()));
+            out.println(String.format("   query/s: %.2f", times.size() / seconds));
+            out.println(String.format("  points/s: %.2f", pointsRead.get() / seconds));
+
+            if (times.isEmpty()) {
+                out.println("   latency: (no samples)");
+                return;
+            }
+
+            out.println(String.format("  50th: %d ms", millis(quantile(times, 0.50))));
+            out.println(String.format("  95th: %d ms", millis(quantile(times, 0.95))));
+            out.println(String.format("  99th: %d ms", millis(quantile(times, 0.99))));
+            out.println(String.format("   max: %d ms", millis(times.get(times.size() - 1))));
+        }
+
+        private static long quantile(final List<Long> sorted, final double q) {
+            final int index = (int) Math.ceil(q * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+        }
+
+        private static long millis(final long nanos) {
+            return TimeUnit.MILLISECONDS.convert(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @ToString
+    private static class Parameters extends AbstractShellTaskParams {
+        @Option(name = "-g", aliases = {"--group"}, usage = "Backend group to use",
+            metaVar = "<group>")
+        private Optional<String> group = Optional.empty();
+
+        @Option(name = "-f", aliases = {"--file"},
+            usage = "File with one query per line to replay, empty lines and lines starting " +
+                "with # are ignored", metaVar = "<file>")
+        private Optional<String> file = Optional.empty();
+
+        @Option(name = "--template",
+            usage = "Template used to synthesize queries if no file is given, " + INDEX +
+                " is replaced with the index of the query", metaVar = "<query>")
+        private String template = "average from points(1H) where $key = \"key-" + INDEX + "\"";
+
+        @Option(name = "-c", aliases = {"--count"},
+            usage = "The number of queries to synthesize from the template (default: 100)",
+            metaVar = "<number>")
+        private int count = 100;
+
+        @Option(name = "--parallelism",
+            usage = "The number of queries to perform in parallel (default: 10)",
+            metaVar = "<number>")
+        private int parallelism = 10;
+
+        @Option(name = "--rate",
+            usage = "The maximum number of queries to issue per second, 0 for unlimited " +
+                "(default: 0)", metaVar = "<number>")
+        private double rate = 0D;
+
+        @Option(name = "-d", aliases = {"--duration"},
+            usage = "How long to perform queries for (default: 1m)")
+        private Duration duration = Duration.of(1, TimeUnit.MINUTES);
+
+        @Option(name = "--warmup", usage = "How long to warm up for before measuring " +
+            "(default: 10s)")
+        private Duration warmup = Duration.of(10, TimeUnit.SECONDS);
+    }
+
+    public static QueryPerformance setup(final CoreComponent core) {
+        return DaggerQueryPerformance_C.builder().coreComponent(core).build().task();
+    }
+
+    @Component(dependencies = CoreComponent.class)
+    static interface C {
+        QueryPerformance task();
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.heroic.http.query.QueryBatchResponse;
+import com.spotify.heroic.http.query.QueryMetricsResponse;
+import com.spotify.heroic.metric.MetricCollection;
+import com.spotify.heroic.metric.MetricType;
+import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.RequestError;
+import com.spotify.heroic.metric.ShardedResultGroup;
+import com.spotify.heroic.statistics.QueryReporter;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Writes query responses in a compact, columnar binary format.
+ * <p>
+ * Selected by requesting {@value #MEDIA_TYPE} in the Accept header. All integers are big-endian,
+ * {@code varint} is an unsigned LEB128 integer, {@code zigzag} a zigzag-encoded varint, and
+ * {@code string} a varint length followed by UTF-8 bytes.
+ * <pre>
+ * response  := 'H' 'Q' version:u8 kind:u8 (kind 0: result, kind 1: batch)
+ * result    := range.start:zigzag range.end:zigzag partial:u8 errors groups
+ * batch     := count:varint (name:string result)*
+ * errors    := count:varint (error:string)*            (each error is a JSON document)
+ * groups    := count:varint group*
+ * group     := type:string cadence:zigzag key:string? shard:map tags:map tagCounts:counts values
+ * key       := present:u8 [string]
+ * map       := count:varint (string string)*
+ * counts    := count:varint (string varint)*
+ * values    := points (type "points"), or a JSON document as a string for all other types
+ * points    := count:varint timestamps:zigzag* values:f64*
+ * </pre>
+ * Timestamps are delta-encoded, where the first timestamp is relative to zero. Values are packed
+ * IEEE 754 doubles, and {@code NaN} is used for non-finite values.
+ */
+public class ColumnarMessageBodyWriter implements MessageBodyWriter<Object> {
+    public static final String MEDIA_TYPE = "application/x-heroic-columnar";
+    public static final MediaType MEDIA_TYPE_TYPE = MediaType.valueOf(MEDIA_TYPE);
+
+    static final int VERSION = 1;
+    static final int RESULT = 0;
+    static final int BATCH = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ObjectMapper mapper;
+    private final QueryReporter reporter;
+
+    @Inject
+    public ColumnarMessageBodyWriter(
+        @Named("application/json") ObjectMapper mapper, QueryReporter reporter
+    ) {
+        this.mapper = mapper;
+        this.reporter = reporter;
+    }
+
+    @Override
+    public boolean isWriteable(
+        final Class<?> type, final Type genericType, final Annotation[] annotations,
+        final MediaType mediaType
+    ) {
+        if (!mediaType.isCompatible(MEDIA_TYPE_TYPE)) {
+            return false;
+        }
+
+        return QueryMetricsResponse.class.isAssignableFrom(type) ||
+            QueryBatchResponse.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(
+        final Object o, final Class<?> type, final Type genericType, final Annotation[] annotations,
+        final MediaType mediaType
+    ) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(
+        final Object o, final Class<?> type, final Type genericType, final Annotation[] annotations,
+        final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders,
+        final OutputStream out
+    ) throws IOException, WebApplicationException {
+        final long start = System.nanoTime();
+
+        try {
+            write(o, out);
+        } finally {
+            reporter.reportSerialization(System.nanoTime() - start);
+        }
+    }
+
+    private void write(final Object o, final OutputStream out) throws IOException {
+        final DataOutputStream d =
+            new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+
+        d.writeByte('H');
+        d.writeByte('Q');
+        d.writeByte(VERSION);
+
+        if (o instanceof QueryBatchResponse) {
+            final Map<String, QueryMetricsResponse> results =
+                ((QueryBatchResponse) o).getResults();
+
+            d.writeByte(BATCH);
+            writeVarLong(d, results.size());
+
+            for (final Map.Entry<String, QueryMetricsResponse> e : results.entrySet()) {
+                writeString(d, e.getKey());
+                writeResult(d, e.getValue());
+            }
+        } else {
+            d.writeByte(RESULT);
+            writeResult(d, (QueryMetricsResponse) o);
+        }
+
+        d.flush();
+    }
+
+    private void writeResult(final DataOutputStream d, final QueryMetricsResponse response)
+        throws IOException {
+        writeZigZag(d, response.getRange().getStart());
+        writeZigZag(d, response.getRange().getEnd());
+        d.writeByte(response.isPartial() ? 1 : 0);
+
+        final List<RequestError> errors = response.getErrors();
+        writeVarLong(d, errors.size());
+
+        for (final RequestError error : errors) {
+            writeString(d, mapper.writeValueAsString(error));
+        }
+
+        final List<ShardedResultGroup> groups = response.getResult();
+        writeVarLong(d, groups.size());
+
+        for (final ShardedResultGroup group : groups) {
+            writeGroup(d, group);
+        }
+    }
+
+    private void writeGroup(final DataOutputStream d, final ShardedResultGroup group)
+        throws IOException {
+        final MetricCollection collection = group.getGroup();
+        final SortedSet<String> keys = group.getSeries().getKeys();
+        final Map<String, SortedSet<String>> tags = group.getSeries().getTags();
+
+        writeString(d, collection.getType().identifier());
+        writeZigZag(d, group.getCadence());
+
+        if (keys.size() == 1) {
+            d.writeByte(1);
+            writeString(d, keys.first());
+        } else {
+            d.writeByte(0);
+        }
+
+        writeVarLong(d, group.getShard().size());
+
+        for (final Map.Entry<String, String> e : group.getShard().entrySet()) {
+            writeString(d, e.getKey());
+            writeString(d, e.getValue());
+        }
+
+        int single = 0;
+
+        for (final SortedSet<String> values : tags.values()) {
+            if (values.size() == 1) {
+                single++;
+            }
+        }
+
+        writeVarLong(d, single);
+
+        for (final Map.Entry<String, SortedSet<String>> e : tags.entrySet()) {
+            if (e.getValue().size() == 1) {
+                writeString(d, e.getKey());
+                writeString(d, e.getValue().first());
+            }
+        }
+
+        writeVarLong(d, tags.size() - single);
+
+        for (final Map.Entry<String, SortedSet<String>> e : tags.entrySet()) {
+            if (e.getValue().size() != 1) {
+                writeString(d, e.getKey());
+                writeVarLong(d, e.getValue().size());
+            }
+        }
+
+        if (collection.getType() == MetricType.POINT) {
+            writePoints(d, collection.getDataAs(Point.class));
+        } else {
+            writeString(d, mapper.writeValueAsString(collection.getData()));
+        }
+    }
+
+    private void writePoints(final DataOutputStream d, final List<Point> points)
+        throws IOException {
+        writeVarLong(d, points.size());
+
+        long previous = 0L;
+
+        for (final Point p : points) {
+            writeZigZag(d, p.getTimestamp() - previous);
+            previous = p.getTimestamp();
+        }
+
+        for (final Point p : points) {
+            final double value = p.getValue();
+            d.writeDouble(Double.isFinite(value) ? value : Double.NaN);
+        }
+    }
+
+    static void writeString(final DataOutputStream d, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(d, bytes.length);
+        d.write(bytes);
+    }
+
+    static void writeZigZag(final DataOutputStream d, final long value) throws IOException {
+        writeVarLong(d, (value << 1) ^ (value >> 63));
+    }
+
+    static void writeVarLong(final DataOutputStream d, long value) throws IOException {
+        while ((value & ~0x7fL) != 0L) {
+            d.writeByte((int) ((value & 0x7fL) | 0x80L));
+            value >>>= 7;
+        }
+
+        d.writeByte((int) value);
+    }
+}
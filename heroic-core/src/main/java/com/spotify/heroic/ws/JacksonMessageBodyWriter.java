@@ -22,6 +22,9 @@
 package com.spotify.heroic.ws;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.heroic.http.query.QueryBatchResponse;
+import com.spotify.heroic.http.query.QueryMetricsResponse;
+import com.spotify.heroic.statistics.QueryReporter;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -41,10 +44,14 @@ import java.lang.reflect.Type;
  */
 public class JacksonMessageBodyWriter implements MessageBodyWriter<Object> {
     private final ObjectMapper mapper;
+    private final QueryReporter reporter;
 
     @Inject
-    public JacksonMessageBodyWriter(@Named("application/json") ObjectMapper mapper) {
+    public JacksonMessageBodyWriter(
+        @Named("application/json") ObjectMapper mapper, QueryReporter reporter
+    ) {
         this.mapper = mapper;
+        this.reporter = reporter;
     }
 
     @Override
@@ -69,6 +76,18 @@ public class JacksonMessageBodyWriter implements MessageBodyWriter<Object> {
         final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders,
         final OutputStream out
     ) throws IOException, WebApplicationException {
-        mapper.writeValue(out, o);
+        if (!(o instanceof QueryMetricsResponse || o instanceof QueryBatchResponse)) {
+            mapper.writeValue(out, o);
+            return;
+        }
+
+        /* only query responses are timed, since they are the ones that can grow large */
+        final long start = System.nanoTime();
+
+        try {
+            mapper.writeValue(out, o);
+        } finally {
+            reporter.reportSerialization(System.nanoTime() - start);
+        }
     }
 }
@@ -63,6 +63,8 @@ public class Module implements HeroicModule {
         JacksonMessageBodyReader jacksonMessageBodyReader();
 
         JacksonMessageBodyWriter jacksonMessageBodyWriter();
+
+        ColumnarMessageBodyWriter columnarMessageBodyWriter();
     }
 
     static class E implements HeroicModule.Entry {
@@ -88,7 +90,8 @@ public class Module implements HeroicModule {
                     w.webApplicationExceptionMapper(),
                     w.validationBodyErrorMapper(),
                     w.jacksonMessageBodyReader(),
-                    w.jacksonMessageBodyWriter()
+                    w.jacksonMessageBodyWriter(),
+                    w.columnarMessageBodyWriter()
                 );
                 // @formatter:on
             });
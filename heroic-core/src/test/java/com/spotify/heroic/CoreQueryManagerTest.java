@@ -1,11 +1,19 @@
 package com.spotify.heroic;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.spotify.heroic.aggregation.AggregationFactory;
 import com.spotify.heroic.cache.QueryCache;
 import com.spotify.heroic.cluster.ClusterManager;
 import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.grammar.Context;
+import com.spotify.heroic.grammar.Expression;
+import com.spotify.heroic.grammar.FunctionExpression;
+import com.spotify.heroic.grammar.IntegerExpression;
 import com.spotify.heroic.grammar.QueryParser;
+import com.spotify.heroic.scheduler.Scheduler;
+import com.spotify.heroic.statistics.QueryReporter;
 import eu.toolchain.async.AsyncFramework;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,8 +22,15 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CoreQueryManagerTest {
@@ -38,9 +53,22 @@ public class CoreQueryManagerTest {
     @Mock
     private AggregationFactory aggregations;
 
+    @Mock
+    private Scheduler scheduler;
+
+    @Mock
+    private QueryReporter reporter;
+
+    @Mock
+    private SlowQueryLog slowQueryLog;
+
+    @Mock
+    private Expression expression;
+
     @Before
     public void setup() {
-        manager = new CoreQueryManager(features, async, cluster, parser, queryCache, aggregations);
+        manager = new CoreQueryManager(features, async, cluster, parser, queryCache, aggregations,
+            scheduler, reporter, slowQueryLog, ForkJoinPool.commonPool());
     }
 
     @Test
@@ -85,4 +113,36 @@ public class CoreQueryManagerTest {
 
         manager.buildShiftedRange(range, 5_000, 40_000L);
     }
+
+    @Test
+    public void testParsedQueryIsCached() {
+        doReturn(ImmutableList.of(expression)).when(parser).parse(anyString());
+        doReturn(expression).when(expression).eval(any(Expression.Scope.class));
+
+        manager.newQueryFromString("average from points");
+        manager.newQueryFromString(" average from points\n");
+
+        /* parsed once, but evaluated against the current time for every query */
+        verify(parser, times(1)).parse(anyString());
+        verify(expression, times(2)).eval(any(Expression.Scope.class));
+        verify(reporter).reportParseCache(false);
+        verify(reporter).reportParseCache(true);
+    }
+
+    @Test
+    public void testFunctionKeyIgnoresContext() {
+        final Context a = new Context(0, 0, 0, 10);
+        final Context b = new Context(2, 4, 2, 14);
+
+        /* the same aggregation at a different position in the query shares a key */
+        assertEquals(CoreQueryManager.FunctionKey.of(function(a, 10L)),
+            CoreQueryManager.FunctionKey.of(function(b, 10L)));
+        assertNotEquals(CoreQueryManager.FunctionKey.of(function(a, 10L)),
+            CoreQueryManager.FunctionKey.of(function(a, 20L)));
+    }
+
+    private FunctionExpression function(final Context ctx, final long size) {
+        return new FunctionExpression(ctx, "average", ImmutableList.of(),
+            ImmutableMap.of("size", new IntegerExpression(ctx, size)));
+    }
 }
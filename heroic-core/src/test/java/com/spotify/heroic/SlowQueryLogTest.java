@@ -0,0 +1,124 @@
+package com.spotify.heroic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.metric.MetricType;
+import com.spotify.heroic.metric.QueryTrace;
+import com.spotify.heroic.metric.SlowQuery;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SlowQueryLogTest {
+    private static final QueryTrace.Identifier QUERY =
+        QueryTrace.identifier(SlowQueryLogTest.class, "query");
+
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ObjectMapper mapper;
+
+    @Before
+    public void setup() throws Exception {
+        doReturn("{}").when(mapper).writeValueAsString(any(SlowQuery.class));
+    }
+
+    private SlowQuery query(final long duration) {
+        return new SlowQuery(0L, duration, MetricType.POINT, "*", "empty",
+            new DateRange(0L, 1000L), 1L, 10L, 10L, 100L, 0L, false, ImmutableList.of(),
+            Optional.empty(), ImmutableList.of(), new QueryTrace(QUERY));
+    }
+
+    @Test
+    public void testThreshold() {
+        final SlowQueryLog log = new SlowQueryLog(async, 100L, 10, Optional.empty(), 0L, 0, mapper);
+
+        assertFalse(log.isSlow(99L));
+        assertTrue(log.isSlow(100L));
+
+        final SlowQueryLog disabled =
+            new SlowQueryLog(async, -1L, 10, Optional.empty(), 0L, 0, mapper);
+        assertFalse(disabled.isSlow(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testBoundedMostRecentFirst() {
+        final SlowQueryLog log = new SlowQueryLog(async, 0L, 2, Optional.empty(), 0L, 0, mapper);
+
+        log.log(query(1L));
+        log.log(query(2L));
+        log.log(query(3L));
+
+        final List<SlowQuery> entries = log.entries();
+        assertEquals(2, entries.size());
+        assertEquals(3L, entries.get(0).getDuration());
+        assertEquals(2L, entries.get(1).getDuration());
+    }
+
+    @Test
+    public void testFileRotation() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("slow.log");
+        /* room for two entries ("{}\n") per file */
+        final SlowQueryLog log = new SlowQueryLog(async, 0L, 0, Optional.of(file), 6L, 2, mapper);
+
+        log.start().get();
+
+        for (int i = 0; i < 7; i++) {
+            log.log(query(i));
+        }
+
+        log.stop().get();
+
+        assertEquals(1, lines(file));
+        assertEquals(2, lines(file.resolveSibling("slow.log.1")));
+        assertEquals(2, lines(file.resolveSibling("slow.log.2")));
+        assertFalse(Files.exists(file.resolveSibling("slow.log.3")));
+        assertTrue(log.entries().isEmpty());
+    }
+
+    @Test
+    public void testDropsWhenWriterFallsBehind() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("slow.log");
+        final SlowQueryLog log =
+            new SlowQueryLog(async, 0L, 0, Optional.of(file), Long.MAX_VALUE, 0, mapper);
+
+        /* nothing is written until the writer is running */
+        for (int i = 0; i < SlowQueryLog.QUEUE_SIZE + 10; i++) {
+            log.log(query(i));
+        }
+
+        assertFalse(Files.exists(file));
+
+        log.stop().get();
+        assertEquals(SlowQueryLog.QUEUE_SIZE, lines(file));
+    }
+
+    private int lines(final Path p) throws Exception {
+        return Files.readAllLines(p, StandardCharsets.UTF_8).size();
+    }
+}
@@ -0,0 +1,76 @@
+package com.spotify.heroic.cache.memory;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.aggregation.AggregationInstance;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.filter.Filter;
+import com.spotify.heroic.metric.MetricType;
+import com.spotify.heroic.metric.QueryResult;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MemoryQueryCacheTest {
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final DateRange range = new DateRange(0L, 1000L);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Mock
+    private Filter filter;
+
+    @Mock
+    private AggregationInstance aggregation;
+
+    @Mock
+    private QueryResult result;
+
+    private MemoryQueryCache cache;
+
+    @Before
+    public void setup() {
+        doReturn(60_000L).when(aggregation).cadence();
+        cache = new MemoryQueryCache(async);
+    }
+
+    private AsyncFuture<QueryResult> load() {
+        final Supplier<AsyncFuture<QueryResult>> loader = () -> {
+            loads.incrementAndGet();
+            return async.resolved(result);
+        };
+
+        return cache.load(MetricType.POINT, filter, range, aggregation, QueryOptions.defaults(),
+            loader);
+    }
+
+    @Test
+    public void testCompleteResultIsCached() throws Exception {
+        assertSame(result, load().get());
+        assertSame(result, load().get());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testPartialResultIsNotCached() throws Exception {
+        doReturn(true).when(result).isPartial();
+
+        assertSame(result, load().get());
+        assertSame(result, load().get());
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,78 @@
+package com.spotify.heroic.common;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.ws.ColumnarMessageBodyWriter;
+import com.spotify.heroic.ws.InternalErrorMessage;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.ResolvableFuture;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Error responses must be JSON even when the client only accepts the columnar format, since the
+ * columnar writer can only write query results.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CoreJavaxRestFrameworkTest {
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final CoreJavaxRestFramework framework = new CoreJavaxRestFramework();
+
+    @Mock
+    private AsyncResponse response;
+
+    @Test
+    public void testFailedIsJson() {
+        framework.bind(response, async.failed(new RuntimeException("boom")));
+        assertJsonError(Response.Status.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    public void testCancelledIsJson() {
+        framework.bind(response, async.cancelled());
+        assertJsonError(Response.Status.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    public void testTimeoutIsJson() {
+        final ResolvableFuture<Object> future = async.future();
+        framework.bind(response, future);
+
+        final ArgumentCaptor<TimeoutHandler> handler =
+            ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(response).setTimeoutHandler(handler.capture());
+        handler.getValue().handleTimeout(response);
+
+        assertJsonError(Response.Status.SERVICE_UNAVAILABLE);
+        assertTrue(future.isCancelled());
+    }
+
+    private void assertJsonError(final Response.Status status) {
+        final ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(response).resume(captor.capture());
+
+        final Response r = (Response) captor.getValue();
+        assertEquals(status.getStatusCode(), r.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, r.getMediaType());
+        assertTrue(r.getEntity() instanceof InternalErrorMessage);
+
+        /* the entity could not have been written in the columnar format */
+        assertFalse(new ColumnarMessageBodyWriter(null, null).isWriteable(
+            r.getEntity().getClass(), null, null, ColumnarMessageBodyWriter.MEDIA_TYPE_TYPE));
+    }
+}
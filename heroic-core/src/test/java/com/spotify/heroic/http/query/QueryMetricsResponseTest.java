@@ -0,0 +1,70 @@
+package com.spotify.heroic.http.query;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.spotify.heroic.HeroicMappers;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.grammar.QueryParser;
+import com.spotify.heroic.metric.MetricCollection;
+import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.QueryTrace;
+import com.spotify.heroic.metric.SeriesValues;
+import com.spotify.heroic.metric.ShardedResultGroup;
+import com.spotify.heroic.metric.Spread;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.SortedSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueryMetricsResponseTest {
+    private final ObjectMapper mapper = HeroicMappers.json(Mockito.mock(QueryParser.class));
+
+    private static SeriesValues series(final String role, final String host) {
+        final SortedSet<String> keys = ImmutableSortedSet.of("key");
+        return new SeriesValues(keys, ImmutableMap.of("role", ImmutableSortedSet.of(role), "host",
+            ImmutableSortedSet.of(host)));
+    }
+
+    @Test
+    public void testSerialize() throws Exception {
+        final ShardedResultGroup a = new ShardedResultGroup(ImmutableMap.of(), ImmutableMap.of(),
+            series("database", "a"), MetricCollection.points(
+            ImmutableList.of(new Point(1000L, 1.5D), new Point(2000L, Double.NaN))), 1000L);
+        final ShardedResultGroup b = new ShardedResultGroup(ImmutableMap.of(), ImmutableMap.of(),
+            series("database", "b"), MetricCollection.spreads(
+            ImmutableList.of(new Spread(1000L, 2L, 3D, 1D, 1D, 2D))), 1000L);
+
+        final QueryMetricsResponse response =
+            new QueryMetricsResponse(new DateRange(0L, 3000L), ImmutableList.of(a, b),
+                ImmutableList.of(), new QueryTrace(QueryTrace.identifier("test")), false);
+
+        final JsonNode tree = mapper.readTree(mapper.writeValueAsString(response));
+
+        final JsonNode result = tree.get("result");
+        assertEquals(2, result.size());
+
+        final JsonNode points = result.get(0).get("values");
+        assertEquals("points", result.get(0).get("type").asText());
+        assertEquals(1000L, points.get(0).get(0).asLong());
+        assertEquals(1.5D, points.get(0).get(1).asDouble(), 0D);
+        assertTrue(points.get(1).get(1).isNull());
+        assertEquals("a", result.get(0).get("tags").get("host").asText());
+
+        assertEquals("spreads", result.get(1).get("type").asText());
+        assertEquals(1, result.get(1).get("values").size());
+
+        final JsonNode common = tree.get("commonTags");
+        assertEquals("database", common.get("role").get(0).asText());
+        assertFalse(common.has("host"));
+
+        assertFalse(tree.get("partial").asBoolean());
+        assertEquals(0, tree.get("errors").size());
+    }
+}
@@ -6,6 +6,8 @@ import com.spotify.heroic.common.Series;
 import com.spotify.heroic.filter.Filter;
 import com.spotify.heroic.metadata.MetadataBackend;
 import com.spotify.heroic.metric.MetricBackend;
+import com.spotify.heroic.metric.RequestError;
+import com.spotify.heroic.metric.Rollups;
 import com.spotify.heroic.metric.WriteMetric;
 import com.spotify.heroic.metric.WriteResult;
 import com.spotify.heroic.statistics.IngestionManagerReporter;
@@ -13,9 +15,11 @@ import com.spotify.heroic.suggest.SuggestBackend;
 import eu.toolchain.async.AsyncFramework;
 import eu.toolchain.async.AsyncFuture;
 import eu.toolchain.async.FutureFinished;
+import eu.toolchain.async.Transform;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -35,6 +39,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -63,6 +68,8 @@ public class CoreIngestionGroupTest {
     @Mock
     private SuggestBackend suggest;
     @Mock
+    private Rollups rollups;
+    @Mock
     private WriteMetric write;
     @Mock
     private AsyncFuture<WriteResult> expected;
@@ -98,7 +105,7 @@ public class CoreIngestionGroupTest {
         // @formatter:off
         final CoreIngestionGroup group = new CoreIngestionGroup(
             async, filterSupplier, writePermits, reporter, ingested,
-            metric, metadata, suggest
+            metric, metadata, suggest, of(rollups)
         );
         // @formatter:on
 
@@ -237,6 +244,32 @@ public class CoreIngestionGroupTest {
         verify(rangeSupplier, times(2)).get();
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDoMetricWriteUpdatesRollups() throws Exception {
+        final CoreIngestionGroup group = setupIngestionGroup(of(metric), empty(), empty());
+
+        final ArgumentCaptor<Transform> transform = ArgumentCaptor.forClass(Transform.class);
+
+        doReturn(expected).when(metric).write(write);
+        doReturn(other).when(expected).directTransform(any(Transform.class));
+
+        assertEquals(other, group.doMetricWrite(metric, write));
+        verify(expected).directTransform(transform.capture());
+
+        /* rollups are only updated once the write has succeeded */
+        verify(rollups, never()).update(write);
+
+        transform
+            .getValue()
+            .transform(new WriteResult(ImmutableList.of(mock(RequestError.class)),
+                ImmutableList.of()));
+        verify(rollups, never()).update(write);
+
+        transform.getValue().transform(WriteResult.of());
+        verify(rollups).update(write);
+    }
+
     @Test
     public void testDoWriteSome() {
         final CoreIngestionGroup group = setupIngestionGroup(of(metric), empty(), of(suggest));
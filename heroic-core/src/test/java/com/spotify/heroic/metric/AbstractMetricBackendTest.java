@@ -0,0 +1,228 @@
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Duration;
+import com.spotify.heroic.common.Series;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.ResolvableFuture;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AbstractMetricBackendTest {
+    private static final QueryTrace.Identifier FETCH =
+        QueryTrace.identifier(AbstractMetricBackendTest.class, "fetch");
+
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final Series series = Series.of("foo");
+    private final DateRange range = new DateRange(0L, 300L);
+    private final Backend backend = new Backend(async);
+
+    /* every fetched sub-range, in the order that they were fetched */
+    private final List<DateRange> fetched = new ArrayList<>();
+
+    @Mock
+    private FetchQuotaWatcher watcher;
+
+    private FetchSplit split(final int parallelism, final int retries) {
+        return new FetchSplit(Optional.of(Duration.ofMilliseconds(100)), Optional.of(parallelism),
+            Optional.of(retries));
+    }
+
+    private FetchData data(final long... timestamps) {
+        final List<Point> points = new ArrayList<>();
+
+        for (final long t : timestamps) {
+            points.add(new Point(t, 1D));
+        }
+
+        return new FetchData(series, ImmutableList.of(),
+            ImmutableList.of(MetricCollection.points(points)), new QueryTrace(FETCH));
+    }
+
+    private List<Long> timestamps(final FetchData data) {
+        return data
+            .getGroups()
+            .stream()
+            .flatMap(g -> g.getData().stream())
+            .map(Metric::getTimestamp)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testDisabledBypassesSplit() throws Exception {
+        final FetchData data = data(50L, 150L, 250L);
+
+        final AsyncFuture<FetchData> result =
+            backend.fetchSplit(series, range, watcher, FetchSplit.disabled(), r -> {
+                fetched.add(r);
+                return async.resolved(data);
+            });
+
+        assertSame(data, result.get());
+        assertEquals(ImmutableList.of(range), fetched);
+        verifyZeroInteractions(watcher);
+    }
+
+    @Test
+    public void testDisabledDoesNotRetry() throws Exception {
+        final AsyncFuture<FetchData> result =
+            backend.fetchSplit(series, range, watcher, FetchSplit.disabled(), r -> {
+                fetched.add(r);
+                return async.failed(new RuntimeException("boom"));
+            });
+
+        assertTrue(result.isFailed());
+        assertEquals(ImmutableList.of(range), fetched);
+    }
+
+    @Test
+    public void testFailedSubRangeIsRetried() throws Exception {
+        final AsyncFuture<FetchData> result =
+            backend.fetchSplit(series, range, new LimitedFetchQuotaWatcher(100L), split(1, 1),
+                r -> {
+                    final boolean first = !fetched.contains(r);
+                    fetched.add(r);
+
+                    if (r.start() == 100L && first) {
+                        return async.failed(new RuntimeException("boom"));
+                    }
+
+                    return async.resolved(data(r.start()));
+                });
+
+        assertEquals(ImmutableList.of(0L, 100L, 200L), timestamps(result.get()));
+        assertEquals(ImmutableList.of(new DateRange(0L, 100L), new DateRange(100L, 200L),
+            new DateRange(100L, 200L), new DateRange(200L, 300L)), fetched);
+    }
+
+    @Test
+    public void testRetriesAreBounded() throws Exception {
+        final AsyncFuture<FetchData> result =
+            backend.fetchSplit(series, range, new LimitedFetchQuotaWatcher(100L), split(1, 2),
+                r -> {
+                    fetched.add(r);
+
+                    if (r.start() == 100L) {
+                        return async.failed(new RuntimeException("boom"));
+                    }
+
+                    return async.resolved(data(r.start()));
+                });
+
+        assertTrue(result.isFailed());
+        assertEquals(3L, fetched.stream().filter(r -> r.start() == 100L).count());
+    }
+
+    @Test
+    public void testBoundaryIsNotDuplicated() throws Exception {
+        /* both sub-ranges include the point on their shared boundary */
+        final AsyncFuture<FetchData> result =
+            backend.fetchSplit(series, range, new LimitedFetchQuotaWatcher(100L), split(1, 0),
+                r -> async.resolved(data(r.start(), r.end())));
+
+        assertEquals(ImmutableList.of(0L, 100L, 200L, 300L), timestamps(result.get()));
+    }
+
+    @Test
+    public void testStopsWhenQuotaIsViolated() throws Exception {
+        final AsyncFuture<FetchData> result =
+            backend.fetchSplit(series, range, new LimitedFetchQuotaWatcher(3L), split(1, 0),
+                r -> {
+                    fetched.add(r);
+                    return async.resolved(data(r.start(), r.start() + 10L));
+                });
+
+        assertTrue(result.isFailed());
+        /* the second sub-range violates the quota, so the third is never started */
+        assertEquals(ImmutableList.of(new DateRange(0L, 100L), new DateRange(100L, 200L)),
+            fetched);
+    }
+
+    @Test
+    public void testResultIsInSubRangeOrder() throws Exception {
+        final Map<DateRange, ResolvableFuture<FetchData>> pending = new LinkedHashMap<>();
+
+        final AsyncFuture<FetchData> result =
+            backend.fetchSplit(series, range, new LimitedFetchQuotaWatcher(100L), split(4, 0),
+                r -> {
+                    final ResolvableFuture<FetchData> future = async.future();
+                    pending.put(r, future);
+                    return future;
+                });
+
+        assertEquals(3, pending.size());
+
+        final List<DateRange> ranges = new ArrayList<>(pending.keySet());
+
+        /* complete the sub-ranges in reverse order */
+        for (int i = ranges.size() - 1; i >= 0; i--) {
+            final DateRange r = ranges.get(i);
+            pending.get(r).resolve(data(r.start(), r.start() + 50L));
+        }
+
+        assertEquals(ImmutableList.of(0L, 50L, 100L, 150L, 200L, 250L),
+            timestamps(result.get()));
+    }
+
+    private static class Backend extends AbstractMetricBackend {
+        Backend(final AsyncFramework async) {
+            super(async);
+        }
+
+        @Override
+        public AsyncFuture<Void> configure() {
+            throw new IllegalStateException("not supported");
+        }
+
+        @Override
+        public AsyncFuture<WriteResult> write(final WriteMetric write) {
+            throw new IllegalStateException("not supported");
+        }
+
+        @Override
+        public AsyncFuture<WriteResult> write(final Collection<WriteMetric> writes) {
+            throw new IllegalStateException("not supported");
+        }
+
+        @Override
+        public AsyncFuture<FetchData> fetch(
+            final MetricType source, final Series series, final DateRange range,
+            final FetchQuotaWatcher watcher, final QueryOptions options
+        ) {
+            throw new IllegalStateException("not supported");
+        }
+
+        @Override
+        public Iterable<BackendEntry> listEntries() {
+            throw new IllegalStateException("not supported");
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+    }
+}
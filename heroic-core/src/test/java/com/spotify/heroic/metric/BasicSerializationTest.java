@@ -32,6 +32,12 @@ public class BasicSerializationTest {
         assertSerialization("Point.json", expected, Point.class);
     }
 
+    @Test
+    public void testSketch() throws Exception {
+        final Sketch expected = new Sketch(1024L, new byte[]{1, 2, 3});
+        assertSerialization("Sketch.json", expected, Sketch.class);
+    }
+
     @Test
     public void testMetricCollection() throws Exception {
         final MetricCollection expected = MetricCollection.points(
@@ -0,0 +1,124 @@
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Series;
+import com.spotify.heroic.statistics.MetricBackendReporter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.ResolvableFuture;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CoalescingMetricBackendTest {
+    private static final QueryTrace.Identifier FETCH =
+        QueryTrace.identifier(CoalescingMetricBackendTest.class, "fetch");
+
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final Series series = Series.of("foo");
+    private final DateRange outer = new DateRange(0L, 1000L);
+    private final QueryOptions options = QueryOptions.defaults();
+
+    @Mock
+    private MetricBackend delegate;
+
+    @Mock
+    private MetricBackendReporter reporter;
+
+    private ResolvableFuture<FetchData> pending;
+    private CoalescingMetricBackend backend;
+
+    @Before
+    public void setup() {
+        pending = async.future();
+
+        doReturn(pending)
+            .when(delegate)
+            .fetch(eq(MetricType.POINT), eq(series), eq(outer), any(FetchQuotaWatcher.class),
+                eq(options));
+
+        backend = new CoalescingMetricBackend(async, delegate, reporter);
+    }
+
+    private AsyncFuture<FetchData> fetch(final DateRange range) {
+        return backend.fetch(MetricType.POINT, series, range, LocalMetricManager.NO_QUOTA_WATCHER,
+            options);
+    }
+
+    private FetchData data() {
+        return new FetchData(series, ImmutableList.of(), ImmutableList.of(MetricCollection.points(
+            ImmutableList.of(new Point(100L, 1D), new Point(400L, 2D), new Point(900L, 3D)))),
+            new QueryTrace(FETCH));
+    }
+
+    @Test
+    public void testIdenticalFetchesAreCoalesced() throws Exception {
+        final AsyncFuture<FetchData> first = fetch(outer);
+        final AsyncFuture<FetchData> second = fetch(outer);
+
+        pending.resolve(data());
+
+        assertEquals(3, first.get().getGroups().get(0).size());
+        assertEquals(3, second.get().getGroups().get(0).size());
+
+        verify(delegate, times(1)).fetch(any(MetricType.class), any(Series.class),
+            any(DateRange.class), any(FetchQuotaWatcher.class), any(QueryOptions.class));
+        verify(reporter).reportFetchCoalesced(false);
+        verify(reporter).reportFetchCoalesced(true);
+    }
+
+    @Test
+    public void testContainedRangeIsCropped() throws Exception {
+        fetch(outer);
+        final AsyncFuture<FetchData> inner = fetch(new DateRange(200L, 500L));
+
+        pending.resolve(data());
+
+        assertEquals(ImmutableList.of(new Point(400L, 2D)),
+            inner.get().getGroups().get(0).getDataAs(Point.class));
+
+        verify(delegate, times(1)).fetch(any(MetricType.class), any(Series.class),
+            any(DateRange.class), any(FetchQuotaWatcher.class), any(QueryOptions.class));
+    }
+
+    @Test
+    public void testSharedFetchCancelledByLastWaiter() {
+        final AsyncFuture<FetchData> first = fetch(outer);
+        final AsyncFuture<FetchData> second = fetch(outer);
+
+        first.cancel();
+        assertFalse(pending.isDone());
+
+        second.cancel();
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    public void testCompletedFetchIsNotShared() throws Exception {
+        fetch(outer);
+        pending.resolve(data());
+
+        fetch(outer);
+
+        verify(delegate, times(2)).fetch(any(MetricType.class), any(Series.class),
+            any(DateRange.class), any(FetchQuotaWatcher.class), any(QueryOptions.class));
+    }
+}
@@ -0,0 +1,280 @@
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.aggregation.EmptyInstance;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Duration;
+import com.spotify.heroic.common.GroupSet;
+import com.spotify.heroic.common.RangeFilter;
+import com.spotify.heroic.common.SelectedGroup;
+import com.spotify.heroic.common.Series;
+import com.spotify.heroic.filter.Filter;
+import com.spotify.heroic.metadata.FindSeries;
+import com.spotify.heroic.metadata.MetadataBackend;
+import com.spotify.heroic.metadata.MetadataManager;
+import com.spotify.heroic.scheduler.Scheduler;
+import com.spotify.heroic.scheduler.Task;
+import com.spotify.heroic.statistics.noop.NoopMetricBackendReporter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.ResolvableFuture;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocalMetricManagerTest {
+    private static final QueryTrace.Identifier FETCH =
+        QueryTrace.identifier(LocalMetricManagerTest.class, "fetch");
+
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final Series series = Series.of("foo");
+
+    @Mock
+    private GroupSet<MetricBackend> groupSet;
+
+    @Mock
+    private MetricBackend backend;
+
+    @Mock
+    private MetadataManager metadataManager;
+
+    @Mock
+    private MetadataBackend metadata;
+
+    @Mock
+    private Scheduler scheduler;
+
+    @Mock
+    private Filter filter;
+
+    private MetricBackendGroup group;
+
+    @Before
+    public void setup() {
+        doReturn("*").when(filter).toDSL();
+        doReturn(new SelectedGroup<>(ImmutableSet.of(backend)))
+            .when(groupSet)
+            .useOptionalGroup(Optional.empty());
+        doReturn(metadata).when(metadataManager).useDefaultGroup();
+        doReturn(async.resolved(new FindSeries(ImmutableSet.of(series), 1, 0)))
+            .when(metadata)
+            .findSeries(any(RangeFilter.class));
+
+        doReturn(async.resolved(new FetchData(series, ImmutableList.of(),
+            ImmutableList.of(MetricCollection.points(
+                ImmutableList.of(new Point(100L, 1D), new Point(400L, 2D), new Point(900L, 3D)))),
+            new QueryTrace(FETCH))))
+            .when(backend)
+            .fetch(any(MetricType.class), any(Series.class), any(DateRange.class),
+                any(FetchQuotaWatcher.class), any(QueryOptions.class));
+
+        final LocalMetricManager manager =
+            new LocalMetricManager(10, 10, 1000, 1000, 2, async, groupSet, metadataManager,
+                NoopMetricBackendReporter.get(), new QueryAdmissionController(async, 10, 1000, 10),
+                scheduler, Optional.empty());
+
+        group = manager.useOptionalGroup(Optional.empty());
+    }
+
+    private FullQuery query(final DateRange range) {
+        return new FullQuery(MetricType.POINT, filter, range, EmptyInstance.INSTANCE,
+            QueryOptions.defaults());
+    }
+
+    private FullQuery query(final DateRange range, final long deadline) {
+        return new FullQuery(MetricType.POINT, filter, range, EmptyInstance.INSTANCE,
+            QueryOptions.builder().deadline(Duration.ofMilliseconds(deadline)).build());
+    }
+
+    private List<Point> points(final FullQuery.Result result) {
+        final ResultGroups groups = result.getGroups().get();
+        assertEquals(1, groups.getGroups().size());
+        return groups.getGroups().get(0).getGroup().getDataAs(Point.class);
+    }
+
+    @Test
+    public void testBatchSharesLookupsAndFetches() throws Exception {
+        final DateRange range = new DateRange(0L, 1000L);
+
+        final List<FullQuery.Result> results =
+            group.queryBatch(ImmutableList.of(query(range), query(range))).get();
+
+        assertEquals(2, results.size());
+        assertEquals(3, points(results.get(0)).size());
+        assertEquals(3, points(results.get(1)).size());
+
+        verify(metadata, times(1)).findSeries(any(RangeFilter.class));
+        verify(backend, times(1)).fetch(any(MetricType.class), any(Series.class),
+            any(DateRange.class), any(FetchQuotaWatcher.class), any(QueryOptions.class));
+    }
+
+    @Test
+    public void testBatchCropsContainedRange() throws Exception {
+        final List<FullQuery.Result> results = group
+            .queryBatch(ImmutableList.of(query(new DateRange(0L, 1000L)),
+                query(new DateRange(200L, 500L))))
+            .get();
+
+        assertEquals(3, points(results.get(0)).size());
+        assertEquals(ImmutableList.of(new Point(400L, 2D)), points(results.get(1)));
+
+        verify(backend, times(1)).fetch(any(MetricType.class), any(Series.class),
+            any(DateRange.class), any(FetchQuotaWatcher.class), any(QueryOptions.class));
+    }
+
+    @Test
+    public void testBatchSharedFetchIsBounded() throws Exception {
+        final ResolvableFuture<FetchData> fetch = async.future();
+
+        doReturn(fetch)
+            .when(backend)
+            .fetch(any(MetricType.class), any(Series.class), any(DateRange.class),
+                any(FetchQuotaWatcher.class), any(QueryOptions.class));
+
+        final DateRange range = new DateRange(0L, 1000L);
+        group.queryBatch(ImmutableList.of(query(range, 100L), query(range, 300L)));
+
+        /* quota is the sum of the quotas of both queries */
+        final ArgumentCaptor<FetchQuotaWatcher> watcher =
+            ArgumentCaptor.forClass(FetchQuotaWatcher.class);
+        verify(backend).fetch(any(MetricType.class), any(Series.class), any(DateRange.class),
+            watcher.capture(), any(QueryOptions.class));
+        assertEquals(2000, watcher.getValue().getReadDataQuota());
+
+        /* the shared fetch is cancelled at the latest deadline of the queries */
+        final ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+        final ArgumentCaptor<Task> task = ArgumentCaptor.forClass(Task.class);
+        verify(scheduler).schedule(eq("batch-fetch-deadline"), delay.capture(),
+            eq(TimeUnit.MILLISECONDS), task.capture());
+        assertTrue(delay.getValue() > 100L && delay.getValue() <= 300L);
+
+        task.getValue().run();
+        assertTrue(fetch.isCancelled());
+    }
+
+    /**
+     * Set up two series, where the fetch of the first completes and the fetch of the second is
+     * returned to be completed by the test.
+     */
+    private ResolvableFuture<FetchData> slowSeries(final Series fast, final Series slow) {
+        final ResolvableFuture<FetchData> pending = async.future();
+
+        doReturn(async.resolved(new FindSeries(ImmutableSet.of(fast, slow), 2, 0)))
+            .when(metadata)
+            .findSeries(any(RangeFilter.class));
+
+        doReturn(async.resolved(new FetchData(fast, ImmutableList.of(),
+            ImmutableList.of(MetricCollection.points(ImmutableList.of(new Point(100L, 1D)))),
+            new QueryTrace(FETCH))))
+            .when(backend)
+            .fetch(any(MetricType.class), eq(fast), any(DateRange.class),
+                any(FetchQuotaWatcher.class), any(QueryOptions.class));
+
+        doReturn(pending)
+            .when(backend)
+            .fetch(any(MetricType.class), eq(slow), any(DateRange.class),
+                any(FetchQuotaWatcher.class), any(QueryOptions.class));
+
+        return pending;
+    }
+
+    @Test
+    public void testDeadlineResolvesPartialResult() throws Exception {
+        final Series fast = Series.of("foo", ImmutableMap.of("host", "a"));
+        final Series slow = Series.of("foo", ImmutableMap.of("host", "b"));
+        final ResolvableFuture<FetchData> pending = slowSeries(fast, slow);
+
+        final FullQuery q = query(new DateRange(0L, 1000L), 100L);
+        final AsyncFuture<ResultGroups> result = group.query(q.getSource(), q.getFilter(),
+            q.getRange(), q.getAggregation(), q.getOptions());
+
+        assertFalse(result.isDone());
+
+        final ArgumentCaptor<Task> task = ArgumentCaptor.forClass(Task.class);
+        verify(scheduler).schedule(eq("query-deadline"), eq(100L), eq(TimeUnit.MILLISECONDS),
+            task.capture());
+        task.getValue().run();
+
+        /* the fetch that was in-flight at the deadline is aborted */
+        assertTrue(pending.isCancelled());
+
+        /* the query resolves with what was aggregated before the deadline */
+        final ResultGroups groups = result.get();
+        assertTrue(groups.isPartial());
+        assertEquals(1, groups.getGroups().size());
+        assertEquals(fast.getTags(), groups.getGroups().get(0).getKey());
+        assertEquals(ImmutableList.of(new Point(100L, 1D)),
+            groups.getGroups().get(0).getGroup().getDataAs(Point.class));
+    }
+
+    @Test
+    public void testCancelAbortsInFlightFetches() throws Exception {
+        final Series fast = Series.of("foo", ImmutableMap.of("host", "a"));
+        final Series slow = Series.of("foo", ImmutableMap.of("host", "b"));
+        final ResolvableFuture<FetchData> pending = slowSeries(fast, slow);
+
+        final FullQuery q = query(new DateRange(0L, 1000L));
+        final AsyncFuture<ResultGroups> result = group.query(q.getSource(), q.getFilter(),
+            q.getRange(), q.getAggregation(), q.getOptions());
+
+        assertFalse(result.isDone());
+
+        result.cancel();
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    public void testDeadlineIsCancelledWhenQueryCompletes() throws Exception {
+        final ScheduledFuture<?> timeout = mock(ScheduledFuture.class);
+
+        doReturn(timeout)
+            .when(scheduler)
+            .schedule(eq("query-deadline"), anyLong(), any(TimeUnit.class), any(Task.class));
+
+        final FullQuery q = query(new DateRange(0L, 1000L), 100L);
+        final ResultGroups groups = group
+            .query(q.getSource(), q.getFilter(), q.getRange(), q.getAggregation(),
+                q.getOptions())
+            .get();
+
+        assertFalse(groups.isPartial());
+        verify(timeout).cancel(false);
+    }
+
+    @Test
+    public void testMergeOverlapping() {
+        final List<DateRange> spans = LocalMetricManager.mergeOverlapping(
+            ImmutableList.of(new DateRange(500L, 700L), new DateRange(0L, 100L),
+                new DateRange(50L, 200L), new DateRange(600L, 800L)));
+
+        assertEquals(ImmutableList.of(new DateRange(0L, 200L), new DateRange(500L, 800L)),
+            spans);
+    }
+}
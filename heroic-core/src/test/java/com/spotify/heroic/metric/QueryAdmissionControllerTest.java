@@ -0,0 +1,121 @@
+package com.spotify.heroic.metric;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.filter.Filter;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.AsyncFuture;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QueryAdmissionControllerTest {
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final DateRange range = new DateRange(0L, 1000L);
+
+    @Mock
+    private Filter filter;
+
+    private QueryAdmissionController admission;
+
+    @Before
+    public void setup() {
+        doReturn("*").when(filter).toDSL();
+        admission = new QueryAdmissionController(async, 2, 100L, 1);
+    }
+
+    private QueryAdmissionController.Ticket ticket(final long series, final long buckets) {
+        final QueryAdmissionController.Ticket ticket =
+            admission.newTicket(MetricType.POINT, filter, range);
+        ticket.estimate(series, buckets);
+        return ticket;
+    }
+
+    @Test
+    public void testAdmitWithinBudget() {
+        assertTrue(admission.admit(ticket(10, 5)).isResolved());
+        assertTrue(admission.admit(ticket(10, 5)).isResolved());
+        assertEquals(2, admission.runningQueries().size());
+    }
+
+    @Test
+    public void testOversizedQueryAdmittedWhenIdle() {
+        assertTrue(admission.admit(ticket(1000, 1000)).isResolved());
+    }
+
+    @Test
+    public void testQueueAndRelease() {
+        final QueryAdmissionController.Ticket first = ticket(10, 8);
+        assertTrue(admission.admit(first).isResolved());
+
+        final AsyncFuture<QueryAdmissionController.Ticket> second =
+            admission.admit(ticket(10, 8));
+        assertFalse(second.isDone());
+        assertEquals(RunningQuery.State.QUEUED, admission.runningQueries().get(1).getState());
+
+        /* queue is full */
+        assertTrue(admission.admit(ticket(1, 1)).isFailed());
+
+        first.release();
+        assertTrue(second.isResolved());
+        assertEquals(1, admission.runningQueries().size());
+    }
+
+    @Test
+    public void testConcurrencyLimit() {
+        assertTrue(admission.admit(ticket(1, 1)).isResolved());
+        assertTrue(admission.admit(ticket(1, 1)).isResolved());
+        assertFalse(admission.admit(ticket(1, 1)).isDone());
+    }
+
+    @Test
+    public void testCancelledWhileQueued() {
+        final QueryAdmissionController.Ticket first = ticket(10, 8);
+        assertTrue(admission.admit(first).isResolved());
+
+        final AsyncFuture<QueryAdmissionController.Ticket> second =
+            admission.admit(ticket(10, 8));
+        second.cancel();
+
+        assertEquals(1, admission.runningQueries().size());
+
+        first.release();
+        assertEquals(0, admission.runningQueries().size());
+    }
+
+    @Test
+    public void testPointsReadAccounted() {
+        final QueryAdmissionController.Ticket ticket = ticket(1, 1);
+        admission.admit(ticket);
+
+        final FetchQuotaWatcher watcher = ticket.watch(new LimitedFetchQuotaWatcher(100));
+        watcher.readData(10);
+        watcher.readData(20);
+
+        assertEquals(30L, admission.runningQueries().get(0).getPointsRead());
+    }
+
+    @Test
+    public void testBytesReadAccounted() {
+        final QueryAdmissionController.Ticket ticket = ticket(1, 1);
+        admission.admit(ticket);
+
+        final FetchQuotaWatcher watcher = ticket.watch(new LimitedFetchQuotaWatcher(100));
+        watcher.readBytes(512);
+        watcher.readBytes(256);
+
+        assertEquals(768L, ticket.bytesRead());
+        assertEquals(768L, admission.runningQueries().get(0).getBytesRead());
+    }
+}
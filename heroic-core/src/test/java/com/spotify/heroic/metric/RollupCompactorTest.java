@@ -0,0 +1,285 @@
+package com.spotify.heroic.metric;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.HeroicMappers;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.aggregation.AggregationInstance;
+import com.spotify.heroic.async.AsyncObservable;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Series;
+import com.spotify.heroic.grammar.QueryParser;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RollupCompactorTest {
+    private static final QueryTrace.Identifier FETCH =
+        QueryTrace.identifier(RollupCompactorTest.class, "fetch");
+
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final ObjectMapper mapper = HeroicMappers.json(mock(QueryParser.class));
+    private final Series series = Series.of("foo");
+    private final BackendKey key = new BackendKey(series, 0L);
+
+    @Mock
+    private MetricManager metric;
+
+    @Mock
+    private MetricBackendGroup raw;
+
+    @Mock
+    private MetricBackendGroup target;
+
+    @Mock
+    private AggregationInstance aggregation;
+
+    private Rollups rollups;
+    private RollupCompactor compactor;
+
+    @Before
+    public void setup() {
+        rollups = new Rollups(ImmutableList.of(10L), Optional.of("rollups"), 5L, 5L,
+            Optional.empty());
+        compactor = compactor(10000L);
+
+        doReturn(raw).when(metric).useDefaultGroup();
+        doReturn(target).when(metric).useOptionalGroup(Optional.of("rollups"));
+        doReturn(ImmutableList.of()).when(metric).runningQueries();
+        doReturn(true).when(aggregation).supportsRollup(anyLong());
+
+        doReturn(keys(ImmutableList.of(key)))
+            .doReturn(keys(ImmutableList.of()))
+            .when(raw)
+            .streamKeys(any(BackendKeyFilter.class), any(QueryOptions.class));
+
+        doReturn(async.resolved(MetricCollection.points(
+            ImmutableList.of(new Point(5L, 1D), new Point(15L, 2D), new Point(25L, 3D)))))
+            .when(raw)
+            .fetchRow(key);
+
+        /* the edges of the row continue in neighbouring rows */
+        doReturn(async.resolved(fetchData(new Point(5L, 1D))))
+            .when(raw)
+            .fetch(eq(MetricType.POINT), eq(series), eq(new DateRange(1L, 10L)),
+                any(QueryOptions.class));
+        doReturn(async.resolved(fetchData(new Point(25L, 3D), new Point(28L, 4D))))
+            .when(raw)
+            .fetch(eq(MetricType.POINT), eq(series), eq(new DateRange(21L, 30L)),
+                any(QueryOptions.class));
+
+        doReturn(async.resolved(WriteResult.of()))
+            .when(target)
+            .write(anyCollectionOf(WriteMetric.class));
+
+        doReturn(async.resolved(fetchData()))
+            .when(target)
+            .fetch(eq(MetricType.POINT), eq(Rollups.COMPACTOR), any(DateRange.class),
+                any(QueryOptions.class));
+        doReturn(async.resolved(WriteResult.of())).when(target).write(any(WriteMetric.class));
+
+        doReturn(async.resolved(progress()))
+            .when(target)
+            .fetch(eq(MetricType.EVENT), eq(Rollups.COMPACTION), any(DateRange.class),
+                any(QueryOptions.class));
+    }
+
+    private RollupCompactor compactor(final long sliceInterval) {
+        return new RollupCompactor(async, rollups, metric, mapper,
+            new RollupCompactor.Config(100L, 1000L, 1000000D, 1000, sliceInterval), "a");
+    }
+
+    @SuppressWarnings("unchecked")
+    private FetchData progress(final RollupCompactor.State... states) {
+        final ImmutableList.Builder<Event> events = ImmutableList.builder();
+
+        for (final RollupCompactor.State state : states) {
+            events.add(new Event(state.getUntil(), mapper.convertValue(state, Map.class)));
+        }
+
+        return new FetchData(Rollups.COMPACTION, ImmutableList.of(),
+            ImmutableList.of(MetricCollection.events(events.build())), new QueryTrace(FETCH));
+    }
+
+    private AsyncObservable<BackendKeySet> keys(final List<BackendKey> keys) {
+        return observer -> {
+            observer.observe(new BackendKeySet(keys, 0L));
+            observer.end();
+        };
+    }
+
+    private FetchData fetchData(final Point... points) {
+        return new FetchData(series, ImmutableList.of(),
+            ImmutableList.of(MetricCollection.points(ImmutableList.copyOf(points))),
+            new QueryTrace(FETCH));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCompactPass() throws Exception {
+        final DateRange range = new DateRange(0L, 1000L);
+
+        compactor.slice(1000L);
+
+        /* pass is not complete until all keys have been seen */
+        assertFalse(rollups.plan(MetricType.POINT, aggregation, range).isPresent());
+
+        final ArgumentCaptor<Collection> writes = ArgumentCaptor.forClass(Collection.class);
+        verify(target).write(writes.capture());
+
+        final Map<Long, Double> counts = new TreeMap<>();
+        final Series count = Rollups.series(series, 10L, Rollups.Stat.COUNT);
+
+        for (final WriteMetric w : (Collection<WriteMetric>) writes.getValue()) {
+            if (w.getSeries().equals(count)) {
+                for (final Point p : w.getData().getDataAs(Point.class)) {
+                    counts.put(p.getTimestamp(), p.getValue());
+                }
+            }
+        }
+
+        final Map<Long, Double> expected = new TreeMap<>();
+        expected.put(10L, 1D);
+        expected.put(20L, 1D);
+        expected.put(30L, 2D);
+        assertEquals(expected, counts);
+
+        compactor.slice(1000L);
+
+        assertTrue(rollups.plan(MetricType.POINT, aggregation, range).isPresent());
+        assertEquals(new DateRange(1L, 900L),
+            rollups.plan(MetricType.POINT, aggregation, range).get().getRollup());
+    }
+
+    @Test
+    public void testCompletedPassRecorded() throws Exception {
+        compactor.slice(1000L);
+        compactor.slice(1000L);
+
+        verify(target).write(new WriteMetric(Rollups.COMPACTED,
+            MetricCollection.points(ImmutableList.of(new Point(900L, 1D)))));
+    }
+
+    @Test
+    public void testSkipRowsBeforePass() throws Exception {
+        final BackendKey next = new BackendKey(series, 100L);
+
+        doReturn(keys(ImmutableList.of(key, next)))
+            .doReturn(keys(ImmutableList.of()))
+            .doReturn(keys(ImmutableList.of(key, next)))
+            .doReturn(keys(ImmutableList.of()))
+            .when(raw)
+            .streamKeys(any(BackendKeyFilter.class), any(QueryOptions.class));
+
+        doReturn(async.resolved(MetricCollection.points(ImmutableList.of())))
+            .when(raw)
+            .fetchRow(next);
+
+        compactor.slice(1000L);
+        compactor.slice(1000L);
+
+        /* the rows are estimated to end at 100 and 200, before the next pass starts at 900 */
+        compactor.slice(2000L);
+        compactor.slice(2000L);
+
+        verify(raw, times(1)).fetchRow(key);
+        verify(raw, times(1)).fetchRow(next);
+    }
+
+    @Test
+    public void testOtherCompactorHoldsLease() throws Exception {
+        doReturn(async.resolved(fetchData(new Point(1000L, 42D))))
+            .when(target)
+            .fetch(eq(MetricType.POINT), eq(Rollups.COMPACTOR), any(DateRange.class),
+                any(QueryOptions.class));
+
+        compactor.slice(1000L);
+
+        verify(raw, never()).streamKeys(any(BackendKeyFilter.class), any(QueryOptions.class));
+    }
+
+    @Test
+    public void testProgressRecordedInGroup() throws Exception {
+        compactor.slice(1000L);
+
+        final ArgumentCaptor<WriteMetric> writes = ArgumentCaptor.forClass(WriteMetric.class);
+        verify(target, atLeastOnce()).write(writes.capture());
+
+        /* the start of the pass, followed by the progress of the slice */
+        final List<WriteMetric> progress = writes
+            .getAllValues()
+            .stream()
+            .filter(w -> w.getSeries().equals(Rollups.COMPACTION))
+            .collect(Collectors.toList());
+        assertEquals(2, progress.size());
+
+        final Event event = progress.get(1).getData().getDataAs(Event.class).get(0);
+        assertEquals(900L, event.getTimestamp());
+        assertEquals(new RollupCompactor.State(Long.MIN_VALUE, 900L,
+                Optional.of(new RollupCompactor.Position(series, 0L)), false),
+            mapper.convertValue(event.getPayload(), RollupCompactor.State.class));
+    }
+
+    @Test
+    public void testResumeFromGroup() throws Exception {
+        doReturn(async.resolved(progress(
+            new RollupCompactor.State(Long.MIN_VALUE, 800L, Optional.empty(), true),
+            new RollupCompactor.State(800L, 900L, Optional.empty(), true))))
+            .when(target)
+            .fetch(eq(MetricType.EVENT), eq(Rollups.COMPACTION), any(DateRange.class),
+                any(QueryOptions.class));
+
+        /* the latest pass completed on another node, and the next one isn't due yet */
+        compactor.slice(1000L);
+
+        assertEquals(900L, rollups.getCompacted());
+        verify(raw, never()).streamKeys(any(BackendKeyFilter.class), any(QueryOptions.class));
+    }
+
+    @Test
+    public void testLeaseRenewedDuringSlice() throws Exception {
+        final RollupCompactor compactor = compactor(0L);
+
+        /* the lease is lost after the slice has started */
+        doReturn(async.resolved(fetchData()))
+            .doReturn(async.resolved(fetchData(new Point(1000L, 42D))))
+            .when(target)
+            .fetch(eq(MetricType.POINT), eq(Rollups.COMPACTOR), any(DateRange.class),
+                any(QueryOptions.class));
+
+        compactor.slice(1000L);
+
+        verify(raw).streamKeys(any(BackendKeyFilter.class), any(QueryOptions.class));
+        verify(raw, never()).fetchRow(key);
+    }
+}
@@ -0,0 +1,150 @@
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.aggregation.AggregationInstance;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.common.Series;
+import com.spotify.heroic.scheduler.Scheduler;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RollupFlusherTest {
+    private static final QueryTrace.Identifier FETCH =
+        QueryTrace.identifier(RollupFlusherTest.class, "fetch");
+
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    private final Series series = Series.of("foo");
+    private final DateRange range = new DateRange(0L, 10L);
+
+    @Mock
+    private MetricManager metric;
+
+    @Mock
+    private MetricBackendGroup target;
+
+    @Mock
+    private Scheduler scheduler;
+
+    @Mock
+    private AggregationInstance aggregation;
+
+    private Rollups rollups;
+    private RollupFlusher flusher;
+
+    @Before
+    public void setup() {
+        rollups = new Rollups(ImmutableList.of(10L), Optional.of("rollups"), 5L, 5L,
+            Optional.of(0L));
+        rollups.begin(0L);
+        flusher = new RollupFlusher(async, rollups, metric, scheduler, "a");
+
+        doReturn(target).when(metric).useOptionalGroup(Optional.of("rollups"));
+        doReturn(true).when(aggregation).supportsRollup(anyLong());
+
+        doReturn(async.resolved(heartbeats()))
+            .when(target)
+            .fetch(eq(MetricType.POINT), eq(Rollups.WRITER), any(DateRange.class),
+                any(QueryOptions.class));
+        doReturn(async.resolved(WriteResult.of())).when(target).write(any(WriteMetric.class));
+        doReturn(async.resolved(WriteResult.of()))
+            .when(target)
+            .write(anyCollectionOf(WriteMetric.class));
+
+        rollups.update(new WriteMetric(series,
+            MetricCollection.points(ImmutableList.of(new Point(5L, 1D)))));
+    }
+
+    private FetchData heartbeats(final Point... points) {
+        return new FetchData(Rollups.WRITER, ImmutableList.of(),
+            ImmutableList.of(MetricCollection.points(ImmutableList.copyOf(points))),
+            new QueryTrace(FETCH));
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        flusher.flush(15L).get();
+
+        verify(target).write(anyCollectionOf(WriteMetric.class));
+        assertEquals(new DateRange(1L, 10L),
+            rollups.plan(MetricType.POINT, aggregation, range).get().getRollup());
+    }
+
+    @Test
+    public void testFailedFlushNotRead() throws Exception {
+        doReturn(async.resolved(
+            new WriteResult(ImmutableList.of(mock(RequestError.class)), ImmutableList.of())))
+            .when(target)
+            .write(anyCollectionOf(WriteMetric.class));
+
+        flusher.flush(15L).get();
+
+        assertFalse(rollups.plan(MetricType.POINT, aggregation, range).isPresent());
+    }
+
+    @Test
+    public void testOtherWriterDisablesRollups() throws Exception {
+        doReturn(async.resolved(heartbeats(new Point(10L, 42D))))
+            .when(target)
+            .fetch(eq(MetricType.POINT), eq(Rollups.WRITER), any(DateRange.class),
+                any(QueryOptions.class));
+
+        flusher.flush(15L).get();
+
+        verify(target, never()).write(anyCollectionOf(WriteMetric.class));
+        assertTrue(rollups.isConflict());
+        assertFalse(rollups.plan(MetricType.POINT, aggregation, range).isPresent());
+    }
+
+    @Test
+    public void testRestartKeepsLease() throws Exception {
+        /* heartbeat written by the previous process on the same node */
+        doReturn(async.resolved(heartbeats(new Point(10L, RollupLease.id("a")))))
+            .when(target)
+            .fetch(eq(MetricType.POINT), eq(Rollups.WRITER), any(DateRange.class),
+                any(QueryOptions.class));
+
+        flusher.flush(15L).get();
+
+        assertFalse(rollups.isConflict());
+        verify(target).write(anyCollectionOf(WriteMetric.class));
+    }
+
+    @Test
+    public void testSyncCompacted() throws Exception {
+        doReturn(async.resolved(new FetchData(Rollups.COMPACTED, ImmutableList.of(),
+            ImmutableList.of(MetricCollection.points(
+                ImmutableList.of(new Point(500L, 1D), new Point(900L, 1D)))),
+            new QueryTrace(FETCH))))
+            .when(target)
+            .fetch(eq(MetricType.POINT), eq(Rollups.COMPACTED), eq(new DateRange(0L, 1000L)),
+                any(QueryOptions.class));
+
+        flusher.sync(1000L).get();
+
+        assertEquals(900L, rollups.getCompacted());
+    }
+}
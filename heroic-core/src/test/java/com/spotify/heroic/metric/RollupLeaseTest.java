@@ -0,0 +1,122 @@
+package com.spotify.heroic.metric;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.heroic.QueryOptions;
+import com.spotify.heroic.common.DateRange;
+import eu.toolchain.async.AsyncFramework;
+import eu.toolchain.async.TinyAsync;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RollupLeaseTest {
+    private static final QueryTrace.Identifier FETCH =
+        QueryTrace.identifier(RollupLeaseTest.class, "fetch");
+
+    private final AsyncFramework async =
+        TinyAsync.builder().executor(MoreExecutors.newDirectExecutorService()).build();
+
+    @Mock
+    private MetricManager metric;
+
+    @Mock
+    private MetricBackendGroup target;
+
+    @Before
+    public void setup() {
+        doReturn(target).when(metric).useOptionalGroup(Optional.of("rollups"));
+        doReturn(async.resolved(WriteResult.of())).when(target).write(any(WriteMetric.class));
+        heartbeats();
+    }
+
+    private RollupLease lease(final String owner) {
+        return new RollupLease(async, metric, Optional.of("rollups"), Rollups.WRITER, 30L, owner);
+    }
+
+    private void heartbeats(final Point... points) {
+        doReturn(async.resolved(new FetchData(Rollups.WRITER, ImmutableList.of(),
+            ImmutableList.of(MetricCollection.points(ImmutableList.copyOf(points))),
+            new QueryTrace(FETCH))))
+            .when(target)
+            .fetch(eq(MetricType.POINT), eq(Rollups.WRITER), any(DateRange.class),
+                any(QueryOptions.class));
+    }
+
+    private Point written() {
+        final ArgumentCaptor<WriteMetric> write = ArgumentCaptor.forClass(WriteMetric.class);
+        verify(target).write(write.capture());
+        return write.getValue().getData().getDataAs(Point.class).get(0);
+    }
+
+    @Test
+    public void testIdIsStable() {
+        assertEquals(RollupLease.id("a"), RollupLease.id("a"), 0D);
+        assertNotEquals(RollupLease.id("a"), RollupLease.id("b"), 0D);
+        assertTrue(RollupLease.id("a") >= 1D && RollupLease.id("a") < 2D);
+    }
+
+    @Test
+    public void testRenewWritesHeartbeat() throws Exception {
+        assertTrue(lease("a").renew(100L).get());
+        assertEquals(new Point(100L, RollupLease.id("a")), written());
+    }
+
+    @Test
+    public void testRestartWithinTimeout() throws Exception {
+        /* the previous process of the same node heartbeated 10 ms ago */
+        heartbeats(new Point(90L, RollupLease.id("a")));
+
+        assertTrue(lease("a").renew(100L).get());
+        assertFalse(lease("b").renew(100L).get());
+    }
+
+    @Test
+    public void testReleasedLeaseIsFree() throws Exception {
+        heartbeats(new Point(80L, RollupLease.id("b")), new Point(90L, RollupLease.RELEASED));
+
+        assertTrue(lease("a").renew(100L).get());
+    }
+
+    @Test
+    public void testHeartbeatAfterReleaseHoldsLease() throws Exception {
+        heartbeats(new Point(95L, RollupLease.id("b")), new Point(90L, RollupLease.RELEASED));
+
+        assertFalse(lease("a").renew(100L).get());
+        verify(target, never()).write(any(WriteMetric.class));
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        final RollupLease lease = lease("a");
+
+        /* not held, nothing to release */
+        lease.release(90L).get();
+        verify(target, never()).write(any(WriteMetric.class));
+
+        lease.renew(100L).get();
+        lease.release(110L).get();
+
+        final ArgumentCaptor<WriteMetric> write = ArgumentCaptor.forClass(WriteMetric.class);
+        verify(target, times(2)).write(write.capture());
+        assertEquals(ImmutableList.of(new Point(110L, RollupLease.RELEASED)),
+            write.getAllValues().get(1).getData().getDataAs(Point.class));
+    }
+}
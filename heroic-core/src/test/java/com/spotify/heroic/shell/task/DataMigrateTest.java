@@ -0,0 +1,179 @@
+package com.spotify.heroic.shell.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.spotify.heroic.HeroicMappers;
+import com.spotify.heroic.common.Series;
+import com.spotify.heroic.grammar.QueryParser;
+import com.spotify.heroic.metric.BackendKey;
+import com.spotify.heroic.metric.MetricType;
+import com.spotify.heroic.shell.task.DataMigrate.Bounds;
+import com.spotify.heroic.shell.task.DataMigrate.Checkpoint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DataMigrateTest {
+    private final ObjectMapper mapper = HeroicMappers.json(Mockito.mock(QueryParser.class));
+
+    private final Bounds bounds = new Bounds(0F, 1F, "true");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BackendKey key(final long base) {
+        return new BackendKey(Series.of("foo"), base, MetricType.POINT, Optional.empty());
+    }
+
+    private BackendKey token(final long token) {
+        return new BackendKey(Series.of("foo"), 0L, MetricType.POINT, Optional.of(token));
+    }
+
+    @Test
+    public void testRangeAdvancesInOrder() {
+        final DataMigrate.Range range = new DataMigrate.Range(0F, 1F);
+
+        range.begin(key(1));
+        range.begin(key(2));
+        range.begin(key(3));
+
+        range.finish(key(2));
+        assertEquals(Optional.empty(), range.last());
+
+        range.finish(key(1));
+        assertEquals(Optional.of(key(2)), range.last());
+
+        range.finish(key(3));
+        assertEquals(Optional.of(key(3)), range.last());
+        assertEquals(3L, range.keys());
+
+        range.end();
+        assertTrue(range.isDone());
+    }
+
+    @Test
+    public void testRangeStopsAdvancingOnFailure() {
+        final DataMigrate.Range range = new DataMigrate.Range(0F, 1F);
+
+        range.begin(key(1));
+        range.begin(key(2));
+        range.finish(key(1));
+
+        range.fail();
+
+        range.begin(key(3));
+        range.finish(key(2));
+        range.finish(key(3));
+
+        assertEquals(Optional.of(key(1)), range.last());
+
+        range.end();
+        assertFalse(range.isDone());
+    }
+
+    @Test
+    public void testRangeProgress() {
+        final DataMigrate.Range range = new DataMigrate.Range(0.5F, 1F);
+
+        /* no token to estimate from */
+        range.begin(key(1));
+        range.finish(key(1));
+        assertEquals(0D, range.progress(), 0D);
+
+        /* token 2^62 is at 3/4 of the key space, which is half of the range */
+        range.begin(token(1L << 62));
+        range.finish(token(1L << 62));
+        assertEquals(0.5D, range.progress(), 0.0001D);
+
+        /* a token before the range is clamped */
+        range.begin(token(Long.MIN_VALUE));
+        range.finish(token(Long.MIN_VALUE));
+        assertEquals(0D, range.progress(), 0D);
+
+        range.end();
+        assertEquals(1D, range.progress(), 0D);
+    }
+
+    @Test
+    public void testSetupRangesSplits() throws Exception {
+        final Bounds bounds = new Bounds(0.1F, 0.7F, "true");
+        final List<DataMigrate.Range> ranges =
+            DataMigrate.setupRanges(mapper, Optional.empty(), bounds, 3);
+
+        assertEquals(3, ranges.size());
+        assertEquals(0.1F, ranges.get(0).getStart(), 0F);
+        assertEquals(0.7F, ranges.get(2).getEnd(), 0F);
+
+        /* ranges must be contiguous, so that no part of the key space is skipped */
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).getEnd(), ranges.get(i).getStart(), 0F);
+        }
+    }
+
+    @Test
+    public void testCheckpointRoundTrip() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("checkpoint.json");
+
+        final DataMigrate.Range range = new DataMigrate.Range(0F, 1F);
+        range.begin(token(42L));
+        range.finish(token(42L));
+        range.addPoints(10L);
+
+        final Checkpoint checkpoint = new Checkpoint(bounds, ImmutableList.of(range.state()));
+        Files.write(path, mapper.writeValueAsBytes(checkpoint));
+
+        assertEquals(checkpoint,
+            mapper.readValue(Files.readAllBytes(path), Checkpoint.class));
+
+        final List<DataMigrate.Range> restored =
+            DataMigrate.setupRanges(mapper, Optional.of(path), bounds, 1);
+
+        assertEquals(ImmutableList.of(range.state()),
+            restored.stream().map(DataMigrate.Range::state).collect(Collectors.toList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckpointRangeMismatch() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("checkpoint.json");
+        Files.write(path, mapper.writeValueAsBytes(
+            new Checkpoint(bounds, ImmutableList.of(new DataMigrate.Range(0F, 1F).state()))));
+
+        DataMigrate.setupRanges(mapper, Optional.of(path), bounds, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckpointBoundsMismatch() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("checkpoint.json");
+        Files.write(path, mapper.writeValueAsBytes(
+            new Checkpoint(bounds, ImmutableList.of(new DataMigrate.Range(0F, 1F).state()))));
+
+        DataMigrate.setupRanges(mapper, Optional.of(path), new Bounds(0F, 0.5F, "true"), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckpointFilterMismatch() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("checkpoint.json");
+        Files.write(path, mapper.writeValueAsBytes(
+            new Checkpoint(bounds, ImmutableList.of(new DataMigrate.Range(0F, 1F).state()))));
+
+        DataMigrate.setupRanges(mapper, Optional.of(path), new Bounds(0F, 1F, "$key = foo"), 1);
+    }
+
+    @Test
+    public void testFormatDuration() {
+        assertEquals("0:00:00", DataMigrate.formatDuration(0L));
+        assertEquals("0:01:05", DataMigrate.formatDuration(65L));
+        assertEquals("26:00:01", DataMigrate.formatDuration(26L * 3600L + 1L));
+    }
+}
@@ -0,0 +1,158 @@
+package com.spotify.heroic.ws;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.spotify.heroic.HeroicMappers;
+import com.spotify.heroic.common.DateRange;
+import com.spotify.heroic.grammar.QueryParser;
+import com.spotify.heroic.http.query.QueryBatchResponse;
+import com.spotify.heroic.http.query.QueryMetricsResponse;
+import com.spotify.heroic.metric.MetricCollection;
+import com.spotify.heroic.metric.Point;
+import com.spotify.heroic.metric.QueryTrace;
+import com.spotify.heroic.metric.SeriesValues;
+import com.spotify.heroic.metric.ShardedResultGroup;
+import com.spotify.heroic.statistics.noop.NoopQueryReporter;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarMessageBodyWriterTest {
+    private final ColumnarMessageBodyWriter writer =
+        new ColumnarMessageBodyWriter(HeroicMappers.json(Mockito.mock(QueryParser.class)),
+            NoopQueryReporter.get());
+
+    private final QueryMetricsResponse response = buildResponse();
+
+    private static QueryMetricsResponse buildResponse() {
+        final SeriesValues series = new SeriesValues(ImmutableSortedSet.of("key"),
+            ImmutableMap.of("host", ImmutableSortedSet.of("a", "b"), "role",
+                ImmutableSortedSet.of("database")));
+
+        final MetricCollection points = MetricCollection.points(
+            ImmutableList.of(new Point(1000L, 1.5D), new Point(3000L, Double.POSITIVE_INFINITY)));
+
+        final ShardedResultGroup group =
+            new ShardedResultGroup(ImmutableMap.of("site", "lon"), ImmutableMap.of(), series,
+                points, 2000L);
+
+        return new QueryMetricsResponse(new DateRange(1000L, 4000L), ImmutableList.of(group),
+            ImmutableList.of(), new QueryTrace(QueryTrace.identifier("test")), true);
+    }
+
+    @Test
+    public void testIsWriteable() {
+        final MediaType type = ColumnarMessageBodyWriter.MEDIA_TYPE_TYPE;
+        assertTrue(writer.isWriteable(QueryMetricsResponse.class, null, null, type));
+        assertTrue(writer.isWriteable(QueryBatchResponse.class, null, null, type));
+        assertFalse(writer.isWriteable(String.class, null, null, type));
+        assertFalse(writer.isWriteable(ErrorMessage.class, null, null, type));
+        assertFalse(writer.isWriteable(InternalErrorMessage.class, null, null, type));
+        assertFalse(writer.isWriteable(QueryMetricsResponse.class, null, null,
+            MediaType.APPLICATION_JSON_TYPE));
+    }
+
+    @Test
+    public void testResult() throws Exception {
+        final DataInputStream in = write(response);
+        assertHeader(in, ColumnarMessageBodyWriter.RESULT);
+        assertResult(in);
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        final DataInputStream in = write(new QueryBatchResponse(ImmutableMap.of("a", response)));
+        assertHeader(in, ColumnarMessageBodyWriter.BATCH);
+        assertEquals(1L, readVarLong(in));
+        assertEquals("a", readString(in));
+        assertResult(in);
+        assertEquals(-1, in.read());
+    }
+
+    private DataInputStream write(final Object value) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(value, value.getClass(), null, null, null, null, out);
+        return new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private void assertHeader(final DataInputStream in, final int kind) throws IOException {
+        assertEquals('H', in.readByte());
+        assertEquals('Q', in.readByte());
+        assertEquals(ColumnarMessageBodyWriter.VERSION, in.readByte());
+        assertEquals(kind, in.readByte());
+    }
+
+    private void assertResult(final DataInputStream in) throws IOException {
+        assertEquals(1000L, readZigZag(in));
+        assertEquals(4000L, readZigZag(in));
+        assertEquals(1, in.readByte());
+
+        /* errors */
+        assertEquals(0L, readVarLong(in));
+
+        /* groups */
+        assertEquals(1L, readVarLong(in));
+        assertEquals("points", readString(in));
+        assertEquals(2000L, readZigZag(in));
+        assertEquals(1, in.readByte());
+        assertEquals("key", readString(in));
+
+        /* shard */
+        assertEquals(1L, readVarLong(in));
+        assertEquals("site", readString(in));
+        assertEquals("lon", readString(in));
+
+        /* tags */
+        assertEquals(1L, readVarLong(in));
+        assertEquals("role", readString(in));
+        assertEquals("database", readString(in));
+
+        /* tag counts */
+        assertEquals(1L, readVarLong(in));
+        assertEquals("host", readString(in));
+        assertEquals(2L, readVarLong(in));
+
+        /* points */
+        assertEquals(2L, readVarLong(in));
+        assertEquals(1000L, readZigZag(in));
+        assertEquals(2000L, readZigZag(in));
+        assertEquals(1.5D, in.readDouble(), 0D);
+        assertTrue(Double.isNaN(in.readDouble()));
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readZigZag(final DataInputStream in) throws IOException {
+        final long v = readVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long value = 0L;
+
+        for (int shift = 0; ; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -26,6 +26,8 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Function;
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.protobuf.ByteString;
@@ -80,6 +82,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
@@ -103,6 +106,14 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
     public static final String EVENTS = "events";
     public static final long PERIOD = 0x100000000L;
 
+    /**
+     * Maximum number of serialized row keys to keep around.
+     * <p>
+     * Every write and fetch for a series within the same period uses the same row key, so the
+     * serialized forms of hot row keys are cached.
+     */
+    public static final long MAX_CACHED_ROW_KEYS = 100000L;
+
     private final AsyncFramework async;
     private final SerializerFramework serializer;
     private final Serializer<RowKey> rowKeySerializer;
@@ -118,6 +129,9 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
 
     private final Meter written = new Meter();
 
+    private final Cache<RowKey, ByteString> rowKeys =
+        CacheBuilder.newBuilder().maximumSize(MAX_CACHED_ROW_KEYS).build();
+
     @Inject
     public BigtableBackend(
         final AsyncFramework async, @Named("common") final SerializerFramework serializer,
@@ -274,7 +288,7 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
         final FetchQuotaWatcher watcher, final QueryOptions options
     ) {
         return connection.doto(c -> {
-            final List<PreparedQuery> prepared = ranges(series, range, rowKeySerializer);
+            final List<PreparedQuery> prepared = ranges(series, range);
 
             if (!watcher.mayReadData()) {
                 throw new IllegalArgumentException("query violated data limit");
@@ -387,7 +401,7 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
 
         for (final Pair<RowKey, Mutations> e : saved) {
             final long start = System.nanoTime();
-            final ByteString rowKeyBytes = serialize(e.getKey(), rowKeySerializer);
+            final ByteString rowKeyBytes = serializeRowKey(e.getKey());
             writes.add(client
                 .mutateRow(METRICS, rowKeyBytes, e.getValue())
                 .directTransform(result -> WriteResult.of(System.nanoTime() - start)));
@@ -395,7 +409,7 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
 
         for (final Map.Entry<RowKey, Mutations.Builder> e : building.entrySet()) {
             final long start = System.nanoTime();
-            final ByteString rowKeyBytes = serialize(e.getKey(), rowKeySerializer);
+            final ByteString rowKeyBytes = serializeRowKey(e.getKey());
             writes.add(client
                 .mutateRow(METRICS, rowKeyBytes, e.getValue().build())
                 .directTransform(result -> WriteResult.of(System.nanoTime() - start)));
@@ -422,7 +436,7 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
         builder.setCell(columnFamily, offsetBytes, valueBytes);
 
         final long start = System.nanoTime();
-        final ByteString rowKeyBytes = serialize(rowKey, rowKeySerializer);
+        final ByteString rowKeyBytes = serializeRowKey(rowKey);
         return client
             .mutateRow(METRICS, rowKeyBytes, builder.build())
             .directTransform(result -> WriteResult.of(System.nanoTime() - start));
@@ -460,14 +474,26 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
                     throw new RuntimeException("Quota limit violated");
                 }
 
+                final long decodeStart = System.nanoTime();
                 final List<Iterable<T>> points = new ArrayList<>();
+                long bytes = 0;
 
                 for (final Row row : result) {
-                    row.getFamily(columnFamily).ifPresent(f -> {
-                        points.add(Iterables.transform(f.latestCellValue(), transform));
-                    });
+                    final Optional<Family> family = row.getFamily(columnFamily);
+
+                    if (!family.isPresent()) {
+                        continue;
+                    }
+
+                    for (final Family.LatestCellValueColumn cell : family.get().latestCellValue()) {
+                        bytes += cell.getValue().size();
+                    }
+
+                    points.add(Iterables.transform(family.get().latestCellValue(), transform));
                 }
 
+                watcher.readBytes(bytes);
+
                 final QueryTrace trace =
                     new QueryTrace(FETCH_SEGMENT, w.elapsed(TimeUnit.NANOSECONDS));
                 final ImmutableList<Long> times = ImmutableList.of(trace.getElapsed());
@@ -476,6 +502,8 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
                 final List<MetricCollection> groups =
                     ImmutableList.of(MetricCollection.build(type, data));
 
+                reporter.reportFetchDecode(System.nanoTime() - decodeStart);
+
                 return new FetchData(series, times, groups, trace);
             }));
         }
@@ -483,6 +511,18 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
         return async.collect(fetches, FetchData.collect(FETCH, series));
     }
 
+    ByteString serializeRowKey(final RowKey rowKey) throws IOException {
+        final ByteString cached = rowKeys.getIfPresent(rowKey);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final ByteString bytes = serialize(rowKey, rowKeySerializer);
+        rowKeys.put(rowKey, bytes);
+        return bytes;
+    }
+
     <T> ByteString serialize(T rowKey, Serializer<T> serializer) throws IOException {
         try (final BytesSerialWriter writer = this.serializer.writeBytes()) {
             serializer.serialize(writer, rowKey);
@@ -498,9 +538,7 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
         return timestamp % PERIOD;
     }
 
-    List<PreparedQuery> ranges(
-        final Series series, final DateRange range, final Serializer<RowKey> rowKeySerializer
-    ) throws IOException {
+    List<PreparedQuery> ranges(final Series series, final DateRange range) throws IOException {
         final List<PreparedQuery> bases = new ArrayList<>();
 
         final long start = base(range.getStart());
@@ -514,7 +552,7 @@ public class BigtableBackend extends AbstractMetricBackend implements LifeCycles
             }
 
             final RowKey key = new RowKey(series, base);
-            final ByteString keyBlob = serialize(key, rowKeySerializer);
+            final ByteString keyBlob = serializeRowKey(key);
             final ByteString startKey = serializeOffset(offset(modified.start()));
             final ByteString endKey = serializeOffset(offset(modified.end()));
 
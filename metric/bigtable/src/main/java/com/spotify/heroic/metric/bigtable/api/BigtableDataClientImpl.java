@@ -216,6 +216,7 @@ public class BigtableDataClientImpl implements BigtableDataClient {
             }
         });
 
+        future.onCancelled(() -> request.cancel(false));
         return future;
     }
 
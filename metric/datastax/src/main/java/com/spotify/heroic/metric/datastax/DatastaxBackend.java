@@ -45,6 +45,7 @@ import com.spotify.heroic.metric.BackendKeyFilter;
 import com.spotify.heroic.metric.BackendKeySet;
 import com.spotify.heroic.metric.FetchData;
 import com.spotify.heroic.metric.FetchQuotaWatcher;
+import com.spotify.heroic.metric.FetchSplit;
 import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.Point;
@@ -105,17 +106,19 @@ public class DatastaxBackend extends AbstractMetricBackend implements LifeCycles
     private final MetricBackendReporter reporter;
     private final Managed<Connection> connection;
     private final Groups groups;
+    private final FetchSplit fetchSplit;
 
     @Inject
     public DatastaxBackend(
         final AsyncFramework async, final MetricBackendReporter reporter,
-        final Managed<Connection> connection, final Groups groups
+        final Managed<Connection> connection, final Groups groups, final FetchSplit fetchSplit
     ) {
         super(async);
         this.async = async;
         this.reporter = reporter;
         this.connection = connection;
         this.groups = groups;
+        this.fetchSplit = fetchSplit;
     }
 
     @Override
@@ -163,16 +166,18 @@ public class DatastaxBackend extends AbstractMetricBackend implements LifeCycles
             throw new IllegalArgumentException("query violated data limit");
         }
 
-        final int limit = watcher.getReadDataQuota();
+        return fetchSplit(series, range, watcher, fetchSplit, r -> {
+            final int limit = watcher.getReadDataQuota();
 
-        return connection.doto(c -> {
-            final List<PreparedFetch> prepared = c.schema.ranges(series, range);
+            return connection.doto(c -> {
+                final List<PreparedFetch> prepared = c.schema.ranges(series, r);
 
-            if (source == MetricType.POINT) {
-                return fetchDataPoints(series, limit, options, prepared, c);
-            }
+                if (source == MetricType.POINT) {
+                    return fetchDataPoints(series, limit, options, prepared, c);
+                }
 
-            throw new IllegalArgumentException("unsupported source: " + source);
+                throw new IllegalArgumentException("unsupported source: " + source);
+            });
         });
     }
 
@@ -529,15 +534,16 @@ public class DatastaxBackend extends AbstractMetricBackend implements LifeCycles
 
             final ResolvableFuture<FetchData> future = async.future();
 
-            Async
-                .bind(async, c.session.executeAsync(stmt))
-                .onDone(new RowFetchHelper<>(future, p.converter(),
-                    result -> traceBuilder.apply(result).directTransform(trace -> {
-                        final ImmutableList<Long> times = ImmutableList.of(trace.getElapsed());
-                        final List<MetricCollection> groups =
-                            ImmutableList.of(MetricCollection.points(result.getData()));
-                        return new FetchData(series, times, groups, trace);
-                    })));
+            final AsyncFuture<ResultSet> query = Async.bind(async, c.session.executeAsync(stmt));
+            future.onCancelled(query::cancel);
+
+            query.onDone(new RowFetchHelper<>(future, p.converter(),
+                result -> traceBuilder.apply(result).directTransform(trace -> {
+                    final ImmutableList<Long> times = ImmutableList.of(trace.getElapsed());
+                    final List<MetricCollection> groups =
+                        ImmutableList.of(MetricCollection.points(result.getData()));
+                    return new FetchData(series, times, groups, trace);
+                })));
 
             fetches.add(future);
         }
@@ -553,6 +559,9 @@ public class DatastaxBackend extends AbstractMetricBackend implements LifeCycles
         private final Transform<Row, R> rowConverter;
         private final Transform<RowFetchResult<R>, AsyncFuture<T>> converter;
 
+        /* only accessed from sequential callbacks */
+        private long decodeTime = 0L;
+
         @Override
         public void failed(Throwable cause) throws Exception {
             future.fail(cause);
@@ -574,6 +583,8 @@ public class DatastaxBackend extends AbstractMetricBackend implements LifeCycles
             final Optional<AsyncFuture<Void>> nextFetch = rows.isFullyFetched() ? Optional.empty()
                 : Optional.of(Async.bind(async, rows.fetchMoreResults()));
 
+            final long decodeStart = System.nanoTime();
+
             while (count-- > 0) {
                 final R part;
 
@@ -587,6 +598,8 @@ public class DatastaxBackend extends AbstractMetricBackend implements LifeCycles
                 data.add(part);
             }
 
+            decodeTime += System.nanoTime() - decodeStart;
+
             if (nextFetch.isPresent()) {
                 nextFetch.get().onDone(new FutureDone<Void>() {
                     @Override
@@ -608,6 +621,8 @@ public class DatastaxBackend extends AbstractMetricBackend implements LifeCycles
                 return;
             }
 
+            reporter.reportFetchDecode(decodeTime);
+
             final AsyncFuture<T> result;
 
             try {
@@ -35,6 +35,7 @@ import com.spotify.heroic.common.ModuleId;
 import com.spotify.heroic.dagger.PrimaryComponent;
 import com.spotify.heroic.lifecycle.LifeCycle;
 import com.spotify.heroic.lifecycle.LifeCycleManager;
+import com.spotify.heroic.metric.FetchSplit;
 import com.spotify.heroic.metric.MetricModule;
 import com.spotify.heroic.metric.datastax.schema.Schema;
 import com.spotify.heroic.metric.datastax.schema.SchemaComponent;
@@ -92,6 +93,8 @@ public final class DatastaxMetricModule implements MetricModule, DynamicModuleId
     private final RetryPolicy retryPolicy;
     /* authentication to apply to builder */
     private final DatastaxAuthentication authentication;
+    /* how to split the range of a single fetch */
+    private final FetchSplit fetchSplit;
 
     @JsonCreator
     public DatastaxMetricModule(
@@ -103,7 +106,8 @@ public final class DatastaxMetricModule implements MetricModule, DynamicModuleId
         @JsonProperty("readTimeout") Optional<Duration> readTimeout,
         @JsonProperty("consistencyLevel") Optional<ConsistencyLevel> consistencyLevel,
         @JsonProperty("retryPolicy") Optional<RetryPolicy> retryPolicy,
-        @JsonProperty("authentication") Optional<DatastaxAuthentication> authentication
+        @JsonProperty("authentication") Optional<DatastaxAuthentication> authentication,
+        @JsonProperty("fetchSplit") Optional<FetchSplit> fetchSplit
     ) {
         this.id = id;
         this.groups = groups.orElseGet(Groups::empty).or("heroic");
@@ -115,6 +119,7 @@ public final class DatastaxMetricModule implements MetricModule, DynamicModuleId
         this.consistencyLevel = consistencyLevel.orElse(ConsistencyLevel.ONE);
         this.retryPolicy = retryPolicy.orElse(DefaultRetryPolicy.INSTANCE);
         this.authentication = authentication.orElseGet(DatastaxAuthentication.None::new);
+        this.fetchSplit = fetchSplit.orElseGet(FetchSplit::disabled);
     }
 
     private static List<InetSocketAddress> convert(Set<String> source) {
@@ -191,6 +196,12 @@ public final class DatastaxMetricModule implements MetricModule, DynamicModuleId
             return groups;
         }
 
+        @Provides
+        @DatastaxScope
+        public FetchSplit fetchSplit() {
+            return fetchSplit;
+        }
+
         @Provides
         @DatastaxScope
         public Managed<Connection> connection(
@@ -229,6 +240,7 @@ public final class DatastaxMetricModule implements MetricModule, DynamicModuleId
         private Optional<ConsistencyLevel> consistencyLevel = empty();
         private Optional<RetryPolicy> retryPolicy = empty();
         private Optional<DatastaxAuthentication> authentication = empty();
+        private Optional<FetchSplit> fetchSplit = empty();
 
         public Builder id(String id) {
             this.id = of(id);
@@ -280,9 +292,14 @@ public final class DatastaxMetricModule implements MetricModule, DynamicModuleId
             return this;
         }
 
+        public Builder fetchSplit(FetchSplit fetchSplit) {
+            this.fetchSplit = of(fetchSplit);
+            return this;
+        }
+
         public DatastaxMetricModule build() {
             return new DatastaxMetricModule(id, groups, seeds, schema, configure, fetchSize,
-                readTimeout, consistencyLevel, retryPolicy, authentication);
+                readTimeout, consistencyLevel, retryPolicy, authentication, fetchSplit);
         }
     }
 }
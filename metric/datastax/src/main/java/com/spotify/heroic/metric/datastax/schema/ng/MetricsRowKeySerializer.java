@@ -21,6 +21,8 @@
 
 package com.spotify.heroic.metric.datastax.schema.ng;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.spotify.heroic.metric.datastax.MetricsRowKey;
 import com.spotify.heroic.metric.datastax.MetricsRowKey_Serializer;
 import com.spotify.heroic.metric.datastax.TypeSerializer;
@@ -34,15 +36,38 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 public class MetricsRowKeySerializer implements TypeSerializer<MetricsRowKey> {
+    /**
+     * Maximum number of serialized row keys to keep around.
+     * <p>
+     * Every write and fetch for a series within the same period uses the same row key, so the
+     * serialized forms of hot row keys are cached.
+     */
+    public static final long MAX_CACHED_ROW_KEYS = 100000L;
+
     final SerializerFramework s = TinySerializer.builder().useCompactSize(true).build();
     final Serializer<MetricsRowKey> serializer = new MetricsRowKey_Serializer(s, s.variableLong());
 
+    private final Cache<MetricsRowKey, ByteBuffer> cache =
+        CacheBuilder.newBuilder().maximumSize(MAX_CACHED_ROW_KEYS).build();
+
     @Override
     public ByteBuffer serialize(MetricsRowKey value) throws IOException {
+        final ByteBuffer cached = cache.getIfPresent(value);
+
+        if (cached != null) {
+            /* callers are free to move the position of the buffer */
+            return cached.duplicate();
+        }
+
+        final ByteBuffer buffer;
+
         try (final BytesSerialWriter w = s.writeBytes()) {
             serializer.serialize(w, value);
-            return w.toByteBuffer();
+            buffer = w.toByteBuffer();
         }
+
+        cache.put(value, buffer);
+        return buffer.duplicate();
     }
 
     @Override
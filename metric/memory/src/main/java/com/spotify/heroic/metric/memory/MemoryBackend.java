@@ -34,6 +34,7 @@ import com.spotify.heroic.metric.BackendEntry;
 import com.spotify.heroic.metric.BackendKey;
 import com.spotify.heroic.metric.FetchData;
 import com.spotify.heroic.metric.FetchQuotaWatcher;
+import com.spotify.heroic.metric.FetchSplit;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricCollection;
 import com.spotify.heroic.metric.MetricType;
@@ -86,17 +87,19 @@ public class MemoryBackend extends AbstractMetricBackend {
     private final AsyncFramework async;
     private final Groups groups;
     private final Map<MemoryKey, NavigableMap<Long, Metric>> storage;
+    private final FetchSplit fetchSplit;
 
     @Inject
     public MemoryBackend(
         final AsyncFramework async, final Groups groups,
         @Named("storage") final Map<MemoryKey, NavigableMap<Long, Metric>> storage,
-        LifeCycleRegistry registry
+        final FetchSplit fetchSplit, LifeCycleRegistry registry
     ) {
         super(async);
         this.async = async;
         this.groups = groups;
         this.storage = storage;
+        this.fetchSplit = fetchSplit;
     }
 
     @Override
@@ -139,12 +142,15 @@ public class MemoryBackend extends AbstractMetricBackend {
         MetricType source, Series series, DateRange range, FetchQuotaWatcher watcher,
         QueryOptions options
     ) {
-        final Stopwatch w = Stopwatch.createStarted();
         final MemoryKey key = new MemoryKey(source, series);
-        final List<MetricCollection> groups = doFetch(key, range);
-        final QueryTrace trace = new QueryTrace(FETCH, w.elapsed(TimeUnit.NANOSECONDS));
-        final ImmutableList<Long> times = ImmutableList.of(trace.getElapsed());
-        return async.resolved(new FetchData(series, times, groups, trace));
+
+        return fetchSplit(series, range, watcher, fetchSplit, r -> {
+            final Stopwatch w = Stopwatch.createStarted();
+            final List<MetricCollection> groups = doFetch(key, r);
+            final QueryTrace trace = new QueryTrace(FETCH, w.elapsed(TimeUnit.NANOSECONDS));
+            final ImmutableList<Long> times = ImmutableList.of(trace.getElapsed());
+            return async.resolved(new FetchData(series, times, groups, trace));
+        });
     }
 
     @Override
@@ -27,6 +27,7 @@ import com.spotify.heroic.common.DynamicModuleId;
 import com.spotify.heroic.common.Groups;
 import com.spotify.heroic.common.ModuleId;
 import com.spotify.heroic.dagger.PrimaryComponent;
+import com.spotify.heroic.metric.FetchSplit;
 import com.spotify.heroic.metric.Metric;
 import com.spotify.heroic.metric.MetricModule;
 import dagger.Component;
@@ -54,15 +55,18 @@ public final class MemoryMetricModule implements MetricModule, DynamicModuleId {
     private final Optional<String> id;
     private final Groups groups;
     private final boolean synchronizedStorage;
+    private final FetchSplit fetchSplit;
 
     @JsonCreator
     public MemoryMetricModule(
         @JsonProperty("id") Optional<String> id, @JsonProperty("groups") Optional<Groups> groups,
-        @JsonProperty("synchronizedStorage") Optional<Boolean> synchronizedStorage
+        @JsonProperty("synchronizedStorage") Optional<Boolean> synchronizedStorage,
+        @JsonProperty("fetchSplit") Optional<FetchSplit> fetchSplit
     ) {
         this.id = id;
         this.groups = groups.orElseGet(Groups::empty).or(DEFAULT_GROUP);
         this.synchronizedStorage = synchronizedStorage.orElse(false);
+        this.fetchSplit = fetchSplit.orElseGet(FetchSplit::disabled);
     }
 
     @Override
@@ -90,6 +94,12 @@ public final class MemoryMetricModule implements MetricModule, DynamicModuleId {
             return groups;
         }
 
+        @Provides
+        @MemoryScope
+        public FetchSplit fetchSplit() {
+            return fetchSplit;
+        }
+
         @Provides
         @MemoryScope
         @Named("storage")
@@ -117,6 +127,7 @@ public final class MemoryMetricModule implements MetricModule, DynamicModuleId {
         private Optional<String> id = empty();
         private Optional<Groups> groups = empty();
         private Optional<Boolean> synchronizedStorage = empty();
+        private Optional<FetchSplit> fetchSplit = empty();
 
         public Builder id(String id) {
             this.id = of(id);
@@ -133,8 +144,13 @@ public final class MemoryMetricModule implements MetricModule, DynamicModuleId {
             return this;
         }
 
+        public Builder fetchSplit(final FetchSplit fetchSplit) {
+            this.fetchSplit = of(fetchSplit);
+            return this;
+        }
+
         public MemoryMetricModule build() {
-            return new MemoryMetricModule(id, groups, synchronizedStorage);
+            return new MemoryMetricModule(id, groups, synchronizedStorage, fetchSplit);
         }
     }
 }
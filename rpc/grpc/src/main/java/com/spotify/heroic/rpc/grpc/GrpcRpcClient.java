@@ -117,6 +117,9 @@ public class GrpcRpcClient {
             call.request(1);
             call.halfClose();
 
+            /* abort the remote call if the caller is no longer interested in the result */
+            future.onCancelled(call::cancel);
+
             return future;
         });
     }
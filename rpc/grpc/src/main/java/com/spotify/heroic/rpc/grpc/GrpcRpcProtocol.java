@@ -44,6 +44,7 @@ import com.spotify.heroic.metadata.DeleteSeries;
 import com.spotify.heroic.metadata.FindKeys;
 import com.spotify.heroic.metadata.FindSeries;
 import com.spotify.heroic.metadata.FindTags;
+import com.spotify.heroic.metric.FullQuery;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.ResultGroups;
 import com.spotify.heroic.metric.WriteMetric;
@@ -214,6 +215,17 @@ public class GrpcRpcProtocol implements RpcProtocol {
                     new RpcFullQuery(source, filter, range, aggregation, options));
             }
 
+            @Override
+            public AsyncFuture<List<FullQuery.Result>> queryBatch(List<FullQuery> queries) {
+                if (!metadata.supportsQueryBatch()) {
+                    return FullQuery.each(async, queries,
+                        q -> query(q.getSource(), q.getFilter(), q.getRange(), q.getAggregation(),
+                            q.getOptions()));
+                }
+
+                return request(METRICS_QUERY_BATCH, queries);
+            }
+
             @Override
             public AsyncFuture<WriteResult> writeMetric(WriteMetric write) {
                 return request(METRICS_WRITE, write);
@@ -445,6 +457,13 @@ public class GrpcRpcProtocol implements RpcProtocol {
         }, new TypeReference<ResultGroups>() {
         });
 
+    public static final GrpcEndpointSpecification<GroupedQuery<List<FullQuery>>,
+        List<FullQuery.Result>>
+        METRICS_QUERY_BATCH =
+        descriptor("metrics:queryBatch", new TypeReference<GroupedQuery<List<FullQuery>>>() {
+        }, new TypeReference<List<FullQuery.Result>>() {
+        });
+
     public static final GrpcEndpointSpecification<GroupedQuery<WriteMetric>, WriteResult>
         METRICS_WRITE = descriptor("metrics:write", new TypeReference<GroupedQuery<WriteMetric>>() {
     }, new TypeReference<WriteResult>() {
@@ -22,12 +22,14 @@
 package com.spotify.heroic.rpc.grpc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.spotify.heroic.cluster.NodeMetadata;
 import com.spotify.heroic.lifecycle.LifeCycleRegistry;
 import com.spotify.heroic.lifecycle.LifeCycles;
 import com.spotify.heroic.metadata.MetadataBackend;
 import com.spotify.heroic.metadata.MetadataManager;
 import com.spotify.heroic.metric.MetricBackend;
+import com.spotify.heroic.metric.MetricBackendGroup;
 import com.spotify.heroic.metric.MetricManager;
 import com.spotify.heroic.suggest.SuggestBackend;
 import com.spotify.heroic.suggest.SuggestManager;
@@ -35,6 +37,7 @@ import eu.toolchain.async.AsyncFramework;
 import eu.toolchain.async.AsyncFuture;
 import eu.toolchain.async.FutureDone;
 import eu.toolchain.async.ResolvableFuture;
+import io.grpc.Context;
 import io.grpc.Server;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerServiceDefinition;
@@ -104,6 +107,9 @@ public class GrpcRpcProtocolServer implements LifeCycles {
             (m, q) -> m.query(q.getSource(), q.getFilter(), q.getRange(), q.getAggregation(),
                 q.getOptions())));
 
+        container.register(GrpcRpcProtocol.METRICS_QUERY_BATCH,
+            g -> g.apply(metrics, MetricBackendGroup::queryBatch));
+
         container.register(GrpcRpcProtocol.METRICS_WRITE,
             g -> g.apply(metrics, MetricBackend::write));
 
@@ -196,6 +202,11 @@ public class GrpcRpcProtocolServer implements LifeCycles {
                 return;
             }
 
+            /* cancel the local request if the client goes away, or cancels its call */
+            Context
+                .current()
+                .addListener(context -> future.cancel(), MoreExecutors.directExecutor());
+
             future.onDone(new FutureDone<Object>() {
                 @Override
                 public void failed(final Throwable cause) throws Exception {
@@ -117,9 +117,22 @@ public class NativeRpcClient {
             }
         }, this.sendTimeout, TimeUnit.MILLISECONDS);
 
-        b
-            .connect(address)
-            .addListener(handleConnect(request, future, heartbeatTimeout, sendTimeout));
+        final ChannelFuture connect = b.connect(address);
+
+        connect.addListener(handleConnect(request, future, heartbeatTimeout, sendTimeout));
+
+        /* closing the connection signals the remote end to abort processing of the request */
+        future.onCancelled(() -> {
+            sendTimeout.cancel();
+
+            final Timeout heartbeat = heartbeatTimeout.getAndSet(null);
+
+            if (heartbeat != null) {
+                heartbeat.cancel();
+            }
+
+            connect.channel().close();
+        });
 
         return future;
     }
@@ -42,6 +42,7 @@ import com.spotify.heroic.metadata.DeleteSeries;
 import com.spotify.heroic.metadata.FindKeys;
 import com.spotify.heroic.metadata.FindSeries;
 import com.spotify.heroic.metadata.FindTags;
+import com.spotify.heroic.metric.FullQuery;
 import com.spotify.heroic.metric.MetricType;
 import com.spotify.heroic.metric.ResultGroups;
 import com.spotify.heroic.metric.WriteMetric;
@@ -76,6 +77,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class NativeRpcProtocol implements RpcProtocol {
     public static final String METADATA = "metadata";
     public static final String METRICS_QUERY = "metrics:query";
+    public static final String METRICS_QUERY_BATCH = "metrics:queryBatch";
     public static final String METRICS_WRITE = "metrics:write";
     public static final String METADATA_FIND_TAGS = "metadata:findTags";
     public static final String METADATA_FIND_KEYS = "metadata:findKeys";
@@ -197,6 +199,18 @@ public class NativeRpcProtocol implements RpcProtocol {
                     new RpcQuery(source, filter, range, aggregation, options), ResultGroups.class);
             }
 
+            @Override
+            public AsyncFuture<List<FullQuery.Result>> queryBatch(List<FullQuery> queries) {
+                if (!metadata.supportsQueryBatch()) {
+                    return FullQuery.each(async, queries,
+                        q -> query(q.getSource(), q.getFilter(), q.getRange(), q.getAggregation(),
+                            q.getOptions()));
+                }
+
+                return request(METRICS_QUERY_BATCH, queries, RpcQueryBatchResult.class)
+                    .directTransform(RpcQueryBatchResult::getResults);
+            }
+
             @Override
             public AsyncFuture<WriteResult> writeMetric(WriteMetric write) {
                 return request(METRICS_WRITE, write, WriteResult.class);
@@ -322,6 +336,18 @@ public class NativeRpcProtocol implements RpcProtocol {
         }
     }
 
+    @Data
+    public static class RpcQueryBatchResult {
+        private final List<FullQuery.Result> results;
+
+        @JsonCreator
+        public RpcQueryBatchResult(
+            @JsonProperty("results") final List<FullQuery.Result> results
+        ) {
+            this.results = checkNotNull(results, "results");
+        }
+    }
+
     @Data
     public static class RpcTagSuggest {
         private final RangeFilter filter;
@@ -34,7 +34,9 @@ import com.spotify.heroic.metadata.FindSeries;
 import com.spotify.heroic.metadata.FindTags;
 import com.spotify.heroic.metadata.MetadataBackend;
 import com.spotify.heroic.metadata.MetadataManager;
+import com.spotify.heroic.metric.FullQuery;
 import com.spotify.heroic.metric.MetricBackend;
+import com.spotify.heroic.metric.MetricBackendGroup;
 import com.spotify.heroic.metric.MetricManager;
 import com.spotify.heroic.metric.ResultGroups;
 import com.spotify.heroic.metric.WriteMetric;
@@ -42,6 +44,7 @@ import com.spotify.heroic.metric.WriteResult;
 import com.spotify.heroic.rpc.nativerpc.NativeRpcProtocol.GroupedQuery;
 import com.spotify.heroic.rpc.nativerpc.NativeRpcProtocol.RpcKeySuggest;
 import com.spotify.heroic.rpc.nativerpc.NativeRpcProtocol.RpcQuery;
+import com.spotify.heroic.rpc.nativerpc.NativeRpcProtocol.RpcQueryBatchResult;
 import com.spotify.heroic.rpc.nativerpc.NativeRpcProtocol.RpcSuggestTagValue;
 import com.spotify.heroic.rpc.nativerpc.NativeRpcProtocol.RpcSuggestTagValues;
 import com.spotify.heroic.rpc.nativerpc.NativeRpcProtocol.RpcTagSuggest;
@@ -146,6 +149,18 @@ public class NativeRpcProtocolServer implements LifeCycles {
                 }
             });
 
+        container.register(NativeRpcProtocol.METRICS_QUERY_BATCH,
+            new NativeRpcEndpoint<GroupedQuery<List<FullQuery>>, RpcQueryBatchResult>() {
+                @Override
+                public AsyncFuture<RpcQueryBatchResult> handle(
+                    final GroupedQuery<List<FullQuery>> g
+                ) throws Exception {
+                    return g
+                        .apply(metrics, MetricBackendGroup::queryBatch)
+                        .directTransform(RpcQueryBatchResult::new);
+                }
+            });
+
         container.register(NativeRpcProtocol.METRICS_WRITE,
             new NativeRpcEndpoint<GroupedQuery<WriteMetric>, WriteResult>() {
                 @Override
@@ -144,6 +144,10 @@ public class NativeRpcServerSession extends ChannelInitializer<SocketChannel> {
 
             final AsyncFuture<Object> handleFuture = handle.handle(body);
 
+            // The client closes the connection when it is no longer interested in the response,
+            // abort the request when that happens.
+            ch.closeFuture().addListener(future -> handleFuture.cancel());
+
             // Serialize in a separate thread on the async thread pool.
             // this also neatly catches errors for us in the next step.
             // Stop sending heartbeats immediately when the future has been finished.
@@ -42,6 +42,8 @@ public class SemanticConsumerReporter implements ConsumerReporter {
     private final Meter consumerSchemaError;
     private final Histogram messageSize;
     private final Histogram messageDrift;
+    private final Meter samplesDecoded;
+    private final Meter samplesDropped;
 
     public SemanticConsumerReporter(SemanticMetricRegistry registry, String id) {
         this.registry = registry;
@@ -55,6 +57,9 @@ public class SemanticConsumerReporter implements ConsumerReporter {
         messageSize = registry.histogram(base.tagged("what", "message-size", "unit", Units.BYTE));
         messageDrift =
             registry.histogram(base.tagged("what", "message-drift", "unit", Units.MILLISECOND));
+        samplesDecoded =
+            registry.meter(base.tagged("what", "samples-decoded", "unit", Units.SAMPLE));
+        samplesDropped = registry.meter(base.tagged("what", "samples-dropped", "unit", Units.DROP));
     }
 
     @Override
@@ -77,4 +82,14 @@ public class SemanticConsumerReporter implements ConsumerReporter {
     public void reportMessageDrift(final long ms) {
         messageDrift.update(ms);
     }
+
+    @Override
+    public void reportSamplesDecoded(final int count) {
+        samplesDecoded.mark(count);
+    }
+
+    @Override
+    public void reportSamplesDropped(final int count) {
+        samplesDropped.mark(count);
+    }
 }
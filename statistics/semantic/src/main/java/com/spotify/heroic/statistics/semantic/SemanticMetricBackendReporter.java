@@ -21,6 +21,9 @@
 
 package com.spotify.heroic.statistics.semantic;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import com.spotify.heroic.QueryOptions;
 import com.spotify.heroic.async.AsyncObservable;
 import com.spotify.heroic.common.DateRange;
@@ -48,6 +51,7 @@ import lombok.ToString;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @ToString(of = {"base"})
 public class SemanticMetricBackendReporter implements MetricBackendReporter {
@@ -63,6 +67,16 @@ public class SemanticMetricBackendReporter implements MetricBackendReporter {
     private final FutureReporter findSeries;
     private final FutureReporter queryMetrics;
 
+    private final Meter fetchCoalesced;
+    private final Meter fetchIssued;
+
+    private final Timer fetchWait;
+    private final Timer fetchDecode;
+    private final Timer aggregationUpdate;
+    private final Timer aggregationResult;
+    private final Histogram queryPointsRead;
+    private final Histogram queryBytesRead;
+
     public SemanticMetricBackendReporter(SemanticMetricRegistry registry) {
         final MetricId base = MetricId.build().tagged("component", COMPONENT);
 
@@ -83,6 +97,22 @@ public class SemanticMetricBackendReporter implements MetricBackendReporter {
             base.tagged("what", "find-series", "unit", Units.QUERY));
         this.queryMetrics = new SemanticFutureReporter(registry,
             base.tagged("what", "query-metrics", "unit", Units.QUERY));
+
+        this.fetchCoalesced =
+            registry.meter(base.tagged("what", "fetch-coalesced", "unit", Units.QUERY));
+        this.fetchIssued =
+            registry.meter(base.tagged("what", "fetch-issued", "unit", Units.QUERY));
+
+        this.fetchWait = registry.timer(base.tagged("what", "fetch-wait-latency"));
+        this.fetchDecode = registry.timer(base.tagged("what", "fetch-decode-latency"));
+        this.aggregationUpdate =
+            registry.timer(base.tagged("what", "aggregation-update-latency"));
+        this.aggregationResult =
+            registry.timer(base.tagged("what", "aggregation-result-latency"));
+        this.queryPointsRead =
+            registry.histogram(base.tagged("what", "query-points-read", "unit", Units.POINT));
+        this.queryBytesRead =
+            registry.histogram(base.tagged("what", "query-bytes-read", "unit", Units.BYTE));
     }
 
     @Override
@@ -100,6 +130,41 @@ public class SemanticMetricBackendReporter implements MetricBackendReporter {
         return queryMetrics.setup();
     }
 
+    @Override
+    public void reportFetchCoalesced(final boolean coalesced) {
+        if (coalesced) {
+            fetchCoalesced.mark();
+        } else {
+            fetchIssued.mark();
+        }
+    }
+
+    @Override
+    public void reportFetchWait(final long nanos) {
+        fetchWait.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void reportFetchDecode(final long nanos) {
+        fetchDecode.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void reportAggregationUpdate(final long nanos) {
+        aggregationUpdate.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void reportAggregationResult(final long nanos) {
+        aggregationResult.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void reportQueryRead(final long points, final long bytes) {
+        queryPointsRead.update(points);
+        queryBytesRead.update(bytes);
+    }
+
     @RequiredArgsConstructor
     private class InstrumentedMetricBackend implements MetricBackend {
         private final MetricBackend delegate;
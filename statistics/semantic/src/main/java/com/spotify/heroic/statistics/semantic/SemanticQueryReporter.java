@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2015 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.heroic.statistics.semantic;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.spotify.heroic.statistics.QueryReporter;
+import com.spotify.metrics.core.MetricId;
+import com.spotify.metrics.core.SemanticMetricRegistry;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+@ToString(of = {})
+public class SemanticQueryReporter implements QueryReporter {
+    private static final String COMPONENT = "query-manager";
+
+    private final Timer parse;
+    private final Meter parseCacheHit;
+    private final Meter parseCacheMiss;
+    private final Meter aggregationCacheHit;
+    private final Meter aggregationCacheMiss;
+    private final Timer combine;
+    private final Timer serialization;
+
+    public SemanticQueryReporter(SemanticMetricRegistry registry) {
+        final MetricId id = MetricId.build().tagged("component", COMPONENT);
+
+        parse = registry.timer(id.tagged("what", "parse-latency"));
+        parseCacheHit = registry.meter(id.tagged("what", "parse-cache-hit", "unit", Units.QUERY));
+        parseCacheMiss =
+            registry.meter(id.tagged("what", "parse-cache-miss", "unit", Units.QUERY));
+        aggregationCacheHit =
+            registry.meter(id.tagged("what", "aggregation-cache-hit", "unit", Units.QUERY));
+        aggregationCacheMiss =
+            registry.meter(id.tagged("what", "aggregation-cache-miss", "unit", Units.QUERY));
+        combine = registry.timer(id.tagged("what", "combine-latency"));
+        serialization = registry.timer(id.tagged("what", "serialization-latency"));
+    }
+
+    @Override
+    public void reportParse(long nanos) {
+        parse.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void reportParseCache(boolean hit) {
+        if (hit) {
+            parseCacheHit.mark();
+        } else {
+            parseCacheMiss.mark();
+        }
+    }
+
+    @Override
+    public void reportAggregationCache(boolean hit) {
+        if (hit) {
+            aggregationCacheHit.mark();
+        } else {
+            aggregationCacheMiss.mark();
+        }
+    }
+
+    @Override
+    public void reportCombine(long nanos) {
+        combine.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void reportSerialization(long nanos) {
+        serialization.update(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -25,6 +25,8 @@ final class Units {
     public static final String READ = "read";
     public static final String DELETE = "delete";
     public static final String MESSAGE = "message";
+    public static final String SAMPLE = "sample";
+    public static final String POINT = "point";
     public static final String WRITE = "write";
     public static final String QUERY = "query";
     public static final String CANCEL = "cancel";